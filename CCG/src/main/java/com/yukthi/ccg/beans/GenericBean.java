@@ -285,6 +285,14 @@ public class GenericBean extends SimpleAttributedBean implements Serializable,Cl
 			return freezed;
 		}
 		
+		/**
+		 * @return Whether this bean is read-only.
+		 */
+		public boolean isReadOnly()
+		{
+			return readOnly;
+		}
+		
 		/**
 		 * Assigns the current bean structure to the specified structure. Before changing 
 		 * this bean structure to specified struture, a check is performed if this bean
@@ -1,6 +1,7 @@
 package com.yukthi.ccg.core;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -169,6 +170,9 @@ public class SimpleAttributedBean implements Attributes,Serializable
 		
 		public Iterator getAttributes()
 		{
+				if(attributes==null)
+					return Collections.emptyIterator();
+			
 			return attributes.keySet().iterator();
 		}
 
@@ -2,392 +2,599 @@ package com.yukthi.ccg.ds;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.yukthi.ccg.util.Cache;
 
+/**
+ * Map which keeps recently used values in memory and moves values, which are not accessed for specified
+ * time gap (in minutes), to underlying cache.
+ *
+ * Reads of in-memory values are lock free. Modifications are serialized per key using striped locks. Expiry of
+ * in-memory values is tracked using a timing wheel, with a bucket per minute, so that every sweep only touches the
+ * entries which are due in current minute instead of scanning complete map.
+ */
 public class TimeBasedCacheMap implements Map
 {
 	public static final int MAX_TIME_GAP=1440;//in minutes, 24 hours, 1 day
 	public static final int DEFAULT_TIME_GAP=10;//in minutes
-	
+
+	/**
+	 * Number of lock stripes used to serialize modifications
+	 */
+	private static final int LOCK_STRIPES=16;
+
 	private static Timer bgThread=new Timer("TimerBasedCacheMap_BG_THREAD",true);
-	
+
 		private class Wrapper
 		{
+			private Object key;
 			private Object value;
-			private char stTime;//start time
-				public Wrapper(Object value)
+			private volatile long accessTime;//last access time
+				public Wrapper(Object key,Object value)
 				{
+					this.key=key;
 					this.value=value;
-					stTime=curTime;
+					accessTime=curTime;
 				}
-				
+
 				public void resetTime()
 				{
-					stTime=curTime;
+					accessTime=curTime;
 				}
-				
+
 				public Object getValue()
 				{
-					stTime=curTime;
+					accessTime=curTime;
 					return value;
 				}
-				
-				public boolean isTimeElapsed()
+
+				/**
+				 * Time (in minutes) at which this value should be moved out of memory, if not accessed
+				 * in meanwhile.
+				 */
+				public long getExpiryTime()
 				{
-					int gap=0;
-						if(stTime>curTime)//in the case of overflow
-						{
-							gap=MAX_TIME_GAP-stTime;
-							gap+=curTime;
-						}
-						else
-							gap=curTime-stTime;
-					return (gap>=timeGap);
+					return accessTime+timeGap;
 				}
-			
 		}
-	
+
 		public interface RemoveableBean
 		{}
-		
+
 		public interface PermanentBean
 		{}
-		
+
 		public static class MutableBeanContext implements Serializable
 		{
 			private static final long serialVersionUID=1L;
-			
+
 			private transient Object key;
 			private transient Object value;
 			private transient TimeBasedCacheMap timeMap;
-			
+
 				private MutableBeanContext(Object key,Object value,TimeBasedCacheMap timeMap)
 				{
 					this.key=key;
 					this.value=value;
 					this.timeMap=timeMap;
 				}
-				
+
 				public void registerChange()
 				{
 					timeMap.recacheValue(key,value);
 				}
 		}
-		
+
 		public interface MutableBean extends Serializable
 		{
 			public void setMutableBeanContext(MutableBeanContext context);
 		}
-		
-	private int entryCount=0;
-	private HashMap memoryMap=new HashMap();
+
+	private AtomicInteger entryCount=new AtomicInteger();
+	private ConcurrentHashMap<Object,Object> memoryMap=new ConcurrentHashMap<>();
 	private CacheMap cacheMap=null;
-	private char timeGap=10;
-	private char curTime=0;
+	private int timeGap=DEFAULT_TIME_GAP;
+	private volatile long curTime=0;
 	private CacheMapListener listener;
-	private boolean cacheEnabled=true;
-	
+	private volatile boolean cacheEnabled=true;
+
+	/**
+	 * Timing wheel with a bucket per minute. In-memory values are added to the bucket of the minute at which they expire.
+	 */
+	private Queue<Wrapper> expiryWheel[];
+
+	/**
+	 * Time (in minutes) till which wheel buckets are processed
+	 */
+	private long sweepTime=0;
+
+	/**
+	 * Locks used to serialize modifications on keys
+	 */
+	private ReentrantLock locks[]=new ReentrantLock[LOCK_STRIPES];
+
 		public TimeBasedCacheMap()
 		{
 			this(null,null,DEFAULT_TIME_GAP);
 		}
-		
+
 		public TimeBasedCacheMap(int timeGap)
 		{
 			this(null,null,timeGap);
 		}
-		
+
 		public TimeBasedCacheMap(String path,String name)
 		{
 			this(path,name,DEFAULT_TIME_GAP);
 		}
-		
+
 		public TimeBasedCacheMap(String path,String name,int timeGap)
 		{
 				if(path==null || name==null)
 					cacheMap=new CacheMap();
 				else
 					cacheMap=new CacheMap(path,name);
-				
+
 				if(timeGap<=0)
 					throw new IllegalArgumentException("Time gap should be non-zero positive value.");
-				
+
 				if(timeGap>MAX_TIME_GAP)
 					throw new IllegalArgumentException("Specified time gap exceeds MAX_TIME_GAP");
-			
-			setTimeGap((char)timeGap);
+
+			setTimeGap(timeGap);
 		}
-		
+
 		public TimeBasedCacheMap(Cache cache)
 		{
 			this(cache,DEFAULT_TIME_GAP);
 		}
-		
+
 		public TimeBasedCacheMap(Cache cache,int timeGap)
 		{
 				if(cache!=null)
 					cacheMap=new CacheMap(cache);
 				else
 					cacheMap=new CacheMap();
-			
+
 				if(timeGap<=0)
 					throw new IllegalArgumentException("Time gap should be non-zero positive value.");
-				
+
 				if(timeGap>MAX_TIME_GAP)
 					throw new IllegalArgumentException("Specified time gap exceeds MAX_TIME_GAP");
-				
-			setTimeGap((char)timeGap);
+
+			setTimeGap(timeGap);
 		}
-		
-		private void setTimeGap(final char timeGap)
+
+		@SuppressWarnings("unchecked")
+		private void setTimeGap(int timeGap)
 		{
 			this.timeGap=timeGap;
+
+				for(int i=0;i<locks.length;i++)
+					locks[i]=new ReentrantLock();
+
+			//values always expire within time-gap minutes, so one bucket per minute of the gap is sufficient
+			expiryWheel=new Queue[timeGap+1];
+
+				for(int i=0;i<expiryWheel.length;i++)
+					expiryWheel[i]=new ConcurrentLinkedQueue<Wrapper>();
+
 			TimerTask task=new TimerTask()
 				{
 					public void run()
 					{
-						curTime++;
-							if(curTime>MAX_TIME_GAP)
-								curTime=0;
-							
-							if(curTime%timeGap==0)
-								checkForCache();
+						tick();
 					}
 				};
-			
-			long gap=60*1000;//conversion of min to millSec 
-			bgThread.schedule(task,gap,gap);	
+
+			long gap=60*1000;//conversion of min to millSec
+			bgThread.schedule(task,gap,gap);
 		}
-		
+
 		public int getTimeGap()
 		{
 			return timeGap;
 		}
-		
-		private synchronized void recacheValue(Object key,Object value)
+
+		/**
+		 * Advances the current time by a minute and moves out the in-memory values which are expired.
+		 */
+		synchronized void tick()
+		{
+			curTime++;
+			checkForCache();
+		}
+
+		private ReentrantLock getLock(Object key)
+		{
+			int hash=(key==null)?0:key.hashCode();
+			hash^=(hash>>>16);
+
+			return locks[(hash&0x7fffffff)%locks.length];
+		}
+
+		private void lockAll()
+		{
+				for(ReentrantLock lock:locks)
+					lock.lock();
+		}
+
+		private void unlockAll()
+		{
+				for(int i=locks.length-1;i>=0;i--)
+					locks[i].unlock();
+		}
+
+		/**
+		 * Adds specified value to memory map and tracks its expiry. Should be called by holding the key lock.
+		 */
+		private void putInMemory(Object key,Object value)
 		{
-			//even though cache is disabled, this operation should not stop
-			//to make sure, cache is up-to-date when cahce is re-enabled.
-				if(cacheMap.containsKey(key))
+				if(value instanceof MutableBean)
 				{
-					//change the value in cache
-					cacheMap.remove(key);
-					cacheMap.put(key,value);
-					
-					//register new value in the memory map
-					memoryMap.put(key,new Wrapper(value));
+					MutableBeanContext context=new MutableBeanContext(key,value,this);
+					((MutableBean)value).setMutableBeanContext(context);
 				}
-				
-			//reset time in memory for this entry
-			Wrapper wrap=(Wrapper)memoryMap.get(key);
-			wrap.resetTime();
+
+			putWrapper(key,value);
 		}
-		
+
+		private void scheduleExpiry(Wrapper wrap)
+		{
+			expiryWheel[(int)(wrap.getExpiryTime()%expiryWheel.length)].add(wrap);
+		}
+
+		private void recacheValue(Object key,Object value)
+		{
+			ReentrantLock lock=getLock(key);
+			lock.lock();
+
+				try
+				{
+					//even though cache is disabled, this operation should not stop
+					//to make sure, cache is up-to-date when cahce is re-enabled.
+						synchronized(cacheMap)
+						{
+								if(cacheMap.containsKey(key))
+								{
+									//change the value in cache
+									cacheMap.remove(key);
+									cacheMap.put(key,value);
+
+									//register new value in the memory map
+									putWrapper(key,value);
+								}
+						}
+
+					//reset time in memory for this entry
+					Object wrap=memoryMap.get(key);
+
+						if(wrap instanceof Wrapper)
+							((Wrapper)wrap).resetTime();
+				}finally
+				{
+					lock.unlock();
+				}
+		}
+
+		/**
+		 * Adds wrapper of specified value to memory map and schedules its expiry. Wrapper is scheduled only after it is
+		 * added to the map, as sweeps drop scheduled wrappers which are not present in the map. Should be called by
+		 * holding the key lock.
+		 */
+		private void putWrapper(Object key,Object value)
+		{
+			Wrapper wrap=new Wrapper(key,value);
+
+			memoryMap.put(key,wrap);
+			scheduleExpiry(wrap);
+		}
+
+		/**
+		 * Processes the wheel buckets which became due after last sweep. Only the values present in these buckets
+		 * are checked. Values which are accessed after they are scheduled are moved to bucket of their new expiry time.
+		 */
 		private void checkForCache()
 		{
 				if(!cacheEnabled)
 					return;
-			//increment current time
-			int curTime=this.curTime+timeGap;
-				//take take care of overflow
-				if(curTime>Character.MAX_VALUE)
+
+			long curTime=this.curTime;
+
+			//when sweeps are missed (like when cache is disabled), process all pending buckets, at most once
+				if(curTime-sweepTime>expiryWheel.length)
+					sweepTime=curTime-expiryWheel.length;
+
+				while(sweepTime<curTime)
 				{
-					curTime-=Character.MAX_VALUE;
-					this.curTime=(char)curTime;
+					sweepTime++;
+					sweepBucket(expiryWheel[(int)(sweepTime%expiryWheel.length)],curTime);
 				}
-			
-			//check for each of memory map current entries for caching
-			//Note: newly added entries are not expected to get cached immediately
-			
-			HashSet keys=new HashSet(memoryMap.keySet());
-			Iterator it=keys.iterator();
-			Object key=null;
-			Object value=null;
+		}
+
+		private void sweepBucket(Queue<Wrapper> bucket,long curTime)
+		{
+			//values added during this sweep are not expected to get due in this sweep
+			int count=bucket.size();
 			Wrapper wrap=null;
-				while(it.hasNext())
+
+				while(count>0 && (wrap=bucket.poll())!=null)
 				{
-					key=it.next();
-					
-						synchronized(this)
+					count--;
+
+					//if value is already replaced or removed
+						if(memoryMap.get(wrap.key)!=wrap)
+							continue;
+
+					//if value is accessed after it is scheduled
+						if(wrap.getExpiryTime()>curTime)
 						{
-					
-							value=memoryMap.get(key);
-							
-								if(!(value instanceof Wrapper))//Note: nulls are also rejected.
-									continue;
-							
-							wrap=(Wrapper)value;
-							
-								if(wrap.isTimeElapsed())
+							scheduleExpiry(wrap);
+							continue;
+						}
+
+					expire(wrap,curTime);
+				}
+		}
+
+		private void expire(Wrapper wrap,long curTime)
+		{
+			Object key=wrap.key;
+			ReentrantLock lock=getLock(key);
+			lock.lock();
+
+				try
+				{
+					//recheck by holding the lock, as value might be changed or accessed in meanwhile
+						if(memoryMap.get(key)!=wrap)
+							return;
+
+						if(wrap.getExpiryTime()>curTime)
+						{
+							scheduleExpiry(wrap);
+							return;
+						}
+
+					Object value=wrap.value;
+
+						if(value instanceof RemoveableBean)
+						{
+							memoryMap.remove(key);
+							entryCount.decrementAndGet();
+
+								if(listener!=null)
+									listener.removedRemovable(key,value);
+						}
+						else
+						{
+								synchronized(cacheMap)
 								{
-									value=wrap.value;
-									
-										if(value instanceof RemoveableBean)
-										{
-		             						memoryMap.remove(key);
-											entryCount--;
-											
-												if(listener!=null)
-													listener.removedRemovable(key,value);
-										}
-										else
-										{
-												if(!cacheMap.containsKey(key))
-													cacheMap.put(key,value);
-												
-											memoryMap.remove(key);
-												if(listener!=null)
-													listener.objectCached(key,value);
-										}
+										if(!cacheMap.containsKey(key))
+											cacheMap.put(key,value);
 								}
+
+							memoryMap.remove(key);
+								if(listener!=null)
+									listener.objectCached(key,value);
 						}
+				}finally
+				{
+					lock.unlock();
 				}
 		}
 
-		public synchronized int size()
+		public int size()
 		{
-			return entryCount;
+			return entryCount.get();
 		}
-	
-		public synchronized boolean isEmpty()
+
+		public boolean isEmpty()
 		{
-			return (entryCount==0);
+			return (entryCount.get()==0);
 		}
-	
-		public synchronized boolean containsKey(Object key)
+
+		public boolean containsKey(Object key)
 		{
-			return (memoryMap.containsKey(key) || cacheMap.containsKey(key));
+				if(key==null)
+					return false;
+
+				if(memoryMap.containsKey(key))
+					return true;
+
+				synchronized(cacheMap)
+				{
+					return cacheMap.containsKey(key);
+				}
 		}
-	
+
 		public boolean containsValue(Object value)
 		{
 			throw new UnsupportedOperationException("This operation is not supported by this map.");
 		}
-	
-		public synchronized Object get(Object key)
+
+		public Object get(Object key)
 		{
+				if(key==null)
+					return null;
+
 			Object value=memoryMap.get(key);
-			
+
+			//values in memory are served without locking
 				if(value!=null)
 				{
 						if(!(value instanceof Wrapper))
 							return value;
-						
+
 					return ((Wrapper)value).getValue();
 				}
-			
-			value=cacheMap.get(key);
-			
-				if(value==null)
-					return null;
-			
-				if(value instanceof MutableBean)
+
+			ReentrantLock lock=getLock(key);
+			lock.lock();
+
+				try
 				{
-					MutableBeanContext context=new MutableBeanContext(key,value,this);
-					((MutableBean)value).setMutableBeanContext(context);
+					//check again, as value might have been loaded by other thread
+					value=memoryMap.get(key);
+
+						if(value!=null)
+						{
+								if(!(value instanceof Wrapper))
+									return value;
+
+							return ((Wrapper)value).getValue();
+						}
+
+						synchronized(cacheMap)
+						{
+							value=cacheMap.get(key);
+						}
+
+						if(value==null)
+							return null;
+
+					putInMemory(key,value);
+
+						if(listener!=null)
+							listener.loadedObject(key,value);
+
+					return value;
+				}finally
+				{
+					lock.unlock();
 				}
-				
-			memoryMap.put(key,new Wrapper(value));
-			
-				if(listener!=null)
-					listener.loadedObject(key,value);
-				
-			return value;
-		}
-	
-		public synchronized Object put(Object key,Object value)
-		{
-			Object prevVal=remove(key);
-			
-				if((value instanceof PermanentBean) || 
-						(!(value instanceof Serializable) && !(value instanceof RemoveableBean)))
-					memoryMap.put(key,value);
-				else
+		}
+
+		/**
+		 * Adds specified value to the map. Null keys and values are not supported.
+		 */
+		public Object put(Object key,Object value)
+		{
+				if(key==null || value==null)
+					throw new NullPointerException("Key or value can not be null.");
+
+			ReentrantLock lock=getLock(key);
+			lock.lock();
+
+				try
+				{
+					Object prevVal=remove(key);
+
+						if((value instanceof PermanentBean) ||
+								(!(value instanceof Serializable) && !(value instanceof RemoveableBean)))
+							memoryMap.put(key,value);
+						else
+							putInMemory(key,value);
+
+					entryCount.incrementAndGet();
+					return prevVal;
+				}finally
 				{
-						if(value instanceof MutableBean)
+					lock.unlock();
+				}
+		}
+
+		public Object remove(Object key)
+		{
+				if(key==null)
+					return null;
+
+			ReentrantLock lock=getLock(key);
+			lock.lock();
+
+				try
+				{
+					Object prevVal=memoryMap.remove(key);
+
+						if(prevVal instanceof Wrapper)
+							prevVal=((Wrapper)prevVal).value;
+
+					Object cacheValue=null;
+
+						synchronized(cacheMap)
 						{
-							MutableBeanContext context=new MutableBeanContext(key,value,this);
-							((MutableBean)value).setMutableBeanContext(context);
+							cacheValue=cacheMap.remove(key);
 						}
-					memoryMap.put(key,new Wrapper(value));
-				}
-				
-			entryCount++;
-			return prevVal;
-		}
-	
-		public synchronized Object remove(Object key)
-		{
-			Object prevVal=memoryMap.remove(key);
-			
-				if(prevVal instanceof Wrapper)
-					prevVal=((Wrapper)prevVal).getValue();
-			
-			Object cacheValue=cacheMap.remove(key);
-			
-				if(prevVal==null)
-					prevVal=cacheValue;
-				
-				if(prevVal!=null)
-					entryCount--;
-
-				if(prevVal instanceof MutableBean)
-					((MutableBean)prevVal).setMutableBeanContext(null);
-			return prevVal;
-		}
-	
-		public synchronized void putAll(Map map)
-		{
-			Iterator it=map.keySet().iterator();
-			Object key=null;
-			Object value=null;
-			
-				while(it.hasNext())
+
+						if(prevVal==null)
+							prevVal=cacheValue;
+
+						if(prevVal!=null)
+							entryCount.decrementAndGet();
+
+						if(prevVal instanceof MutableBean)
+							((MutableBean)prevVal).setMutableBeanContext(null);
+					return prevVal;
+				}finally
 				{
-					key=it.next();
-					value=map.get(key);
-					put(key,value);
+					lock.unlock();
 				}
 		}
-	
-		public synchronized void clear()
+
+		public void putAll(Map map)
 		{
-			memoryMap.clear();
-			cacheMap.clear();
-			entryCount=0;
+				for(Object key:map.keySet())
+					put(key,map.get(key));
 		}
-		
+
+		public void clear()
+		{
+			lockAll();
+
+				try
+				{
+					memoryMap.clear();
+
+						synchronized(cacheMap)
+						{
+							cacheMap.clear();
+						}
+
+						for(Queue<Wrapper> bucket:expiryWheel)
+							bucket.clear();
+
+					entryCount.set(0);
+				}finally
+				{
+					unlockAll();
+				}
+		}
+
 		/**
 		 * The set returned by this method is not backed by this map. That is changes
 		 * in this map will not be reflected on the set and vice versa.
 		 * @return
 		 */
-		public synchronized Set keys()
+		public Set keys()
 		{
 			HashSet res=new HashSet(memoryMap.keySet());
-			
-			res.addAll(cacheMap.keySet());
+
+				synchronized(cacheMap)
+				{
+					res.addAll(cacheMap.keySet());
+				}
 			return res;
 		}
-	
+
 		public Set keySet()
 		{
 			throw new UnsupportedOperationException("This operation is not supported by this map.");
 		}
-	
+
 		public Collection values()
 		{
 			throw new UnsupportedOperationException("This operation is not supported by this map.");
 		}
-	
+
 		public Set entrySet()
 		{
 			throw new UnsupportedOperationException("This operation is not supported by this map.");
@@ -412,7 +619,7 @@ public class TimeBasedCacheMap implements Map
 		{
 			return listener;
 		}
-		
+
 
 		public void setCacheMapListener(CacheMapListener listener)
 		{
@@ -423,41 +630,53 @@ public class TimeBasedCacheMap implements Map
 		{
 			return cacheEnabled;
 		}
-		
-		public synchronized void setCacheEnabled(boolean cacheEnabled)
+
+		public void setCacheEnabled(boolean cacheEnabled)
 		{
 			this.cacheEnabled=cacheEnabled;
 		}
-		
+
 		public void optimize()
 		{
-			cacheMap.optimize();
+				synchronized(cacheMap)
+				{
+					cacheMap.optimize();
+				}
 		}
-		
-		public synchronized void forceCache()
+
+		public void forceCache()
 		{
-			Iterator it=new HashSet(memoryMap.keySet()).iterator();
-			Object key=null;
-			Object value=null;
-			
-				while(it.hasNext())
+			lockAll();
+
+				try
 				{
-					key=it.next();
-					value=memoryMap.get(key);
-					
-						if(!(value instanceof Wrapper))
-							continue;
-						
-					value=((Wrapper)value).value;
-					
-						if(value instanceof RemoveableBean)
-							continue;
-						
-						if(value instanceof PermanentBean)
-							continue;
-						
-					memoryMap.remove(key);	
-					cacheMap.put(key,value);
+					Object value=null;
+
+						for(Object key:new HashSet<Object>(memoryMap.keySet()))
+						{
+							value=memoryMap.get(key);
+
+								if(!(value instanceof Wrapper))
+									continue;
+
+							value=((Wrapper)value).value;
+
+								if(value instanceof RemoveableBean)
+									continue;
+
+								if(value instanceof PermanentBean)
+									continue;
+
+							memoryMap.remove(key);
+
+								synchronized(cacheMap)
+								{
+									cacheMap.put(key,value);
+								}
+						}
+				}finally
+				{
+					unlockAll();
 				}
 		}
 }
@@ -1,10 +1,11 @@
 package com.yukthi.ccg.util;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AbstractObjectCacheFactory 
 {
-	private static HashMap<String, ObjectCacheFactory<?>> map = new HashMap<String, ObjectCacheFactory<?>>();
+	private static Map<String, ObjectCacheFactory<?>> map = new ConcurrentHashMap<String, ObjectCacheFactory<?>>();
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public static <T> ObjectCacheFactory<T> getObjectCacheFactory(Class<T> type)
@@ -14,8 +15,17 @@ public class AbstractObjectCacheFactory
 		
 		if(factory == null)
 		{
-			factory = new ObjectCacheFactory<T>(name, type);
-			map.put(name, factory);
+			//lock only when factory needs to be created, so that lookups are lock free
+			synchronized(map)
+			{
+				factory = (ObjectCacheFactory)map.get(name);
+				
+				if(factory == null)
+				{
+					factory = new ObjectCacheFactory<T>(name, type);
+					map.put(name, factory);
+				}
+			}
 		}
 		
 		return factory;
@@ -84,4 +84,16 @@ public interface Cache
 	 * optimization of resources (self-optimized).
 	 */
 	public void optimize();
+	
+	/**
+	 * Sets the serializer to be used for converting objects into raw bytes. Serializer should
+	 * be set before any object is written to the cache.
+	 * @param serializer Serializer to be used.
+	 */
+	public void setSerializer(CacheSerializer serializer);
+	
+	/**
+	 * @return Serializer being used for converting objects into raw bytes.
+	 */
+	public CacheSerializer getSerializer();
 }
@@ -1,8 +1,44 @@
 package com.yukthi.ccg.util;
 
-public interface CacheFactoryManagerMXBean 
+public interface CacheFactoryManagerMXBean
 {
 	public int getActiveCount();
 	public int getFreeCount();
 	public void clean();
+
+	public int getMaxIdle();
+	public void setMaxIdle(int maxIdle);
+
+	/**
+	 * @return Number of instances fetched from the factory
+	 */
+	public long getBorrowCount();
+
+	/**
+	 * @return Number of instances served from fetching thread's local cache
+	 */
+	public long getThreadCacheHitCount();
+
+	/**
+	 * @return Number of new instances created by the factory
+	 */
+	public long getCreateCount();
+
+	/**
+	 * @return Number of freed instances discarded because of max idle limit
+	 */
+	public long getTrimCount();
+
+	/**
+	 * @return Number of times a free instance was lost to another thread and the fetch had to retry
+	 */
+	public long getContentionCount();
+
+	public long getAverageBorrowTimeNanos();
+	public long getMaxBorrowTimeNanos();
+
+	/**
+	 * Resets borrow statistics
+	 */
+	public void resetStatistics();
 }
@@ -0,0 +1,30 @@
+package com.yukthi.ccg.util;
+
+import java.io.IOException;
+
+/**
+ * <BR><BR>
+ * Converts objects into raw bytes and vice versa, for storing them on the cache. Caching 
+ * mechanisms invoke serializers without any synchronization, so implementations are expected 
+ * to be thread safe.
+ * <BR>
+ * @author akiran
+ */
+public interface CacheSerializer
+{
+	/**
+	 * Converts specified object into raw bytes.
+	 * @param obj Object to be converted.
+	 * @return Raw bytes representing the object.
+	 * @throws IOException
+	 */
+	public byte[] serialize(Object obj) throws IOException;
+	
+	/**
+	 * Reverse operation of serialize(). Converts specified raw bytes into object.
+	 * @param data Raw bytes representing the object.
+	 * @return Object built from the specified raw bytes.
+	 * @throws IOException
+	 */
+	public Object deserialize(byte data[]) throws IOException;
+}
@@ -0,0 +1,417 @@
+package com.yukthi.ccg.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+
+import com.yukthi.ccg.beans.GenericBean;
+
+/**
+ * <BR><BR>
+ * Compact binary serializer for commonly cached types - primitive wrappers, strings, byte arrays, 
+ * object arrays, standard lists/sets/maps (ArrayList, LinkedList, HashSet, LinkedHashSet, HashMap
+ * and LinkedHashMap) and unstructured GenericBeans. Every value is written as a single byte type
+ * tag followed by its data, integers and lengths are written as variable length values.
+ * <BR><BR>
+ * Values of other types (including GenericBeans with structure or adder fields) are written using
+ * java serialization, so such values should be serializable.
+ * <BR>
+ * @author akiran
+ */
+public class CompactCacheSerializer implements CacheSerializer
+{
+	/**
+	 * Shared instance, as this serializer is stateless.
+	 */
+	public static final CompactCacheSerializer INSTANCE=new CompactCacheSerializer();
+	
+	private static final byte TYPE_NULL=0;
+	private static final byte TYPE_TRUE=1;
+	private static final byte TYPE_FALSE=2;
+	private static final byte TYPE_BYTE=3;
+	private static final byte TYPE_SHORT=4;
+	private static final byte TYPE_CHAR=5;
+	private static final byte TYPE_INT=6;
+	private static final byte TYPE_LONG=7;
+	private static final byte TYPE_FLOAT=8;
+	private static final byte TYPE_DOUBLE=9;
+	private static final byte TYPE_STRING=10;
+	private static final byte TYPE_BYTE_ARRAY=11;
+	private static final byte TYPE_OBJECT_ARRAY=12;
+	private static final byte TYPE_ARRAY_LIST=13;
+	private static final byte TYPE_LINKED_LIST=14;
+	private static final byte TYPE_HASH_SET=15;
+	private static final byte TYPE_LINKED_HASH_SET=16;
+	private static final byte TYPE_HASH_MAP=17;
+	private static final byte TYPE_LINKED_HASH_MAP=18;
+	private static final byte TYPE_GENERIC_BEAN=19;
+	private static final byte TYPE_JAVA=127;
+	
+	private static final int FLAG_READ_ONLY=1;
+	private static final int FLAG_FREEZED=2;
+	
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.CacheSerializer#serialize(java.lang.Object)
+		 */
+		public byte[] serialize(Object obj) throws IOException
+		{
+			ByteArrayOutputStream bos=new ByteArrayOutputStream();
+			DataOutputStream out=new DataOutputStream(bos);
+			
+			write(out,obj);
+			out.flush();
+			return bos.toByteArray();
+		}
+	
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.CacheSerializer#deserialize(byte[])
+		 */
+		public Object deserialize(byte data[]) throws IOException
+		{
+			return read(new DataInputStream(new ByteArrayInputStream(data)));
+		}
+		
+		private void write(DataOutputStream out,Object obj) throws IOException
+		{
+				if(obj==null)
+				{
+					out.writeByte(TYPE_NULL);
+					return;
+				}
+			
+			Class<?> type=obj.getClass();
+			
+				if(type==String.class)
+				{
+					out.writeByte(TYPE_STRING);
+					writeString(out,(String)obj);
+				}
+				else if(type==Integer.class)
+				{
+					out.writeByte(TYPE_INT);
+					writeVarLong(out,(Integer)obj);
+				}
+				else if(type==Long.class)
+				{
+					out.writeByte(TYPE_LONG);
+					writeVarLong(out,(Long)obj);
+				}
+				else if(type==Boolean.class)
+					out.writeByte(((Boolean)obj)?TYPE_TRUE:TYPE_FALSE);
+				else if(type==Double.class)
+				{
+					out.writeByte(TYPE_DOUBLE);
+					out.writeDouble((Double)obj);
+				}
+				else if(type==Float.class)
+				{
+					out.writeByte(TYPE_FLOAT);
+					out.writeFloat((Float)obj);
+				}
+				else if(type==Short.class)
+				{
+					out.writeByte(TYPE_SHORT);
+					out.writeShort((Short)obj);
+				}
+				else if(type==Byte.class)
+				{
+					out.writeByte(TYPE_BYTE);
+					out.writeByte((Byte)obj);
+				}
+				else if(type==Character.class)
+				{
+					out.writeByte(TYPE_CHAR);
+					out.writeChar((Character)obj);
+				}
+				else if(type==byte[].class)
+				{
+					byte data[]=(byte[])obj;
+					
+					out.writeByte(TYPE_BYTE_ARRAY);
+					writeVarLong(out,data.length);
+					out.write(data);
+				}
+				else if(type==Object[].class)
+				{
+					Object arr[]=(Object[])obj;
+					
+					out.writeByte(TYPE_OBJECT_ARRAY);
+					writeVarLong(out,arr.length);
+					
+						for(Object elem:arr)
+							write(out,elem);
+				}
+				else if(type==ArrayList.class)
+					writeCollection(out,TYPE_ARRAY_LIST,(Collection<?>)obj);
+				else if(type==LinkedList.class)
+					writeCollection(out,TYPE_LINKED_LIST,(Collection<?>)obj);
+				else if(type==HashSet.class)
+					writeCollection(out,TYPE_HASH_SET,(Collection<?>)obj);
+				else if(type==LinkedHashSet.class)
+					writeCollection(out,TYPE_LINKED_HASH_SET,(Collection<?>)obj);
+				else if(type==HashMap.class)
+					writeMap(out,TYPE_HASH_MAP,(Map<?,?>)obj);
+				else if(type==LinkedHashMap.class)
+					writeMap(out,TYPE_LINKED_HASH_MAP,(Map<?,?>)obj);
+				else if(type==GenericBean.class && isCompactBean((GenericBean)obj))
+					writeGenericBean(out,(GenericBean)obj);
+				else
+				{
+					byte data[]=JavaCacheSerializer.INSTANCE.serialize(obj);
+					
+					out.writeByte(TYPE_JAVA);
+					writeVarLong(out,data.length);
+					out.write(data);
+				}
+		}
+		
+		private Object read(DataInputStream in) throws IOException
+		{
+			byte type=in.readByte();
+			
+				switch(type)
+				{
+					case TYPE_NULL:
+						return null;
+					case TYPE_TRUE:
+						return Boolean.TRUE;
+					case TYPE_FALSE:
+						return Boolean.FALSE;
+					case TYPE_BYTE:
+						return in.readByte();
+					case TYPE_SHORT:
+						return in.readShort();
+					case TYPE_CHAR:
+						return in.readChar();
+					case TYPE_INT:
+						return (int)readVarLong(in);
+					case TYPE_LONG:
+						return readVarLong(in);
+					case TYPE_FLOAT:
+						return in.readFloat();
+					case TYPE_DOUBLE:
+						return in.readDouble();
+					case TYPE_STRING:
+						return readString(in);
+					case TYPE_BYTE_ARRAY:
+					{
+						byte data[]=new byte[(int)readVarLong(in)];
+						in.readFully(data);
+						return data;
+					}
+					case TYPE_OBJECT_ARRAY:
+					{
+						Object arr[]=new Object[(int)readVarLong(in)];
+						
+							for(int i=0;i<arr.length;i++)
+								arr[i]=read(in);
+						return arr;
+					}
+					case TYPE_ARRAY_LIST:
+					{
+						int size=(int)readVarLong(in);
+						return readCollection(in,new ArrayList<Object>(size),size);
+					}
+					case TYPE_LINKED_LIST:
+						return readCollection(in,new LinkedList<Object>(),(int)readVarLong(in));
+					case TYPE_HASH_SET:
+						return readCollection(in,new HashSet<Object>(),(int)readVarLong(in));
+					case TYPE_LINKED_HASH_SET:
+						return readCollection(in,new LinkedHashSet<Object>(),(int)readVarLong(in));
+					case TYPE_HASH_MAP:
+						return readMap(in,new HashMap<Object,Object>(),(int)readVarLong(in));
+					case TYPE_LINKED_HASH_MAP:
+						return readMap(in,new LinkedHashMap<Object,Object>(),(int)readVarLong(in));
+					case TYPE_GENERIC_BEAN:
+						return readGenericBean(in);
+					case TYPE_JAVA:
+					{
+						byte data[]=new byte[(int)readVarLong(in)];
+						in.readFully(data);
+						return JavaCacheSerializer.INSTANCE.deserialize(data);
+					}
+				}
+				
+			throw new IOException("Invalid type tag encountered in cached data: "+type);
+		}
+		
+		private void writeCollection(DataOutputStream out,byte type,Collection<?> collection) throws IOException
+		{
+			out.writeByte(type);
+			writeVarLong(out,collection.size());
+			
+				for(Object elem:collection)
+					write(out,elem);
+		}
+		
+		private Collection<Object> readCollection(DataInputStream in,Collection<Object> collection,int size) throws IOException
+		{
+				for(int i=0;i<size;i++)
+					collection.add(read(in));
+			
+			return collection;
+		}
+		
+		private void writeMap(DataOutputStream out,byte type,Map<?,?> map) throws IOException
+		{
+			out.writeByte(type);
+			writeVarLong(out,map.size());
+			
+				for(Map.Entry<?,?> entry:map.entrySet())
+				{
+					write(out,entry.getKey());
+					write(out,entry.getValue());
+				}
+		}
+		
+		private Map<Object,Object> readMap(DataInputStream in,Map<Object,Object> map,int size) throws IOException
+		{
+				for(int i=0;i<size;i++)
+					map.put(read(in),read(in));
+			
+			return map;
+		}
+		
+		/**
+		 * Checks if specified bean can be written in compact format. Beans with structure or adder
+		 * fields are written using java serialization.
+		 */
+		private boolean isCompactBean(GenericBean bean)
+		{
+				if(bean.getStructure()!=null)
+					return false;
+			
+			Iterator<?> it=bean.getFieldNames();
+			
+				while(it.hasNext())
+				{
+						if(bean.isAdderField((String)it.next()))
+							return false;
+				}
+				
+			return true;
+		}
+		
+		private void writeGenericBean(DataOutputStream out,GenericBean bean) throws IOException
+		{
+			out.writeByte(TYPE_GENERIC_BEAN);
+			out.writeByte((bean.isReadOnly()?FLAG_READ_ONLY:0)|(bean.isFreezed()?FLAG_FREEZED:0));
+			
+			Map<Object,Object> values=new LinkedHashMap<Object,Object>();
+			Iterator<?> it=bean.getFieldNames();
+			String name=null;
+			
+				while(it.hasNext())
+				{
+					name=(String)it.next();
+					values.put(name,bean.getField(name));
+				}
+				
+			writeVarLong(out,values.size());
+			
+				for(Map.Entry<Object,Object> entry:values.entrySet())
+				{
+					writeString(out,(String)entry.getKey());
+					write(out,entry.getValue());
+				}
+			
+			values.clear();
+			it=bean.getAttributes();
+			Object id=null;
+			
+				while(it.hasNext())
+				{
+					id=it.next();
+					values.put(id,bean.getAttribute(id));
+				}
+				
+			writeVarLong(out,values.size());
+			
+				for(Map.Entry<Object,Object> entry:values.entrySet())
+				{
+					write(out,entry.getKey());
+					write(out,entry.getValue());
+				}
+		}
+		
+		private GenericBean readGenericBean(DataInputStream in) throws IOException
+		{
+			int flags=in.readByte();
+			GenericBean bean=new GenericBean((flags&FLAG_READ_ONLY)!=0);
+			
+			int count=(int)readVarLong(in);
+			
+				for(int i=0;i<count;i++)
+					bean.setField(readString(in),read(in));
+			
+			count=(int)readVarLong(in);
+			
+				for(int i=0;i<count;i++)
+					bean.setAttribute(read(in),read(in));
+				
+				if((flags&FLAG_FREEZED)!=0)
+					bean.freeze();
+			return bean;
+		}
+		
+		private void writeString(DataOutputStream out,String str) throws IOException
+		{
+			byte data[]=str.getBytes(StandardCharsets.UTF_8);
+			
+			writeVarLong(out,data.length);
+			out.write(data);
+		}
+		
+		private String readString(DataInputStream in) throws IOException
+		{
+			byte data[]=new byte[(int)readVarLong(in)];
+			in.readFully(data);
+			
+			return new String(data,StandardCharsets.UTF_8);
+		}
+		
+		/**
+		 * Writes specified value in zig-zag variable length format, where small positive
+		 * and negative values take less bytes.
+		 */
+		private void writeVarLong(DataOutputStream out,long value) throws IOException
+		{
+			long zigZag=(value<<1)^(value>>63);
+			
+				while((zigZag&~0x7FL)!=0)
+				{
+					out.writeByte((int)((zigZag&0x7F)|0x80));
+					zigZag>>>=7;
+				}
+				
+			out.writeByte((int)zigZag);
+		}
+		
+		private long readVarLong(DataInputStream in) throws IOException
+		{
+			long zigZag=0;
+			int shift=0;
+			int b=0;
+			
+				do
+				{
+					b=in.readByte();
+					zigZag|=((long)(b&0x7F))<<shift;
+					shift+=7;
+				}while((b&0x80)!=0);
+				
+			return (zigZag>>>1)^-(zigZag&1);
+		}
+}
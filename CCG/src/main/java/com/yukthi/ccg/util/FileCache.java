@@ -1,20 +1,16 @@
 package com.yukthi.ccg.util;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
-import java.io.Serializable;
 
 /**
  * � Copyright 2006 IBM Corporation
  * <BR><BR>
  * <P>
  * FileCache represents cache for the objects maintained in files. <I>Only serializable 
- * objects can be used with the FileCache.</I>
+ * objects can be used with the FileCache, unless a different serializer is set using 
+ * setSerializer().</I>
  * <BR><BR>
  * FileCache uses currently two files for maintaining cache (for the sake of efficiency) 
  * - an index file and a cache file. FileCache is optimized for retrieval and storing 
@@ -47,7 +43,8 @@ import java.io.Serializable;
  * When all the objects are removed from the cache, this mechanism will automatically 
  * truncates the files and restarts the indexing for new objects.
  * <BR><BR>
- * <B>Note: All the methods in this cache mechanism are synchronized.</B>
+ * <B>Note: All the file operations in this cache mechanism are synchronized. Conversion of 
+ * objects to raw bytes and vice versa are done outside synchronization.</B>
  * <BR><BR>
  * @author A. Kranthi Kiran
  */
@@ -61,6 +58,7 @@ public class FileCache implements Cache
 	private RandomAccessFile idxFile;//to store free memory gap pointers
 	private int nextObjIdx=0;
 	private int objectCount=0;
+	private CacheSerializer serializer=JavaCacheSerializer.INSTANCE;
 	
 		/**
 		 * Uses OS specific temporary files and temporary directory for indexing 
@@ -171,36 +169,23 @@ public class FileCache implements Cache
 			return cachePath;
 		}
 		
-		/**
-		 * Converts an serializable object into byte array (sequence of raw bytes).
-		 * <BR>
-		 * @param obj Object which needs to get converted into bytes.
-		 * @return Converted raw bytes of the object.
-		 * @throws IOException
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.Cache#setSerializer(com.yukthi.ccg.util.CacheSerializer)
 		 */
-		private synchronized byte[] getByteDataFromObject(Object obj) throws IOException
+		public void setSerializer(CacheSerializer serializer)
 		{
-			ByteArrayOutputStream bos=new ByteArrayOutputStream();
-			ObjectOutputStream oos=new ObjectOutputStream(bos);
-			oos.writeObject(obj);
-			oos.flush();
-			return bos.toByteArray();
+				if(serializer==null)
+					throw new NullPointerException("Serializer cannot be null.");
+			
+			this.serializer=serializer;
 		}
-	
-		/**
-		 * Reverse operation of getByteDataFromObject(). This method converts raw bytes into
-		 * an object and returns the same.
-		 * <BR>
-		 * @param data  Raw bytes representing the object.
-		 * @return Object built from the specified raw bytes.
-		 * @throws ClassNotFoundException 
-		 * @throws IOException
+		
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.Cache#getSerializer()
 		 */
-		private synchronized Object getObjectFromByteData(byte data[]) throws IOException, ClassNotFoundException
+		public CacheSerializer getSerializer()
 		{
-			ByteArrayInputStream bos=new ByteArrayInputStream(data);
-			ObjectInputStream oos=new ObjectInputStream(bos);
-			return oos.readObject();
+			return serializer;
 		}
 		
 		/**
@@ -243,7 +228,7 @@ public class FileCache implements Cache
 		 * @param obj  Objects thats needs to be kept on the cache.
 		 * @return new index of the specified object.
 		 */
-		public synchronized int writeObject(Object obj)throws IOException
+		public int writeObject(Object obj)throws IOException
 		{
 				if(idxFile==null)
 					throw new CacheException("Cache is already closed.");
@@ -260,22 +245,34 @@ public class FileCache implements Cache
 		 * @return The index of the replacing object. If idx is within the bounds this value
 		 * 			will be same as idx. 
 		 */
-		public synchronized int replaceObject(int idx,Object obj)throws IOException
+		public int replaceObject(int idx,Object obj)throws IOException
 		{
 				if(idxFile==null)
 					throw new CacheException("Cache is already closed.");
 				
 				if(obj==null)
 					throw new NullPointerException("Null objects cannot be stored on cache.");
-				
-				if(!(obj instanceof Serializable))
-					throw new IllegalArgumentException("Only serializable objects can be placed on the cache.");
+			
+			//conversion is done without lock, so that multiple threads can convert in parallel
+			byte data[]=serializer.serialize(obj);
+			
+			return writeData(idx,data);
+		}
+		
+		/**
+		 * Writes specified object data to the cache file and updates the index.
+		 * @param idx Index of the object to be replaced, negative value for new object.
+		 * @param data Raw bytes of the object.
+		 * @return The index of the object.
+		 */
+		private synchronized int writeData(int idx,byte data[])throws IOException
+		{
+				if(idxFile==null)
+					throw new CacheException("Cache is already closed.");
 				
 				if(idx>=nextObjIdx)
 					throw new IndexOutOfBoundsException("Specified index is out of bounds: "+idx);
 			
-			byte data[]=getByteDataFromObject(obj);
-			
 			//write the object
 			long ptr=cacheFile.length();
 			
@@ -308,7 +305,31 @@ public class FileCache implements Cache
 		 * @param objIdx Index of the object which needs to be read.
 		 * @return Object at objIdx.
 		 */
-		public synchronized Object readObject(int objIdx)
+		public Object readObject(int objIdx)
+		{
+			byte data[]=readData(objIdx);
+			
+				//check whether this index points to deleted object
+				if(data==null)
+					return null;
+			
+			try
+			{
+				//conversion is done without lock, so that multiple threads can convert in parallel
+				return serializer.deserialize(data);
+			}catch(Exception ex)
+			{
+				throw new CacheException("Error in reading object from cache.",ex);
+			}
+		}
+		
+		/**
+		 * Reads the raw bytes of the object present at the specified index.
+		 * 
+		 * @param objIdx Index of the object which needs to be read.
+		 * @return Raw bytes of the object at objIdx. Null, if object is deleted.
+		 */
+		private synchronized byte[] readData(int objIdx)
 		{
 			if(idxFile==null)
 				throw new CacheException("Cache is already closed.");
@@ -331,7 +352,7 @@ public class FileCache implements Cache
 				byte data[]=new byte[len];
 				
 				read(data);
-				return getObjectFromByteData(data);
+				return data;
 			}catch(Exception ex)
 			{
 				throw new CacheException("Error in reading object from cache.",ex);
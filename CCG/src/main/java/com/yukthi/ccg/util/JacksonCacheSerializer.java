@@ -0,0 +1,78 @@
+package com.yukthi.ccg.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <BR><BR>
+ * Serializer which converts objects using jackson object mapper. Every value is written as its
+ * class name followed by the bytes generated by the mapper, and the class name is used to convert
+ * the bytes back to the value. Unlike java serialization, cached types need not be serializable
+ * but should be convertible by jackson.
+ * <BR><BR>
+ * By default json mapper is used. Binary formats (like smile) can be used by passing mapper
+ * built with the required factory, for example <I>new ObjectMapper(new SmileFactory())</I>.
+ * <BR>
+ * @author akiran
+ */
+public class JacksonCacheSerializer implements CacheSerializer
+{
+	private ObjectMapper objectMapper;
+	
+		public JacksonCacheSerializer()
+		{
+			this(new ObjectMapper());
+		}
+		
+		/**
+		 * @param objectMapper Mapper to be used for conversion. The mapper should not be reconfigured 
+		 * 			after it is used by this serializer.
+		 */
+		public JacksonCacheSerializer(ObjectMapper objectMapper)
+		{
+				if(objectMapper==null)
+					throw new NullPointerException("Object mapper can not be null.");
+			
+			this.objectMapper=objectMapper;
+		}
+	
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.CacheSerializer#serialize(java.lang.Object)
+		 */
+		public byte[] serialize(Object obj) throws IOException
+		{
+			ByteArrayOutputStream bos=new ByteArrayOutputStream();
+			DataOutputStream out=new DataOutputStream(bos);
+			
+			out.writeUTF(obj.getClass().getName());
+			out.write(objectMapper.writeValueAsBytes(obj));
+			out.flush();
+			return bos.toByteArray();
+		}
+	
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.CacheSerializer#deserialize(byte[])
+		 */
+		public Object deserialize(byte data[]) throws IOException
+		{
+			DataInputStream in=new DataInputStream(new ByteArrayInputStream(data));
+			String className=in.readUTF();
+			ClassLoader classLoader=Thread.currentThread().getContextClassLoader();
+			Class<?> type=null;
+			
+				try
+				{
+					type=Class.forName(className,true,(classLoader!=null)?classLoader:getClass().getClassLoader());
+				}catch(ClassNotFoundException ex)
+				{
+					throw new IOException("Failed to load class of cached object: "+className,ex);
+				}
+				
+			return objectMapper.readValue(in,type);
+		}
+}
@@ -0,0 +1,54 @@
+package com.yukthi.ccg.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * <BR><BR>
+ * Serializer which uses java serialization. Only serializable objects are supported. This is
+ * the default serializer used by caching mechanisms.
+ * <BR>
+ * @author akiran
+ */
+public class JavaCacheSerializer implements CacheSerializer
+{
+	/**
+	 * Shared instance, as this serializer is stateless.
+	 */
+	public static final JavaCacheSerializer INSTANCE=new JavaCacheSerializer();
+	
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.CacheSerializer#serialize(java.lang.Object)
+		 */
+		public byte[] serialize(Object obj) throws IOException
+		{
+				if(!(obj instanceof Serializable))
+					throw new IllegalArgumentException("Only serializable objects can be placed on the cache.");
+			
+			ByteArrayOutputStream bos=new ByteArrayOutputStream();
+			ObjectOutputStream oos=new ObjectOutputStream(bos);
+			oos.writeObject(obj);
+			oos.flush();
+			return bos.toByteArray();
+		}
+	
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.CacheSerializer#deserialize(byte[])
+		 */
+		public Object deserialize(byte data[]) throws IOException
+		{
+			ObjectInputStream ois=new ObjectInputStream(new ByteArrayInputStream(data));
+			
+				try
+				{
+					return ois.readObject();
+				}catch(ClassNotFoundException ex)
+				{
+					throw new IOException("Failed to load class of cached object.",ex);
+				}
+		}
+}
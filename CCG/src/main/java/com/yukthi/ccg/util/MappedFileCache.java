@@ -0,0 +1,735 @@
+package com.yukthi.ccg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <P>
+ * MappedFileCache represents cache for the objects maintained in memory mapped segment files.
+ * <I>Only serializable objects can be used with the MappedFileCache, unless a different serializer 
+ * is set using setSerializer().</I>
+ * </P>
+ * <UL>
+ * 	<LI>
+ * 		<B><I>Segment files</I></B> are fixed size files (named as fileName+"-"+segmentId+".seg") which are
+ * 		mapped into memory. Objects are always appended to the active segment, and when the active segment is
+ * 		full a new segment is created. Every record in a segment is stored as object-index, length and raw bytes
+ * 		of the object.
+ * 	</LI>
+ * 	<LI>
+ * 		<B><I>Index</I></B> is maintained in memory and maps object index to the segment and offset where
+ * 		the object is stored.
+ * 	</LI>
+ * </UL>
+ * Removal or replacement of objects only marks the older records as dead. Segments having dead
+ * records beyond compaction threshold are compacted in background, one segment at a time, by moving their
+ * live records to the active segment and deleting the segment file. optimize() compacts all such segments
+ * immediately.
+ * <BR><BR>
+ * Reads are not synchronized and can happen concurrently. Conversion of objects into bytes is also
+ * done without locking, only appending to segment and index updates are serialized.
+ * <BR><BR>
+ * @author akiran
+ */
+public class MappedFileCache implements Cache
+{
+	/**
+	 * Default size of segment files - 64 MB
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE=64*1024*1024;
+
+	/**
+	 * Default fraction of dead bytes, beyond which a segment gets compacted
+	 */
+	public static final float DEFAULT_COMPACTION_THRESHOLD=0.5f;
+
+	/**
+	 * Default interval (in millis) between background compactions
+	 */
+	public static final long DEFAULT_COMPACTION_INTERVAL=30*1000;
+
+	private static final int HEADER_SIZE=8;//object index and length
+	private static final int INITIAL_INDEX_SIZE=1024;
+
+	private static Timer bgThread=new Timer("MappedFileCache_BG_THREAD",true);
+
+		/**
+		 * Background compaction task. Cache is referred weakly so that unused caches can be
+		 * garbage collected (and closed) without explicit close.
+		 */
+		private static class CompactionTask extends TimerTask
+		{
+			private WeakReference<MappedFileCache> cacheRef;
+
+				public CompactionTask(MappedFileCache cache)
+				{
+					cacheRef=new WeakReference<MappedFileCache>(cache);
+				}
+
+				public void run()
+				{
+					MappedFileCache cache=cacheRef.get();
+
+						if(cache==null)
+						{
+							cancel();
+							return;
+						}
+
+						if(!cache.closed)
+							cache.compact(true);
+				}
+		}
+
+		/**
+		 * Represents a memory mapped segment file
+		 */
+		private static class Segment
+		{
+			private int id;
+			private File file;
+			private FileChannel channel;
+			private MappedByteBuffer buffer;
+
+			/**
+			 * Position at which next record will be appended
+			 */
+			private volatile int writePosition;
+
+			/**
+			 * Number of bytes occupied by removed or replaced records
+			 */
+			private AtomicLong deadBytes=new AtomicLong();
+
+				public Segment(int id,File file,int size) throws IOException
+				{
+					this.id=id;
+					this.file=file;
+
+						if(file.exists())
+							file.delete();
+
+					RandomAccessFile raFile=new RandomAccessFile(file,"rw");
+					raFile.setLength(size);
+
+					channel=raFile.getChannel();
+					buffer=channel.map(FileChannel.MapMode.READ_WRITE,0,size);
+				}
+
+				public int capacity()
+				{
+					return buffer.capacity();
+				}
+
+				public int getInt(int position)
+				{
+					return buffer.getInt(position);
+				}
+
+				/**
+				 * Reads bytes at specified position. Duplicate buffer is used so that concurrent reads
+				 * do not disturb each other's position.
+				 */
+				public byte[] read(int position,int length)
+				{
+					ByteBuffer reader=buffer.duplicate();
+					reader.position(position);
+
+					byte data[]=new byte[length];
+					reader.get(data);
+					return data;
+				}
+
+				public void append(int objIdx,byte data[])
+				{
+					ByteBuffer writer=buffer.duplicate();
+					writer.position(writePosition);
+					writer.putInt(objIdx);
+					writer.putInt(data.length);
+					writer.put(data);
+
+					writePosition=writer.position();
+				}
+
+				public void close()
+				{
+						try
+						{
+							channel.close();
+						}catch(IOException ex)
+						{
+							throw new CacheException("Error in closing segment file: "+file,ex);
+						}
+
+					//mapped buffer gets released only on gc, where deletion is not allowed while
+					//buffer is still mapped, file will get deleted on exit
+						if(!file.delete())
+							file.deleteOnExit();
+				}
+		}
+
+	private File path;
+	private String fileName;
+	private int segmentSize;
+	private float compactionThreshold=DEFAULT_COMPACTION_THRESHOLD;
+	private CacheSerializer serializer=JavaCacheSerializer.INSTANCE;
+
+	/**
+	 * Segments by their id
+	 */
+	private Map<Integer,Segment> segments=new ConcurrentHashMap<Integer,Segment>();
+
+	/**
+	 * Segment to which objects are appended
+	 */
+	private volatile Segment activeSegment;
+	private int nextSegmentId=0;
+
+	/**
+	 * Location (segment id in higher int and offset in lower int) of objects by their index. Deleted
+	 * object locations will be -1.
+	 */
+	private volatile AtomicLongArray index=new AtomicLongArray(INITIAL_INDEX_SIZE);
+	private volatile int nextObjIdx=0;
+	private volatile int objectCount=0;
+	private volatile boolean closed=false;
+
+	/**
+	 * Lock used to serialize appends and index modifications
+	 */
+	private ReentrantLock writeLock=new ReentrantLock();
+
+	private TimerTask compactionTask;
+
+		/**
+		 * Uses OS specific temporary directory for segment files.
+		 */
+		public MappedFileCache()
+		{
+			this(createTempDirectory(),"ObjCacheFile",DEFAULT_SEGMENT_SIZE);
+		}
+
+		/**
+		 * Creates segment files with names fileName+"-"+segmentId+".seg" in the specified path.
+		 * <BR>
+		 * If segment files already exists with this name, they will get deleted.
+		 * <BR>
+		 * @param path Direcory path where segment files should be maintained.
+		 * @param fileName Name of the segment files to be maitained
+		 */
+		public MappedFileCache(String path,String fileName)
+		{
+			this(new File(path),fileName,DEFAULT_SEGMENT_SIZE);
+		}
+
+		/**
+		 * Creates segment files with names fileName+"-"+segmentId+".seg" in the specified path.
+		 * <BR>
+		 * If segment files already exists with this name, they will get deleted.
+		 * <BR>
+		 * @param path Direcory path where segment files should be maintained.
+		 * @param fileName Name of the segment files to be maitained
+		 * @param segmentSize Size of the segment files in bytes. Objects bigger than this size are stored in
+		 * 				dedicated segments.
+		 */
+		public MappedFileCache(File path,String fileName,int segmentSize)
+		{
+				if(path==null)
+					throw new NullPointerException("Path cannot be null.");
+
+				if(!path.exists() || !path.isDirectory())
+					throw new IllegalArgumentException("Specified path is not an exisiting directory: "+path.getAbsolutePath());
+
+				if(fileName==null || fileName.trim().length()==0)
+					throw new NullPointerException("File Name cannot be null or empty.");
+
+				if(segmentSize<=HEADER_SIZE)
+					throw new IllegalArgumentException("Invalid segment size specified: "+segmentSize);
+
+			this.path=path;
+			this.fileName=fileName.trim();
+			this.segmentSize=segmentSize;
+
+			setCompactionInterval(DEFAULT_COMPACTION_INTERVAL);
+		}
+
+		private static File createTempDirectory()
+		{
+				try
+				{
+					File dir=Files.createTempDirectory("ObjCache").toFile();
+					dir.deleteOnExit();
+
+					return dir;
+				}catch(IOException ex)
+				{
+					throw new CacheException("Error in creating cache directory.",ex);
+				}
+		}
+
+		/**
+		 * Sets the interval (in millis) between background compactions. In every compaction at most one segment
+		 * gets compacted. Zero or negative value disables background compaction.
+		 * @param interval Interval between compactions
+		 */
+		public synchronized void setCompactionInterval(long interval)
+		{
+				if(compactionTask!=null)
+					compactionTask.cancel();
+
+			compactionTask=null;
+
+				if(interval<=0)
+					return;
+
+			compactionTask=new CompactionTask(this);
+			bgThread.schedule(compactionTask,interval,interval);
+		}
+
+		/**
+		 * Returns the fraction of dead bytes beyond which a segment gets compacted.
+		 * @return Compaction threshold
+		 */
+		public float getCompactionThreshold()
+		{
+			return compactionThreshold;
+		}
+
+		/**
+		 * Sets the fraction (between 0 and 1) of dead bytes beyond which a segment gets compacted.
+		 * @param compactionThreshold Compaction threshold
+		 */
+		public void setCompactionThreshold(float compactionThreshold)
+		{
+				if(compactionThreshold<=0 || compactionThreshold>1)
+					throw new IllegalArgumentException("Invalid compaction threshold specified: "+compactionThreshold);
+
+			this.compactionThreshold=compactionThreshold;
+		}
+
+		/**
+		 * Returns the number of segment files currently in use.
+		 * @return Number of segment files
+		 */
+		public int getSegmentCount()
+		{
+			return segments.size();
+		}
+
+		/**
+		 * Returns number of objects currently present on the cache.
+		 * @return Number of objects currently present on the cache.
+		 */
+		public int getObjectCount()
+		{
+			return objectCount;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.Cache#setSerializer(com.yukthi.ccg.util.CacheSerializer)
+		 */
+		public void setSerializer(CacheSerializer serializer)
+		{
+				if(serializer==null)
+					throw new NullPointerException("Serializer cannot be null.");
+
+			this.serializer=serializer;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.Cache#getSerializer()
+		 */
+		public CacheSerializer getSerializer()
+		{
+			return serializer;
+		}
+
+		private void checkClosed()
+		{
+				if(closed)
+					throw new CacheException("Cache is already closed.");
+		}
+
+		private static int segmentId(long location)
+		{
+			return (int)(location>>>32);
+		}
+
+		private static int offset(long location)
+		{
+			return (int)location;
+		}
+
+		/**
+		 * Appends specified record to active segment and returns its location. Should be called by
+		 * holding write lock.
+		 */
+		private long append(int objIdx,byte data[]) throws IOException
+		{
+			int recordSize=HEADER_SIZE+data.length;
+			Segment segment=activeSegment;
+
+				if(segment==null || segment.writePosition+recordSize>segment.capacity())
+				{
+					segment=new Segment(nextSegmentId,new File(path,fileName+"-"+nextSegmentId+".seg"),Math.max(segmentSize,recordSize));
+					nextSegmentId++;
+
+					segments.put(segment.id,segment);
+					activeSegment=segment;
+				}
+
+			long location=(((long)segment.id)<<32)|segment.writePosition;
+			segment.append(objIdx,data);
+
+			return location;
+		}
+
+		/**
+		 * Marks the record at specified location as dead. Should be called by holding write lock.
+		 */
+		private void markDead(long location)
+		{
+				if(location<0)
+					return;
+
+			Segment segment=segments.get(segmentId(location));
+				if(segment==null)
+					return;
+
+			segment.deadBytes.addAndGet(HEADER_SIZE+segment.getInt(offset(location)+4));
+		}
+
+		/**
+		 * Sets the location of specified object index, by growing index if required. Should be called
+		 * by holding write lock.
+		 */
+		private void setLocation(int objIdx,long location)
+		{
+			AtomicLongArray index=this.index;
+
+				if(objIdx>=index.length())
+				{
+					AtomicLongArray newIndex=new AtomicLongArray(Math.max(objIdx+1,index.length()*2));
+
+						for(int i=0;i<nextObjIdx;i++)
+							newIndex.set(i,index.get(i));
+
+					this.index=index=newIndex;
+				}
+
+			index.set(objIdx,location);
+		}
+
+		/**
+		 * Removes object at the specified index from the cache.
+		 * <BR>
+		 * If idx is out of bounds or represents deleted index, this method will not have
+		 * any effect.
+		 * <BR>
+		 * @param idx Index of the object that needs to be deleted.
+		 */
+		public void removeObject(int idx)
+		{
+			writeLock.lock();
+
+				try
+				{
+					checkClosed();
+
+						if(idx<0 || idx>=nextObjIdx)
+							return;
+
+					long location=index.get(idx);
+
+						if(location<0)
+							return;
+
+					index.set(idx,-1);
+					markDead(location);
+					objectCount--;
+
+						if(objectCount<=0)
+							clear();
+				}finally
+				{
+					writeLock.unlock();
+				}
+		}
+
+		/**
+		 * Writes the specified object to the cache and an index will get generated for obj
+		 * and returns the same. This index should be used to retrieve and delete obj from
+		 * the cache.
+		 * <BR>
+		 * @param obj  Objects thats needs to be kept on the cache.
+		 * @return new index of the specified object.
+		 */
+		public int writeObject(Object obj) throws IOException
+		{
+			return replaceObject(-1,obj);
+		}
+
+		/**
+		 * Replaces the object at specified index with the specified object. If idx is less
+		 * than zero then this method is equivalent to calling writeObject()
+		 *
+		 * @param idx Index of the object to be replaced.
+		 * @param obj Replacing object.
+		 * @return The index of the replacing object. If idx is within the bounds this value
+		 * 			will be same as idx.
+		 */
+		public int replaceObject(int idx,Object obj) throws IOException
+		{
+			checkClosed();
+
+				if(obj==null)
+					throw new NullPointerException("Null objects cannot be stored on cache.");
+
+			//conversion is done without lock, so that multiple threads can convert in parallel
+			byte data[]=serializer.serialize(obj);
+
+			writeLock.lock();
+
+				try
+				{
+					checkClosed();
+
+						if(idx>=nextObjIdx)
+							throw new IndexOutOfBoundsException("Specified index is out of bounds: "+idx);
+
+						if(idx>=0)
+						{
+							long oldLocation=index.get(idx);
+							setLocation(idx,append(idx,data));
+							markDead(oldLocation);
+
+								if(oldLocation<0)
+									objectCount++;
+							return idx;
+						}
+
+					int objIdx=nextObjIdx;
+					setLocation(objIdx,append(objIdx,data));
+
+					nextObjIdx++;
+					objectCount++;
+					return objIdx;
+				}finally
+				{
+					writeLock.unlock();
+				}
+		}
+
+		/**
+		 * Reads the object from the cache which is present at the specified index.
+		 *
+		 * @param objIdx Index of the object which needs to be read.
+		 * @return Object at objIdx, null if the object is deleted.
+		 */
+		public Object readObject(int objIdx)
+		{
+			checkClosed();
+
+				if(objIdx<0 || objIdx>=nextObjIdx)
+					throw new IndexOutOfBoundsException("Specified index is out of bounds: "+objIdx);
+
+			long location=0;
+			Segment segment=null;
+
+				while(true)
+				{
+					location=index.get(objIdx);
+
+						//check whether this index points to deleted object
+						if(location<0)
+							return null;
+
+					segment=segments.get(segmentId(location));
+
+						//if segment is not found, record might have been moved by compaction
+						if(segment!=null)
+							break;
+
+					checkClosed();
+
+						//check if cache is cleared in meanwhile
+						if(objIdx>=nextObjIdx)
+							throw new IndexOutOfBoundsException("Specified index is out of bounds: "+objIdx);
+
+					Thread.yield();
+				}
+
+				try
+				{
+					int length=segment.getInt(offset(location)+4);
+					return serializer.deserialize(segment.read(offset(location)+HEADER_SIZE,length));
+				}catch(Exception ex)
+				{
+					throw new CacheException("Error in reading object from cache.",ex);
+				}
+		}
+
+		/**
+		 * Compacts segments whose dead bytes crossed compaction threshold. Live records of such segments are
+		 * appended to active segment and segment files are deleted.
+		 * @param single If true, at most one segment will be compacted
+		 */
+		private void compact(boolean single)
+		{
+				for(Segment segment:segments.values())
+				{
+						if(segment==activeSegment || segment.deadBytes.get()<segment.capacity()*compactionThreshold)
+							continue;
+
+					compactSegment(segment);
+
+						if(single)
+							return;
+				}
+		}
+
+		/**
+		 * Moves live records of specified segment to active segment and removes the segment. Write lock
+		 * is acquired per record, so that writers are not blocked for complete segment.
+		 */
+		private void compactSegment(Segment segment)
+		{
+			int position=0;
+			int objIdx=0;
+			int length=0;
+			long location=0;
+
+				while(position<segment.writePosition)
+				{
+					objIdx=segment.getInt(position);
+					length=segment.getInt(position+4);
+					location=(((long)segment.id)<<32)|position;
+
+					writeLock.lock();
+
+						try
+						{
+								if(closed || !segments.containsKey(segment.id))
+									return;
+
+								//move the record only if it is still live
+								if(objIdx<nextObjIdx && index.get(objIdx)==location)
+									setLocation(objIdx,append(objIdx,segment.read(position+HEADER_SIZE,length)));
+						}catch(IOException ex)
+						{
+							throw new CacheException("Error in compacting segment file: "+segment.file,ex);
+						}finally
+						{
+							writeLock.unlock();
+						}
+
+					position+=HEADER_SIZE+length;
+				}
+
+			writeLock.lock();
+
+				try
+				{
+						if(segments.remove(segment.id)!=null)
+							segment.close();
+				}finally
+				{
+					writeLock.unlock();
+				}
+		}
+
+		/**
+		 * On closing of the cache, all segment files gets deleted. Any method calls
+		 * on this cache after this method call will throw CacheException.
+		 */
+		public void close()
+		{
+			writeLock.lock();
+
+				try
+				{
+					checkClosed();
+
+					closed=true;
+					setCompactionInterval(0);
+					removeSegments();
+				}finally
+				{
+					writeLock.unlock();
+				}
+		}
+
+		private void removeSegments()
+		{
+				for(Segment segment:segments.values())
+					segment.close();
+
+			segments.clear();
+			activeSegment=null;
+		}
+
+		/**
+		 * Clears all the objects in the cache and deletes the segment files.
+		 * And restarts the object indexing.
+		 */
+		public void clear()
+		{
+			writeLock.lock();
+
+				try
+				{
+					checkClosed();
+
+					//reset index before removing segments, so that readers will not wait for removed segments
+					index=new AtomicLongArray(INITIAL_INDEX_SIZE);
+					nextObjIdx=0;
+					objectCount=0;
+
+					removeSegments();
+				}finally
+				{
+					writeLock.unlock();
+				}
+		}
+
+		/**
+		 * Closes this cache object.
+		 * @see java.lang.Object#finalize()
+		 */
+		protected void finalize() throws Throwable
+		{
+				if(!closed)
+					close();
+		}
+
+		/**
+		 * Compacts all segments whose dead bytes crossed the compaction threshold, without waiting
+		 * for background compaction.
+		 */
+		public void optimize()
+		{
+			checkClosed();
+			compact(false);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.yukthi.ccg.util.Cache#isClosed()
+		 */
+		public boolean isClosed()
+		{
+			return closed;
+		}
+}
@@ -1,9 +1,14 @@
 package com.yukthi.ccg.util;
 
 import java.lang.management.ManagementFactory;
-import java.util.IdentityHashMap;
-import java.util.LinkedList;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanServer;
@@ -12,56 +17,238 @@ import javax.management.ObjectName;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class ObjectCacheFactory<T> 
+/**
+ * Factory which caches freed instances for reuse.
+ *
+ * Freed instances are first kept in a small per-thread cache, overflow goes to a lock-free shared
+ * free stack. Instance states are maintained using CAS, so no lock is used while fetching or freeing
+ * instances. Instances left in the cache of a thread (which may no longer use this factory) are picked up
+ * by other threads by scanning the entries, before creating new instances.
+ *
+ * Optionally max idle count can be set, beyond which freed instances are discarded. While freeing, only
+ * the instances in shared free stack and in the cache of freeing thread are counted against this limit.
+ */
+public class ObjectCacheFactory<T>
 {
 	private static Logger logger = LogManager.getLogger(ObjectCacheFactory.class);
-	
+
+	/**
+	 * Max number of free instances cached per thread
+	 */
+	private static final int THREAD_CACHE_SIZE = 4;
+
+	private static final int STATE_FREE = 0;
+	private static final int STATE_ACTIVE = 1;
+	private static final int STATE_REMOVED = 2;
+
+	/**
+	 * Free state of the entries kept in thread cache
+	 */
+	private static final int STATE_CACHED = 3;
+
 	public static class CacheFactoryMBean implements CacheFactoryManagerMXBean
 	{
 		private ObjectCacheFactory<?> factory;
-		
+
 		public CacheFactoryMBean(ObjectCacheFactory<?> factory)
 		{
 			this.factory = factory;
 		}
-		
+
 		@Override
-		public int getActiveCount() 
+		public int getActiveCount()
 		{
-			return factory.activeObjects.size();
+			return factory.entries.size() - getFreeCount();
 		}
 
 		@Override
-		public int getFreeCount() 
+		public int getFreeCount()
 		{
-			return factory.freeObjects.size();
+			return factory.idleCount.get() + factory.cachedCount.get();
 		}
 
 		@Override
-		public void clean() 
+		public void clean()
 		{
 			factory.clean();
 		}
 
+		@Override
+		public int getMaxIdle()
+		{
+			return factory.getMaxIdle();
+		}
+
+		@Override
+		public void setMaxIdle(int maxIdle)
+		{
+			factory.setMaxIdle(maxIdle);
+		}
+
+		@Override
+		public long getBorrowCount()
+		{
+			return factory.borrowCount.sum();
+		}
+
+		@Override
+		public long getThreadCacheHitCount()
+		{
+			return factory.threadCacheHitCount.sum();
+		}
+
+		@Override
+		public long getCreateCount()
+		{
+			return factory.createCount.sum();
+		}
+
+		@Override
+		public long getTrimCount()
+		{
+			return factory.trimCount.sum();
+		}
+
+		@Override
+		public long getContentionCount()
+		{
+			return factory.contentionCount.sum();
+		}
+
+		@Override
+		public long getAverageBorrowTimeNanos()
+		{
+			long count = factory.borrowCount.sum();
+			return (count > 0) ? factory.borrowTime.sum() / count : 0;
+		}
+
+		@Override
+		public long getMaxBorrowTimeNanos()
+		{
+			return factory.maxBorrowTime.get();
+		}
+
+		@Override
+		public void resetStatistics()
+		{
+			factory.borrowCount.reset();
+			factory.borrowTime.reset();
+			factory.maxBorrowTime.set(0);
+			factory.threadCacheHitCount.reset();
+			factory.createCount.reset();
+			factory.trimCount.reset();
+			factory.contentionCount.reset();
+		}
+	}
+
+	/**
+	 * Key used to look up entries by instance identity
+	 */
+	private static class IdentityKey
+	{
+		private Object instance;
+		private int hashCode;
+
+		public void set(Object instance)
+		{
+			this.instance = instance;
+			this.hashCode = System.identityHashCode(instance);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return (obj instanceof IdentityKey) && ((IdentityKey)obj).instance == instance;
+		}
 	}
 
-	LinkedList<T> freeObjects = new LinkedList<T>();
-	IdentityHashMap<T, T> activeObjects = new IdentityHashMap<T, T>();
+	/**
+	 * Wraps cached instance along with its state
+	 */
+	private static class Entry<T>
+	{
+		private T instance;
+		private IdentityKey key = new IdentityKey();
+		private AtomicInteger state = new AtomicInteger(STATE_ACTIVE);
+
+		public Entry(T instance)
+		{
+			this.instance = instance;
+			this.key.set(instance);
+		}
+	}
+
+	/**
+	 * All the instances (free and active) of this factory
+	 */
+	private Map<IdentityKey, Entry<T>> entries = new ConcurrentHashMap<IdentityKey, Entry<T>>();
+
+	/**
+	 * Shared free list, used as stack
+	 */
+	private ConcurrentLinkedDeque<Entry<T>> freeStack = new ConcurrentLinkedDeque<Entry<T>>();
+
+	/**
+	 * Per thread free list
+	 */
+	private ThreadLocal<ArrayDeque<Entry<T>>> threadCache = new ThreadLocal<ArrayDeque<Entry<T>>>()
+	{
+		protected ArrayDeque<Entry<T>> initialValue()
+		{
+			return new ArrayDeque<Entry<T>>(THREAD_CACHE_SIZE);
+		}
+	};
+
+	/**
+	 * Reusable key to look up entries, to avoid creating key per free
+	 */
+	private ThreadLocal<IdentityKey> lookupKey = new ThreadLocal<IdentityKey>()
+	{
+		protected IdentityKey initialValue()
+		{
+			return new IdentityKey();
+		}
+	};
+
 	private Class<T> type;
-	
-	private ReentrantLock lock = new ReentrantLock();
-	
+
+	/**
+	 * Number of free instances in shared free stack
+	 */
+	private AtomicInteger idleCount = new AtomicInteger();
+
+	/**
+	 * Number of free instances in thread caches (of all threads)
+	 */
+	private AtomicInteger cachedCount = new AtomicInteger();
+
+	private volatile int maxIdle = Integer.MAX_VALUE;
+
+	private LongAdder borrowCount = new LongAdder();
+	private LongAdder borrowTime = new LongAdder();
+	private AtomicLong maxBorrowTime = new AtomicLong();
+	private LongAdder threadCacheHitCount = new LongAdder();
+	private LongAdder createCount = new LongAdder();
+	private LongAdder trimCount = new LongAdder();
+	private LongAdder contentionCount = new LongAdder();
+
 	public ObjectCacheFactory(String name, Class<T> type)
 	{
 		if(type == null)
 		{
 			throw new IllegalStateException("Type cannot be null");
 		}
-		
+
 		this.type = type;
 		registerMBean(name);
 	}
-	
+
 	private void registerMBean(String name)
 	{
 		try
@@ -69,81 +256,238 @@ public class ObjectCacheFactory<T>
 			CacheFactoryMBean mbean = new CacheFactoryMBean(this);
 			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
 			ObjectName objectName = new ObjectName("com.fw.objectCache:name=" + name);
-			
+
 			try
 			{
 				server.unregisterMBean(objectName);
 				logger.warn("Object Cache MBean already exists with name: " + name);
 			}catch(InstanceNotFoundException ex)
 			{}
-			
+
 			server.registerMBean(mbean, objectName);
 		}catch(Exception ex)
 		{
 			throw new IllegalStateException("An error occurred while registering bean", ex);
 		}
 	}
-	
+
+	/**
+	 * Sets max number of free instances to be retained. Instances freed after this count is reached are discarded.
+	 * @param maxIdle
+	 */
+	public void setMaxIdle(int maxIdle)
+	{
+		if(maxIdle < 0)
+		{
+			throw new IllegalArgumentException("Max idle count can not be negative - " + maxIdle);
+		}
+
+		this.maxIdle = maxIdle;
+	}
+
+	public int getMaxIdle()
+	{
+		return maxIdle;
+	}
+
+	/**
+	 * Marks specified entry as active, if it is free
+	 * @param entry
+	 * @return True, if entry was free and marked active
+	 */
+	private boolean acquire(Entry<T> entry)
+	{
+		if(entry.state.compareAndSet(STATE_FREE, STATE_ACTIVE))
+		{
+			idleCount.decrementAndGet();
+			return true;
+		}
+
+		if(entry.state.compareAndSet(STATE_CACHED, STATE_ACTIVE))
+		{
+			cachedCount.decrementAndGet();
+			return true;
+		}
+
+		//entry was picked (or removed) by some other thread
+		contentionCount.increment();
+		return false;
+	}
+
+	/**
+	 * Fetches free entry from current thread cache or from shared free stack. If other threads
+	 * have cached instances, entries are scanned to pick them up.
+	 * @return
+	 */
+	private Entry<T> getFreeEntry()
+	{
+		ArrayDeque<Entry<T>> cache = threadCache.get();
+		Entry<T> entry = null;
+
+		while((entry = cache.pollLast()) != null)
+		{
+			if(acquire(entry))
+			{
+				threadCacheHitCount.increment();
+				return entry;
+			}
+		}
+
+		while((entry = freeStack.pollFirst()) != null)
+		{
+			if(acquire(entry))
+			{
+				return entry;
+			}
+		}
+
+		//current thread cache is empty at this point, so cached instances are held by other threads
+		if(cachedCount.get() <= 0)
+		{
+			return null;
+		}
+
+		int state = 0;
+
+		for(Entry<T> cacheEntry : entries.values())
+		{
+			state = cacheEntry.state.get();
+
+			if((state == STATE_FREE || state == STATE_CACHED) && acquire(cacheEntry))
+			{
+				return cacheEntry;
+			}
+		}
+
+		return null;
+	}
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public T getFreeInstance()
 	{
-		T instance = null;
-		
-		lock.lock();
-		
-		try
+		long startTime = System.nanoTime();
+		Entry<T> entry = getFreeEntry();
+
+		if(entry != null)
 		{
-			if(!freeObjects.isEmpty())
+			if(entry.instance instanceof ICacheableBean)
 			{
-				instance = freeObjects.removeFirst();
-				
-				if(instance instanceof ICacheableBean)
-				{
-					((ICacheableBean)instance).reinitalize(this);
-				}
+				((ICacheableBean)entry.instance).reinitalize(this);
 			}
-			else
+		}
+		else
+		{
+			try
+			{
+				entry = new Entry<T>(type.newInstance());
+			}catch(Exception ex)
 			{
-				try
-				{
-					instance = type.newInstance();
-				}catch(Exception ex)
-				{
-					throw new IllegalStateException("An error occurred while creating bean of type: " + type.getName(), ex);
-				}
+				throw new IllegalStateException("An error occurred while creating bean of type: " + type.getName(), ex);
 			}
-	
-			activeObjects.put(instance, instance);
-			return instance;
-		}finally
+
+			entries.put(entry.key, entry);
+			createCount.increment();
+		}
+
+		long timeTaken = System.nanoTime() - startTime;
+		long maxTime = 0;
+
+		borrowCount.increment();
+		borrowTime.add(timeTaken);
+
+		while(timeTaken > (maxTime = maxBorrowTime.get()))
 		{
-			lock.unlock();
+			if(maxBorrowTime.compareAndSet(maxTime, timeTaken))
+			{
+				break;
+			}
 		}
+
+		return entry.instance;
 	}
-	
+
 	public void free(T instance)
 	{
-		lock.lock();
-		
-		try
+		if(instance == null)
+		{
+			return;
+		}
+
+		IdentityKey key = lookupKey.get();
+		key.set(instance);
+
+		Entry<T> entry = entries.get(key);
+		key.set(null);
+
+		if(entry == null)
 		{
-			if(activeObjects.remove(instance) == null)
+			return;
+		}
+
+		ArrayDeque<Entry<T>> cache = threadCache.get();
+
+		//drop the cached entries picked up by other threads
+		for(Iterator<Entry<T>> it = cache.iterator(); it.hasNext();)
+		{
+			if(it.next().state.get() != STATE_CACHED)
 			{
-				return;
+				it.remove();
 			}
-			
-			freeObjects.add(instance);
-		}finally
+		}
+
+		//if max idle count is reached, discard the instance. Instances cached by other threads are not counted,
+		//as they may never be freed by those threads
+		if(idleCount.get() + cache.size() >= maxIdle)
 		{
-			lock.unlock();
+			if(entry.state.compareAndSet(STATE_ACTIVE, STATE_REMOVED))
+			{
+				entries.remove(entry.key);
+				trimCount.increment();
+			}
+
+			return;
+		}
+
+		if(cache.size() < THREAD_CACHE_SIZE)
+		{
+			if(entry.state.compareAndSet(STATE_ACTIVE, STATE_CACHED))
+			{
+				cachedCount.incrementAndGet();
+				cache.addLast(entry);
+			}
+
+			return;
+		}
+
+		if(entry.state.compareAndSet(STATE_ACTIVE, STATE_FREE))
+		{
+			idleCount.incrementAndGet();
+			freeStack.addFirst(entry);
 		}
 	}
-	
-	void clean() 
+
+	/**
+	 * Discards all free instances, including the ones cached by other threads
+	 */
+	void clean()
 	{
-		lock.lock();
-		freeObjects.clear();
-		lock.unlock();
+		for(Entry<T> entry : entries.values())
+		{
+			if(entry.state.compareAndSet(STATE_FREE, STATE_REMOVED))
+			{
+				idleCount.decrementAndGet();
+				entries.remove(entry.key);
+			}
+			//instances cached by other threads (including the threads which are no longer active)
+			else if(entry.state.compareAndSet(STATE_CACHED, STATE_REMOVED))
+			{
+				cachedCount.decrementAndGet();
+				entries.remove(entry.key);
+			}
+		}
+
+		freeStack.clear();
+		threadCache.remove();
 	}
 
 }
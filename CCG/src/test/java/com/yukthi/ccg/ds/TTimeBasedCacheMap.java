@@ -0,0 +1,223 @@
+package com.yukthi.ccg.ds;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TTimeBasedCacheMap
+{
+	public static class TestRemovableBean implements TimeBasedCacheMap.RemoveableBean
+	{}
+	
+	public static class TestPermanentBean implements TimeBasedCacheMap.PermanentBean, Serializable
+	{
+		private static final long serialVersionUID = 1L;
+	}
+	
+	private static class TestListener implements CacheMapListener
+	{
+		private List<Object> cached = new ArrayList<Object>();
+		private List<Object> loaded = new ArrayList<Object>();
+		private List<Object> removed = new ArrayList<Object>();
+		
+		public void objectCached(Object key, Object value)
+		{
+			cached.add(key);
+		}
+		
+		public void loadedObject(Object key, Object value)
+		{
+			loaded.add(key);
+		}
+		
+		public void removedRemovable(Object key, Object value)
+		{
+			removed.add(key);
+		}
+	}
+	
+	@Test
+	public void testExpiry()
+	{
+		TimeBasedCacheMap map = new TimeBasedCacheMap(2);
+		TestListener listener = new TestListener();
+		map.setCacheMapListener(listener);
+		
+		map.put("cached", "value1");
+		map.put("accessed", "value2");
+		map.put("removable", new TestRemovableBean());
+		map.put("permanent", new TestPermanentBean());
+		
+		map.tick();
+		Assert.assertEquals(map.get("accessed"), "value2");
+		Assert.assertTrue(listener.cached.isEmpty());
+		
+		//values not accessed for time gap should be moved out of memory
+		map.tick();
+		Assert.assertEquals(listener.cached, Arrays.asList("cached"));
+		Assert.assertEquals(listener.removed, Arrays.asList("removable"));
+		Assert.assertEquals(map.size(), 3);
+		
+		//accessed value should be moved out after time gap from last access
+		map.tick();
+		Assert.assertEquals(listener.cached, Arrays.asList("cached", "accessed"));
+		
+		//cached values should be loaded back on access
+		Assert.assertEquals(map.get("cached"), "value1");
+		Assert.assertEquals(listener.loaded, Arrays.asList("cached"));
+		Assert.assertNull(map.get("removable"));
+		Assert.assertTrue(map.containsKey("permanent"));
+		Assert.assertEquals(map.keys().size(), 3);
+	}
+	
+	@Test
+	public void testDisabledCache()
+	{
+		TimeBasedCacheMap map = new TimeBasedCacheMap(1);
+		TestListener listener = new TestListener();
+		map.setCacheMapListener(listener);
+		map.setCacheEnabled(false);
+		
+		map.put("key", "value");
+		map.tick();
+		map.tick();
+		Assert.assertTrue(listener.cached.isEmpty());
+		
+		//on enabling, pending expiries should be processed
+		map.setCacheEnabled(true);
+		map.tick();
+		Assert.assertEquals(listener.cached, Arrays.asList("key"));
+		Assert.assertEquals(map.get("key"), "value");
+	}
+	
+	@Test
+	public void testConcurrentAccess() throws Exception
+	{
+		final TimeBasedCacheMap map = new TimeBasedCacheMap(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		
+		for(int i = 0; i < 4; i++)
+		{
+			final int thread = i;
+			
+			futures.add(executor.submit(new Runnable()
+			{
+				public void run()
+				{
+					for(int j = 0; j < 500; j++)
+					{
+						map.put(thread + "-" + j, "value-" + j);
+						Assert.assertEquals(map.get(thread + "-" + j), "value-" + j);
+						
+						if(j % 100 == 0)
+						{
+							map.tick();
+						}
+					}
+				}
+			}));
+		}
+		
+		for(Future<?> future : futures)
+		{
+			future.get();
+		}
+		
+		executor.shutdown();
+		
+		Assert.assertEquals(map.size(), 2000);
+		Assert.assertEquals(map.get("3-499"), "value-499");
+		Assert.assertEquals(map.get("0-0"), "value-0");
+	}
+	
+	/**
+	 * Key with slow hash code computation, which widens the gap between steps of map operations
+	 */
+	private static class SlowKey
+	{
+		private String name;
+		
+		public SlowKey(String name)
+		{
+			this.name = name;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			try
+			{
+				Thread.sleep(5);
+			}catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			
+			return name.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return (obj instanceof SlowKey) && name.equals(((SlowKey)obj).name);
+		}
+	}
+	
+	/**
+	 * Ensures values added while sweeps are in progress are not lost from expiry tracking
+	 */
+	@Test
+	public void testPutDuringSweep() throws Exception
+	{
+		final TimeBasedCacheMap map = new TimeBasedCacheMap(1);
+		final AtomicInteger cachedCount = new AtomicInteger();
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final int count = 50;
+		
+		map.setCacheMapListener(new TestListener()
+		{
+			public void objectCached(Object key, Object value)
+			{
+				cachedCount.incrementAndGet();
+			}
+		});
+		
+		Thread ticker = new Thread()
+		{
+			public void run()
+			{
+				while(!done.get())
+				{
+					map.tick();
+				}
+			}
+		};
+		
+		ticker.start();
+		
+		for(int i = 0; i < count; i++)
+		{
+			map.put(new SlowKey("key-" + i), "value-" + i);
+		}
+		
+		done.set(true);
+		ticker.join();
+		
+		//every value which is not accessed should be moved out of memory
+		map.tick();
+		map.tick();
+		
+		Assert.assertEquals(cachedCount.get(), count);
+		Assert.assertEquals(map.size(), count);
+	}
+}
@@ -0,0 +1,164 @@
+package com.yukthi.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yukthi.ccg.beans.GenericBean;
+import com.yukthi.ccg.util.Cache;
+import com.yukthi.ccg.util.CacheSerializer;
+import com.yukthi.ccg.util.CompactCacheSerializer;
+import com.yukthi.ccg.util.FileCache;
+import com.yukthi.ccg.util.JacksonCacheSerializer;
+import com.yukthi.ccg.util.JavaCacheSerializer;
+import com.yukthi.ccg.util.MappedFileCache;
+
+/**
+ * Tests cache serializers and benchmarks them against java serialization. Converts a fixed number of
+ * records with each serializer and prints the throughput and number of bytes generated.
+ */
+public class TCacheSerializer
+{
+	/**
+	 * Number of records converted by each serializer during benchmark
+	 */
+	private static final int RECORD_COUNT = 20000;
+	
+	private Map<String, Object> newRecord(int idx)
+	{
+		Map<String, Object> record = new HashMap<String, Object>();
+		record.put("id", idx);
+		record.put("name", "Name-" + idx);
+		record.put("email", "user" + idx + "@test.com");
+		record.put("salary", idx * 1.5);
+		record.put("active", (idx % 2 == 0));
+		record.put("tags", new ArrayList<String>(Arrays.asList("tag1", "tag2", "tag-" + idx)));
+		
+		return record;
+	}
+	
+	private Object roundTrip(CacheSerializer serializer, Object value) throws Exception
+	{
+		return serializer.deserialize(serializer.serialize(value));
+	}
+	
+	@Test
+	public void testCompactSerializer() throws Exception
+	{
+		CacheSerializer serializer = CompactCacheSerializer.INSTANCE;
+		
+		List<Object> values = new ArrayList<Object>(Arrays.<Object>asList(
+			null, true, false, (byte)3, (short)-300, 'x', 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 
+			Long.MIN_VALUE, 123456789012L, 1.5f, -2.25, "", "test-తె", new Date(),
+			new LinkedList<Object>(Arrays.<Object>asList(1, "two", null)),
+			new HashSet<Object>(Arrays.<Object>asList("a", "b")),
+			new LinkedHashMap<Object, Object>(newRecord(5))
+		));
+		
+		for(Object value : values)
+		{
+			Object res = roundTrip(serializer, value);
+			
+			Assert.assertEquals(res, value);
+			Assert.assertEquals((res == null) ? null : res.getClass(), (value == null) ? null : value.getClass());
+		}
+		
+		Assert.assertEquals((byte[])roundTrip(serializer, new byte[] {1, 2, 3}), new byte[] {1, 2, 3});
+		Assert.assertEquals((Object[])roundTrip(serializer, new Object[] {1, "2", null}), new Object[] {1, "2", null});
+		
+		//test generic bean conversion
+		GenericBean bean = new GenericBean();
+		bean.setField("name", "test");
+		bean.setField("age", 30);
+		bean.setAttribute("attr", "value");
+		bean.freeze();
+		
+		GenericBean resBean = (GenericBean)roundTrip(serializer, bean);
+		Assert.assertEquals(resBean.getField("name"), "test");
+		Assert.assertEquals(resBean.getField("age"), 30);
+		Assert.assertEquals(resBean.getAttribute("attr"), "value");
+		Assert.assertTrue(resBean.isFreezed());
+		Assert.assertEquals(resBean, bean);
+	}
+	
+	@Test
+	public void testCacheSerializer() throws Exception
+	{
+		File dir = new File("target/serializer-cache");
+		dir.mkdirs();
+		
+		Cache caches[] = {new FileCache(dir, "test"), new MappedFileCache(dir, "test", 4096)};
+		
+		for(Cache cache : caches)
+		{
+			cache.setSerializer(CompactCacheSerializer.INSTANCE);
+			
+			int idx = cache.writeObject(newRecord(1));
+			Assert.assertEquals(cache.readObject(idx), newRecord(1));
+			
+			cache.close();
+		}
+	}
+	
+	private void benchmark(String name, CacheSerializer serializer, List<Object> records) throws Exception
+	{
+		long bytes = 0;
+		byte data[] = null;
+		long startTime = System.nanoTime();
+		
+		for(Object record : records)
+		{
+			data = serializer.serialize(record);
+			bytes += data.length;
+			
+			Assert.assertEquals(serializer.deserialize(data), record);
+		}
+		
+		long timeTaken = System.nanoTime() - startTime;
+		
+		System.out.println(String.format("%-10s: %,10d records/sec, %,10d bytes", 
+				name, (records.size() * 1_000_000_000L) / Math.max(timeTaken, 1), bytes));
+	}
+	
+	@Test
+	public void benchmarkSerializers() throws Exception
+	{
+		List<Object> records = new ArrayList<Object>();
+		
+		for(int i = 0; i < RECORD_COUNT; i++)
+		{
+			records.add(newRecord(i));
+		}
+		
+		CacheSerializer serializers[] = {JavaCacheSerializer.INSTANCE, CompactCacheSerializer.INSTANCE, new JacksonCacheSerializer()};
+		String names[] = {"Java", "Compact", "Jackson"};
+		
+		//warm up the serializers
+		for(CacheSerializer serializer : serializers)
+		{
+			for(Object record : records.subList(0, 1000))
+			{
+				serializer.deserialize(serializer.serialize(record));
+			}
+		}
+		
+		for(int i = 0; i < serializers.length; i++)
+		{
+			benchmark(names[i], serializers[i], records);
+		}
+		
+		//ensure compact format is smaller than java serialization
+		Object record = records.get(0);
+		Assert.assertTrue(CompactCacheSerializer.INSTANCE.serialize(record).length < JavaCacheSerializer.INSTANCE.serialize(record).length);
+	}
+}
@@ -0,0 +1,133 @@
+package com.yukthi.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yukthi.ccg.util.MappedFileCache;
+
+public class TMappedFileCache
+{
+	private MappedFileCache newCache(int segmentSize)
+	{
+		File dir = new File("target/mapped-cache");
+		dir.mkdirs();
+		
+		MappedFileCache cache = new MappedFileCache(dir, "test", segmentSize);
+		
+		//compaction is triggered explicitly in tests
+		cache.setCompactionInterval(0);
+		return cache;
+	}
+	
+	@Test
+	public void testReadWrite() throws Exception
+	{
+		MappedFileCache cache = newCache(MappedFileCache.DEFAULT_SEGMENT_SIZE);
+		
+		int idx1 = cache.writeObject("value1");
+		int idx2 = cache.writeObject(new ArrayList<String>(Arrays.asList("a", "b")));
+		
+		Assert.assertEquals(cache.readObject(idx1), "value1");
+		Assert.assertEquals(cache.readObject(idx2), Arrays.asList("a", "b"));
+		Assert.assertEquals(cache.getObjectCount(), 2);
+		
+		Assert.assertEquals(cache.replaceObject(idx1, "newValue"), idx1);
+		Assert.assertEquals(cache.readObject(idx1), "newValue");
+		
+		cache.removeObject(idx2);
+		Assert.assertNull(cache.readObject(idx2));
+		Assert.assertEquals(cache.getObjectCount(), 1);
+		
+		cache.close();
+		Assert.assertTrue(cache.isClosed());
+	}
+	
+	@Test
+	public void testCompaction() throws Exception
+	{
+		//small segments, so that objects get spread over multiple segments
+		MappedFileCache cache = newCache(512);
+		List<Integer> indexes = new ArrayList<Integer>();
+		
+		for(int i = 0; i < 100; i++)
+		{
+			indexes.add(cache.writeObject("value-" + i));
+		}
+		
+		int segmentCount = cache.getSegmentCount();
+		Assert.assertTrue(segmentCount > 1);
+		
+		//remove most of the objects and compact
+		for(int i = 0; i < 100; i++)
+		{
+			if(i % 10 != 0)
+			{
+				cache.removeObject(indexes.get(i));
+			}
+		}
+		
+		cache.optimize();
+		Assert.assertTrue(cache.getSegmentCount() < segmentCount);
+		
+		for(int i = 0; i < 100; i++)
+		{
+			Assert.assertEquals(cache.readObject(indexes.get(i)), (i % 10 == 0) ? "value-" + i : null);
+		}
+		
+		cache.close();
+	}
+	
+	@Test
+	public void testConcurrentAccess() throws Exception
+	{
+		final MappedFileCache cache = newCache(4 * 1024);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		
+		for(int i = 0; i < 4; i++)
+		{
+			final int thread = i;
+			
+			futures.add(executor.submit(new Callable<Void>()
+			{
+				public Void call() throws Exception
+				{
+					for(int j = 0; j < 500; j++)
+					{
+						int idx = cache.writeObject(thread + "-" + j);
+						Assert.assertEquals(cache.readObject(idx), thread + "-" + j);
+						
+						idx = cache.replaceObject(idx, "new-" + thread + "-" + j);
+						Assert.assertEquals(cache.readObject(idx), "new-" + thread + "-" + j);
+						
+						if(j % 50 == 0)
+						{
+							cache.optimize();
+						}
+					}
+					
+					return null;
+				}
+			}));
+		}
+		
+		for(Future<?> future : futures)
+		{
+			future.get();
+		}
+		
+		executor.shutdown();
+		
+		Assert.assertEquals(cache.getObjectCount(), 2000);
+		cache.close();
+	}
+}
@@ -0,0 +1,183 @@
+package com.yukthi.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yukthi.ccg.util.ICacheableBean;
+import com.yukthi.ccg.util.ObjectCacheFactory;
+
+/**
+ * Tests object cache factory reuse, idle trimming and concurrent access. Concurrent test prints
+ * the throughput along with borrow statistics exposed via mbean.
+ */
+public class TObjectCacheFactory
+{
+	public static class CachedBean implements ICacheableBean<CachedBean>
+	{
+		private AtomicInteger users = new AtomicInteger();
+		private int reinitCount;
+
+		@Override
+		public void reinitalize(ObjectCacheFactory<CachedBean> factory)
+		{
+			reinitCount++;
+		}
+	}
+
+	@Test
+	public void testReuse()
+	{
+		ObjectCacheFactory<CachedBean> factory = new ObjectCacheFactory<CachedBean>("testReuse", CachedBean.class);
+		ObjectCacheFactory.CacheFactoryMBean mbean = new ObjectCacheFactory.CacheFactoryMBean(factory);
+
+		CachedBean bean = factory.getFreeInstance();
+		Assert.assertEquals(bean.reinitCount, 0);
+		Assert.assertEquals(mbean.getActiveCount(), 1);
+
+		factory.free(bean);
+		Assert.assertEquals(mbean.getFreeCount(), 1);
+
+		//double free should be ignored
+		factory.free(bean);
+		Assert.assertEquals(mbean.getFreeCount(), 1);
+
+		//freed instance should be reused and reinitialized
+		Assert.assertSame(factory.getFreeInstance(), bean);
+		Assert.assertEquals(bean.reinitCount, 1);
+		Assert.assertEquals(mbean.getBorrowCount(), 2);
+		Assert.assertEquals(mbean.getCreateCount(), 1);
+		Assert.assertEquals(mbean.getThreadCacheHitCount(), 1);
+
+		factory.free(bean);
+		mbean.clean();
+		Assert.assertEquals(mbean.getFreeCount(), 0);
+		Assert.assertNotSame(factory.getFreeInstance(), bean);
+	}
+
+	@Test
+	public void testMaxIdle()
+	{
+		ObjectCacheFactory<CachedBean> factory = new ObjectCacheFactory<CachedBean>("testMaxIdle", CachedBean.class);
+		ObjectCacheFactory.CacheFactoryMBean mbean = new ObjectCacheFactory.CacheFactoryMBean(factory);
+		mbean.setMaxIdle(2);
+
+		CachedBean beans[] = new CachedBean[5];
+
+		for(int i = 0; i < beans.length; i++)
+		{
+			beans[i] = factory.getFreeInstance();
+		}
+
+		for(CachedBean bean : beans)
+		{
+			factory.free(bean);
+		}
+
+		Assert.assertEquals(mbean.getFreeCount(), 2);
+		Assert.assertEquals(mbean.getActiveCount(), 0);
+		Assert.assertEquals(mbean.getTrimCount(), 3);
+	}
+
+	@Test
+	public void testInstancesCachedByExitedThread() throws Exception
+	{
+		final ObjectCacheFactory<CachedBean> factory = new ObjectCacheFactory<CachedBean>("testExitedThread", CachedBean.class);
+		ObjectCacheFactory.CacheFactoryMBean mbean = new ObjectCacheFactory.CacheFactoryMBean(factory);
+		mbean.setMaxIdle(4);
+
+		//thread which exits leaving freed instances in its cache
+		Thread thread = new Thread()
+		{
+			public void run()
+			{
+				CachedBean beans[] = new CachedBean[4];
+
+				for(int i = 0; i < beans.length; i++)
+				{
+					beans[i] = factory.getFreeInstance();
+				}
+
+				for(CachedBean bean : beans)
+				{
+					factory.free(bean);
+				}
+			}
+		};
+
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(mbean.getFreeCount(), 4);
+
+		//instances left by the thread should be reused and instances freed by current thread should be retained
+		for(int i = 0; i < 10; i++)
+		{
+			CachedBean bean = factory.getFreeInstance();
+			factory.free(bean);
+			Assert.assertSame(factory.getFreeInstance(), bean);
+			factory.free(bean);
+		}
+
+		Assert.assertEquals(mbean.getCreateCount(), 4);
+		Assert.assertEquals(mbean.getTrimCount(), 0);
+		Assert.assertEquals(mbean.getFreeCount(), 4);
+
+		//clean should discard the instances cached by exited thread as well
+		mbean.clean();
+		Assert.assertEquals(mbean.getFreeCount(), 0);
+		Assert.assertEquals(mbean.getActiveCount(), 0);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception
+	{
+		final int THREAD_COUNT = 8, ITERATIONS = 200000;
+		final ObjectCacheFactory<CachedBean> factory = new ObjectCacheFactory<CachedBean>("testConcurrentAccess", CachedBean.class);
+		final AtomicInteger errors = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
+
+		long startTime = System.nanoTime();
+
+		for(int i = 0; i < THREAD_COUNT; i++)
+		{
+			new Thread()
+			{
+				public void run()
+				{
+					for(int j = 0; j < ITERATIONS; j++)
+					{
+						CachedBean bean = factory.getFreeInstance();
+
+						//same instance should not be given to two threads at same time
+						if(bean.users.incrementAndGet() != 1)
+						{
+							errors.incrementAndGet();
+						}
+
+						bean.users.decrementAndGet();
+						factory.free(bean);
+					}
+
+					latch.countDown();
+				}
+			}.start();
+		}
+
+		Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+
+		long timeTaken = System.nanoTime() - startTime;
+		ObjectCacheFactory.CacheFactoryMBean mbean = new ObjectCacheFactory.CacheFactoryMBean(factory);
+
+		System.out.println(String.format("Object cache: %,d borrows/sec, avg %,d ns, max %,d ns, thread cache hits %,d, contention %,d",
+				(THREAD_COUNT * ITERATIONS * 1000000000L) / timeTaken, mbean.getAverageBorrowTimeNanos(), mbean.getMaxBorrowTimeNanos(),
+				mbean.getThreadCacheHitCount(), mbean.getContentionCount()));
+
+		Assert.assertEquals(errors.get(), 0);
+		Assert.assertEquals(mbean.getActiveCount(), 0);
+		Assert.assertEquals(mbean.getBorrowCount(), THREAD_COUNT * ITERATIONS);
+	}
+}
@@ -314,6 +314,17 @@ public class FunctionInstance
 	{
 		return params.length;
 	}
+	
+	/**
+	 * Fetches the argument at specified index. Argument can be a {@link Param}, {@link Column}, {@link FunctionInstance}
+	 * or a constant value.
+	 * @param idx Index of the argument
+	 * @return Argument at specified index
+	 */
+	public Object getParam(int idx)
+	{
+		return params[idx];
+	}
 
 	/**
 	 * This method will invoke this function after fetching the argument values using specified 
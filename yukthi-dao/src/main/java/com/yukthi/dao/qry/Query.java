@@ -2,11 +2,15 @@ package com.yukthi.dao.qry;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
@@ -35,6 +39,12 @@ public class Query implements Validateable
 	private static Pattern NAME_QUEST_PARAM_PATTERN=Pattern.compile("\\#\\{(\\w+)\\}");
 	private static Pattern PARAM_W_FUNC_PATTERN=Pattern.compile("\\$\\{(\\w+)\\(([^\\{\\}]*)\\)\\}");
 	private static Pattern QUEST_PARAM_W_FUNC_PATTERN=Pattern.compile("\\#\\{(\\w+)\\(([^\\{\\}]*)\\)\\}");
+	private static Pattern NEW_LINE_SPACES_PATTERN=Pattern.compile("\\n\\s+");
+	
+	/**
+	 * Default maximum number of compiled shapes to be cached per query
+	 */
+	public static final int DEFAULT_MAX_CACHED_SHAPES=100;
 	
 		private static class QueryFilterDataProvider implements FunctionInstance.DataProvider
 		{
@@ -58,25 +68,112 @@ public class Query implements Validateable
 	            }
 		}
 	
+		/**
+		 * Final sql text built for a combination of null-string and null parameters
+		 */
+		private static class CachedText
+		{
+			private String nullString;
+			private String text;
+			
+				public CachedText(String nullString,String text)
+				{
+					this.nullString=nullString;
+					this.text=text;
+				}
+		}
+		
 		public static class QueryResult
 		{
 			private int phaseNo=-1;
-			private LinkedList<Object> lst=new LinkedList<Object>();
+			private List<Object> lst=new LinkedList<Object>();
 			private boolean reqNextPhase=true;
 			private StringBuilder builder=new StringBuilder();
 			
+			/**
+			 * When not null, only the filter decisions are recorded (into this builder) instead of building
+			 * the query. The recorded trace uniquely identifies the shape of the resultant query.
+			 */
+			private StringBuilder trace;
+			
+			/**
+			 * Set in trace mode, when values (like replace strings) are substituted into query text. As such
+			 * values are not part of the trace, these results should not be cached.
+			 */
+			private boolean substituted=false;
+			
+			/**
+			 * Statistics to be updated, set when result is compiled for caching
+			 */
+			private QueryCacheStatistics statistics;
+			
+			/**
+			 * Final sql texts, keyed by bit mask of null parameters
+			 */
+			private Map<Long,CachedText> textCache;
+			
+			/**
+			 * Final sql text with all parameters as "?"
+			 */
+			private volatile String paramlessText;
+			
+			/**
+			 * Number of parameters in compiled result
+			 */
+			private int questCount=0;
+			
 				private QueryResult(QueryElement root)
 				{
 					lst.add(root);
 				}
+				
+				private QueryResult(QueryElement root,boolean traceMode)
+				{
+					this(root);
+					
+						if(traceMode)
+							trace=new StringBuilder();
+				}
 			
+				/**
+				 * Adds text which may vary based on filter.
+				 */
 				private void addText(String txt)
 				{
+						if(trace!=null)
+						{
+							substituted=true;
+							return;
+						}
+						
+					builder.append(txt);
+				}
+				
+				/**
+				 * Adds text which is part of query definition.
+				 */
+				private void addStaticText(String txt)
+				{
+						if(trace!=null)
+							return;
+						
 					builder.append(txt);
 				}
 				
+				/**
+				 * Records filter decision or value, which affects query shape, in trace mode.
+				 */
+				private void addTrace(Object value)
+				{
+						if(trace!=null)
+							trace.append(value).append('\u0001');
+				}
+				
 				private void addObject(QuestObject obj)
 				{
+						if(trace!=null)
+							return;
+						
 						if(builder.length()>0)
 						{
 							lst.add(builder.toString());
@@ -98,14 +195,37 @@ public class Query implements Validateable
 					reqNextPhase=true;
 				}
 				
-				private boolean requiresNextPhase()
+				/**
+				 * Marks this result as compiled, after which this result is used only to build final sql text.
+				 */
+				private void compile(QueryCacheStatistics statistics)
 				{
-					return reqNextPhase;
+					this.lst=new ArrayList<Object>(lst);
+					
+						for(Object o:lst)
+						{
+								if(o instanceof QuestObject)
+									questCount++;
+						}
+						
+
+					this.statistics=statistics;
+					this.textCache=new ConcurrentHashMap<Long,CachedText>();
+				}
+				
+				private String getTrace()
+				{
+					return trace.toString();
 				}
 				
-				private void process(QueryFilter filter)
+				private boolean isSubstituted()
 				{
-					process(filter, false);
+					return substituted;
+				}
+				
+				private boolean requiresNextPhase()
+				{
+					return reqNextPhase;
 				}
 				
 				private void process(QueryFilter filter,boolean isBulkQuery)
@@ -143,7 +263,110 @@ public class Query implements Validateable
 						}
 				}
 				
+				/**
+				 * Evaluates parameter values into "finalParams" and returns the final sql text. As the text depends only on which 
+				 * parameters are null, compiled results cache the text per null parameter combination.
+				 */
 				private String toString(QueryFilter filter,List<Object> finalParams,Object... params)
+				{
+						//if result is not compiled or null parameter combination cannot be represented by mask
+						if(textCache==null || questCount>64)
+							return buildText(filter,finalParams,params);
+						
+						if(finalParams==null)
+						{
+								if(paramlessText!=null)
+								{
+									statistics.recordTextHit();
+									return paramlessText;
+								}
+								
+							statistics.recordTextMiss();
+							paramlessText=buildText(null,0);
+							return paramlessText;
+						}
+						
+					int paramIdx=0,questIdx=0;
+					long nullMask=0;
+					QuestObject questObj=null;
+					Object value=null;
+					
+						for(Object o:lst)
+						{
+								if(!(o instanceof QuestObject))
+									continue;
+								
+							questObj=(QuestObject)o;
+							
+								if(!questObj.isNamed() && (params==null || params.length<=paramIdx))
+									throw new IllegalStateException("Insufficient number of parameters supplied: "+paramIdx);
+								
+							value=questObj.getValue(filter,paramIdx,params);
+								
+								if(value==null)
+									nullMask|=(1L<<questIdx);
+								else
+								{
+									finalParams.add(value);
+								}
+								
+								if(!questObj.isNamed())
+									paramIdx++;
+								
+							questIdx++;
+						}
+						
+					String nullString=filter.getNullString();
+					CachedText cachedText=textCache.get(nullMask);
+					
+						if(cachedText!=null && Objects.equals(cachedText.nullString,nullString))
+						{
+							statistics.recordTextHit();
+							return cachedText.text;
+						}
+						
+					statistics.recordTextMiss();
+					
+					String text=buildText(nullString,nullMask);
+					textCache.put(nullMask,new CachedText(nullString,text));
+					
+					return text;
+				}
+				
+				/**
+				 * Builds the final sql text based on null parameter mask. Similar to non-cached build, null string of filter is
+				 * inlined (as is) for null parameters.
+				 * @param nullString Null string to be used for null parameters
+				 * @param nullMask Bit mask of parameters which are null, zero if all params should be "?"
+				 */
+				private String buildText(String nullString,long nullMask)
+				{
+					StringBuilder builder=new StringBuilder();
+					int questIdx=0;
+					
+						for(Object o:lst)
+						{
+								if(o instanceof QuestObject)
+								{
+										if((nullMask&(1L<<questIdx))!=0)
+											builder.append(nullString);
+										else
+											builder.append("?");
+										
+									questIdx++;
+									continue;
+								}
+								
+							builder.append(o);
+						}
+						
+					return normalize(builder.toString());
+				}
+				
+				/**
+				 * Builds the final sql text by evaluating parameter values, without using cache.
+				 */
+				private String buildText(QueryFilter filter,List<Object> finalParams,Object... params)
 				{
 					StringBuilder builder=new StringBuilder();
 					int paramIdx=0;
@@ -186,7 +409,7 @@ public class Query implements Validateable
 							builder.append(o);
 						}
 						
-					return builder.toString();
+					return normalize(builder.toString());
 				}
 				
 				public String toString(BulkQueryFilter filter)
@@ -262,7 +485,7 @@ public class Query implements Validateable
 				
 				public void process(QueryFilter filter,QueryResult res, boolean isBulkQuery)
 				{
-					res.addText(text);
+					res.addStaticText(text);
 				}
 				
 				public String toString()
@@ -470,6 +693,8 @@ public class Query implements Validateable
 					FilterResult filterResult = filter.accept(name,nameToAttr,res.phaseNo);
 					int filterResVal = filterResult.getResult();
 					
+					res.addTrace(filterResVal);
+					
 						if(filterResVal==QueryFilter.REJECT)
 						{
 							return;
@@ -503,6 +728,9 @@ public class Query implements Validateable
 							
 							Object val = null;
 							
+							res.addTrace(collection.size());
+							res.addTrace(delimiter);
+							
 							while(it.hasNext())
 							{
 								val = it.next();
@@ -520,7 +748,7 @@ public class Query implements Validateable
 								
 								if(it.hasNext())
 								{
-									res.addText(delimiter);
+									res.addStaticText(delimiter);
 								}
 							}
 							
@@ -561,10 +789,45 @@ public class Query implements Validateable
 		}
 		
 	private Map<String,String> paramMap=new HashMap<String,String>();
-	private Map<String,Object> attrMap=new HashMap<String,Object>();
+	private Map<String,Object> attrMap=new ConcurrentHashMap<String,Object>();
 	private Map<String,FunctionInstance> colToExpr=new HashMap<String,FunctionInstance>();
 	private NodeQueryElement dbQuery;
 	
+	private QueryCacheStatistics cacheStatistics=new QueryCacheStatistics();
+	
+	/**
+	 * Maximum number of shapes to be cached
+	 */
+	private int maxCachedShapes=DEFAULT_MAX_CACHED_SHAPES;
+	
+	/**
+	 * Compiled query results keyed by shape (trace of filter decisions), in access order. When max size is 
+	 * crossed, least recently used shape is removed.
+	 */
+	@SuppressWarnings("serial")
+	private Map<String,QueryResult> shapeToResult=Collections.synchronizedMap(new LinkedHashMap<String,QueryResult>(16,0.75f,true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,QueryResult> eldest)
+		{
+				if(size()<=maxCachedShapes)
+					return false;
+				
+			cacheStatistics.recordShapeEviction();
+			return true;
+		}
+	});
+	
+	/**
+	 * Indicates whether query contains filter dependent parts. Computed lazily
+	 */
+	private volatile Boolean dynamic;
+	
+	/**
+	 * Indicates whether query contains ${} expressions, whose values are substituted into query text. Computed lazily
+	 */
+	private volatile Boolean substituting;
+	
 		private static void toString(List<QueryElement> elements,QueryFilter filter,QueryResult res, boolean isBulkQuery)
 		{
 				for(QueryElement e:elements)
@@ -642,7 +905,190 @@ public class Query implements Validateable
 		public void setDbQuery(NodeQueryElement dbQuery)
         {
         	this.dbQuery=dbQuery;
+        	
+        	this.shapeToResult.clear();
+        	this.dynamic=null;
+        	this.substituting=null;
         }
+		
+		/**
+		 * Normalizes the white spaces of final query.
+		 */
+		private static String normalize(String query)
+		{
+			return NEW_LINE_SPACES_PATTERN.matcher(query).replaceAll("\n");
+		}
+		
+		/**
+		 * Checks if specified elements contains parts which depends on filter (like nodes and ${} expressions).
+		 */
+		private static boolean isDynamic(List<QueryElement> elements)
+		{
+				if(elements==null)
+					return false;
+				
+				for(QueryElement element:elements)
+				{
+						if(element instanceof ParamQueryElement)
+							return true;
+						
+						if((element instanceof FunctionQueryElement) && !((FunctionQueryElement)element).isQuestParam())
+							return true;
+						
+						if(element instanceof NodeQueryElement)
+						{
+							NodeQueryElement node=(NodeQueryElement)element;
+							
+								if(node.name!=null || isDynamic(node.elements))
+									return true;
+						}
+				}
+				
+			return false;
+		}
+		
+		/**
+		 * Checks if specified elements contains ${} expressions, whose values are substituted into query text.
+		 */
+		private static boolean isSubstituting(List<QueryElement> elements)
+		{
+				if(elements==null)
+					return false;
+				
+				for(QueryElement element:elements)
+				{
+						if(element instanceof ParamQueryElement)
+							return true;
+						
+						if((element instanceof FunctionQueryElement) && !((FunctionQueryElement)element).isQuestParam())
+							return true;
+						
+						if((element instanceof NodeQueryElement) && isSubstituting(((NodeQueryElement)element).elements))
+							return true;
+				}
+				
+			return false;
+		}
+		
+		/**
+		 * Processes the query fully using specified filter, without using cache.
+		 */
+		private QueryResult buildResult(QueryFilter filter,boolean isBulkQuery)
+		{
+			QueryResult qryRes=new QueryResult(dbQuery);
+			
+				while(qryRes.requiresNextPhase())
+				{
+					qryRes.process(filter,isBulkQuery);
+				}
+				
+			return qryRes;
+		}
+		
+		/**
+		 * Fetches compiled query result for specified filter. For queries with filter dependent parts, a trace of filter
+		 * decisions is evaluated first, which is used as key to find compiled result. If not found, query is processed
+		 * fully and the result is cached.
+		 * 
+		 * As substituted values are not part of the key, queries with ${} expressions (and shapes with replace strings)
+		 * are processed without caching, so that cache is not flooded with a shape per value.
+		 * @param filter Filter to be used
+		 * @param isBulkQuery Whether the result is needed for bulk query
+		 * @return Compiled query result
+		 */
+		private QueryResult getCompiledResult(QueryFilter filter,boolean isBulkQuery)
+		{
+				if(dynamic==null)
+				{
+					substituting=isSubstituting(dbQuery.elements);
+					dynamic=isDynamic(dbQuery.elements);
+				}
+				
+				//for queries with substituted values, avoid tracing as well, as result is never cached
+				if(substituting || maxCachedShapes<=0)
+				{
+					cacheStatistics.recordShapeMiss();
+					return buildResult(filter,isBulkQuery);
+				}
+				
+			String shapeKey=isBulkQuery?"B":"Q";
+			
+				if(dynamic)
+				{
+					QueryResult traceRes=new QueryResult(dbQuery,true);
+					
+						while(traceRes.requiresNextPhase())
+						{
+							traceRes.process(filter,isBulkQuery);
+						}
+						
+						if(traceRes.isSubstituted())
+						{
+							cacheStatistics.recordShapeMiss();
+							return buildResult(filter,isBulkQuery);
+						}
+						
+					shapeKey=shapeKey+traceRes.getTrace();
+				}
+				
+			QueryResult qryRes=shapeToResult.get(shapeKey);
+			
+				if(qryRes!=null)
+				{
+					cacheStatistics.recordShapeHit();
+					return qryRes;
+				}
+				
+			cacheStatistics.recordShapeMiss();
+			
+			qryRes=buildResult(filter,isBulkQuery);
+			qryRes.compile(cacheStatistics);
+			
+			shapeToResult.put(shapeKey,qryRes);
+			return qryRes;
+		}
+		
+		/**
+		 * Fetches cache statistics of this query.
+		 * @return Cache statistics
+		 */
+		public QueryCacheStatistics getCacheStatistics()
+		{
+			return cacheStatistics;
+		}
+		
+		/**
+		 * Fetches number of compiled shapes cached currently.
+		 * @return Number of cached shapes
+		 */
+		public int getCachedShapeCount()
+		{
+			return shapeToResult.size();
+		}
+		
+		public int getMaxCachedShapes()
+		{
+			return maxCachedShapes;
+		}
+
+		/**
+		 * Sets the maximum number of compiled shapes to be cached. Zero disables the caching. Existing cached
+		 * shapes are removed.
+		 * @param maxCachedShapes Maximum number of shapes to be cached
+		 */
+		public void setMaxCachedShapes(int maxCachedShapes)
+		{
+			this.maxCachedShapes=maxCachedShapes;
+			shapeToResult.clear();
+		}
+		
+		/**
+		 * Removes all compiled shapes from the cache.
+		 */
+		public void clearCache()
+		{
+			shapeToResult.clear();
+		}
 
 		public void addColExpr(String name,String value)
 		{
@@ -678,6 +1124,12 @@ public class Query implements Validateable
 		
 		public void setAttribute(String name,Object attr)
 		{
+				if(attr==null)
+				{
+					attrMap.remove(name);
+					return;
+				}
+				
 			attrMap.put(name,attr);
 		}
 		
@@ -688,27 +1140,13 @@ public class Query implements Validateable
 	
 		public String toText(QueryFilter filter,List<Object> finalParams,Object... params)
 		{
-			QueryResult qryRes=new QueryResult(dbQuery);
-			
-				while(qryRes.requiresNextPhase())
-				{
-					qryRes.process(filter);
-				}
-				
-			String res=qryRes.toString(filter,finalParams,params);
-			return res.replaceAll("\\n\\s+","\n");
+			QueryResult qryRes=getCompiledResult(filter,false);
+			return qryRes.toString(filter,finalParams,params);
 		}
 
 		public QueryResult buildBulkQuery(QueryFilter filter)
 		{
-			QueryResult qryRes=new QueryResult(dbQuery);
-			
-				while(qryRes.requiresNextPhase())
-				{
-					qryRes.process(filter,true);
-				}
-				
-			return qryRes;
+			return getCompiledResult(filter,true);
 		}
 		
 		@Override
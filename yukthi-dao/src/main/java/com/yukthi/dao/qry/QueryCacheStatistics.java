@@ -0,0 +1,155 @@
+package com.yukthi.dao.qry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of compiled query cache of a query. Shape counters track reuse of compiled query structure
+ * (result of filter decisions), while text counters track reuse of final sql text.
+ * @author akiran
+ */
+public class QueryCacheStatistics
+{
+	/**
+	 * Number of times compiled shape is reused
+	 */
+	private AtomicLong shapeHitCount = new AtomicLong();
+
+	/**
+	 * Number of times query has to be compiled
+	 */
+	private AtomicLong shapeMissCount = new AtomicLong();
+
+	/**
+	 * Number of compiled shapes removed from cache, as cache is full
+	 */
+	private AtomicLong shapeEvictionCount = new AtomicLong();
+
+	/**
+	 * Number of times final sql text is reused
+	 */
+	private AtomicLong textHitCount = new AtomicLong();
+
+	/**
+	 * Number of times final sql text has to be built
+	 */
+	private AtomicLong textMissCount = new AtomicLong();
+
+	void recordShapeHit()
+	{
+		shapeHitCount.incrementAndGet();
+	}
+
+	void recordShapeMiss()
+	{
+		shapeMissCount.incrementAndGet();
+	}
+
+	void recordShapeEviction()
+	{
+		shapeEvictionCount.incrementAndGet();
+	}
+
+	void recordTextHit()
+	{
+		textHitCount.incrementAndGet();
+	}
+
+	void recordTextMiss()
+	{
+		textMissCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of times compiled shape is reused.
+	 *
+	 * @return the number of times compiled shape is reused
+	 */
+	public long getShapeHitCount()
+	{
+		return shapeHitCount.get();
+	}
+
+	/**
+	 * Gets the number of times query has to be compiled.
+	 *
+	 * @return the number of times query has to be compiled
+	 */
+	public long getShapeMissCount()
+	{
+		return shapeMissCount.get();
+	}
+
+	/**
+	 * Gets the number of compiled shapes removed from cache, as cache is full.
+	 *
+	 * @return the number of evicted shapes
+	 */
+	public long getShapeEvictionCount()
+	{
+		return shapeEvictionCount.get();
+	}
+
+	/**
+	 * Gets the number of times final sql text is reused.
+	 *
+	 * @return the number of times final sql text is reused
+	 */
+	public long getTextHitCount()
+	{
+		return textHitCount.get();
+	}
+
+	/**
+	 * Gets the number of times final sql text has to be built.
+	 *
+	 * @return the number of times final sql text has to be built
+	 */
+	public long getTextMissCount()
+	{
+		return textMissCount.get();
+	}
+
+	/**
+	 * Gets the fraction of query renders served with cached sql text.
+	 *
+	 * @return the hit ratio, between 0 and 1
+	 */
+	public double getTextHitRatio()
+	{
+		long hits = textHitCount.get();
+		long total = hits + textMissCount.get();
+
+		return (total == 0) ? 0 : ((double)hits / total);
+	}
+
+	/**
+	 * Resets all the counters.
+	 */
+	public void reset()
+	{
+		shapeHitCount.set(0);
+		shapeMissCount.set(0);
+		shapeEvictionCount.set(0);
+		textHitCount.set(0);
+		textMissCount.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append("[");
+
+		builder.append("Shape Hits: ").append(shapeHitCount.get());
+		builder.append(",").append("Shape Misses: ").append(shapeMissCount.get());
+		builder.append(",").append("Shape Evictions: ").append(shapeEvictionCount.get());
+		builder.append(",").append("Text Hits: ").append(textHitCount.get());
+		builder.append(",").append("Text Misses: ").append(textMissCount.get());
+
+		builder.append("]");
+		return builder.toString();
+	}
+}
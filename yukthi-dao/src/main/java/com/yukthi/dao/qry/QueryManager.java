@@ -6,10 +6,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,13 +44,161 @@ public class QueryManager
 			this.count = count;
 		}
 	}
+	
+	/**
+	 * Iterator over digested beans of a query, which reads rows from result set on demand. Connection, statement
+	 * and result set are kept open till the rows are exhausted or the iterator is closed.
+	 * @param <T> Type of beans
+	 */
+	private class BeanIterator<T> implements Iterator<T>, AutoCloseable
+	{
+		private String name;
+		private DataDigester<T> digester;
+		
+		private DBConnection connection;
+		private PreparedStatement pstmt;
+		private ResultSet rs;
+		private QueryResultData rsData;
+		
+		/**
+		 * Bean fetched in advance by hasNext()
+		 */
+		private T nextBean;
+		
+		/**
+		 * Indicates nextBean is fetched and not yet consumed
+		 */
+		private boolean nextFetched = false;
+		
+		private boolean closed = false;
+		
+		public BeanIterator(String name, QueryFilter filter, DataDigester<T> digester, Object... params) throws SQLException
+		{
+			this.name = name;
+			this.digester = digester;
+			
+			Query query = getQueryObject(name);
+			this.connection = getDBConnection(name);
+
+			setOnThreadLocal();
+			
+			try
+			{
+				pstmt = buildStreamingStatement(name, connection, filter, params);
+				rs = pstmt.executeQuery();
+				rsData = new QueryResultData(query, filter, rs);
+			}catch(Exception ex)
+			{
+				close();
+				throw new SQLException("An error occured while executing query: " + name, ex);
+			}finally
+			{
+				clearThreadLocal();
+			}
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext()
+		{
+			if(nextFetched)
+			{
+				return true;
+			}
+			
+			if(closed)
+			{
+				return false;
+			}
+			
+			setOnThreadLocal();
+			
+			try
+			{
+				while(!rsData.getStopProcessing() && rs.next())
+				{
+					T bean = digester.digest(rsData);
+					
+					if(bean != null)
+					{
+						nextBean = bean;
+						nextFetched = true;
+						return true;
+					}
+				}
+			}catch(Exception ex)
+			{
+				close();
+				throw new IllegalStateException("An error occured while fetching results of query: " + name, ex);
+			}finally
+			{
+				clearThreadLocal();
+			}
+			
+			//release resources once rows are exhausted
+			close();
+			return false;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		public T next()
+		{
+			if(!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			
+			T bean = nextBean;
+			
+			nextBean = null;
+			nextFetched = false;
+			
+			return bean;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.AutoCloseable#close()
+		 */
+		@Override
+		public void close()
+		{
+			if(closed)
+			{
+				return;
+			}
+			
+			closed = true;
+			
+			if(rsData != null)
+			{
+				digester.finalizeDigester();
+			}
+			
+			closeResources(connection, pstmt, rs);
+		}
+	}
 
 	private static Logger logger = LogManager.getLogger(QueryManager.class);
 	private static final QueryFilter DUMMY_FILTER = new MapQueryFilter(new HashMap<String, Object>());
+	
+	/**
+	 * Default number of rows to be sent to db in single jdbc batch, during bulk updates
+	 */
+	public static final int DEFAULT_BULK_BATCH_SIZE = 500;
 
 	private QuerySource querySource;
 	private TransactionManager transactionManager;
 	
+	/**
+	 * Number of rows to be sent to db in single jdbc batch, during bulk updates
+	 */
+	private int bulkBatchSize = DEFAULT_BULK_BATCH_SIZE;
+	
 
 	/**
 	 * Creates QueryManager instance using specified query-source
@@ -71,6 +227,30 @@ public class QueryManager
 		return querySource;
 	}
 	
+	/**
+	 * Gets the number of rows to be sent to db in single jdbc batch, during bulk updates.
+	 * @return the bulk batch size
+	 */
+	public int getBulkBatchSize()
+	{
+		return bulkBatchSize;
+	}
+
+	/**
+	 * Sets the number of rows to be sent to db in single jdbc batch, during bulk updates. When
+	 * filter's commit count is smaller, commit count is used as batch size.
+	 * @param bulkBatchSize the new bulk batch size
+	 */
+	public void setBulkBatchSize(int bulkBatchSize)
+	{
+		if(bulkBatchSize <= 0)
+		{
+			throw new IllegalArgumentException("Invalid bulk batch size specified: " + bulkBatchSize);
+		}
+		
+		this.bulkBatchSize = bulkBatchSize;
+	}
+	
 	private void setOnThreadLocal()
 	{
 		QueryManagerInstance instance = threadLocal.get();
@@ -135,11 +315,21 @@ public class QueryManager
 		return querySource.getGlobalProperty(name);
 	}
 
-	public synchronized DBConnection getDBConnection(String queryName) throws SQLException
+	/**
+	 * Fetches connection for specified query. If a transaction is active on current thread, connection of the transaction
+	 * is returned, otherwise new connection is obtained from connection source. No lock is held here, so that
+	 * concurrent threads block only within the connection source (pool), if at all.
+	 * @param queryName Query for which connection is needed
+	 * @return Connection to be used
+	 * @throws SQLException
+	 */
+	public DBConnection getDBConnection(String queryName) throws SQLException
 	{
-		if(isTransactionActive())
+		Transaction transaction = transactionManager.activeTransaction();
+		
+		if(transaction != null)
 		{
-			return currentTransaction().getConnection(queryName);
+			return transaction.getConnection(queryName);
 		}
 		
 		ConnectionSource connectionSource = querySource.getConnectionSource();
@@ -271,6 +461,16 @@ public class QueryManager
 	{
 		return querySource.hasQuery(name);
 	}
+	
+	/**
+	 * Fetches statistics of compiled query cache of specified query.
+	 * @param name Name of the query
+	 * @return Cache statistics of the query
+	 */
+	public QueryCacheStatistics getQueryCacheStatistics(String name)
+	{
+		return getQueryObject(name).getCacheStatistics();
+	}
 
 	private Query getQueryObject(String name)
 	{
@@ -374,6 +574,25 @@ public class QueryManager
 		}
 	}
 
+	/**
+	 * Builds the statement for streaming methods, which read rows as and when they are consumed. Along with 
+	 * {@link #buildStatement(String, DBConnection, QueryFilter, Object...) buildStatement()}, query specific statement settings 
+	 * like fetch size are applied, so that rows are fetched from db in batches instead of loading complete result.
+	 * @param name Query name
+	 * @param dbConnection Connection on which prepared statement needs to be built
+	 * @param filter Query filter to be used
+	 * @param params Parameters for the prepared statement parameters (?)
+	 * @return Prepared statement after setting required parameter values and settings
+	 * @throws SQLException
+	 */
+	private PreparedStatement buildStreamingStatement(String name, DBConnection dbConnection, QueryFilter filter, Object... params) throws SQLException
+	{
+		PreparedStatement pstmt = buildStatement(name, dbConnection, filter, params);
+		querySource.customize(name, pstmt);
+		
+		return pstmt;
+	}
+
 	/**
 	 * This is equivalent to calling 
 	 * 		{@link #executeUpdate(String, QueryFilter, ConnectionSource, boolean, Object...) executeUpdate(name,DUMMY_FILTER,null,true,params)}
@@ -422,7 +641,21 @@ public class QueryManager
 		}
 	}
 
-	public Integer[] executeBulkUpdates(String name, BulkQueryFilter filter) throws SQLException
+	/**
+	 * Executes the specified query for each row provided by specified filter, using jdbc batches. Rows are sent to db
+	 * in batches of {@link #getBulkBatchSize() bulk batch size} (or filter's commit count, if it is smaller) and connection
+	 * is committed after every commit-count rows.
+	 * 
+	 * <P><B>Note: </B>For MySQL, enabling "rewriteBatchedStatements" on connection url makes the driver send 
+	 * every batch as single multi-row statement.</P>
+	 * 
+	 * @param name Name of the query to execute
+	 * @param filter Filter providing rows
+	 * @return Update counts of every row, in the order of rows. Drivers may report 
+	 * 			{@link Statement#SUCCESS_NO_INFO} for rows whose count is not known
+	 * @throws SQLException
+	 */
+	public int[] executeBulkUpdates(String name, BulkQueryFilter filter) throws SQLException
 	{
 		DBConnection dbConnection = getDBConnection(name);
 		Connection connection = dbConnection.getConnection();
@@ -465,8 +698,12 @@ public class QueryManager
 	
 			List<Object> finalParams = new ArrayList<Object>(20);
 			int idx = 1;
-			List<Integer> updCounts = new LinkedList<Integer>();
+			int updCounts[] = new int[64];
+			int rowCount = 0;
 			int commitCount = filter.getCommitCount(), count = 0;
+			int batchSize = (commitCount > 0) ? Math.min(commitCount, bulkBatchSize) : bulkBatchSize;
+			int batchCount = 0;
+			int batchRes[] = null;
 	
 			try
 			{
@@ -501,9 +738,18 @@ public class QueryManager
 						idx++;
 					}
 	
-					updCounts.add(pstmt.executeUpdate());
-					pstmt.clearParameters();
+					pstmt.addBatch();
+					batchCount++;
 					count++;
+					
+					//if batch is full or commit is required, send the batch to db
+					if(batchCount >= batchSize || (commitCount > 0 && count >= commitCount))
+					{
+						batchRes = pstmt.executeBatch();
+						updCounts = addUpdateCounts(updCounts, rowCount, batchRes);
+						rowCount += batchRes.length;
+						batchCount = 0;
+					}
 	
 					if(commitCount > 0 && count >= commitCount)
 					{
@@ -511,6 +757,14 @@ public class QueryManager
 						count = 0;
 					}
 				}
+				
+				//execute the pending rows, if any
+				if(batchCount > 0)
+				{
+					batchRes = pstmt.executeBatch();
+					updCounts = addUpdateCounts(updCounts, rowCount, batchRes);
+					rowCount += batchRes.length;
+				}
 
 				commitConnection(dbConnection);
 			}finally
@@ -518,12 +772,32 @@ public class QueryManager
 				closeResources(dbConnection, pstmt, null);
 			}
 	
-			return updCounts.toArray(new Integer[0]);
+			return Arrays.copyOf(updCounts, rowCount);
 		}finally
 		{
 			clearThreadLocal();
 		}
 	}
+	
+	/**
+	 * Adds batch update counts to specified result array at specified position, growing the array if required.
+	 * @param updCounts Result array
+	 * @param position Position at which counts needs to be added
+	 * @param batchCounts Batch counts to add
+	 * @return Result array with counts added
+	 */
+	private int[] addUpdateCounts(int updCounts[], int position, int batchCounts[])
+	{
+		int requiredSize = position + batchCounts.length;
+		
+		if(requiredSize > updCounts.length)
+		{
+			updCounts = Arrays.copyOf(updCounts, Math.max(requiredSize, updCounts.length * 2));
+		}
+		
+		System.arraycopy(batchCounts, 0, updCounts, position, batchCounts.length);
+		return updCounts;
+	}
 
 	public boolean executeDDL(String name, QueryFilter filter) throws SQLException
 	{
@@ -905,6 +1179,121 @@ public class QueryManager
 		}
 	}
 
+	/**
+	 * Executes specified query and hands over every digested bean to specified consumer, as and when the row is read. Unlike
+	 * {@link #fetchBeans(String, QueryFilter, DataDigester, Object...) fetchBeans()}, beans are not accumulated in memory, so this 
+	 * method can be used to process huge result sets. As consumer is invoked on the same thread, rows are read only as fast 
+	 * as consumer processes them.
+	 * 
+	 * <P>Fetch size of the statement can be controlled using "#fetchCount" query param. For MySQL, rows are streamed only when 
+	 * fetch count is Integer.MIN_VALUE or "useCursorFetch" is enabled on connection url.</P>
+	 * 
+	 * @param name Name of the query
+	 * @param filter Query filter to be used
+	 * @param digester Digester to be used, if null, query's default digester will be used
+	 * @param consumer Consumer to which digested beans should be passed
+	 * @param params Parameters for the prepared statement parameters (?)
+	 * @return Number of beans passed to consumer
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> long processBeans(String name, QueryFilter filter, DataDigester<T> digester, Consumer<? super T> consumer, Object... params) throws SQLException
+	{
+		Query query = getQueryObject(name);
+
+		if(digester == null)
+			digester = (DataDigester<T>)querySource.getDataDigester(query);
+
+		if(digester == null)
+			throw new IllegalStateException("No data digester is specified.");
+
+		DBConnection connection = getDBConnection(name);
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		QueryResultData rsData = null;
+		long count = 0;
+
+		setOnThreadLocal();
+		
+		try
+		{
+			pstmt = buildStreamingStatement(name, connection, filter, params);
+			rs = pstmt.executeQuery();
+
+			rsData = new QueryResultData(query, filter, rs);
+
+			T bean = null;
+
+			while(rs.next())
+			{
+				bean = digester.digest(rsData);
+
+				if(bean != null)
+				{
+					consumer.accept(bean);
+					count++;
+				}
+
+				if(rsData.getStopProcessing())
+					break;
+			}
+
+			digester.finalizeDigester();
+			return count;
+		}catch(Exception ex)
+		{
+			throw new SQLException("An error occured while executing query: " + name, ex);
+		}finally
+		{
+			clearThreadLocal();
+			closeResources(connection, pstmt, rs);
+		}
+	}
+
+	public long processRecords(String name, QueryFilter filter, Consumer<? super Record> consumer, Object... params) throws SQLException
+	{
+		return processBeans(name, filter, new RecordDataDigester(), consumer, params);
+	}
+
+	/**
+	 * Executes specified query and returns a lazy stream of digested beans. Rows are read from db only as the stream is consumed.
+	 * The connection is held till the stream is exhausted or closed, so the stream should be used within try-with-resources.
+	 * 
+	 * <P>Fetch size of the statement can be controlled using "#fetchCount" query param. For MySQL, rows are streamed only when 
+	 * fetch count is Integer.MIN_VALUE or "useCursorFetch" is enabled on connection url.</P>
+	 * 
+	 * @param name Name of the query
+	 * @param filter Query filter to be used
+	 * @param digester Digester to be used, if null, query's default digester will be used
+	 * @param params Parameters for the prepared statement parameters (?)
+	 * @return Stream of digested beans, which needs to be closed after use
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Stream<T> streamBeans(String name, QueryFilter filter, DataDigester<T> digester, Object... params) throws SQLException
+	{
+		if(digester == null)
+			digester = (DataDigester<T>)querySource.getDataDigester(getQueryObject(name));
+
+		if(digester == null)
+			throw new IllegalStateException("No data digester is specified.");
+		
+		BeanIterator<T> iterator = new BeanIterator<>(name, (filter == null) ? DUMMY_FILTER : filter, digester, params);
+		
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(iterator::close);
+	}
+
+	public <T> Stream<T> streamBeans(String name, DataDigester<T> digester, Object... params) throws SQLException
+	{
+		return streamBeans(name, DUMMY_FILTER, digester, params);
+	}
+
+	public Stream<Record> streamRecords(String name, QueryFilter filter, Object... params) throws SQLException
+	{
+		return streamBeans(name, filter, new RecordDataDigester(), params);
+	}
+
 	public Object fetchBean(String name, Object... params) throws SQLException
 	{
 		return fetchBean(name, DUMMY_FILTER, null, params);
@@ -16,17 +16,27 @@ import java.sql.SQLException;
 import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 public class QueryResultData
 {
 	private ResultSet rs;
 	private String columnNames[];
+	private int columnTypes[];
+	private String columnSignature;
 	private Query query;
 	private QueryFilter filter;
 	private boolean stopProcessing=false;
 	
 	private QueryResultDataProvider dataProvider=null;
 	
+	/**
+	 * Attributes specific to current execution, used by digesters to maintain per execution state
+	 */
+	private Map<String,Object> attributes=null;
+	
 		QueryResultData(Query query,QueryFilter filter,ResultSet rs) throws SQLException
 		{
 			this.query=query;
@@ -36,9 +46,13 @@ public class QueryResultData
 			ResultSetMetaData meta=rs.getMetaData();
 			int len=meta.getColumnCount();
 			columnNames=new String[len];
+			columnTypes=new int[len];
 			
 				for(int i=1;i<=len;i++)
+				{
 					columnNames[i-1]=meta.getColumnLabel(i);
+					columnTypes[i-1]=meta.getColumnType(i);
+				}
 		}
 		
 		public Object[] toObjectArray() throws SQLException
@@ -101,6 +115,91 @@ public class QueryResultData
 			return columnNames.length;
 		}
 		
+		/**
+		 * Fetches the sql type (as per {@link java.sql.Types}) of the column at specified index.
+		 * @param idx Index of column, starting from 0
+		 * @return SQL type of the column
+		 */
+		public int getColumnType(int idx)
+		{
+			return columnTypes[idx];
+		}
+		
+		/**
+		 * Fetches the index of the column with specified label. Exact match is preferred over case-insensitive match.
+		 * @param colName Column label
+		 * @return Index of column (starting from 0) or -1 if no such column exists
+		 */
+		public int getColumnIndex(String colName)
+		{
+				for(int i=0;i<columnNames.length;i++)
+				{
+						if(columnNames[i].equals(colName))
+							return i;
+				}
+				
+				for(int i=0;i<columnNames.length;i++)
+				{
+						if(columnNames[i].equalsIgnoreCase(colName))
+							return i;
+				}
+				
+			return -1;
+		}
+		
+		/**
+		 * Fetches string which uniquely represents the column labels of this result, which can be used as key
+		 * for structures built based on result metadata.
+		 * @return Column signature
+		 */
+		public String getColumnSignature()
+		{
+				if(columnSignature==null)
+					columnSignature=Arrays.toString(columnNames);
+				
+			return columnSignature;
+		}
+		
+		/**
+		 * Fetches data provider based on this result data, which can be used to invoke function instances. 
+		 * @return Data provider
+		 */
+		public QueryResultDataProvider getDataProvider()
+		{
+				if(dataProvider==null)
+					dataProvider=new QueryResultDataProvider(this);
+				
+			return dataProvider;
+		}
+		
+		/**
+		 * Fetches attribute of current execution.
+		 * @param name Name of attribute
+		 * @return Attribute value
+		 */
+		public Object getAttribute(String name)
+		{
+			return (attributes==null)?null:attributes.get(name);
+		}
+		
+		/**
+		 * Sets attribute, which will be available till end of current execution.
+		 * @param name Name of attribute
+		 * @param value Value of attribute
+		 */
+		public void setAttribute(String name,Object value)
+		{
+				if(attributes==null)
+					attributes=new HashMap<String,Object>();
+				
+			attributes.put(name,value);
+		}
+		
+		public boolean wasNull() throws SQLException
+		{
+			return rs.wasNull();
+		}
+		
 		public FunctionInstance getColumnExpression(String colName)
 		{
 			return query.getColumnExpression(colName);
@@ -118,11 +217,7 @@ public class QueryResultData
 				if(func==null)
 					return getObject(colName);
 				
-			
-				if(dataProvider==null)
-					dataProvider=new QueryResultDataProvider(this);
-				
-			return func.invoke(dataProvider);
+			return func.invoke(getDataProvider());
 		}
 
 		public Object executeColumnExpression(int colIdx) throws SQLException
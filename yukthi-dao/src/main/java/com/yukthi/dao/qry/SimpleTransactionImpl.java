@@ -2,6 +2,7 @@ package com.yukthi.dao.qry;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,7 +15,7 @@ import org.apache.logging.log4j.Logger;
 public class SimpleTransactionImpl implements AutoCloseable, Transaction
 {
 	private static Logger logger = LogManager.getLogger(SimpleTransactionImpl.class);
-	private static int NEXT_ID = 1;
+	private static AtomicInteger NEXT_ID = new AtomicInteger(1);
 	
 	private static class DBConnectionWrapper implements DBConnection
 	{
@@ -61,9 +62,9 @@ public class SimpleTransactionImpl implements AutoCloseable, Transaction
 	private int isolationLevel;
 	private ConnectionSource connectionSource;
 
-	private static synchronized int nextId()
+	private static int nextId()
 	{
-		return NEXT_ID++;
+		return NEXT_ID.getAndIncrement();
 	}
 
 	SimpleTransactionImpl(TransactionManager parent, ConnectionSource connectionSource) throws SQLException
@@ -3,17 +3,17 @@ package com.yukthi.dao.qry;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class TransactionManager
 {
-	private static Map<String, TransactionManager> nameToManager = new HashMap<>();
+	private static ConcurrentMap<String, TransactionManager> nameToManager = new ConcurrentHashMap<>();
 	private static Logger logger = LogManager.getLogger(TransactionManager.class);
 	
 	/**
@@ -255,7 +255,12 @@ public class TransactionManager
 	}
 	
 	private String name;
-	private HashMap<Thread, TransactionWrapper> keyToTrans = new HashMap<>();
+	
+	/**
+	 * Root transaction of current thread. As transactions are visible only to the thread which started them,
+	 * thread local is used to avoid any shared lock during transaction lookup.
+	 */
+	private ThreadLocal<TransactionWrapper> currentThreadTransaction = new ThreadLocal<>();
 	
 	private TransactionManager(String name)
 	{
@@ -267,7 +272,7 @@ public class TransactionManager
 		return name;
 	}
 
-	public static synchronized TransactionManager getTransactionManager(String name)
+	public static TransactionManager getTransactionManager(String name)
 	{
 		if(name == null || name.trim().length() == 0)
 		{
@@ -281,17 +286,12 @@ public class TransactionManager
 			return manager;
 		}
 		
-		manager = new TransactionManager(name);
-		nameToManager.put(name, manager);
-		
-		return manager;
+		return nameToManager.computeIfAbsent(name, TransactionManager::new);
 	}
 	
 	public Transaction newTransaction(int level, ConnectionSource connectionSource) throws SQLException
 	{
-		Thread currentThread = Thread.currentThread();
-		
-		if(keyToTrans.containsKey(currentThread))
+		if(currentThreadTransaction.get() != null)
 		{
 			throw new IllegalStateException("A trasaction is already active by current thread");
 		}
@@ -299,14 +299,13 @@ public class TransactionManager
 		Transaction trans = new SimpleTransactionImpl(this, connectionSource, level);
 		TransactionWrapper wrapperTrans = new TransactionWrapper(trans, null, connectionSource);
 		
-		keyToTrans.put(currentThread, wrapperTrans);
+		currentThreadTransaction.set(wrapperTrans);
 		return wrapperTrans;
 	}
 
 	public Transaction newOrExistingTransaction(int level, ConnectionSource connectionSource) throws SQLException
 	{
-		Thread currentThread = Thread.currentThread();
-		TransactionWrapper parentTransaction = keyToTrans.get(currentThread);
+		TransactionWrapper parentTransaction = currentThreadTransaction.get();
 		
 		TransactionWrapper wrapperTrans = null;
 
@@ -319,7 +318,7 @@ public class TransactionManager
 			Transaction trans = new SimpleTransactionImpl(this, connectionSource, level);
 			wrapperTrans = new TransactionWrapper(trans, null, connectionSource);
 			
-			keyToTrans.put(currentThread, wrapperTrans);
+			currentThreadTransaction.set(wrapperTrans);
 		}
 		else
 		{
@@ -332,24 +331,40 @@ public class TransactionManager
 
 	public boolean isTransactionActive()
 	{
-		return keyToTrans.containsKey(Thread.currentThread());
+		return currentThreadTransaction.get() != null;
 	}
 
 	public Transaction currentTransaction(ConnectionSource connectionSource) throws SQLException
 	{
-		TransactionWrapper trans = keyToTrans.get(Thread.currentThread());
+		Transaction trans = activeTransaction();
 
 		if(trans == null)
 		{
 			throw new IllegalStateException("No active transaction by current thread");
 		}
 
+		return trans;
+	}
+
+	/**
+	 * Fetches the active transaction of current thread, if any.
+	 * @return active transaction or null, if no transaction is active on current thread
+	 */
+	public Transaction activeTransaction()
+	{
+		TransactionWrapper trans = currentThreadTransaction.get();
+		
+		if(trans == null)
+		{
+			return null;
+		}
+		
 		return trans.getActiveTransaction();
 	}
 
 	void closeTransaction()
 	{
-		keyToTrans.remove(Thread.currentThread());
+		currentThreadTransaction.remove();
 	}
 
 	
@@ -1,15 +1,18 @@
 package com.yukthi.dao.qry.impl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.yukthi.ccg.util.CCGUtility;
 import com.yukthi.ccg.util.StringUtil;
 import com.yukthi.dao.qry.DataDigester;
 import com.yukthi.dao.qry.FunctionInstance;
 import com.yukthi.dao.qry.QueryResultData;
-import com.yukthi.dao.qry.QueryResultDataProvider;
-import com.yukthi.dao.qry.QueryUtil;
 
 /**
  * Currently only primitive/column/param data is accepted as params.
@@ -23,6 +26,7 @@ public class BeanDataDigester implements DataDigester<Object>
 	private static final String CONSTR_KEY="BeanDataDigester$Construcotr#";
 	private static final String FUNC_INST_KEY="BeanDataDigester$funcInst#";
 	private static final String BEAN_FUNC_KEY="BeanDataDigester$beanFunc#";
+	private static final String ROW_MAPPER_KEY="BeanDataDigester$rowMapper#";
 	
 	public static final String QRY_PARAM_CONSTRUCTOR="beanConstructor";
 	public static final String QRY_PARAM_CONSTR_PARAM="constructorParams";
@@ -30,6 +34,41 @@ public class BeanDataDigester implements DataDigester<Object>
 	
 	private String name=null;
 	
+	/**
+	 * Row mapper compiled for a query and result structure. Holds the constructor handle and a reader for
+	 * each constructor argument, so that per row processing does not involve any lookups or reflection.
+	 */
+	private static class RowMapper
+	{
+		private FunctionInstance beanExpr;
+		private Constructor<?> constructor;
+		private MethodHandle constructorHandle;
+		private ColumnValueReader argReaders[];
+		
+			public Object map(QueryResultData rsData) throws SQLException
+			{
+					if(beanExpr!=null)
+						return beanExpr.invoke(rsData.getDataProvider());
+					
+					if(constructor==null)
+						return recDataDigester.digest(rsData);
+					
+				Object paramValues[]=new Object[argReaders.length];
+				
+					for(int i=0;i<paramValues.length;i++)
+						paramValues[i]=argReaders[i].read(rsData);
+					
+					try
+					{
+						return constructorHandle.invokeExact(paramValues);
+					}catch(Throwable ex)
+					{
+						throw new IllegalStateException("An error occured while invoking constructor: "+constructor+
+									"\nValues: "+StringUtil.toString(paramValues),ex);
+					}
+			}
+	}
+	
 		public BeanDataDigester(String name)
 		{
 			this.name=name;
@@ -152,51 +191,95 @@ public class BeanDataDigester implements DataDigester<Object>
 			return funcInst;
 		}
 	
-		@Override
-	    public Object digest(QueryResultData rsData) throws SQLException
-	    {
-			FunctionInstance beanExpr=geBeanFunctionExpression(rsData);
+		/**
+		 * Builds row mapper for the query and result structure of specified result data.
+		 * @param rsData Result data
+		 * @return Compiled row mapper
+		 */
+		private RowMapper compileRowMapper(QueryResultData rsData)
+		{
+			RowMapper mapper=new RowMapper();
+			mapper.beanExpr=geBeanFunctionExpression(rsData);
 			
-				if(beanExpr!=null)
-				{
-					Object bean=beanExpr.invoke(new QueryResultDataProvider(rsData));
-					
-						if(processBeanRecord(bean))
-							return null;
-						
-					return bean;
-				}
+				if(mapper.beanExpr!=null)
+					return mapper;
+				
+			mapper.constructor=getConstructor(rsData);
+			
+				if(mapper.constructor==null)
+					return mapper;
+				
+			FunctionInstance funcInst=getConstFunctionInstance(rsData);
+			Class<?> paramTypes[]=mapper.constructor.getParameterTypes();
 			
-			Constructor<?> construct=getConstructor(rsData);
+				if(funcInst.getParamCount()!=paramTypes.length)
+					throw new IllegalStateException("Constructor parameter count and constructor argument count are mismatching: "+mapper.constructor);
 			
-				if(construct==null)
+			mapper.argReaders=new ColumnValueReader[paramTypes.length];
+			
+				for(int i=0;i<paramTypes.length;i++)
 				{
-					Object bean=recDataDigester.digest(rsData);
-					
-						if(processBeanRecord(bean))
-							return null;
-						
-					return bean;
+					mapper.argReaders[i]=ColumnValueReader.nonNull(
+							ColumnValueReader.forArgument(rsData,"<init>",funcInst.getParam(i),paramTypes[i]),paramTypes[i]);
 				}
 				
-			FunctionInstance funcInst=getConstFunctionInstance(rsData);
-			Object paramValues[]=funcInst.getParamValues(new QueryResultDataProvider(rsData));
-			
 				try
 				{
-					paramValues=QueryUtil.convert(paramValues,construct.getParameterTypes());
-					Object bean=construct.newInstance((Object[])paramValues);
-					
-						if(processBeanRecord(bean))
-							return null;
-						
-					return bean;
+					mapper.constructorHandle=MethodHandles.lookup().unreflectConstructor(mapper.constructor)
+								.asSpreader(Object[].class,paramTypes.length)
+								.asType(MethodType.methodType(Object.class,Object[].class));
 				}catch(Exception ex)
 				{
-					String constStr=rsData.getQueryParam(QRY_PARAM_CONSTRUCTOR);
-					throw new IllegalStateException("An error occured while invoking constructor: "+constStr+
-								"\nValues: "+StringUtil.toString(paramValues),ex);
+					throw new IllegalStateException("Failed to access constructor: "+mapper.constructor,ex);
 				}
+				
+			return mapper;
+		}
+		
+		/**
+		 * Fetches the row mapper for current execution. Mappers are compiled once per query and result structure
+		 * and cached on the query.
+		 * @param rsData Result data
+		 * @return Row mapper to be used
+		 */
+		@SuppressWarnings("unchecked")
+		private RowMapper getRowMapper(QueryResultData rsData)
+		{
+			String key=(name==null)?ROW_MAPPER_KEY:ROW_MAPPER_KEY+name;
+			RowMapper mapper=(RowMapper)rsData.getAttribute(key);
+			
+				if(mapper!=null)
+					return mapper;
+				
+			Map<String,RowMapper> mappers=(Map<String,RowMapper>)rsData.getQueryAttribute(key);
+			
+				if(mappers==null)
+				{
+					mappers=new ConcurrentHashMap<String,RowMapper>();
+					rsData.setQueryAttribute(key,mappers);
+				}
+				
+			mapper=mappers.get(rsData.getColumnSignature());
+			
+				if(mapper==null)
+				{
+					mapper=compileRowMapper(rsData);
+					mappers.put(rsData.getColumnSignature(),mapper);
+				}
+				
+			rsData.setAttribute(key,mapper);
+			return mapper;
+		}
+	
+		@Override
+	    public Object digest(QueryResultData rsData) throws SQLException
+	    {
+			Object bean=getRowMapper(rsData).map(rsData);
+			
+				if(processBeanRecord(bean))
+					return null;
+				
+			return bean;
 	    }
 		
 		/**
@@ -0,0 +1,199 @@
+package com.yukthi.dao.qry.impl;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.yukthi.ccg.util.CCGUtility;
+import com.yukthi.dao.qry.FunctionInstance;
+import com.yukthi.dao.qry.QueryResultData;
+import com.yukthi.dao.qry.QueryUtil;
+
+/**
+ * Reads a value of current row and converts it to required type. Readers are built once per result structure
+ * by digesters, so that per row processing does not involve any lookups.
+ * @author akiran
+ */
+interface ColumnValueReader
+{
+	/**
+	 * Reads the value from current row of specified result data.
+	 * @param rsData Result data
+	 * @return Value converted to target type. Null, if the value is null
+	 */
+	public Object read(QueryResultData rsData) throws SQLException;
+
+	/**
+	 * Builds reader for specified column, which converts column value into specified type. If the query defines an expression
+	 * for the column, expression will be used. Otherwise, typed getter of result set will be used if column sql type
+	 * can be read into target type without loss.
+	 * @param rsData Result data whose metadata should be used
+	 * @param colName Column name
+	 * @param type Target type
+	 * @return Reader for the column
+	 */
+	public static ColumnValueReader forColumn(QueryResultData rsData, String colName, Class<?> type)
+	{
+		if(rsData.hasColumnExpression(colName))
+		{
+			return data -> QueryUtil.convert(data.executeColumnExpression(colName), type);
+		}
+
+		int idx = rsData.getColumnIndex(colName);
+
+		if(idx < 0)
+		{
+			throw new IllegalStateException("No column found with name: " + colName);
+		}
+
+		return forColumn(idx + 1, rsData.getColumnType(idx), type);
+	}
+
+	/**
+	 * Builds reader for specified column index, based on column sql type and target type. Typed getters are used only when
+	 * every value of the sql type fits into target type (like INTEGER into long), so that values are never truncated. For other
+	 * combinations (like BIGINT into int), value is read as object and converted, same as non-compiled digesters.
+	 * @param colIdx Column index, starting from 1
+	 * @param sqlType Sql type of the column
+	 * @param type Target type
+	 * @return Reader for the column
+	 */
+	public static ColumnValueReader forColumn(int colIdx, int sqlType, Class<?> type)
+	{
+		boolean smallIntegral = (sqlType == Types.TINYINT || sqlType == Types.SMALLINT);
+		boolean integral = (smallIntegral || sqlType == Types.INTEGER);
+
+		if((type == int.class || type == Integer.class) && integral)
+		{
+			return data ->
+			{
+				int value = data.getInt(colIdx);
+				return data.wasNull() ? null : value;
+			};
+		}
+
+		if((type == long.class || type == Long.class) && (integral || sqlType == Types.BIGINT))
+		{
+			return data ->
+			{
+				long value = data.getLong(colIdx);
+				return data.wasNull() ? null : value;
+			};
+		}
+
+		if((type == short.class || type == Short.class) && smallIntegral)
+		{
+			return data ->
+			{
+				short value = data.getShort(colIdx);
+				return data.wasNull() ? null : value;
+			};
+		}
+
+		//JDBC FLOAT is double precision
+		if((type == double.class || type == Double.class) && (integral || sqlType == Types.FLOAT || sqlType == Types.REAL || sqlType == Types.DOUBLE))
+		{
+			return data ->
+			{
+				double value = data.getDouble(colIdx);
+				return data.wasNull() ? null : value;
+			};
+		}
+
+		if((type == float.class || type == Float.class) && (smallIntegral || sqlType == Types.REAL))
+		{
+			return data ->
+			{
+				float value = data.getFloat(colIdx);
+				return data.wasNull() ? null : value;
+			};
+		}
+
+		if((type == boolean.class || type == Boolean.class) && (sqlType == Types.BIT || sqlType == Types.BOOLEAN))
+		{
+			return data ->
+			{
+				boolean value = data.getBoolean(colIdx);
+				return data.wasNull() ? null : value;
+			};
+		}
+
+		if(type == String.class && (sqlType == Types.CHAR || sqlType == Types.VARCHAR || sqlType == Types.LONGVARCHAR
+				|| sqlType == Types.NCHAR || sqlType == Types.NVARCHAR || sqlType == Types.LONGNVARCHAR))
+		{
+			return data -> data.getString(colIdx);
+		}
+
+		if(type == BigDecimal.class && (sqlType == Types.DECIMAL || sqlType == Types.NUMERIC))
+		{
+			return data -> data.getBigDecimal(colIdx);
+		}
+
+		//for other types, fallback to generic conversion
+		return data ->
+		{
+			Object value = data.getObject(colIdx);
+
+			if(value == null || type.isInstance(value))
+			{
+				return value;
+			}
+
+			return QueryUtil.convert(value, type);
+		};
+	}
+
+	/**
+	 * Builds reader for the specified function argument, which converts argument value into specified type.
+	 * @param rsData Result data whose metadata should be used
+	 * @param funcName Name of the function whose argument is being read
+	 * @param arg Argument of function
+	 * @param type Target type
+	 * @return Reader for the argument
+	 */
+	public static ColumnValueReader forArgument(QueryResultData rsData, String funcName, Object arg, Class<?> type)
+	{
+		if(arg instanceof FunctionInstance.Column)
+		{
+			return forColumn(rsData, ((FunctionInstance.Column)arg).name, type);
+		}
+
+		if(arg instanceof FunctionInstance.Param)
+		{
+			String name = ((FunctionInstance.Param)arg).name;
+			return data -> QueryUtil.convert(data.getProperty(funcName, name), type);
+		}
+
+		if(arg instanceof FunctionInstance)
+		{
+			FunctionInstance funcInst = (FunctionInstance)arg;
+			return data -> QueryUtil.convert(funcInst.invoke(data.getDataProvider()), type);
+		}
+
+		//constants are converted only once
+		Object value = QueryUtil.convert(arg, type);
+		return data -> value;
+	}
+
+	/**
+	 * Wraps specified reader so that null values are replaced with default values for primitive types.
+	 * @param reader Reader to wrap
+	 * @param type Target type
+	 * @return Reader which does not return null for primitive types
+	 */
+	public static ColumnValueReader nonNull(ColumnValueReader reader, Class<?> type)
+	{
+		if(!type.isPrimitive())
+		{
+			return reader;
+		}
+
+		Object defValue = CCGUtility.getDefaultPrimitiveValue(type);
+
+		return data ->
+		{
+			Object value = reader.read(data);
+			return (value == null) ? defValue : value;
+		};
+	}
+}
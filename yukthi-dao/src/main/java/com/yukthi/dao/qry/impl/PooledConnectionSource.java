@@ -0,0 +1,894 @@
+package com.yukthi.dao.qry.impl;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.yukthi.dao.qry.DBConnection;
+
+/**
+ * JDBC connection source which maintains a bounded pool of connections. Closing a connection obtained from this
+ * source returns it to the pool. Can be configured from query xml the same way as {@link JDBCConnectionSource},
+ * with additional pool attributes:
+ *
+ * <pre>
+ * &lt;connectionSource ccg:beanType="com.yukthi.dao.qry.impl.PooledConnectionSource"&gt;
+ * 	&lt;driver&gt;com.mysql.jdbc.Driver&lt;/driver&gt;
+ * 	&lt;dbUrl&gt;jdbc:mysql://localhost:3306/test&lt;/dbUrl&gt;
+ * 	&lt;user&gt;user&lt;/user&gt;
+ * 	&lt;password&gt;password&lt;/password&gt;
+ * 	&lt;minSize&gt;2&lt;/minSize&gt;
+ * 	&lt;maxSize&gt;20&lt;/maxSize&gt;
+ * &lt;/connectionSource&gt;
+ * </pre>
+ *
+ * Waiting threads are served in FIFO order. Pool is filled up to min-size in background on first connection request and
+ * replenished whenever connections are discarded. Idle connections above min-size are closed after idle timeout, and
+ * connections which are not returned within leak detection threshold are reported with the stack trace of borrower.
+ */
+public class PooledConnectionSource extends AbstractConnectionSource implements AutoCloseable
+{
+	private static Logger logger = LogManager.getLogger(PooledConnectionSource.class);
+
+	/**
+	 * Connection wrapper, which returns the connection to pool on close
+	 */
+	private class PooledDBConnection extends SimpleDBConnection
+	{
+		/**
+		 * Isolation level of connection when created. Restored when connection is returned to pool
+		 */
+		private int defaultIsolation;
+
+		/**
+		 * Time at which connection is returned to pool last time
+		 */
+		private long lastUsedTime = System.currentTimeMillis();
+
+		/**
+		 * Time at which connection is borrowed from pool
+		 */
+		private long borrowTime;
+
+		/**
+		 * Stack trace of the borrower, maintained only when leak detection is enabled
+		 */
+		private Exception borrowTrace;
+
+		/**
+		 * Indicates the connection is leased currently
+		 */
+		private boolean leased = false;
+
+		/**
+		 * Indicates leak is already reported for current lease
+		 */
+		private boolean leakReported = false;
+
+		public PooledDBConnection(Connection connection) throws SQLException
+		{
+			super(connection, false);
+			this.defaultIsolation = connection.getTransactionIsolation();
+		}
+
+		/**
+		 * Closes the underlying connection, ignoring errors.
+		 */
+		private void closeQuietly()
+		{
+			try
+			{
+				super.close();
+			}catch(Exception ex)
+			{
+				logger.warn("An error occurred while closing pooled connection", ex);
+			}
+		}
+
+		/**
+		 * Checks if the underlying connection is usable.
+		 * @return true if connection is valid
+		 */
+		private boolean isValid()
+		{
+			try
+			{
+				return getActualConnection().isValid(validationTimeout);
+			}catch(Exception ex)
+			{
+				logger.debug("Pooled connection validation failed", ex);
+				return false;
+			}
+		}
+
+		/**
+		 * Fetches underlying connection irrespective of lease status.
+		 * @return underlying connection
+		 */
+		private Connection getActualConnection() throws SQLException
+		{
+			return super.getConnection();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.yukthi.dao.qry.impl.SimpleDBConnection#getConnection()
+		 */
+		@Override
+		public Connection getConnection() throws SQLException
+		{
+			if(!leased)
+			{
+				throw new SQLException("Connection is already returned to pool");
+			}
+
+			return super.getConnection();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.yukthi.dao.qry.impl.SimpleDBConnection#close()
+		 */
+		@Override
+		public void close() throws SQLException
+		{
+			release(this);
+		}
+	}
+
+	private String dbUrl;
+	private String user;
+	private String password;
+	private String driver;
+
+	/**
+	 * Minimum number of connections to be retained in pool
+	 */
+	private int minSize = 0;
+
+	/**
+	 * Maximum number of connections that can be opened
+	 */
+	private int maxSize = 10;
+
+	/**
+	 * Time (in millis) after which idle connections (above min size) are closed
+	 */
+	private long idleTimeout = 600000;
+
+	/**
+	 * Maximum time (in millis) a thread waits for a connection
+	 */
+	private long maxWaitTime = 30000;
+
+	/**
+	 * Indicates whether connections should be validated before handing them out
+	 */
+	private boolean validateOnBorrow = true;
+
+	/**
+	 * Timeout (in seconds) used while validating connections
+	 */
+	private int validationTimeout = 5;
+
+	/**
+	 * Time (in millis) after which borrowed connection is reported as leak. Zero disables leak detection
+	 */
+	private long leakDetectionThreshold = 0;
+
+	/**
+	 * Interval (in millis) at which idle connections and leaks are checked and pool is replenished to min size
+	 */
+	private long maintenanceInterval = 30000;
+
+	/**
+	 * Fair lock, so that waiting threads get connections in the order of request
+	 */
+	private ReentrantLock lock = new ReentrantLock(true);
+
+	/**
+	 * Signalled when a connection is returned or a slot is freed
+	 */
+	private Condition connectionAvailable = lock.newCondition();
+
+	/**
+	 * Idle connections, most recently used at the head
+	 */
+	private ArrayDeque<PooledDBConnection> idleConnections = new ArrayDeque<>();
+
+	/**
+	 * Connections currently borrowed
+	 */
+	private Set<PooledDBConnection> leasedConnections = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Number of connections opened (idle, leased and being opened)
+	 */
+	private int totalCount = 0;
+
+	private boolean initialized = false;
+	private boolean closed = false;
+
+	/**
+	 * Executor for evicting idle connections and detecting leaks
+	 */
+	private ScheduledExecutorService maintenanceExecutor;
+
+	public PooledConnectionSource()
+	{}
+
+	public PooledConnectionSource(String dbUrl, String user, String password, String driver)
+	{
+		this.dbUrl = dbUrl;
+		this.user = user;
+		this.password = password;
+		this.driver = driver;
+	}
+
+	public void setDbUrl(String dbUrl)
+	{
+		this.dbUrl = dbUrl;
+	}
+
+	public void setUser(String user)
+	{
+		this.user = user;
+	}
+
+	public void setPassword(String password)
+	{
+		this.password = password;
+	}
+
+	public void setDriver(String driver)
+	{
+		this.driver = driver;
+	}
+
+	public int getMinSize()
+	{
+		return minSize;
+	}
+
+	public void setMinSize(int minSize)
+	{
+		if(minSize < 0)
+		{
+			throw new IllegalArgumentException("Invalid min size specified: " + minSize);
+		}
+
+		this.minSize = minSize;
+	}
+
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize)
+	{
+		if(maxSize <= 0)
+		{
+			throw new IllegalArgumentException("Invalid max size specified: " + maxSize);
+		}
+
+		this.maxSize = maxSize;
+	}
+
+	public long getIdleTimeout()
+	{
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout)
+	{
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getMaxWaitTime()
+	{
+		return maxWaitTime;
+	}
+
+	public void setMaxWaitTime(long maxWaitTime)
+	{
+		this.maxWaitTime = maxWaitTime;
+	}
+
+	public boolean isValidateOnBorrow()
+	{
+		return validateOnBorrow;
+	}
+
+	public void setValidateOnBorrow(boolean validateOnBorrow)
+	{
+		this.validateOnBorrow = validateOnBorrow;
+	}
+
+	public int getValidationTimeout()
+	{
+		return validationTimeout;
+	}
+
+	public void setValidationTimeout(int validationTimeout)
+	{
+		this.validationTimeout = validationTimeout;
+	}
+
+	public long getLeakDetectionThreshold()
+	{
+		return leakDetectionThreshold;
+	}
+
+	public void setLeakDetectionThreshold(long leakDetectionThreshold)
+	{
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+
+	public long getMaintenanceInterval()
+	{
+		return maintenanceInterval;
+	}
+
+	public void setMaintenanceInterval(long maintenanceInterval)
+	{
+		if(maintenanceInterval <= 0)
+		{
+			throw new IllegalArgumentException("Invalid maintenance interval specified: " + maintenanceInterval);
+		}
+
+		this.maintenanceInterval = maintenanceInterval;
+	}
+
+	/**
+	 * Gets number of connections currently opened by this pool.
+	 * @return number of open connections
+	 */
+	public int getTotalCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return totalCount;
+		}finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets number of connections currently idle in the pool.
+	 * @return number of idle connections
+	 */
+	public int getIdleCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return idleConnections.size();
+		}finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets number of connections currently borrowed from the pool.
+	 * @return number of borrowed connections
+	 */
+	public int getLeasedCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return leasedConnections.size();
+		}finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets number of threads currently waiting for a connection.
+	 * @return number of waiting threads
+	 */
+	public int getWaitingCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return lock.getWaitQueueLength(connectionAvailable);
+		}finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets number of borrowed connections which are reported as leaks and are not yet returned.
+	 * @return number of leaked connections
+	 */
+	public int getLeakedCount()
+	{
+		lock.lock();
+
+		try
+		{
+			int count = 0;
+
+			for(PooledDBConnection connection : leasedConnections)
+			{
+				if(connection.leakReported)
+				{
+					count++;
+				}
+			}
+
+			return count;
+		}finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Loads the driver, starts the maintenance task and starts filling the pool up to min size. Invoked on first
+	 * connection request, with lock held.
+	 */
+	private void initialize() throws SQLException
+	{
+		if(initialized)
+		{
+			return;
+		}
+
+		if(minSize > maxSize)
+		{
+			throw new IllegalStateException("Min size " + minSize + " is greater than max size " + maxSize);
+		}
+
+		try
+		{
+			Class.forName(driver);
+		}catch(Exception ex)
+		{
+			throw new SQLException("Invalid driver class name specified: " + driver, ex);
+		}
+
+		maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "PooledConnectionSource-" + getName());
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		maintenanceExecutor.scheduleWithFixedDelay(this::performMaintenance, maintenanceInterval, maintenanceInterval, TimeUnit.MILLISECONDS);
+		initialized = true;
+
+		replenish();
+	}
+
+	/**
+	 * Requests the maintenance thread to fill the pool up to min size, if pool is below min size.
+	 * Should be called with lock held.
+	 */
+	private void replenish()
+	{
+		if(closed || totalCount >= minSize)
+		{
+			return;
+		}
+
+		try
+		{
+			maintenanceExecutor.execute(this::fillPool);
+		}catch(RejectedExecutionException ex)
+		{
+			//executor is shut down as the pool is being closed
+		}
+	}
+
+	/**
+	 * Opens connections till pool reaches min size. New connections are added as idle connections and
+	 * waiting threads are notified. Stops on first failure, so that an unavailable db is retried only during
+	 * next maintenance.
+	 */
+	private void fillPool()
+	{
+		while(true)
+		{
+			lock.lock();
+
+			try
+			{
+				if(closed || totalCount >= minSize)
+				{
+					return;
+				}
+
+				//reserve slot for new connection
+				totalCount++;
+			}finally
+			{
+				lock.unlock();
+			}
+
+			PooledDBConnection connection = null;
+
+			try
+			{
+				connection = openConnection();
+			}catch(Exception ex)
+			{
+				logger.warn("Failed to open connection while filling pool up to min size", ex);
+			}
+
+			lock.lock();
+
+			try
+			{
+				if(connection == null)
+				{
+					discardSlot();
+					return;
+				}
+
+				if(closed)
+				{
+					connection.closeQuietly();
+					discardSlot();
+					return;
+				}
+
+				idleConnections.addFirst(connection);
+				connectionAvailable.signal();
+			}finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Opens new physical connection.
+	 * @return new pooled connection
+	 */
+	private PooledDBConnection openConnection() throws SQLException
+	{
+		logger.debug("Opening new pooled connection for url: {}", dbUrl);
+		return new PooledDBConnection(DriverManager.getConnection(dbUrl, user, password));
+	}
+
+	/**
+	 * Marks specified connection as leased by current thread. Should be called with lock held.
+	 * @param connection Connection being leased
+	 * @return leased connection
+	 */
+	private PooledDBConnection lease(PooledDBConnection connection)
+	{
+		connection.leased = true;
+		connection.leakReported = false;
+		connection.borrowTime = System.currentTimeMillis();
+		connection.borrowTrace = (leakDetectionThreshold > 0) ? new Exception("Connection borrowed by thread: " + Thread.currentThread().getName()) : null;
+
+		leasedConnections.add(connection);
+		return connection;
+	}
+
+	/**
+	 * Releases the slot of a connection which is closed or failed to open, and wakes up a waiting thread.
+	 * Should be called with lock held.
+	 */
+	private void discardSlot()
+	{
+		totalCount--;
+		connectionAvailable.signal();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yukthi.dao.qry.ConnectionSource#getConnection()
+	 */
+	@Override
+	public DBConnection getConnection() throws SQLException
+	{
+		long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitTime);
+		PooledDBConnection connection = null;
+
+		while(true)
+		{
+			boolean openNew = false;
+
+			lock.lock();
+
+			try
+			{
+				if(closed)
+				{
+					throw new SQLException("Connection source is already closed: " + getName());
+				}
+
+				initialize();
+
+				while(idleConnections.isEmpty() && totalCount >= maxSize)
+				{
+					if(remainingNanos <= 0)
+					{
+						throw new SQLException(String.format("Timed out waiting for connection after %s ms. [Max Size: %s, Leased: %s]",
+								maxWaitTime, maxSize, leasedConnections.size()));
+					}
+
+					try
+					{
+						remainingNanos = connectionAvailable.awaitNanos(remainingNanos);
+					}catch(InterruptedException ex)
+					{
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for connection", ex);
+					}
+
+					if(closed)
+					{
+						throw new SQLException("Connection source is already closed: " + getName());
+					}
+				}
+
+				connection = idleConnections.pollFirst();
+
+				//reserve slot for new connection
+				if(connection == null)
+				{
+					totalCount++;
+					openNew = true;
+				}
+			}finally
+			{
+				lock.unlock();
+			}
+
+			//open new connection outside the lock
+			if(openNew)
+			{
+				try
+				{
+					connection = openConnection();
+				}catch(SQLException | RuntimeException ex)
+				{
+					lock.lock();
+
+					try
+					{
+						discardSlot();
+					}finally
+					{
+						lock.unlock();
+					}
+
+					throw ex;
+				}
+			}
+			//validate idle connection outside the lock
+			else if(validateOnBorrow && !connection.isValid())
+			{
+				logger.debug("Discarding invalid pooled connection");
+				connection.closeQuietly();
+
+				lock.lock();
+
+				try
+				{
+					discardSlot();
+					replenish();
+				}finally
+				{
+					lock.unlock();
+				}
+
+				continue;
+			}
+
+			lock.lock();
+
+			try
+			{
+				return lease(connection);
+			}finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns specified connection to pool. Uncommitted changes are rolled back and connection settings are restored.
+	 * @param connection Connection to return
+	 */
+	private void release(PooledDBConnection connection)
+	{
+		lock.lock();
+
+		try
+		{
+			//if connection is already returned
+			if(!connection.leased)
+			{
+				return;
+			}
+
+			connection.leased = false;
+			leasedConnections.remove(connection);
+		}finally
+		{
+			lock.unlock();
+		}
+
+		boolean reusable = true;
+
+		try
+		{
+			Connection actualConnection = connection.getActualConnection();
+
+			actualConnection.rollback();
+
+			if(actualConnection.getTransactionIsolation() != connection.defaultIsolation)
+			{
+				actualConnection.setTransactionIsolation(connection.defaultIsolation);
+			}
+
+			actualConnection.setAutoCommit(false);
+		}catch(Exception ex)
+		{
+			logger.warn("Discarding pooled connection as it could not be reset", ex);
+			reusable = false;
+		}
+
+		lock.lock();
+
+		try
+		{
+			if(!reusable || closed)
+			{
+				connection.closeQuietly();
+				discardSlot();
+				replenish();
+				return;
+			}
+
+			connection.lastUsedTime = System.currentTimeMillis();
+			idleConnections.addFirst(connection);
+			connectionAvailable.signal();
+		}finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes idle connections above min size, which are not used for idle timeout, reports leaked connections and
+	 * replenishes the pool up to min size.
+	 */
+	private void performMaintenance()
+	{
+		List<PooledDBConnection> expiredConnections = new ArrayList<>();
+		long now = System.currentTimeMillis();
+
+		lock.lock();
+
+		try
+		{
+			//least recently used connections are at the tail
+			Iterator<PooledDBConnection> it = idleConnections.descendingIterator();
+			PooledDBConnection connection = null;
+
+			while(it.hasNext() && totalCount - expiredConnections.size() > minSize)
+			{
+				connection = it.next();
+
+				if(now - connection.lastUsedTime < idleTimeout)
+				{
+					break;
+				}
+
+				it.remove();
+				expiredConnections.add(connection);
+			}
+
+			totalCount -= expiredConnections.size();
+
+			if(leakDetectionThreshold > 0)
+			{
+				for(PooledDBConnection leasedConnection : leasedConnections)
+				{
+					if(leasedConnection.leakReported || now - leasedConnection.borrowTime < leakDetectionThreshold)
+					{
+						continue;
+					}
+
+					leasedConnection.leakReported = true;
+					logger.warn("Connection is not returned to pool '" + getName() + "' for " + (now - leasedConnection.borrowTime)
+							+ " ms. Possible connection leak.", leasedConnection.borrowTrace);
+				}
+			}
+
+			if(!expiredConnections.isEmpty())
+			{
+				connectionAvailable.signalAll();
+			}
+		}finally
+		{
+			lock.unlock();
+		}
+
+		for(PooledDBConnection connection : expiredConnections)
+		{
+			logger.debug("Closing idle pooled connection");
+			connection.closeQuietly();
+		}
+
+		fillPool();
+	}
+
+	/**
+	 * Closes all idle connections and stops the maintenance task. Leased connections are closed when they are returned.
+	 */
+	@Override
+	public void close()
+	{
+		List<PooledDBConnection> connections = null;
+
+		lock.lock();
+
+		try
+		{
+			if(closed)
+			{
+				return;
+			}
+
+			closed = true;
+
+			connections = new ArrayList<>(idleConnections);
+			idleConnections.clear();
+			totalCount -= connections.size();
+
+			connectionAvailable.signalAll();
+		}finally
+		{
+			lock.unlock();
+		}
+
+		if(maintenanceExecutor != null)
+		{
+			maintenanceExecutor.shutdownNow();
+		}
+
+		for(PooledDBConnection connection : connections)
+		{
+			connection.closeQuietly();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return super.toString() + "[Url: " + dbUrl + ", Max Size: " + maxSize + "]";
+	}
+}
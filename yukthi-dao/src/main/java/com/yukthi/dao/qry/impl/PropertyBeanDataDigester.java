@@ -1,28 +1,66 @@
 package com.yukthi.dao.qry.impl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.yukthi.ccg.util.BeanUtil;
 import com.yukthi.dao.qry.DataDigester;
 import com.yukthi.dao.qry.FunctionInstance;
 import com.yukthi.dao.qry.QueryResultData;
-import com.yukthi.dao.qry.QueryResultDataProvider;
-import com.yukthi.dao.qry.QueryUtil;
 
 public class PropertyBeanDataDigester implements DataDigester<Object>
 {
 	//private static final Logger logger=Logger.getLogger(PropertyBeanDataDigester.class);
 	
-	private static final String SETTER_KEY="PropertyBeanDataDigester$setters#";
 	private static final String BEAN_FUNC_KEY="PropertyBeanDataDigester$beanFunc#";
+	private static final String BEAN_TYPE_KEY="PropertyBeanDataDigester$beanType#";
+	private static final String ROW_MAPPER_KEY="PropertyBeanDataDigester$rowMapper#";
 
 	public static final String QRY_PARAM_BEAN_TYE="beanType";
 	public static final String QRY_PARAM_BEAN_FUNC_EXPR="beanFuncExpr";
 	
 	private String name;
 	
+	/**
+	 * Row mapper compiled for a bean type and result structure. Holds setter handle and value reader
+	 * for each of the mapped columns.
+	 */
+	private static class RowMapper
+	{
+		private Class<?> beanType;
+		private String columnNames[];
+		private MethodHandle setters[];
+		private ColumnValueReader readers[];
+		
+			public void map(QueryResultData rsData,Object bean) throws SQLException
+			{
+				Object value=null;
+				
+					for(int i=0;i<setters.length;i++)
+					{
+						value=readers[i].read(rsData);
+						
+							if(value==null)
+								continue;
+							
+							try
+							{
+								setters[i].invokeExact(bean,value);
+							}catch(Throwable ex)
+							{
+								throw new IllegalStateException("An error occured while invoking property: "+columnNames[i],ex);
+							}
+					}
+			}
+	}
+	
 		public PropertyBeanDataDigester(String name)
 	    {
 		    this.name=name;
@@ -50,14 +88,18 @@ public class PropertyBeanDataDigester implements DataDigester<Object>
 			return funcInst;
 		}
 		
-		private Object createBean(QueryResultData rsData)
+		/**
+		 * Fetches the default constructor handle of the configured bean type.
+		 * @param rsData Result data
+		 * @return Constructor handle returning Object
+		 */
+		private MethodHandle getBeanConstructor(QueryResultData rsData)
 		{
-			FunctionInstance funcInst=getBeanFunctionExpression(rsData);
+			String key=(name==null)?BEAN_TYPE_KEY:BEAN_TYPE_KEY+name;
+			MethodHandle constructor=(MethodHandle)rsData.getQueryAttribute(key);
 			
-				if(funcInst!=null)
-				{
-					return funcInst.invoke(new QueryResultDataProvider(rsData));
-				}
+				if(constructor!=null)
+					return constructor;
 				
 			String beanType=rsData.getQueryParam(QRY_PARAM_BEAN_TYE);
 			
@@ -76,36 +118,52 @@ public class PropertyBeanDataDigester implements DataDigester<Object>
 				
 				try
 				{
-					return beanCls.newInstance();
+					constructor=MethodHandles.lookup().unreflectConstructor(beanCls.getConstructor())
+								.asType(MethodType.methodType(Object.class));
 				}catch(Exception ex)
 				{
-					throw new IllegalStateException("An error occured while creating bean of type: "+beanType,ex);
+					throw new IllegalStateException("Failed to access default constructor of bean type: "+beanType,ex);
 				}
+				
+			rsData.setQueryAttribute(key,constructor);
+			return constructor;
 		}
-	
-		@SuppressWarnings("unchecked")
-        private Map<String,Method> loadProperties(QueryResultData rsData,Class<?> cls)
+		
+		private Object createBean(QueryResultData rsData)
 		{
-			Map<String,Method> nameToSetter=(Map<String,Method>)rsData.getQueryAttribute(SETTER_KEY);
+			FunctionInstance funcInst=getBeanFunctionExpression(rsData);
 			
-				if(nameToSetter!=null)
-					return nameToSetter;
+				if(funcInst!=null)
+				{
+					return funcInst.invoke(rsData.getDataProvider());
+				}
 				
-			nameToSetter=BeanUtil.getSetterMethodMap(cls,false);
-			rsData.setQueryAttribute(SETTER_KEY,nameToSetter);
-			
-			return nameToSetter;
+				try
+				{
+					return getBeanConstructor(rsData).invokeExact();
+				}catch(RuntimeException ex)
+				{
+					throw ex;
+				}catch(Throwable ex)
+				{
+					throw new IllegalStateException("An error occured while creating bean of type: "+rsData.getQueryParam(QRY_PARAM_BEAN_TYE),ex);
+				}
 		}
-
-		@Override
-	    public Object digest(QueryResultData rsData) throws SQLException
-	    {
-			Object bean=createBean(rsData);
-			Map<String,Method> nameToSetter=loadProperties(rsData,bean.getClass());
+		
+		/**
+		 * Builds row mapper for specified bean type and result structure.
+		 * @param rsData Result data
+		 * @param beanType Bean type
+		 * @return Compiled row mapper
+		 */
+		private RowMapper compileRowMapper(QueryResultData rsData,Class<?> beanType)
+		{
+			Map<String,Method> nameToSetter=BeanUtil.getSetterMethodMap(beanType,false);
 			String columnNames[]=rsData.getColumnNames();
+			List<String> mappedColumns=new ArrayList<String>();
+			List<MethodHandle> setters=new ArrayList<MethodHandle>();
+			List<ColumnValueReader> readers=new ArrayList<ColumnValueReader>();
 			Method setter=null;
-			Object value=null;
-			Class<?> paramTypes[]=null;
 			
 				for(int i=0;i<columnNames.length;i++)
 				{
@@ -113,23 +171,70 @@ public class PropertyBeanDataDigester implements DataDigester<Object>
 					
 						if(setter==null)
 							continue;
-			
-					value=rsData.executeColumnExpression(i+1);
-					
-						if(value==null)
-							continue;
 						
-					paramTypes=setter.getParameterTypes();
-					value=QueryUtil.convert(value,paramTypes[0]);
-					
 						try
 						{
-							setter.invoke(bean,value);
+							setters.add(MethodHandles.lookup().unreflect(setter).asType(MethodType.methodType(void.class,Object.class,Object.class)));
 						}catch(Exception ex)
 						{
-							throw new IllegalStateException("An error occured while invoking property: "+columnNames[i],ex);
+							throw new IllegalStateException("Failed to access setter of property: "+columnNames[i],ex);
 						}
+						
+					mappedColumns.add(columnNames[i]);
+					readers.add(ColumnValueReader.forColumn(rsData,columnNames[i],setter.getParameterTypes()[0]));
 				}
+				
+			RowMapper mapper=new RowMapper();
+			mapper.beanType=beanType;
+			mapper.columnNames=mappedColumns.toArray(new String[0]);
+			mapper.setters=setters.toArray(new MethodHandle[0]);
+			mapper.readers=readers.toArray(new ColumnValueReader[0]);
+			
+			return mapper;
+		}
+		
+		/**
+		 * Fetches the row mapper for current execution and specified bean type. Mappers are compiled once per query, 
+		 * bean type and result structure and cached on the query.
+		 * @param rsData Result data
+		 * @param beanType Type of bean being populated
+		 * @return Row mapper to be used
+		 */
+		@SuppressWarnings("unchecked")
+		private RowMapper getRowMapper(QueryResultData rsData,Class<?> beanType)
+		{
+			String key=(name==null)?ROW_MAPPER_KEY:ROW_MAPPER_KEY+name;
+			RowMapper mapper=(RowMapper)rsData.getAttribute(key);
+			
+				if(mapper!=null && mapper.beanType==beanType)
+					return mapper;
+				
+			Map<String,RowMapper> mappers=(Map<String,RowMapper>)rsData.getQueryAttribute(key);
+			
+				if(mappers==null)
+				{
+					mappers=new ConcurrentHashMap<String,RowMapper>();
+					rsData.setQueryAttribute(key,mappers);
+				}
+				
+			String mapperKey=beanType.getName()+rsData.getColumnSignature();
+			mapper=mappers.get(mapperKey);
+			
+				if(mapper==null)
+				{
+					mapper=compileRowMapper(rsData,beanType);
+					mappers.put(mapperKey,mapper);
+				}
+				
+			rsData.setAttribute(key,mapper);
+			return mapper;
+		}
+
+		@Override
+	    public Object digest(QueryResultData rsData) throws SQLException
+	    {
+			Object bean=createBean(rsData);
+			getRowMapper(rsData,bean.getClass()).map(rsData,bean);
 			
 		    return bean;
 	    }
@@ -24,7 +24,7 @@ public class BulkQueryTest extends TestCase
 			beans.add(new TestBean(null,20));
 			beans.add(new TestBean(null,null));
 			
-			Integer res[]=manager.executeBulkUpdates("bulkInsert",new BulkBeanQueryFilter(beans));
+			int res[]=manager.executeBulkUpdates("bulkInsert",new BulkBeanQueryFilter(beans));
 			System.out.println("Result: "+Arrays.toString(res));
 			
 		}
@@ -0,0 +1,236 @@
+package com.test.qry;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import com.yukthi.dao.qry.ConnectionSource;
+import com.yukthi.dao.qry.DBConnection;
+import com.yukthi.dao.qry.DataDigester;
+import com.yukthi.dao.qry.Query;
+import com.yukthi.dao.qry.QueryManager;
+import com.yukthi.dao.qry.QuerySource;
+import com.yukthi.dao.qry.Transaction;
+import com.yukthi.dao.qry.TransactionManager;
+import com.yukthi.dao.qry.impl.AbstractConnectionSource;
+import com.yukthi.dao.qry.impl.SimpleDBConnection;
+
+/**
+ * Multi-threaded harness which measures connection acquisition and transaction lookup throughput
+ * with 1 to 64 threads. Uses in-memory connections, so that only the query manager and transaction manager
+ * overhead is measured.
+ * @author akiran
+ */
+public class ConcurrentConnectionTest extends TestCase
+{
+	private static final int THREAD_COUNTS[] = {1, 2, 4, 8, 16, 32, 64};
+
+	/**
+	 * Connection source returning in-memory connections, which ignore all invocations
+	 */
+	private static class DummyConnectionSource extends AbstractConnectionSource
+	{
+		@Override
+		public DBConnection getConnection() throws SQLException
+		{
+			Connection connection = (Connection)Proxy.newProxyInstance(DummyConnectionSource.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) ->
+			{
+				Class<?> returnType = method.getReturnType();
+
+				if(returnType == boolean.class)
+				{
+					return false;
+				}
+
+				if(returnType == int.class)
+				{
+					return 0;
+				}
+
+				return null;
+			});
+
+			return new SimpleDBConnection(connection);
+		}
+	}
+
+	/**
+	 * Query source which only provides connection source
+	 */
+	private static class DummyQuerySource implements QuerySource
+	{
+		private ConnectionSource connectionSource = new DummyConnectionSource();
+
+		@Override
+		public ConnectionSource getConnectionSource()
+		{
+			return connectionSource;
+		}
+
+		@Override
+		public DataDigester<?> getDataDigester(Query query)
+		{
+			return null;
+		}
+
+		@Override
+		public Set<String> getQueryNames()
+		{
+			return null;
+		}
+
+		@Override
+		public boolean hasQuery(String name)
+		{
+			return false;
+		}
+
+		@Override
+		public Query getQuery(String name)
+		{
+			return null;
+		}
+
+		@Override
+		public void customize(String name, PreparedStatement pstmt)
+		{}
+
+		@Override
+		public Object getGlobalProperty(String name)
+		{
+			return null;
+		}
+	}
+
+	private static interface Operation
+	{
+		public void execute(QueryManager manager) throws Exception;
+	}
+
+	/**
+	 * Executes specified operation using specified number of threads for specified duration.
+	 * @return Number of operations executed per second
+	 */
+	private static long measure(QueryManager manager, int threadCount, long duration, Operation operation) throws Exception
+	{
+		CountDownLatch startLatch = new CountDownLatch(1);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicLong opCount = new AtomicLong();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+
+		for(int i = 0; i < threadCount; i++)
+		{
+			Thread thread = new Thread(() ->
+			{
+				long count = 0;
+
+				try
+				{
+					startLatch.await();
+
+					while(running.get())
+					{
+						operation.execute(manager);
+						count++;
+					}
+				}catch(Throwable ex)
+				{
+					error.compareAndSet(null, ex);
+				}
+
+				opCount.addAndGet(count);
+			});
+
+			thread.start();
+			threads.add(thread);
+		}
+
+		long startTime = System.nanoTime();
+		startLatch.countDown();
+
+		Thread.sleep(duration);
+		running.set(false);
+
+		for(Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		long timeTaken = System.nanoTime() - startTime;
+
+		if(error.get() != null)
+		{
+			throw new IllegalStateException("An error occurred during execution", error.get());
+		}
+
+		return (opCount.get() * 1000000000L) / timeTaken;
+	}
+
+	/**
+	 * Obtains connection without transaction
+	 */
+	private static void fetchConnection(QueryManager manager) throws Exception
+	{
+		DBConnection connection = manager.getDBConnection("test");
+		connection.close();
+	}
+
+	/**
+	 * Obtains connection within transaction and ensures the transaction of current thread is used
+	 */
+	private static void fetchTransactionConnection(QueryManager manager) throws Exception
+	{
+		try(Transaction transaction = manager.newOrExistingTransaction())
+		{
+			DBConnection connection = manager.getDBConnection("test");
+
+			if(connection != transaction.getConnection("test"))
+			{
+				throw new IllegalStateException("Connection of different transaction is returned");
+			}
+
+			transaction.commit();
+		}
+
+		if(manager.isTransactionActive())
+		{
+			throw new IllegalStateException("Transaction is not cleaned up after commit");
+		}
+	}
+
+	private static void runScaling(long duration) throws Exception
+	{
+		QueryManager manager = new QueryManager(new DummyQuerySource(), TransactionManager.getTransactionManager("concurrentConnectionTest"));
+
+		System.out.println(String.format("%8s %20s %20s", "Threads", "Connections/sec", "Transactions/sec"));
+
+		for(int threadCount : THREAD_COUNTS)
+		{
+			long connRate = measure(manager, threadCount, duration, ConcurrentConnectionTest::fetchConnection);
+			long transRate = measure(manager, threadCount, duration, ConcurrentConnectionTest::fetchTransactionConnection);
+
+			System.out.println(String.format("%8d %20d %20d", threadCount, connRate, transRate));
+		}
+	}
+
+	public void testScaling() throws Exception
+	{
+		runScaling(100);
+	}
+
+	public static void main(String args[]) throws Exception
+	{
+		runScaling(2000);
+	}
+}
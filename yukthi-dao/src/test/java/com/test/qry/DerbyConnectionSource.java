@@ -0,0 +1,107 @@
+package com.test.qry;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.yukthi.dao.qry.DBConnection;
+import com.yukthi.dao.qry.impl.AbstractConnectionSource;
+import com.yukthi.dao.qry.impl.SimpleDBConnection;
+
+/**
+ * Connection source providing auto-commit connections of an in-memory derby db, which keeps track of
+ * connections which are not yet closed and fetch size of last executed query.
+ */
+public class DerbyConnectionSource extends AbstractConnectionSource
+{
+	private String dbUrl;
+	private AtomicInteger openCount=new AtomicInteger();
+	private volatile int lastFetchSize=-1;
+
+		public DerbyConnectionSource(String dbName)
+		{
+			this.dbUrl="jdbc:derby:memory:"+dbName+";create=true";
+		}
+
+		public String getDbUrl()
+		{
+			return dbUrl;
+		}
+
+		/**
+		 * Fetches number of connections obtained from this source which are not yet closed
+		 * @return Open connection count
+		 */
+		public int getOpenCount()
+		{
+			return openCount.get();
+		}
+
+		/**
+		 * Fetches the fetch size of prepared statement, with which last query is executed
+		 * @return Fetch size of last query
+		 */
+		public int getLastFetchSize()
+		{
+			return lastFetchSize;
+		}
+
+		/**
+		 * Invokes specified method on target, unwrapping invocation exceptions
+		 */
+		private static Object invoke(Object target,Method method,Object args[]) throws Throwable
+		{
+			try
+			{
+				return method.invoke(target,args);
+			}catch(InvocationTargetException ex)
+			{
+				throw ex.getCause();
+			}
+		}
+
+		/**
+		 * Wraps specified connection, so that fetch size of prepared statements are recorded on query execution
+		 */
+		private Connection wrap(Connection connection)
+		{
+			return (Connection)Proxy.newProxyInstance(DerbyConnectionSource.class.getClassLoader(),new Class<?>[] {Connection.class},(proxy,method,args) ->
+			{
+				Object result=invoke(connection,method,args);
+
+				if(!(result instanceof PreparedStatement))
+					return result;
+
+				PreparedStatement statement=(PreparedStatement)result;
+
+				return Proxy.newProxyInstance(DerbyConnectionSource.class.getClassLoader(),new Class<?>[] {PreparedStatement.class},(stmtProxy,stmtMethod,stmtArgs) ->
+				{
+					if("executeQuery".equals(stmtMethod.getName()))
+						lastFetchSize=statement.getFetchSize();
+
+					return invoke(statement,stmtMethod,stmtArgs);
+				});
+			});
+		}
+
+		@Override
+		public DBConnection getConnection() throws SQLException
+		{
+			openCount.incrementAndGet();
+
+			return new SimpleDBConnection(wrap(DriverManager.getConnection(dbUrl)),true)
+			{
+				@Override
+				public void close() throws SQLException
+				{
+					openCount.decrementAndGet();
+					super.close();
+				}
+			};
+		}
+}
@@ -0,0 +1,134 @@
+package com.test.qry;
+
+import java.math.BigDecimal;
+
+/**
+ * Bean used to test conversion of column values by digesters. Properties are named after the column they are read from
+ * and the type they are read into.
+ */
+public class DigestBean
+{
+	private int id;
+	private long bigVal;
+	private int bigAsInt;
+	private int intVal;
+	private Long intAsLong;
+	private short intAsShort;
+	private short smallVal;
+	private double dblVal;
+	private float dblAsFloat;
+	private float realVal;
+	private Double intAsDouble;
+	private BigDecimal decVal;
+	private double decAsDouble;
+	private String name;
+	private boolean flag;
+
+		public DigestBean()
+		{}
+
+		public DigestBean(int id,long bigVal,int bigAsInt,int intVal,Long intAsLong,short intAsShort,short smallVal,double dblVal,
+				float dblAsFloat,float realVal,Double intAsDouble,BigDecimal decVal,double decAsDouble,String name,boolean flag)
+		{
+			this.id=id;
+			this.bigVal=bigVal;
+			this.bigAsInt=bigAsInt;
+			this.intVal=intVal;
+			this.intAsLong=intAsLong;
+			this.intAsShort=intAsShort;
+			this.smallVal=smallVal;
+			this.dblVal=dblVal;
+			this.dblAsFloat=dblAsFloat;
+			this.realVal=realVal;
+			this.intAsDouble=intAsDouble;
+			this.decVal=decVal;
+			this.decAsDouble=decAsDouble;
+			this.name=name;
+			this.flag=flag;
+		}
+
+		public void setId(int id)
+		{
+			this.id=id;
+		}
+
+		public void setBigVal(long bigVal)
+		{
+			this.bigVal=bigVal;
+		}
+
+		public void setBigAsInt(int bigAsInt)
+		{
+			this.bigAsInt=bigAsInt;
+		}
+
+		public void setIntVal(int intVal)
+		{
+			this.intVal=intVal;
+		}
+
+		public void setIntAsLong(Long intAsLong)
+		{
+			this.intAsLong=intAsLong;
+		}
+
+		public void setIntAsShort(short intAsShort)
+		{
+			this.intAsShort=intAsShort;
+		}
+
+		public void setSmallVal(short smallVal)
+		{
+			this.smallVal=smallVal;
+		}
+
+		public void setDblVal(double dblVal)
+		{
+			this.dblVal=dblVal;
+		}
+
+		public void setDblAsFloat(float dblAsFloat)
+		{
+			this.dblAsFloat=dblAsFloat;
+		}
+
+		public void setRealVal(float realVal)
+		{
+			this.realVal=realVal;
+		}
+
+		public void setIntAsDouble(Double intAsDouble)
+		{
+			this.intAsDouble=intAsDouble;
+		}
+
+		public void setDecVal(BigDecimal decVal)
+		{
+			this.decVal=decVal;
+		}
+
+		public void setDecAsDouble(double decAsDouble)
+		{
+			this.decAsDouble=decAsDouble;
+		}
+
+		public void setName(String name)
+		{
+			this.name=name;
+		}
+
+		public void setFlag(boolean flag)
+		{
+			this.flag=flag;
+		}
+
+		/**
+		 * Fetches property values in the order of constructor arguments
+		 * @return Property values
+		 */
+		public Object[] toValues()
+		{
+			return new Object[] {id,bigVal,bigAsInt,intVal,intAsLong,intAsShort,smallVal,dblVal,dblAsFloat,realVal,intAsDouble,
+					decVal,decAsDouble,name,flag};
+		}
+}
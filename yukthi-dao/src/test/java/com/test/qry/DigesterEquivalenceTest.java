@@ -0,0 +1,219 @@
+package com.test.qry;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.yukthi.dao.qry.DataDigester;
+import com.yukthi.dao.qry.Query;
+import com.yukthi.dao.qry.QueryManager;
+import com.yukthi.dao.qry.QueryUtil;
+import com.yukthi.dao.qry.impl.BeanDataDigester;
+import com.yukthi.dao.qry.impl.MapQueryFilter;
+import com.yukthi.dao.qry.impl.PropertyBeanDataDigester;
+import com.yukthi.dao.qry.impl.XMLQueryFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases to ensure compiled digesters produce same beans as generic conversion (value read as object and
+ * converted to target type), including null values into primitive types.
+ */
+public class DigesterEquivalenceTest extends TestCase
+{
+	/**
+	 * Source column and target type of each bean property, in the order of constructor arguments
+	 */
+	private static final Object COLUMNS[][]={
+		{"ID",int.class},
+		{"BIG_VAL",long.class},
+		{"BIG_VAL",int.class},
+		{"INT_VAL",int.class},
+		{"INT_VAL",Long.class},
+		{"INT_VAL",short.class},
+		{"SMALL_VAL",short.class},
+		{"DBL_VAL",double.class},
+		{"DBL_VAL",float.class},
+		{"REAL_VAL",float.class},
+		{"INT_VAL",Double.class},
+		{"DEC_VAL",BigDecimal.class},
+		{"DEC_VAL",double.class},
+		{"NAME",String.class},
+		{"FLAG",boolean.class}
+	};
+
+	private static final String BEAN_MAPPER_KEY="BeanDataDigester$rowMapper#";
+	private static final String PROP_BEAN_MAPPER_KEY="PropertyBeanDataDigester$rowMapper#";
+
+	private DerbyConnectionSource connectionSource=new DerbyConnectionSource("digestTestDB");
+	private QueryManager manager;
+	private Connection connection;
+
+		@Override
+		protected void setUp() throws Exception
+		{
+			manager=XMLQueryFactory.loadFromXML(DigesterEquivalenceTest.class.getResourceAsStream("/testDigesters.xml"),connectionSource);
+			connection=DriverManager.getConnection(connectionSource.getDbUrl());
+
+			try(Statement statement=connection.createStatement())
+			{
+				statement.execute("CREATE TABLE DIGEST_TEST(ID INTEGER NOT NULL, BIG_VAL BIGINT, INT_VAL INTEGER, SMALL_VAL SMALLINT, "
+							+"DBL_VAL DOUBLE, REAL_VAL REAL, DEC_VAL DECIMAL(10,2), NAME VARCHAR(20), FLAG BOOLEAN)");
+			}
+
+			insert(1,2000000000L,12345,12,12.5,3.25f,new BigDecimal("1234.56"),"abc",true);
+			insert(2,-42L,-7,-3,0.1,0.1f,new BigDecimal("-0.05"),"xyz",false);
+
+			//row with all nulls
+			try(PreparedStatement statement=connection.prepareStatement("INSERT INTO DIGEST_TEST(ID) VALUES(3)"))
+			{
+				statement.executeUpdate();
+			}
+		}
+
+		@Override
+		protected void tearDown() throws Exception
+		{
+			try(Statement statement=connection.createStatement())
+			{
+				statement.execute("DROP TABLE DIGEST_TEST");
+			}
+
+			connection.close();
+		}
+
+		private void insert(int id,long bigVal,int intVal,int smallVal,double dblVal,float realVal,BigDecimal decVal,String name,boolean flag) throws SQLException
+		{
+			try(PreparedStatement statement=connection.prepareStatement("INSERT INTO DIGEST_TEST VALUES(?,?,?,?,?,?,?,?,?)"))
+			{
+				statement.setInt(1,id);
+				statement.setLong(2,bigVal);
+				statement.setInt(3,intVal);
+				statement.setShort(4,(short)smallVal);
+				statement.setDouble(5,dblVal);
+				statement.setFloat(6,realVal);
+				statement.setBigDecimal(7,decVal);
+				statement.setString(8,name);
+				statement.setObject(9,flag,Types.BOOLEAN);
+				statement.executeUpdate();
+			}
+		}
+
+		/**
+		 * Reads expected values of each row by reading column values as objects and converting them to
+		 * target types.
+		 * @param propIndexes Indexes of properties whose values should be read, other properties will have default values
+		 * @return Expected property values of each row
+		 */
+		private List<List<Object>> readExpected(int... propIndexes) throws SQLException
+		{
+			List<List<Object>> rows=new ArrayList<List<Object>>();
+
+			try(Statement statement=connection.createStatement(); ResultSet rs=statement.executeQuery("SELECT * FROM DIGEST_TEST ORDER BY ID"))
+			{
+				while(rs.next())
+				{
+					Object values[]=new Object[COLUMNS.length];
+
+					for(int i=0;i<COLUMNS.length;i++)
+						values[i]=QueryUtil.convert(null,(Class<?>)COLUMNS[i][1]);
+
+					for(int idx:propIndexes)
+						values[idx]=QueryUtil.convert(rs.getObject((String)COLUMNS[idx][0]),(Class<?>)COLUMNS[idx][1]);
+
+					rows.add(Arrays.asList(values));
+				}
+			}
+
+			return rows;
+		}
+
+		private List<List<Object>> readExpected() throws SQLException
+		{
+			int allIndexes[]=new int[COLUMNS.length];
+
+			for(int i=0;i<allIndexes.length;i++)
+				allIndexes[i]=i;
+
+			return readExpected(allIndexes);
+		}
+
+		private List<List<Object>> toValues(List<Object> beans)
+		{
+			List<List<Object>> rows=new ArrayList<List<Object>>();
+
+			for(Object bean:beans)
+				rows.add(Arrays.asList(((DigestBean)bean).toValues()));
+
+			return rows;
+		}
+
+		private int getCachedMapperCount(String queryName,String key)
+		{
+			Query query=manager.getQuerySource().getQuery(queryName);
+			return ((Map<?,?>)query.getAttribute(key)).size();
+		}
+
+		private void checkDigester(DataDigester<Object> digester,String mapperKey) throws SQLException
+		{
+			List<List<Object>> expected=readExpected();
+			assertEquals(3,expected.size());
+
+			//second execution should reuse the cached mapper
+			for(int i=0;i<2;i++)
+			{
+				List<Object> beans=manager.fetchBeans("fetchDigestRows",digester);
+				assertEquals(expected,toValues(beans));
+			}
+
+			assertEquals(1,getCachedMapperCount("fetchDigestRows",mapperKey));
+			assertEquals(0,connectionSource.getOpenCount());
+		}
+
+		/**
+		 * Ensures constructor based digester produces same values as generic conversion
+		 */
+		public void testConstructorDigester() throws SQLException
+		{
+			checkDigester(new BeanDataDigester(),BEAN_MAPPER_KEY);
+		}
+
+		/**
+		 * Ensures property based digester produces same values as generic conversion
+		 */
+		public void testPropertyDigester() throws SQLException
+		{
+			checkDigester(new PropertyBeanDataDigester(),PROP_BEAN_MAPPER_KEY);
+		}
+
+		/**
+		 * Ensures mappers are cached per result structure, so that different column sets of same query
+		 * do not share mappers
+		 */
+		public void testMapperPerResultStructure() throws SQLException
+		{
+			PropertyBeanDataDigester digester=new PropertyBeanDataDigester();
+			MapQueryFilter bigFilter=new MapQueryFilter("columns","BIG_VAL \"bigAsInt\", DEC_VAL \"decAsDouble\"");
+			MapQueryFilter intFilter=new MapQueryFilter("columns","INT_VAL \"intAsShort\", DBL_VAL \"dblAsFloat\", FLAG \"flag\"");
+
+			List<List<Object>> bigExpected=readExpected(0,2,12);
+			List<List<Object>> intExpected=readExpected(0,5,8,14);
+
+			for(int i=0;i<2;i++)
+			{
+				assertEquals(bigExpected,toValues(manager.fetchBeans("fetchDigestColumns",bigFilter,digester)));
+				assertEquals(intExpected,toValues(manager.fetchBeans("fetchDigestColumns",intFilter,digester)));
+			}
+
+			assertEquals(2,getCachedMapperCount("fetchDigestColumns",PROP_BEAN_MAPPER_KEY));
+		}
+}
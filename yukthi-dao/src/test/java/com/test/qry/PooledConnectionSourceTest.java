@@ -0,0 +1,220 @@
+package com.test.qry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import com.yukthi.dao.qry.DBConnection;
+import com.yukthi.dao.qry.impl.PooledConnectionSource;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases to test borrowing, validation, eviction and replenishment of pooled connections
+ */
+public class PooledConnectionSourceTest extends TestCase
+{
+	private static final String DB_URL="jdbc:derby:memory:poolTestDB;create=true";
+	private static final String DRIVER="org.apache.derby.jdbc.EmbeddedDriver";
+
+	private PooledConnectionSource connectionSource;
+
+		@Override
+		protected void setUp()
+		{
+			connectionSource=new PooledConnectionSource(DB_URL,null,null,DRIVER);
+			connectionSource.setName("poolTest");
+			connectionSource.setMaintenanceInterval(50);
+		}
+
+		@Override
+		protected void tearDown()
+		{
+			connectionSource.close();
+		}
+
+		/**
+		 * Waits till specified condition is met, failing if it is not met within few seconds
+		 */
+		private void waitFor(String message,BooleanSupplier condition) throws InterruptedException
+		{
+			long endTime=System.currentTimeMillis()+5000;
+
+			while(!condition.getAsBoolean())
+			{
+				if(System.currentTimeMillis()>endTime)
+					fail("Condition is not met in time: "+message);
+
+				Thread.sleep(10);
+			}
+		}
+
+		/**
+		 * Ensures borrower fails once max wait time is elapsed, when all connections are leased
+		 */
+		public void testBorrowTimeout() throws Exception
+		{
+			connectionSource.setMaxSize(1);
+			connectionSource.setMaxWaitTime(200);
+
+			DBConnection connection=connectionSource.getConnection();
+			long startTime=System.currentTimeMillis();
+
+			try
+			{
+				connectionSource.getConnection();
+				fail("Connection is obtained beyond max size");
+			}catch(SQLException ex)
+			{
+				assertTrue(ex.getMessage().contains("Timed out"));
+			}
+
+			assertTrue(System.currentTimeMillis()-startTime>=200);
+
+			//once returned, connection should be available again
+			connection.close();
+			connectionSource.getConnection().close();
+
+			assertEquals(1,connectionSource.getTotalCount());
+		}
+
+		/**
+		 * Ensures waiting threads get connections in the order of request
+		 */
+		public void testFairness() throws Exception
+		{
+			connectionSource.setMaxSize(1);
+
+			DBConnection connection=connectionSource.getConnection();
+			List<Integer> order=Collections.synchronizedList(new ArrayList<Integer>());
+			List<Thread> threads=new ArrayList<Thread>();
+
+			for(int i=0;i<5;i++)
+			{
+				final int index=i;
+				Thread thread=new Thread(() ->
+				{
+					try
+					{
+						DBConnection con=connectionSource.getConnection();
+						order.add(index);
+						con.close();
+					}catch(SQLException ex)
+					{
+						ex.printStackTrace();
+					}
+				});
+
+				thread.start();
+				threads.add(thread);
+
+				//ensure threads start waiting one after other
+				waitFor("Thread "+i+" is waiting",() -> connectionSource.getWaitingCount()==index+1);
+			}
+
+			connection.close();
+
+			for(Thread thread:threads)
+				thread.join();
+
+			assertEquals(5,order.size());
+
+			for(int i=0;i<order.size();i++)
+				assertEquals(i,(int)order.get(i));
+		}
+
+		/**
+		 * Ensures idle connections are validated before lending and invalid connections are replaced
+		 */
+		public void testValidationOnBorrow() throws Exception
+		{
+			DBConnection connection=connectionSource.getConnection();
+			Connection physicalConnection=connection.getConnection();
+			connection.close();
+
+			//close idle connection behind the pool
+			physicalConnection.rollback();
+			physicalConnection.close();
+
+			connection=connectionSource.getConnection();
+
+			assertNotSame(physicalConnection,connection.getConnection());
+			assertTrue(connection.getConnection().isValid(1));
+			assertEquals(1,connectionSource.getTotalCount());
+
+			connection.close();
+		}
+
+		/**
+		 * Ensures idle connections above min size are closed after idle timeout
+		 */
+		public void testIdleEviction() throws Exception
+		{
+			connectionSource.setMinSize(1);
+			connectionSource.setIdleTimeout(100);
+
+			List<DBConnection> connections=new ArrayList<DBConnection>();
+
+			for(int i=0;i<3;i++)
+				connections.add(connectionSource.getConnection());
+
+			for(DBConnection connection:connections)
+				connection.close();
+
+			assertEquals(3,connectionSource.getIdleCount());
+
+			waitFor("Idle connections are evicted",() -> connectionSource.getTotalCount()==1);
+			assertEquals(1,connectionSource.getIdleCount());
+		}
+
+		/**
+		 * Ensures pool is filled up to min size on first use and replenished when connections are discarded
+		 */
+		public void testMinSizeWarmupAndReplenishment() throws Exception
+		{
+			connectionSource.setMinSize(3);
+
+			connectionSource.getConnection().close();
+			waitFor("Pool is filled up to min size",() -> connectionSource.getIdleCount()==3);
+
+			//break all connections, which should get discarded on return
+			List<DBConnection> connections=new ArrayList<DBConnection>();
+
+			for(int i=0;i<3;i++)
+				connections.add(connectionSource.getConnection());
+
+			for(DBConnection connection:connections)
+			{
+				connection.getConnection().rollback();
+				connection.getConnection().close();
+				connection.close();
+			}
+
+			waitFor("Pool is replenished up to min size",() -> connectionSource.getIdleCount()==3);
+			assertEquals(3,connectionSource.getTotalCount());
+
+			DBConnection connection=connectionSource.getConnection();
+			assertTrue(connection.getConnection().isValid(1));
+			connection.close();
+		}
+
+		/**
+		 * Ensures connections not returned within threshold are reported as leaks
+		 */
+		public void testLeakDetection() throws Exception
+		{
+			connectionSource.setLeakDetectionThreshold(100);
+
+			DBConnection connection=connectionSource.getConnection();
+			assertEquals(0,connectionSource.getLeakedCount());
+
+			waitFor("Leak is detected",() -> connectionSource.getLeakedCount()==1);
+
+			connection.close();
+			assertEquals(0,connectionSource.getLeakedCount());
+			assertEquals(0,connectionSource.getLeasedCount());
+		}
+}
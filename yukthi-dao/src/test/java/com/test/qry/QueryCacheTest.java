@@ -0,0 +1,158 @@
+package com.test.qry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.yukthi.dao.qry.Query;
+import com.yukthi.dao.qry.QueryCacheStatistics;
+import com.yukthi.dao.qry.QueryManager;
+import com.yukthi.dao.qry.impl.MapQueryFilter;
+import com.yukthi.dao.qry.impl.XMLQueryFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases to test caching of compiled query shapes and sql text
+ */
+public class QueryCacheTest extends TestCase
+{
+	private QueryManager manager;
+
+		@Override
+		protected void setUp()
+		{
+			manager=XMLQueryFactory.loadFromXML(QueryCacheTest.class.getResourceAsStream("/testQueryCache.xml"));
+		}
+
+		private String normalize(String query)
+		{
+			return query.replaceAll("\\s+"," ").trim();
+		}
+
+		/**
+		 * Ensures same shape is reused with different values and different shapes are cached separately
+		 */
+		public void testShapeHitsAndMisses()
+		{
+			QueryCacheStatistics statistics=manager.getQueryCacheStatistics("findEmployees");
+			List<Object> params=new ArrayList<Object>();
+
+			String query=manager.getQuery("findEmployees",new MapQueryFilter("name","abc"),params);
+			assertEquals("SELECT NAME FROM EMPLOYEE WHERE 1=1 AND NAME = ?",normalize(query));
+			assertEquals(Arrays.asList("abc"),params);
+
+			assertEquals(0,statistics.getShapeHitCount());
+			assertEquals(1,statistics.getShapeMissCount());
+
+			//same shape with different value
+			params.clear();
+			query=manager.getQuery("findEmployees",new MapQueryFilter("name","xyz"),params);
+			assertEquals("SELECT NAME FROM EMPLOYEE WHERE 1=1 AND NAME = ?",normalize(query));
+			assertEquals(Arrays.asList("xyz"),params);
+
+			assertEquals(1,statistics.getShapeHitCount());
+			assertEquals(1,statistics.getTextHitCount());
+
+			//different shape
+			params.clear();
+			query=manager.getQuery("findEmployees",new MapQueryFilter("name","abc","age",20),params);
+			assertEquals("SELECT NAME FROM EMPLOYEE WHERE 1=1 AND NAME = ? AND AGE = ?",normalize(query));
+			assertEquals(Arrays.asList("abc",20),params);
+
+			assertEquals(1,statistics.getShapeHitCount());
+			assertEquals(2,statistics.getShapeMissCount());
+		}
+
+		/**
+		 * Ensures null parameters are inlined using null string of the filter, for both cached and non-cached text
+		 */
+		public void testNullParams()
+		{
+			QueryCacheStatistics statistics=manager.getQueryCacheStatistics("findByNameAndAge");
+
+			for(int i=0;i<2;i++)
+			{
+				List<Object> params=new ArrayList<Object>();
+				String query=manager.getQuery("findByNameAndAge",new MapQueryFilter("x",1),params,"abc",null);
+
+				assertEquals("SELECT NAME FROM EMPLOYEE WHERE NAME = ? AND AGE = NULL",normalize(query));
+				assertEquals(Arrays.asList("abc"),params);
+			}
+
+			assertEquals(1,statistics.getTextHitCount());
+			assertEquals(1,statistics.getTextMissCount());
+
+			//filter without null string
+			for(int i=0;i<2;i++)
+			{
+				List<Object> params=new ArrayList<Object>();
+				String query=manager.getQuery("findByNameAndAge",new MapQueryFilter().setValues("x",1),params,"abc",null);
+
+				assertEquals("SELECT NAME FROM EMPLOYEE WHERE NAME = ? AND AGE = null",normalize(query));
+				assertEquals(Arrays.asList("abc"),params);
+			}
+
+			//without nulls, all params should be bound
+			List<Object> params=new ArrayList<Object>();
+			String query=manager.getQuery("findByNameAndAge",new MapQueryFilter("x",1),params,"abc",20);
+
+			assertEquals("SELECT NAME FROM EMPLOYEE WHERE NAME = ? AND AGE = ?",normalize(query));
+			assertEquals(Arrays.asList("abc",20),params);
+		}
+
+		/**
+		 * Ensures queries with substituted values are not cached
+		 */
+		public void testSubstitutedValues()
+		{
+			QueryCacheStatistics statistics=manager.getQueryCacheStatistics("findFromTable");
+			Query query=manager.getQuerySource().getQuery("findFromTable");
+
+			for(int i=0;i<5;i++)
+			{
+				List<Object> params=new ArrayList<Object>();
+				String text=manager.getQuery("findFromTable",new MapQueryFilter("tableName","EMP_"+i,"age",20),params);
+
+				assertEquals("SELECT NAME FROM EMP_"+i+" WHERE AGE = ?",normalize(text));
+				assertEquals(Arrays.asList(20),params);
+			}
+
+			assertEquals(0,query.getCachedShapeCount());
+			assertEquals(0,statistics.getShapeHitCount());
+			assertEquals(5,statistics.getShapeMissCount());
+		}
+
+		/**
+		 * Ensures least recently used shapes are evicted when cache is full
+		 */
+		public void testEviction()
+		{
+			QueryCacheStatistics statistics=manager.getQueryCacheStatistics("findEmployees");
+			Query query=manager.getQuerySource().getQuery("findEmployees");
+			query.setMaxCachedShapes(2);
+
+			MapQueryFilter nameFilter=new MapQueryFilter("name","abc");
+			MapQueryFilter ageFilter=new MapQueryFilter("age",20);
+			MapQueryFilter bothFilter=new MapQueryFilter("name","abc","age",20);
+
+			manager.getQuery("findEmployees",nameFilter,new ArrayList<Object>());
+			manager.getQuery("findEmployees",ageFilter,new ArrayList<Object>());
+
+			//access name shape, so that age shape becomes least recently used
+			manager.getQuery("findEmployees",nameFilter,new ArrayList<Object>());
+			manager.getQuery("findEmployees",bothFilter,new ArrayList<Object>());
+
+			assertEquals(2,query.getCachedShapeCount());
+			assertEquals(1,statistics.getShapeEvictionCount());
+
+			long hitCount=statistics.getShapeHitCount();
+			long missCount=statistics.getShapeMissCount();
+
+			manager.getQuery("findEmployees",nameFilter,new ArrayList<Object>());
+			assertEquals(hitCount+1,statistics.getShapeHitCount());
+
+			manager.getQuery("findEmployees",ageFilter,new ArrayList<Object>());
+			assertEquals(missCount+1,statistics.getShapeMissCount());
+		}
+}
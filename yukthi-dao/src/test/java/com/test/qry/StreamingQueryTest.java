@@ -0,0 +1,249 @@
+package com.test.qry;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.yukthi.dao.qry.QueryManager;
+import com.yukthi.dao.qry.QueryResultData;
+import com.yukthi.dao.qry.impl.MapQueryFilter;
+import com.yukthi.dao.qry.impl.PropertyBeanDataDigester;
+import com.yukthi.dao.qry.impl.XMLQueryFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases to test processing and streaming of query results, and release of connections
+ * when the results are partially consumed
+ */
+public class StreamingQueryTest extends TestCase
+{
+	private static final int ROW_COUNT=20;
+
+	/**
+	 * Digester which fails on specified row
+	 */
+	private static class FailingDigester extends PropertyBeanDataDigester
+	{
+		private int failAt;
+		private int count=0;
+
+			public FailingDigester(int failAt)
+			{
+				this.failAt=failAt;
+			}
+
+			@Override
+			public Object digest(QueryResultData rsData) throws SQLException
+			{
+				if(++count==failAt)
+					throw new IllegalStateException("Digester failed at row: "+count);
+
+				return super.digest(rsData);
+			}
+	}
+
+	/**
+	 * Digester which stops processing after specified number of rows
+	 */
+	private static class LimitingDigester extends PropertyBeanDataDigester
+	{
+		private int limit;
+		private int count=0;
+
+			public LimitingDigester(int limit)
+			{
+				this.limit=limit;
+			}
+
+			@Override
+			public Object digest(QueryResultData rsData) throws SQLException
+			{
+				if(++count>=limit)
+					rsData.stopProcessing();
+
+				return super.digest(rsData);
+			}
+	}
+
+	private DerbyConnectionSource connectionSource=new DerbyConnectionSource("streamTestDB");
+	private QueryManager manager;
+	private Connection connection;
+
+		@Override
+		protected void setUp() throws Exception
+		{
+			manager=XMLQueryFactory.loadFromXML(StreamingQueryTest.class.getResourceAsStream("/testStreaming.xml"),connectionSource);
+			connection=DriverManager.getConnection(connectionSource.getDbUrl());
+
+			try(Statement statement=connection.createStatement())
+			{
+				statement.execute("CREATE TABLE STREAM_TEST(NAME VARCHAR(20), AGE INTEGER)");
+			}
+
+			try(PreparedStatement statement=connection.prepareStatement("INSERT INTO STREAM_TEST VALUES(?,?)"))
+			{
+				for(int i=0;i<ROW_COUNT;i++)
+				{
+					statement.setString(1,"name"+i);
+					statement.setInt(2,i);
+					statement.executeUpdate();
+				}
+			}
+		}
+
+		@Override
+		protected void tearDown() throws Exception
+		{
+			try(Statement statement=connection.createStatement())
+			{
+				statement.execute("DROP TABLE STREAM_TEST");
+			}
+
+			connection.close();
+		}
+
+		private List<Integer> ages(int count)
+		{
+			List<Integer> ages=new ArrayList<Integer>();
+
+			for(int i=0;i<count;i++)
+				ages.add(i);
+
+			return ages;
+		}
+
+		/**
+		 * Ensures all rows are passed to consumer and early stop by digester ends the processing
+		 */
+		public void testProcessBeans() throws SQLException
+		{
+			List<Integer> ages=new ArrayList<Integer>();
+
+			assertEquals(ROW_COUNT,manager.processBeans("fetchPersons",null,null,(TestBean bean) -> ages.add(bean.getAge())));
+			assertEquals(ages(ROW_COUNT),ages);
+			assertEquals(0,connectionSource.getOpenCount());
+
+			//stop processing after 5 rows
+			ages.clear();
+
+			assertEquals(5,manager.processBeans("fetchPersons",null,new LimitingDigester(5),(Object bean) -> ages.add(((TestBean)bean).getAge())));
+			assertEquals(ages(5),ages);
+			assertEquals(0,connectionSource.getOpenCount());
+		}
+
+		/**
+		 * Ensures connection is released when consumer or digester fails midway
+		 */
+		public void testProcessBeansFailure()
+		{
+			try
+			{
+				manager.processBeans("fetchPersons",null,null,(TestBean bean) ->
+				{
+					if(bean.getAge()==3)
+						throw new IllegalStateException("Consumer failed");
+				});
+
+				fail("Consumer error is not propagated");
+			}catch(SQLException ex)
+			{
+				assertEquals("Consumer failed",ex.getCause().getMessage());
+			}
+
+			assertEquals(0,connectionSource.getOpenCount());
+
+			try
+			{
+				manager.processBeans("fetchPersons",null,new FailingDigester(3),bean -> {});
+				fail("Digester error is not propagated");
+			}catch(SQLException ex)
+			{
+				assertTrue(ex.getCause().getMessage().startsWith("Digester failed"));
+			}
+
+			assertEquals(0,connectionSource.getOpenCount());
+		}
+
+		/**
+		 * Ensures connection is held only till stream is exhausted or closed
+		 */
+		public void testStreamRelease() throws SQLException
+		{
+			//consuming all rows should release the connection, even without closing the stream
+			Stream<TestBean> stream=manager.streamBeans("fetchPersons",new MapQueryFilter(),null);
+			assertEquals(1,connectionSource.getOpenCount());
+
+			assertEquals(ages(ROW_COUNT),stream.map(TestBean::getAge).collect(Collectors.toList()));
+			assertEquals(0,connectionSource.getOpenCount());
+
+			//partially consumed stream
+			try(Stream<TestBean> limitedStream=manager.streamBeans("fetchPersons",new MapQueryFilter(),null))
+			{
+				assertEquals(ages(3),limitedStream.limit(3).map(TestBean::getAge).collect(Collectors.toList()));
+				assertEquals(1,connectionSource.getOpenCount());
+			}
+
+			assertEquals(0,connectionSource.getOpenCount());
+
+			//partially consumed iterator of the stream
+			try(Stream<TestBean> iteratedStream=manager.streamBeans("fetchPersons",new MapQueryFilter(),null))
+			{
+				Iterator<TestBean> it=iteratedStream.iterator();
+
+				assertEquals(0,(int)it.next().getAge());
+				assertEquals(1,(int)it.next().getAge());
+			}
+
+			assertEquals(0,connectionSource.getOpenCount());
+
+			//early stop by digester
+			try(Stream<Object> stoppedStream=manager.streamBeans("fetchPersons",new MapQueryFilter(),new LimitingDigester(4)))
+			{
+				assertEquals(4,stoppedStream.count());
+			}
+
+			assertEquals(0,connectionSource.getOpenCount());
+		}
+
+		/**
+		 * Ensures connection is released when digester fails during streaming
+		 */
+		public void testStreamFailure() throws SQLException
+		{
+			try(Stream<Object> stream=manager.streamBeans("fetchPersons",new MapQueryFilter(),new FailingDigester(3)))
+			{
+				stream.forEach(bean -> {});
+				fail("Digester error is not propagated");
+			}catch(IllegalStateException ex)
+			{
+				assertTrue(ex.getCause().getMessage().startsWith("Digester failed"));
+			}
+
+			assertEquals(0,connectionSource.getOpenCount());
+		}
+
+		/**
+		 * Ensures fetch count configured in xml is applied only for streaming methods
+		 */
+		public void testFetchSize() throws SQLException
+		{
+			manager.processBeans("fetchPersons",null,null,bean -> {});
+			assertEquals(7,connectionSource.getLastFetchSize());
+
+			try(Stream<Object> stream=manager.streamBeans("fetchPersons",new MapQueryFilter(),null))
+			{
+				assertEquals(7,connectionSource.getLastFetchSize());
+			}
+
+			assertEquals(ROW_COUNT,manager.fetchBeans("fetchPersons").size());
+			assertTrue(connectionSource.getLastFetchSize()!=7);
+		}
+}
@@ -0,0 +1,29 @@
+package com.yukthi.persistence.repository.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enables result cache for the target search method. Results of identical queries (same conditions, order and limits)
+ * are served from memory till the time-to-live expires or any table used by the query is modified via repositories.
+ * @author akiran
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+public @interface CachedResults
+{
+	/**
+	 * Time for which results should be cached.
+	 * @return time to live of cached results
+	 */
+	public long ttl() default 60;
+	
+	/**
+	 * Unit of {@link #ttl()}.
+	 * @return unit of time to live
+	 */
+	public TimeUnit timeUnit() default TimeUnit.SECONDS;
+}
@@ -50,6 +50,11 @@ public class EntityDetails
 	 * Indicates whether table is created
 	 */
 	private boolean isTableCreated = false;
+	
+	/**
+	 * Maximum number of entities to be maintained in second level cache. Zero, if caching is not enabled.
+	 */
+	private int cacheSize = 0;
 
 	public EntityDetails(String tableName, Class<?> entityType)
 	{
@@ -351,6 +356,36 @@ public class EntityDetails
 	{
 		this.extendedTableDetails = extendedTableDetails;
 	}
+	
+	/**
+	 * Gets the maximum number of entities to be maintained in second level cache.
+	 *
+	 * @return the maximum number of entities to be cached, zero if caching is not enabled
+	 */
+	public int getCacheSize()
+	{
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of entities to be maintained in second level cache.
+	 *
+	 * @param cacheSize the new maximum number of entities to be cached
+	 */
+	public void setCacheSize(int cacheSize)
+	{
+		this.cacheSize = cacheSize;
+	}
+	
+	/**
+	 * Checks if second level cache is enabled for this entity.
+	 *
+	 * @return true, if entities of this type can be cached
+	 */
+	public boolean isCacheable()
+	{
+		return (cacheSize > 0);
+	}
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
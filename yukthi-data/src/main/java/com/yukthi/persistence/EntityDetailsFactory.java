@@ -1,5 +1,10 @@
 package com.yukthi.persistence;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -11,6 +16,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -26,6 +32,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.yukthi.persistence.annotations.AccessType;
 import com.yukthi.persistence.annotations.AutoFetchType;
+import com.yukthi.persistence.annotations.CachedEntity;
 import com.yukthi.persistence.annotations.DataType;
 import com.yukthi.persistence.annotations.DataTypeMapping;
 import com.yukthi.persistence.annotations.Extendable;
@@ -41,6 +48,8 @@ import com.yukthi.persistence.monitor.EntityDetailsMonitor;
 import com.yukthi.persistence.monitor.IEntityCreateTableListener;
 import com.yukthi.persistence.query.CreateIndexQuery;
 import com.yukthi.persistence.query.CreateTableQuery;
+import com.yukthi.persistence.query.data.ColumnStructure;
+import com.yukthi.persistence.query.data.TableStructure;
 import com.yukthi.utils.annotations.RecursiveAnnotationFactory;
 import com.yukthi.utils.exceptions.InvalidConfigurationException;
 import com.yukthi.utils.exceptions.InvalidStateException;
@@ -58,6 +67,168 @@ public class EntityDetailsFactory
 	
 	private RecursiveAnnotationFactory recursiveAnnotationFactory = new RecursiveAnnotationFactory();
 	
+	/**
+	 * Column names of tables (keyed by upper case table name), loaded in bulk during bootstrap. Null, if
+	 * metadata is not preloaded, in which case columns are fetched table by table.
+	 */
+	private Map<String, Set<String>> tableToColumns;
+	
+	/**
+	 * File in which table metadata is persisted, so that warm restarts can skip metadata introspection
+	 */
+	private File metadataSnapshotFile;
+	
+	/**
+	 * Flag indicating table metadata is modified after it is loaded from or saved to snapshot file
+	 */
+	private boolean metadataModified;
+	
+	/**
+	 * Gets the file in which table metadata is persisted.
+	 *
+	 * @return the metadata snapshot file
+	 */
+	public File getMetadataSnapshotFile()
+	{
+		return metadataSnapshotFile;
+	}
+
+	/**
+	 * Sets the file in which table metadata should be persisted. When specified and the file exists, table metadata
+	 * is loaded from this file instead of database. As tables are trusted to be in sync with the snapshot, this file 
+	 * should be deleted when tables are altered outside the repositories.
+	 *
+	 * @param metadataSnapshotFile the new metadata snapshot file
+	 */
+	public void setMetadataSnapshotFile(File metadataSnapshotFile)
+	{
+		this.metadataSnapshotFile = metadataSnapshotFile;
+	}
+	
+	/**
+	 * Loads column names of all tables in single pass, either from snapshot file (if present) or from specified data store. Once 
+	 * loaded, entity details of existing tables will be built without fetching metadata table by table.
+	 * @param dataStore Data store to fetch metadata from
+	 */
+	public synchronized void loadTableMetadata(IDataStore dataStore)
+	{
+		if(metadataSnapshotFile != null && metadataSnapshotFile.exists())
+		{
+			try(InputStream is = new FileInputStream(metadataSnapshotFile))
+			{
+				Properties snapshot = new Properties();
+				snapshot.load(is);
+				
+				tableToColumns = new HashMap<>();
+				
+				for(String table : snapshot.stringPropertyNames())
+				{
+					tableToColumns.put(table, new HashSet<>(Arrays.asList(snapshot.getProperty(table).split(","))));
+				}
+				
+				metadataModified = false;
+				logger.debug("Loaded metadata of {} tables from snapshot file: {}", tableToColumns.size(), metadataSnapshotFile.getPath());
+				return;
+			}catch(Exception ex)
+			{
+				logger.warn("Failed to load table metadata from snapshot file: " + metadataSnapshotFile.getPath() + ". Loading metadata from data store", ex);
+			}
+		}
+		
+		tableToColumns = new HashMap<>(dataStore.getAllColumnNames());
+		metadataModified = true;
+	}
+	
+	/**
+	 * Saves currently loaded table metadata into snapshot file, if snapshot file is configured and metadata
+	 * is modified after it was loaded.
+	 */
+	public synchronized void saveMetadataSnapshot()
+	{
+		if(metadataSnapshotFile == null || tableToColumns == null || !metadataModified)
+		{
+			return;
+		}
+		
+		Properties snapshot = new Properties();
+		
+		for(Map.Entry<String, Set<String>> entry : tableToColumns.entrySet())
+		{
+			snapshot.setProperty(entry.getKey(), String.join(",", entry.getValue()));
+		}
+		
+		try(OutputStream os = new FileOutputStream(metadataSnapshotFile))
+		{
+			snapshot.store(os, "Table metadata snapshot");
+			metadataModified = false;
+		}catch(Exception ex)
+		{
+			logger.warn("Failed to save table metadata to snapshot file: " + metadataSnapshotFile.getPath(), ex);
+		}
+	}
+	
+	/**
+	 * Fetches column names of specified table. If table metadata is preloaded, the same is used, otherwise
+	 * columns are fetched from the data store.
+	 * @param tableName Table whose columns needs to be fetched
+	 * @param dataStore Data store to use
+	 * @return Column names of the table
+	 */
+	private Set<String> fetchColumnNames(String tableName, IDataStore dataStore)
+	{
+		Set<String> columns = (tableToColumns != null) ? tableToColumns.get(tableName.toUpperCase()) : null;
+		
+		if(columns != null)
+		{
+			return columns;
+		}
+		
+		//if table is not found in preloaded metadata, it can be a table created later, so confirm from data store
+		columns = dataStore.getColumnNames(tableName);
+		
+		if(tableToColumns != null)
+		{
+			tableToColumns.put(tableName.toUpperCase(), columns);
+			metadataModified = true;
+		}
+		
+		return columns;
+	}
+	
+	/**
+	 * Adds columns of newly created table to preloaded metadata (if any), so that the same gets persisted in snapshot.
+	 * @param tableStructure Structure of created table
+	 */
+	private void addTableMetadata(TableStructure tableStructure)
+	{
+		if(tableToColumns == null)
+		{
+			return;
+		}
+		
+		Set<String> columns = new HashSet<>();
+		
+		for(ColumnStructure column : tableStructure.getColumns())
+		{
+			columns.add(column.getName());
+		}
+		
+		tableToColumns.put(tableStructure.getTableName().toUpperCase(), columns);
+		metadataModified = true;
+	}
+	
+	/**
+	 * Removes specified table from preloaded metadata, so that its columns are fetched again on need basis.
+	 * @param tableName Table to be removed
+	 */
+	private void removeTableMetadata(String tableName)
+	{
+		if(tableToColumns != null && tableToColumns.remove(tableName.toUpperCase()) != null)
+		{
+			metadataModified = true;
+		}
+	}
+	
 	/**
 	 * Removes non aplha numeric characters (including underscore) from column names and sets it as key and the actual column
 	 * name as value of the resultant map. This can be used to find column mapping for undeclared columns.
@@ -68,7 +239,7 @@ public class EntityDetailsFactory
 	 */
 	private Map<String, String> flattenColumnNames(String tableName, IDataStore dataStore)
 	{
-		Set<String> columns = dataStore.getColumnNames(tableName);
+		Set<String> columns = fetchColumnNames(tableName, dataStore);
 		String flattenName = null;
 		
 		Map<String, String> map = new HashMap<>();
@@ -329,6 +500,14 @@ public class EntityDetailsFactory
 
 		fetchExtendedTableDetails(entityType, entityDetails);
 		
+		CachedEntity cachedEntity = recursiveAnnotationFactory.findAnnotationRecursively(entityType, CachedEntity.class);
+		
+		//if second level cache is enabled for the entity
+		if(cachedEntity != null)
+		{
+			entityDetails.setCacheSize(cachedEntity.maxSize());
+		}
+		
 		if(flattenColumnMap == null)
 		{
 			logger.debug("As no column mapping found, assuming table needs to be created.");
@@ -712,6 +891,7 @@ public class EntityDetailsFactory
 		//create the main table for the entity type
 		CreateTableQuery createTableQuery = new CreateTableQuery(entityDetails, isUniqueKeyDisable);
 		dataStore.createTable(createTableQuery);
+		addTableMetadata(createTableQuery.getTableStructure());
 
 		//reset the column mapping, to take new column names (if any) into consideration
 		entityDetails.resetColumnMapping(createTableQuery.getTableStructure().getFieldMapping());
@@ -762,6 +942,7 @@ public class EntityDetailsFactory
 		createTableQuery.setCharset(extendedTableDetails.getCharset());
 		
 		dataStore.createTable(createTableQuery);
+		addTableMetadata(createTableQuery.getTableStructure());
 	}
 	
 	/**
@@ -769,9 +950,15 @@ public class EntityDetailsFactory
 	 * corresponding entity table is dropped
 	 * @param entityType
 	 */
-	public void removeEntityDetails(Class<?> entityType)
+	public synchronized void removeEntityDetails(Class<?> entityType)
 	{
-		typeToDetails.remove(entityType);
+		EntityDetails entityDetails = typeToDetails.remove(entityType);
+		
+		if(entityDetails != null)
+		{
+			removeTableMetadata(entityDetails.getTableName());
+		}
+		
 		entityDetailsMonitor.entityRemoved(entityType);
 		
 		Set<String> constraintNames = new HashSet<>(this.nameToConstraints.keySet());
@@ -297,7 +297,7 @@ public class FieldDetails
 		try
 		{
 			return field.get(bean);
-		}catch(Exception ex)
+		}catch(IllegalAccessException ex)
 		{
 			throw new IllegalStateException("Failed to fetch value from field: " + field.getName(), ex);
 		}
@@ -314,7 +314,7 @@ public class FieldDetails
 		try
 		{
 			field.set(bean, value);
-		}catch(Exception ex)
+		}catch(IllegalAccessException ex)
 		{
 			throw new IllegalStateException("Failed to setting value from field: " + field.getName(), ex);
 		}
@@ -1,12 +1,29 @@
 package com.yukthi.persistence;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.yukthi.persistence.repository.annotations.CountFunction;
 import com.yukthi.persistence.repository.annotations.ExtendedFieldNames;
 import com.yukthi.persistence.repository.search.SearchQuery;
 
+/**
+ * Base interface for repositories. Finder and search methods declared in sub interfaces can return results as 
+ * {@link java.util.stream.Stream}, in which case records are fetched as the stream is consumed. Such streams keep the
+ * connection (and transaction) open till all the records are consumed or the stream is closed, so the caller must
+ * close the stream, preferably by consuming it within try-with-resources:
+ * <pre>
+ * try(Stream&lt;Employee&gt; employees = repository.fetchEmployeesByPhone(phoneNo))
+ * {
+ * 	...
+ * }
+ * </pre>
+ * Streams that are neither consumed fully nor closed never release their connection. Note, on MySQL rows are streamed one 
+ * by one and no other statement can be executed on the same connection (transaction) till the stream is closed.
+ * @param <E> Entity type managed by the repository
+ */
 public interface ICrudRepository<E>
 {
 	/**
@@ -50,11 +67,36 @@ public interface ICrudRepository<E>
 	 * @param entity
 	 */
 	public boolean save(E entity);
+	
+	/**
+	 * Saves specified entities to underlying store in batches. Entities with same structure are grouped
+	 * and saved using single batch, and generated ids are populated on the entities.
+	 * @param entities Entities to save
+	 * @return Number of entities saved
+	 */
+	public int saveAll(Collection<E> entities);
 
 	public boolean update(E entity);
 	
 	public boolean deleteById(Object key);
 	
+	/**
+	 * Deletes all the entities matching with specified search query, using single statement. Listeners, if any, 
+	 * are notified with single bulk event having ids of matching entities.
+	 * @param searchQuery Search query to match. Conditions on related entity fields are not supported.
+	 * @return Number of entities deleted
+	 */
+	public int deleteMatching(SearchQuery searchQuery);
+	
+	/**
+	 * Updates all the entities matching with specified search query, using single statement. Listeners, if any, 
+	 * are notified with single bulk event having ids of matching entities.
+	 * @param searchQuery Search query to match. Conditions on related entity fields are not supported.
+	 * @param fieldValues Entity field names and new values to be set
+	 * @return Number of entities updated
+	 */
+	public int updateMatching(SearchQuery searchQuery, Map<String, Object> fieldValues);
+	
 	public E findById(Object key);
 	
 	/**
@@ -1,7 +1,9 @@
 package com.yukthi.persistence;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.query.ChildrenExistenceQuery;
@@ -9,6 +11,7 @@ import com.yukthi.persistence.query.CountQuery;
 import com.yukthi.persistence.query.CreateExtendedTableQuery;
 import com.yukthi.persistence.query.CreateIndexQuery;
 import com.yukthi.persistence.query.CreateTableQuery;
+import com.yukthi.persistence.query.DeleteChildrenQuery;
 import com.yukthi.persistence.query.DeleteQuery;
 import com.yukthi.persistence.query.DropTableQuery;
 import com.yukthi.persistence.query.FetchChildrenIdsQuery;
@@ -38,6 +41,13 @@ public interface IDataStore
 	
 	public Set<String> getColumnNames(String tableName);
 	
+	/**
+	 * Fetches column names of all the tables in single metadata call. Used during bootstrap
+	 * to avoid per table metadata lookups.
+	 * @return Column names mapped to upper case table names
+	 */
+	public Map<String, Set<String>> getAllColumnNames();
+	
 	public void checkAndCreateSequence(String name);
 	
 	public void createTable(CreateTableQuery query);
@@ -58,6 +68,17 @@ public interface IDataStore
 	 * @return Number of rows effected (1 or zero in general)
 	 */
 	public int save(SaveQuery saveQuery, EntityDetails entityDetails, ObjectWrapper<Object> idGenerated);
+	
+	/**
+	 * Executes the specified save-queries as a batch. All the specified queries are expected to have same
+	 * structure (same query shape), so that they can be executed using single statement. Generated ids, if any,
+	 * are not fetched by this method.
+	 * 
+	 * @param saveQueries Save queries to execute
+	 * @param entityDetails Entity details of the target entity
+	 * @return Number of rows effected by each query, in the order of specified queries
+	 */
+	public int[] saveAll(List<SaveQuery> saveQueries, EntityDetails entityDetails);
 
 	public int update(UpdateQuery updateQuery, EntityDetails entityDetails);
 	
@@ -66,9 +87,35 @@ public interface IDataStore
 	public int checkChildrenExistence(ChildrenExistenceQuery childrenExistenceQuery);
 	
 	public List<Object> fetchChildrenIds(FetchChildrenIdsQuery fetchChildrenIdsQuery);
+	
+	/**
+	 * Deletes all the child records of parent records specified by the query, using single statement.
+	 * @param deleteChildrenQuery Query specifying children to be deleted
+	 * @return Number of child records deleted
+	 */
+	public int deleteChildren(DeleteChildrenQuery deleteChildrenQuery);
 
 	public List<Record> executeFinder(FinderQuery findQuery, EntityDetails entityDetails, IFinderRecordProcessor recordProcessor);
 	
+	/**
+	 * Executes specified finder query and returns the results as stream. Unlike {@link #executeFinder(FinderQuery, EntityDetails, IFinderRecordProcessor)}
+	 * records are fetched from underlying store, as and when the stream is consumed. The underlying resources are kept open 
+	 * till the stream is closed or all the records are consumed. As streams can be abandoned mid-way (for example, with 
+	 * short circuiting operations like findFirst()), the returned stream should always be closed by the caller, preferably
+	 * using try-with-resources. Closing the stream (which is done by the close handler registered with the stream) 
+	 * releases the underlying resources.
+	 * <br/>
+	 * If a transaction is in progress by current thread, the stream uses the same transaction. Otherwise a new transaction
+	 * is used which is not bound to current thread, so that the thread is not left with the transaction of a stream 
+	 * abandoned without closing (though the connection of such stream is held till the stream is closed).
+	 * 
+	 * @param findQuery Finder query to execute
+	 * @param entityDetails Entity details of the target entity
+	 * @param recordProcessor Optional processor to filter the records
+	 * @return Stream of fetched records
+	 */
+	public Stream<Record> streamFinder(FinderQuery findQuery, EntityDetails entityDetails, IFinderRecordProcessor recordProcessor);
+	
 	/**
 	 * Used to execute native search query indicated by "queryName"
 	 * @param queryName Name of the query to execute
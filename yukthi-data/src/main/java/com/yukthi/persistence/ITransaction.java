@@ -1,5 +1,7 @@
 package com.yukthi.persistence;
 
+import java.util.concurrent.locks.Lock;
+
 public interface ITransaction extends AutoCloseable
 {
 	public void commit() throws TransactionException;
@@ -7,4 +9,28 @@ public interface ITransaction extends AutoCloseable
 	public void rollback() throws TransactionException;
 	
 	public void close() throws TransactionException;
+	
+	/**
+	 * Checks if this transaction is closed (after commit, rollback or close). Closed transaction can not be used
+	 * for further operations.
+	 * @return true if transaction is closed
+	 */
+	public boolean isClosed();
+	
+	/**
+	 * Lock to be held while executing operations on this transaction. As underlying resources (like connection) are not
+	 * thread safe, this lock is used to serialize operations when transaction is shared by multiple threads (for example, when
+	 * caller transaction is propagated to async repository methods).
+	 * @return Execution lock of this transaction
+	 */
+	public Lock getExecutionLock();
+	
+	/**
+	 * Adds listener to be invoked once this transaction is actually closed (after commit or rollback). Useful for 
+	 * actions (like cache invalidation) which should be done only after changes are visible to other transactions. 
+	 * Listeners added with same key are invoked only once.
+	 * @param key Key of the listener
+	 * @param listener Listener to be invoked
+	 */
+	public void addCloseListener(Object key, Runnable listener);
 }
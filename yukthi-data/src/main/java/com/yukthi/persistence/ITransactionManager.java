@@ -7,4 +7,24 @@ public interface ITransactionManager<T extends ITransaction>
 	public TransactionWrapper<T> currentTransaction() throws TransactionException;
 	
 	public TransactionWrapper<T> newOrExistingTransaction() throws TransactionException;
+	
+	/**
+	 * Checks if a transaction is started by current thread and is not yet closed.
+	 * @return true, if current thread has a transaction in progress
+	 */
+	public boolean isTransactionInProgress();
+	
+	/**
+	 * Fetches the transaction bound to current thread, if any.
+	 * @return Transaction bound to current thread, or null
+	 */
+	public T getThreadTransaction();
+	
+	/**
+	 * Binds specified transaction to current thread, so that operations executed by current thread join the 
+	 * specified transaction. This is used to propagate caller transaction to threads executing async repository methods.
+	 * @param transaction Transaction to bind. If null, current binding (if any) will be removed.
+	 * @return Transaction that was bound to current thread before this call, or null
+	 */
+	public T bindThreadTransaction(T transaction);
 }
@@ -1,5 +1,7 @@
 package com.yukthi.persistence;
 
+import java.util.concurrent.locks.Lock;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -60,6 +62,33 @@ public class TransactionWrapper<T extends ITransaction> implements ITransaction
 		transaction.close();
 	}
 	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransaction#isClosed()
+	 */
+	@Override
+	public boolean isClosed()
+	{
+		return transaction.isClosed();
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransaction#getExecutionLock()
+	 */
+	@Override
+	public Lock getExecutionLock()
+	{
+		return transaction.getExecutionLock();
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransaction#addCloseListener(java.lang.Object, java.lang.Runnable)
+	 */
+	@Override
+	public void addCloseListener(Object key, Runnable listener)
+	{
+		transaction.addCloseListener(key, listener);
+	}
+	
 	public boolean isExistingTransaction()
 	{
 		return existingTransaction;
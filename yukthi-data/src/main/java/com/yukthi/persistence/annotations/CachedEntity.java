@@ -0,0 +1,23 @@
+package com.yukthi.persistence.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables second level cache for the target entity type. Entities fetched by id (using findById(), which
+ * is also used by lazy relation loading) are served from memory till they are modified or deleted via repositories.
+ * Suitable for reference data which is read frequently and modified rarely.
+ * @author akiran
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+public @interface CachedEntity
+{
+	/**
+	 * Maximum number of entities to be cached. When exceeded, least recently used entities are evicted.
+	 * @return maximum number of entities to be cached
+	 */
+	public int maxSize() default 1000;
+}
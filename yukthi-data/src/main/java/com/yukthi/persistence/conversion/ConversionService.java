@@ -1,9 +1,9 @@
 package com.yukthi.persistence.conversion;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -23,7 +23,7 @@ public class ConversionService
 	
 	private List<IPersistenceConverter> converters = new ArrayList<>();
 	
-	private Map<Class<?>, IPersistenceConverter> typeToConverter = new HashMap<>();
+	private Map<Class<?>, IPersistenceConverter> typeToConverter = new ConcurrentHashMap<>();
 	
 	public ConversionService()
 	{
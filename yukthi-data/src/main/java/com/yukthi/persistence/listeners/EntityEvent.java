@@ -1,5 +1,7 @@
 package com.yukthi.persistence.listeners;
 
+import java.util.List;
+
 import com.yukthi.persistence.repository.RepositoryFactory;
 
 /**
@@ -13,6 +15,12 @@ public class EntityEvent
 	 */
 	private Object entity;
 	
+	/**
+	 * Ids of entities under action, for bulk events. Bulk events are raised by bulk operations (like 
+	 * delete or update by conditions), where single event is raised for all affected entities.
+	 */
+	private List<Object> entityIds;
+	
 	/**
 	 * Type of event
 	 */
@@ -29,6 +37,13 @@ public class EntityEvent
 		this.eventType = eventType;
 		this.repositoryFactory = factory;
 	}
+	
+	public EntityEvent(List<Object> entityIds, EntityEventType eventType, RepositoryFactory factory)
+	{
+		this.entityIds = entityIds;
+		this.eventType = eventType;
+		this.repositoryFactory = factory;
+	}
 
 	/**
 	 * @return the {@link #entity entity}
@@ -38,6 +53,26 @@ public class EntityEvent
 		return entity;
 	}
 
+	/**
+	 * Gets the ids of entities under action, for bulk events.
+	 *
+	 * @return the ids of entities under action, null for non-bulk events
+	 */
+	public List<Object> getEntityIds()
+	{
+		return entityIds;
+	}
+	
+	/**
+	 * Checks if this event is a bulk event, raised for multiple entities by single operation.
+	 *
+	 * @return true, if this is bulk event
+	 */
+	public boolean isBulkEvent()
+	{
+		return (entityIds != null);
+	}
+
 	/**
 	 * @return the {@link #eventType eventType}
 	 */
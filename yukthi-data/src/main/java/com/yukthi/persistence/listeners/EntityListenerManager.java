@@ -112,16 +112,44 @@ public class EntityListenerManager
 	public void handleEventType(Class<?> entityType, RepositoryFactory factory, 
 			Object key, Object entity, EntityEventType eventType)
 	{
-		List<EntityListener> listenerLst = typeToListeners.get(entityType.getName() + "@" + eventType);
-		List<EntityListener> genericListenerLst = typeToListeners.get(eventType.toString());
+		//if no handlers are present
+		if(!isListenerPresent(entityType, eventType))
+		{
+			return;
+		}
 		
+		invokeListeners(entityType, new EntityEvent(entity, eventType, factory));
+	}
+	
+	/**
+	 * Invokes handlers with single bulk event for specified entity ids. Used by bulk operations
+	 * where affected entities are not loaded.
+	 * @param entityType Type of entities affected
+	 * @param factory Repository factory
+	 * @param entityIds Ids of entities affected
+	 * @param eventType Type of event
+	 */
+	public void handleBulkEvent(Class<?> entityType, RepositoryFactory factory, List<Object> entityIds, EntityEventType eventType)
+	{
 		//if no handlers are present
-		if(listenerLst == null && genericListenerLst == null)
+		if(!isListenerPresent(entityType, eventType))
 		{
 			return;
 		}
 		
-		EntityEvent event = new EntityEvent(entity, eventType, factory);
+		invokeListeners(entityType, new EntityEvent(entityIds, eventType, factory));
+	}
+	
+	/**
+	 * Invokes entity specific and generic handlers with specified event
+	 * @param entityType Entity type for which event is raised
+	 * @param event Event to be passed to handlers
+	 */
+	private void invokeListeners(Class<?> entityType, EntityEvent event)
+	{
+		EntityEventType eventType = event.getEventType();
+		List<EntityListener> listenerLst = typeToListeners.get(entityType.getName() + "@" + eventType);
+		List<EntityListener> genericListenerLst = typeToListeners.get(eventType.toString());
 		
 		//if available, invoke entity specific handlers
 		if(listenerLst != null)
@@ -0,0 +1,170 @@
+package com.yukthi.persistence.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yukthi.persistence.EntityDetails;
+
+/**
+ * Base class for queries which work on child records of parent records matching with parent conditions.
+ * Parent records can also be specified as a nested parent id query, so that relations spanning multiple levels
+ * can be expressed as single query.
+ * @author akiran
+ */
+public abstract class AbstractChildQuery extends Query implements IChildQuery
+{
+	private List<QueryCondition> childConditions = new ArrayList<>();
+	private List<QueryCondition> parentConditions = new ArrayList<>();
+
+	private EntityDetails childEntityDetails;
+	private EntityDetails parentEntityDetails;
+
+	private List<String> childColumns = new ArrayList<>();
+	private List<String> parentColumns = new ArrayList<>();
+	
+	/**
+	 * Query to fetch the ids of parent records. When specified, this query will be used instead of 
+	 * parent conditions, to find the parent records
+	 */
+	private FetchChildrenIdsQuery parentIdQuery;
+	
+	public AbstractChildQuery(EntityDetails childEntityDetails, EntityDetails parentEntityDetails)
+	{
+		super(childEntityDetails);
+
+		this.childEntityDetails = childEntityDetails;
+		this.parentEntityDetails = parentEntityDetails;
+	}
+	
+	public String getChildTableName()
+	{
+		return childEntityDetails.getTableName();
+	}
+
+	public String getParentTableName()
+	{
+		return parentEntityDetails.getTableName();
+	}
+
+	/**
+	 * Adds value to {@link #childConditions Conditions}
+	 *
+	 * @param condition condition to be added
+	 */
+	public void addChildCondition(QueryCondition condition)
+	{
+		if(childConditions == null)
+		{
+			childConditions = new ArrayList<QueryCondition>();
+		}
+
+		childConditions.add(condition);
+	}
+
+	public List<QueryCondition> getChildConditions()
+	{
+		return childConditions;
+	}
+
+	/** 
+	 * Adds value to {@link #parentConditions parent Conditions}
+	 *
+	 * @param condition condition to be added
+	 */
+	public void addParentCondition(QueryCondition condition)
+	{
+		if(parentConditions == null)
+		{
+			parentConditions = new ArrayList<QueryCondition>();
+		}
+
+		parentConditions.add(condition);
+	}
+
+	public List<QueryCondition> getParentConditions()
+	{
+		return parentConditions;
+	}
+
+	public void addMapping(String childColumn, String parentColumn)
+	{
+		childColumns.add(childColumn);
+		parentColumns.add(parentColumn);
+	}
+
+	public List<String> getChildColumns()
+	{
+		return childColumns;
+	}
+	
+	public List<String> getParentColumns()
+	{
+		return parentColumns;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.query.IChildQuery#setParentIdQuery(com.yukthi.persistence.query.FetchChildrenIdsQuery)
+	 */
+	@Override
+	public void setParentIdQuery(FetchChildrenIdsQuery parentIdQuery)
+	{
+		this.parentIdQuery = parentIdQuery;
+	}
+	
+	/**
+	 * Gets the query to fetch the ids of parent records.
+	 *
+	 * @return the query to fetch the ids of parent records
+	 */
+	public FetchChildrenIdsQuery getParentIdQuery()
+	{
+		return parentIdQuery;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.query.Query#appendShape(java.lang.StringBuilder)
+	 */
+	@Override
+	protected void appendShape(StringBuilder builder)
+	{
+		builder.append("|").append(getParentTableName());
+		builder.append("|M").append(childColumns).append(parentColumns);
+		
+		builder.append("|CC");
+		appendShape(childConditions, builder);
+		
+		if(parentIdQuery != null)
+		{
+			builder.append("|PQ{").append(parentIdQuery.getQueryShape()).append("}");
+			return;
+		}
+		
+		builder.append("|PC");
+		appendShape(parentConditions, builder);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append("[Child Conditions: ");
+
+		toString(childConditions, builder);
+		
+		if(parentIdQuery != null)
+		{
+			builder.append(" || Parent Id Query: ").append(parentIdQuery);
+		}
+		else
+		{
+			builder.append(" || Parent Conditions: ");
+			toString(parentConditions, builder);
+		}
+
+		builder.append("]");
+		return builder.toString();
+	}
+}
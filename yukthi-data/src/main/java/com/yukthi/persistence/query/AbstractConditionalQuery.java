@@ -138,6 +138,35 @@ public abstract class AbstractConditionalQuery extends Query implements IConditi
 	}
 	*/
 	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.query.Query#appendShape(java.lang.StringBuilder)
+	 */
+	@Override
+	protected void appendShape(StringBuilder builder)
+	{
+		builder.append("|F[");
+		
+		if(resultFields != null)
+		{
+			for(QueryResultField field : resultFields)
+			{
+				builder.append(field.getTableCode()).append(".").append(field.getColumn()).append(" ").append(field.getCode()).append(",");
+			}
+		}
+		
+		builder.append("]|J[");
+		
+		for(QueryJoinCondition join : joinConditions)
+		{
+			builder.append(join.getJoiningTableName()).append(" ").append(join.getJoiningTableCode()).append(".").append(join.getJoiningColumn());
+			builder.append("=").append(join.getParentTableCode()).append(".").append(join.getParentColumn());
+			builder.append(join.isNullable() ? "+" : "").append(",");
+		}
+		
+		builder.append("]|C");
+		appendShape(conditions, builder);
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -0,0 +1,15 @@
+package com.yukthi.persistence.query;
+
+import com.yukthi.persistence.EntityDetails;
+
+/**
+ * Query to delete all child records of parent records, using single statement. 
+ * @author akiran
+ */
+public class DeleteChildrenQuery extends AbstractChildQuery
+{
+	public DeleteChildrenQuery(EntityDetails childEntityDetails, EntityDetails parentEntityDetails)
+	{
+		super(childEntityDetails, parentEntityDetails);
+	}
+}
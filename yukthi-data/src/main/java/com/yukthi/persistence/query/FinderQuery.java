@@ -110,4 +110,26 @@ public class FinderQuery extends AbstractConditionalQuery
 	{
 		return "" + resultsOffset;
 	}
+
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.query.AbstractConditionalQuery#appendShape(java.lang.StringBuilder)
+	 */
+	@Override
+	protected void appendShape(StringBuilder builder)
+	{
+		super.appendShape(builder);
+		
+		builder.append("|O[");
+		
+		if(orderByFields != null)
+		{
+			for(QueryResultField field : orderByFields)
+			{
+				builder.append(field.getCode()).append(" ").append(field.getOrderByType()).append(",");
+			}
+		}
+		
+		//paging values are bound as params, so only presence of paging affects the query text
+		builder.append("]|P[").append(resultsOffset != null).append("]");
+	}
 }
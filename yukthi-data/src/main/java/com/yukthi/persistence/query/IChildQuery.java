@@ -7,4 +7,11 @@ public interface IChildQuery
 	public void addParentCondition(QueryCondition condition);
 	
 	public void addMapping(String childColumn, String parentColumn);
+	
+	/**
+	 * Sets the query to be used to fetch parent record ids, instead of parent conditions. This helps
+	 * in expressing multi level relations as nested queries.
+	 * @param parentIdQuery Query to fetch parent ids
+	 */
+	public void setParentIdQuery(FetchChildrenIdsQuery parentIdQuery);
 }
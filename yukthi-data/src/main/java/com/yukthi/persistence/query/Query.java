@@ -1,5 +1,6 @@
 package com.yukthi.persistence.query;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -24,6 +25,69 @@ public abstract class Query
 		return entityDetails.getTableName();
 	}
 
+	/**
+	 * Builds a key representing the structure of this query. Two queries having same shape
+	 * will result in same query text, and differ only in parameter values bound to the query.
+	 * 
+	 * @return Shape key of this query
+	 */
+	public String getQueryShape()
+	{
+		StringBuilder builder = new StringBuilder(getClass().getName());
+		builder.append("|").append(getTableName());
+		
+		appendShape(builder);
+		return builder.toString();
+	}
+	
+	/**
+	 * Expected to be overridden by sub classes to append the structural details (like columns, conditions etc)
+	 * which are used during query text generation. Values should not be appended.
+	 * 
+	 * @param builder Builder to which shape should be appended
+	 */
+	protected void appendShape(StringBuilder builder)
+	{}
+	
+	/**
+	 * Appends shape of specified conditions to specified builder. Condition values are not
+	 * included, only the fact whether value is null or not is included.
+	 * 
+	 * @param conditions Conditions whose shape needs to be appended
+	 * @param builder Builder to which shape should be appended
+	 */
+	protected static void appendShape(List<QueryCondition> conditions, StringBuilder builder)
+	{
+		builder.append("{");
+		
+		if(conditions != null)
+		{
+			for(QueryCondition condition : conditions)
+			{
+				builder.append(condition.getJoinOperator()).append(" ");
+				builder.append(condition.getTableCode()).append(".").append(condition.getColumn()).append(" ");
+				builder.append(condition.getOperator()).append(" ");
+				builder.append(condition.isIgnoreCase() ? "I" : "C");
+				builder.append(condition.getValue() == null ? "N" : "V");
+				
+				//number of params varies with number of values
+				if(condition.isMultiValued())
+				{
+					builder.append(((Collection<?>)condition.getValue()).size());
+				}
+				
+				if(condition.getGroupedConditions() != null)
+				{
+					appendShape(condition.getGroupedConditions(), builder);
+				}
+				
+				builder.append(";");
+			}
+		}
+		
+		builder.append("}");
+	}
+
 	public static void toString(List<QueryCondition> conditions, StringBuilder builder)
 	{
 		if(conditions == null || conditions.isEmpty())
@@ -1,6 +1,7 @@
 package com.yukthi.persistence.query;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import com.yukthi.persistence.repository.annotations.JoinOperator;
@@ -144,6 +145,17 @@ public class QueryCondition implements Cloneable
 	{
 		this.value = value;
 	}
+	
+	/**
+	 * Checks if the value of this condition is a collection of values, like for IN and NOT IN operators. 
+	 * In which case each value is expected to be passed as separate param.
+	 *
+	 * @return true, if value is a collection
+	 */
+	public boolean isMultiValued()
+	{
+		return (value instanceof Collection);
+	}
 
 	/**
 	 * Gets the joining operator.
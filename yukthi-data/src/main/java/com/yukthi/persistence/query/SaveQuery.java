@@ -34,6 +34,25 @@ public class SaveQuery extends Query
 		return columns;
 	}
 	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.query.Query#appendShape(java.lang.StringBuilder)
+	 */
+	@Override
+	protected void appendShape(StringBuilder builder)
+	{
+		builder.append("|S[");
+		
+		if(columns != null)
+		{
+			for(ColumnParam column : columns)
+			{
+				builder.append(column.getName()).append(" ").append(column.getSequence()).append(",");
+			}
+		}
+		
+		builder.append("]");
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -34,4 +34,24 @@ public class UpdateQuery extends AbstractConditionalQuery
 		return columns;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.query.AbstractConditionalQuery#appendShape(java.lang.StringBuilder)
+	 */
+	@Override
+	protected void appendShape(StringBuilder builder)
+	{
+		builder.append("|U[");
+		
+		if(columns != null)
+		{
+			for(UpdateColumnParam column : columns)
+			{
+				builder.append(column.getName()).append(" ").append(column.getUpdateOperator()).append(",");
+			}
+		}
+		
+		builder.append("]");
+		super.appendShape(builder);
+	}
+
 }
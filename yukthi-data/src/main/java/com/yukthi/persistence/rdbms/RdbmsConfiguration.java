@@ -1,15 +1,21 @@
 package com.yukthi.persistence.rdbms;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.yukthi.ccg.core.ValidateException;
 import com.yukthi.ccg.core.Validateable;
 import com.yukthi.ccg.util.CCGUtility;
 import com.yukthi.persistence.freemarker.ParamCollectorDirective;
 import com.yukthi.persistence.freemarker.TrimDirective;
+import com.yukthi.persistence.query.Query;
 
 import freemarker.template.Configuration;
 import freemarker.template.Template;
@@ -31,6 +37,7 @@ public class RdbmsConfiguration implements Validateable
 	public static final String COUNT_QUERY = "countTemplate";
 	public static final String CHILDREN_EXISTENCE_QUERY = "childrenExistenceTemplate";
 	public static final String FETCH_CHILDREN_IDS_QUERY = "fetchChildrenIdsTemplate";
+	public static final String DELETE_CHILDREN_QUERY = "deleteChildrenTemplate";
 	public static final String DROP_QUERY = "dropTableTemplate";
 
 	public static final String MANDATORY_QUERIES[] = {
@@ -38,17 +45,68 @@ public class RdbmsConfiguration implements Validateable
 		
 		SAVE_QUERY, UPDATE_QUERY, DELETE_QUERY, FINDER_QUERY, COUNT_QUERY, 
 		
-		CHILDREN_EXISTENCE_QUERY, FETCH_CHILDREN_IDS_QUERY,
+		CHILDREN_EXISTENCE_QUERY, FETCH_CHILDREN_IDS_QUERY, DELETE_CHILDREN_QUERY,
 		
 		DROP_QUERY
 	};
 
+	/**
+	 * Default maximum number of rendered queries that will be cached
+	 */
+	public static final int DEFAULT_QUERY_CACHE_SIZE = 1000;
+	
+	/**
+	 * Fraction of query cache size evicted, when cache size is crossed
+	 */
+	private static final int EVICTION_FRACTION = 10;
+	
+	/**
+	 * Rendered query text along with its last access time
+	 * @author akiran
+	 */
+	private static class RenderedQuery
+	{
+		private String queryText;
+		
+		private volatile long accessTime;
+		
+		public RenderedQuery(String queryText)
+		{
+			this.queryText = queryText;
+			this.accessTime = System.nanoTime();
+		}
+	}
+
 	private Map<String, String> queryMap = new HashMap<>();
-	private Map<String, Template> templateMap = new HashMap<>();
+	private Map<String, Template> templateMap = new ConcurrentHashMap<>();
 	
-	private Configuration configuration = new Configuration();
+	/**
+	 * Cache of rendered query text. Key is combination of template name and query shape.
+	 */
+	private Map<String, RenderedQuery> renderedQueryCache = new ConcurrentHashMap<>();
+	
+	/**
+	 * Maximum number of rendered queries to be cached. Once this limit is crossed, least recently used 
+	 * queries are evicted.
+	 */
+	private int queryCacheSize = DEFAULT_QUERY_CACHE_SIZE;
 	
-	private ParamCollectorDirective paramCollectorDirective = new ParamCollectorDirective();
+	/**
+	 * Lock used while evicting rendered queries
+	 */
+	private Object evictionLock = new Object();
+	
+	/**
+	 * Number of query builds served from cache
+	 */
+	private LongAdder queryCacheHitCount = new LongAdder();
+	
+	/**
+	 * Number of query builds which needed template rendering
+	 */
+	private LongAdder queryCacheMissCount = new LongAdder();
+	
+	private Configuration configuration = new Configuration();
 	
 	/**
 	 * Indicates whether the target DB supports paging or not
@@ -58,7 +116,6 @@ public class RdbmsConfiguration implements Validateable
 	public RdbmsConfiguration()
 	{
 		configuration.setSharedVariable("trim", new TrimDirective());
-		configuration.setSharedVariable("param", paramCollectorDirective);
 	}
 	
 	public void addTemplate(String name, String template)
@@ -92,6 +149,58 @@ public class RdbmsConfiguration implements Validateable
 		this.pagingSupported = pagingSupported;
 	}
 
+	/**
+	 * Gets the maximum number of rendered queries to be cached.
+	 *
+	 * @return the maximum number of rendered queries to be cached
+	 */
+	public int getQueryCacheSize()
+	{
+		return queryCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of rendered queries to be cached. Zero disables the caching.
+	 *
+	 * @param queryCacheSize the new maximum number of rendered queries to be cached
+	 */
+	public void setQueryCacheSize(int queryCacheSize)
+	{
+		if(queryCacheSize < 0)
+		{
+			throw new IllegalArgumentException("Negative query cache size specified: " + queryCacheSize);
+		}
+		
+		this.queryCacheSize = queryCacheSize;
+	}
+	
+	/**
+	 * Returns number of rendered queries currently cached
+	 * @return Number of rendered queries currently cached
+	 */
+	public int getCachedQueryCount()
+	{
+		return renderedQueryCache.size();
+	}
+	
+	/**
+	 * Returns number of query builds served from cache
+	 * @return Number of query builds served from cache
+	 */
+	public long getQueryCacheHitCount()
+	{
+		return queryCacheHitCount.sum();
+	}
+	
+	/**
+	 * Returns number of query builds which needed template rendering
+	 * @return Number of query builds which needed template rendering
+	 */
+	public long getQueryCacheMissCount()
+	{
+		return queryCacheMissCount.sum();
+	}
+
 	@Override
 	public void validate() throws ValidateException
 	{
@@ -126,6 +235,87 @@ public class RdbmsConfiguration implements Validateable
 		return queryMap.containsKey(name);
 	}
 	
+	/**
+	 * Builds the query text for specified template using specified query object (which will be available
+	 * as "query" in template context). As the query text depends only on the structure of query
+	 * (see {@link Query#getQueryShape()}), the rendered text is cached and template processing is skipped
+	 * for subsequent queries with same shape. Parameter values are expected to be bound from the
+	 * query object by the caller.
+	 * 
+	 * @param name Name of the template to use
+	 * @param query Query object to be used for rendering
+	 * @return Query text
+	 */
+	public String buildQuery(String name, Query query)
+	{
+		String cacheKey = name + "#" + query.getQueryShape();
+		RenderedQuery renderedQuery = renderedQueryCache.get(cacheKey);
+		
+		if(renderedQuery != null)
+		{
+			renderedQuery.accessTime = System.nanoTime();
+			queryCacheHitCount.increment();
+			
+			return renderedQuery.queryText;
+		}
+		
+		queryCacheMissCount.increment();
+		
+		List<Object> paramValues = new ArrayList<>();
+		String queryText = buildQuery(name, paramValues, CCGUtility.buildMap("query", query));
+		
+		//if template collected values using param directive, query can not be reused without rendering
+		if(paramValues.isEmpty() && queryCacheSize > 0)
+		{
+			renderedQueryCache.put(cacheKey, new RenderedQuery(queryText));
+			
+			if(renderedQueryCache.size() > queryCacheSize)
+			{
+				evictQueries();
+			}
+		}
+		
+		return queryText;
+	}
+	
+	/**
+	 * Removes least recently used rendered queries, till the size is brought below query cache size by eviction fraction.
+	 */
+	private void evictQueries()
+	{
+		synchronized(evictionLock)
+		{
+			int count = renderedQueryCache.size() - queryCacheSize;
+			
+			//if other thread already evicted the queries
+			if(count <= 0)
+			{
+				return;
+			}
+			
+			count += (queryCacheSize / EVICTION_FRACTION);
+			
+			//find the least recently used queries, by keeping most recent of them on top
+			PriorityQueue<Map.Entry<String, RenderedQuery>> oldestEntries = new PriorityQueue<>(count + 1, 
+					Comparator.comparingLong((Map.Entry<String, RenderedQuery> entry) -> entry.getValue().accessTime).reversed());
+			
+			for(Map.Entry<String, RenderedQuery> entry : renderedQueryCache.entrySet())
+			{
+				oldestEntries.add(entry);
+				
+				if(oldestEntries.size() > count)
+				{
+					oldestEntries.poll();
+				}
+			}
+			
+			for(Map.Entry<String, RenderedQuery> entry : oldestEntries)
+			{
+				renderedQueryCache.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+	
 	public String buildQuery(String name, Object... contextEntries)
 	{
 		return buildQuery(name, null, CCGUtility.buildMap(contextEntries));
@@ -154,10 +344,16 @@ public class RdbmsConfiguration implements Validateable
 		
 		try
 		{
+			//param directive is stateful, so a new instance is used for every rendering, which
+			//	makes concurrent query building safe
+			ParamCollectorDirective paramCollectorDirective = new ParamCollectorDirective();
 			paramCollectorDirective.reset(context);
 			
+			Map<String, Object> dataModel = new HashMap<>(context);
+			dataModel.put("param", paramCollectorDirective);
+			
 			StringWriter writer = new StringWriter();
-			template.process(context, writer);
+			template.process(dataModel, writer);
 			
 			if(paramValues != null)
 			{
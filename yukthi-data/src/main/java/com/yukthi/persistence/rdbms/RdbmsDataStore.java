@@ -15,10 +15,19 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
@@ -37,15 +46,18 @@ import com.yukthi.persistence.LobData;
 import com.yukthi.persistence.NativeQueryFactory;
 import com.yukthi.persistence.PersistenceException;
 import com.yukthi.persistence.Record;
+import com.yukthi.persistence.TransactionException;
 import com.yukthi.persistence.TransactionWrapper;
 import com.yukthi.persistence.UnsupportedOperationException;
 import com.yukthi.persistence.conversion.ConversionService;
+import com.yukthi.persistence.query.AbstractChildQuery;
 import com.yukthi.persistence.query.ChildrenExistenceQuery;
 import com.yukthi.persistence.query.ColumnParam;
 import com.yukthi.persistence.query.CountQuery;
 import com.yukthi.persistence.query.CreateExtendedTableQuery;
 import com.yukthi.persistence.query.CreateIndexQuery;
 import com.yukthi.persistence.query.CreateTableQuery;
+import com.yukthi.persistence.query.DeleteChildrenQuery;
 import com.yukthi.persistence.query.DeleteQuery;
 import com.yukthi.persistence.query.DropTableQuery;
 import com.yukthi.persistence.query.FetchChildrenIdsQuery;
@@ -64,6 +76,21 @@ public class RdbmsDataStore implements IDataStore
 	
 	private static Logger logger = LogManager.getLogger(RdbmsDataStore.class);
 	
+	/**
+	 * Maximum number of statements to be added to single jdbc batch, during batch saves
+	 */
+	private static final int MAX_BATCH_SIZE = 1000;
+	
+	/**
+	 * Default jdbc fetch size used while streaming finder results
+	 */
+	public static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+	
+	/**
+	 * Default number of prepared statements to be cached per connection
+	 */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+	
 	private RdbmsConfiguration rdbmsConfig;
 	private ConversionService conversionService = new ConversionService();
 	private RdbmsTransactionManager transactionManager = new RdbmsTransactionManager();
@@ -74,6 +101,11 @@ public class RdbmsDataStore implements IDataStore
 	
 	private String templatesName;
 	
+	/**
+	 * Fetch size to be used on statements, while streaming finder results
+	 */
+	private int streamFetchSize = DEFAULT_STREAM_FETCH_SIZE;
+	
 	public RdbmsDataStore(String templatesName)
 	{
 		rdbmsConfig = new RdbmsConfiguration();
@@ -90,6 +122,8 @@ public class RdbmsDataStore implements IDataStore
 			throw ex;
 		}
 		
+		transactionManager.setStatementCacheSize(DEFAULT_STATEMENT_CACHE_SIZE);
+		
 		//add blob and clob converters as default converters
 		conversionService.addConverter(new BlobConverter());
 		conversionService.addConverter(new ClobConverter());
@@ -134,6 +168,86 @@ public class RdbmsDataStore implements IDataStore
 		transactionManager.setDataSource(dataSource);
 	}
 	
+	/**
+	 * Gets the fetch size to be used on statements, while streaming finder results.
+	 *
+	 * @return the fetch size to be used on statements, while streaming finder results
+	 */
+	public int getStreamFetchSize()
+	{
+		return streamFetchSize;
+	}
+
+	/**
+	 * Sets the fetch size to be used on statements, while streaming finder results. This is ignored for MySQL, whose
+	 * driver (Connector/J) does not honor fetch size unless useCursorFetch=true is set on connection url. On MySQL,
+	 * rows are instead streamed one by one (see {@link #getStatementFetchSize()}).
+	 *
+	 * @param streamFetchSize the new fetch size to be used on statements, while streaming finder results
+	 */
+	public void setStreamFetchSize(int streamFetchSize)
+	{
+		if(streamFetchSize <= 0)
+		{
+			throw new IllegalArgumentException("Invalid stream fetch size specified: " + streamFetchSize);
+		}
+		
+		this.streamFetchSize = streamFetchSize;
+	}
+	
+	/**
+	 * Fetches the fetch size to be set on statements of streaming finders. MySQL Connector/J reads all the rows into 
+	 * memory (irrespective of fetch size) unless the connection uses cursor fetch. So for MySQL, {@link Integer#MIN_VALUE}
+	 * is used, which makes the driver stream the rows one by one. Note, while the rows are streamed this way, no other 
+	 * statement can be executed on the same connection till the stream is closed.
+	 * @return Fetch size to be set on statements
+	 */
+	private int getStatementFetchSize()
+	{
+		if(TEMPLATE_NAME_MYSQL.equals(templatesName))
+		{
+			return Integer.MIN_VALUE;
+		}
+		
+		return streamFetchSize;
+	}
+	
+	/**
+	 * Sets the maximum number of prepared statements to be cached per physical connection. Cached statements
+	 * are reused by all transactions using the same physical (pooled) connection. Zero disables the statement caching.
+	 *
+	 * @param statementCacheSize the new maximum number of prepared statements to be cached per connection
+	 */
+	public void setStatementCacheSize(int statementCacheSize)
+	{
+		if(statementCacheSize < 0)
+		{
+			throw new IllegalArgumentException("Invalid statement cache size specified: " + statementCacheSize);
+		}
+		
+		transactionManager.setStatementCacheSize(statementCacheSize);
+	}
+	
+	/**
+	 * Gets the statistics of prepared statement caches, which can be used to monitor statement reuse.
+	 *
+	 * @return the statement cache statistics
+	 */
+	public StatementCacheStatistics getStatementCacheStatistics()
+	{
+		return transactionManager.getStatementCacheStatistics();
+	}
+	
+	/**
+	 * Gets the rdbms configuration (templates and rendered query cache) used by this data store.
+	 *
+	 * @return the rdbms configuration
+	 */
+	public RdbmsConfiguration getRdbmsConfiguration()
+	{
+		return rdbmsConfig;
+	}
+	
 	@Override
 	public ITransactionManager<? extends ITransaction> getTransactionManager()
 	{
@@ -194,6 +308,38 @@ public class RdbmsDataStore implements IDataStore
 			throw new PersistenceException("An error occurred while fetching column names of table: " + tableName, ex);
 		}
 	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.IDataStore#getAllColumnNames()
+	 */
+	@Override
+	public Map<String, Set<String>> getAllColumnNames()
+	{
+		logger.trace("Started method: getAllColumnNames");
+		
+		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
+		{
+			Connection connection = transaction.getTransaction().getConnection();
+			Map<String, Set<String>> tableToColumns = new HashMap<>();
+			
+			//fetch columns of all tables of current catalog in single pass
+			try(ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, "%", null))
+			{
+				while(rs.next())
+				{
+					tableToColumns.computeIfAbsent(rs.getString("TABLE_NAME").toUpperCase(), name -> new HashSet<>()).add(rs.getString("COLUMN_NAME"));
+				}
+			}
+			
+			logger.debug("Fetched column details of {} tables", tableToColumns.size());
+			
+			transaction.commit();
+			return tableToColumns;
+		}catch(Exception ex)
+		{
+			throw new PersistenceException("An error occurred while fetching column names of all tables", ex);
+		}
+	}
 
 	@Override
 	public void checkAndCreateSequence(String name)
@@ -352,12 +498,11 @@ public class RdbmsDataStore implements IDataStore
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.COUNT_QUERY, "query", countQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.COUNT_QUERY, countQuery);
 			
 			logger.debug("Built existence query as: \n\t{}", query);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			int index = 1;
 			List<Object> params = new ArrayList<>();
 			
@@ -411,36 +556,14 @@ public class RdbmsDataStore implements IDataStore
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.CHILDREN_EXISTENCE_QUERY, "query", childrenExistenceQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.CHILDREN_EXISTENCE_QUERY, childrenExistenceQuery);
 			
 			logger.debug("Built children-existence query as: \n\t{}", query);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
-			int index = 1;
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			List<Object> params = new ArrayList<>();
 			
-			if(childrenExistenceQuery.getParentConditions() != null)
-			{
-				for(QueryCondition condition: childrenExistenceQuery.getParentConditions())
-				{
-					pstmt.setObject(index, condition.getValue());
-					params.add(condition.getValue());
-					
-					index++;
-				}
-			}
-
-			if(childrenExistenceQuery.getChildConditions() != null)
-			{
-				for(QueryCondition condition: childrenExistenceQuery.getChildConditions())
-				{
-					pstmt.setObject(index, condition.getValue());
-					params.add(condition.getValue());
-					
-					index++;
-				}
-			}
+			setChildQueryParams(childrenExistenceQuery, pstmt, params);
 
 			logger.debug("Executing using params: " + params);
 			
@@ -480,36 +603,14 @@ public class RdbmsDataStore implements IDataStore
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.FETCH_CHILDREN_IDS_QUERY, "query", fetchChildrenIdsQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.FETCH_CHILDREN_IDS_QUERY, fetchChildrenIdsQuery);
 			
 			logger.debug("Built children-fetch query as: \n\t{}", query);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
-			int index = 1;
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			List<Object> params = new ArrayList<>();
 			
-			if(fetchChildrenIdsQuery.getParentConditions() != null)
-			{
-				for(QueryCondition condition: fetchChildrenIdsQuery.getParentConditions())
-				{
-					pstmt.setObject(index, condition.getValue());
-					params.add(condition.getValue());
-					
-					index++;
-				}
-			}
-
-			if(fetchChildrenIdsQuery.getChildConditions() != null)
-			{
-				for(QueryCondition condition: fetchChildrenIdsQuery.getChildConditions())
-				{
-					pstmt.setObject(index, condition.getValue());
-					params.add(condition.getValue());
-					
-					index++;
-				}
-			}
+			setChildQueryParams(fetchChildrenIdsQuery, pstmt, params);
 
 			logger.debug("Executing using params: " + params);
 			
@@ -538,61 +639,149 @@ public class RdbmsDataStore implements IDataStore
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.IDataStore#deleteChildren(com.yukthi.persistence.query.DeleteChildrenQuery)
+	 */
 	@Override
-	public int save(SaveQuery saveQuery, EntityDetails entityDetails, ObjectWrapper<Object> idGenerated)
+	public int deleteChildren(DeleteChildrenQuery deleteChildrenQuery)
 	{
-		logger.trace("Started method: save");
-		logger.debug("Trying to save entity to table '{}' using query: {}", saveQuery.getTableName(), saveQuery);
+		logger.trace("Started method: deleteChildren");
+		logger.debug("Deleting children records from table '{}' using query: {}", deleteChildrenQuery.getChildTableName(), deleteChildrenQuery);
 		
 		PreparedStatement pstmt = null;
-		ResultSet keysRs = null;
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.SAVE_QUERY, "query", saveQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.DELETE_CHILDREN_QUERY, deleteChildrenQuery);
 			
-			logger.debug("Built save query as: \n\t{}", query);
+			logger.debug("Built children-delete query as: \n\t{}", query);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
-			int index = 1;
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			List<Object> params = new ArrayList<>();
-			Object value = null;
-			List<Closeable> closeables = new ArrayList<>();
 			
-			for(ColumnParam column: saveQuery.getColumns())
+			setChildQueryParams(deleteChildrenQuery, pstmt, params);
+
+			logger.debug("Executing using params: " + params);
+			
+			int deleteCount = pstmt.executeUpdate();
+			
+			logger.debug("Deleted {} child record(s) from table: {}", deleteCount, deleteChildrenQuery.getChildTableName());
+			
+			transaction.commit();
+			return deleteCount;
+		}catch(Exception ex)
+		{
+			logger.error("An error occurred while deleting child rows from table '" 
+					+ deleteChildrenQuery.getChildTableName() + "' using query: " + deleteChildrenQuery, ex);
+			
+			SqlExceptionHandler.handleException("An error occurred while deleting child rows from table '" 
+					+ deleteChildrenQuery.getChildTableName() + "'", ex, entityDetailsFactory, true);
+			
+			return -1;
+		}finally
+		{
+			closeResources(null, pstmt);
+		}
+	}
+	
+	/**
+	 * Sets the params of specified child query on specified statement. If parent id query is specified, its params
+	 * are set (recursively) in place of parent condition params, in the same order in which templates generate nested queries.
+	 * @param childQuery Child query whose params needs to be set
+	 * @param pstmt Statement on which params should be set
+	 * @param params List to which params are added
+	 */
+	private void setChildQueryParams(AbstractChildQuery childQuery, PreparedStatement pstmt, List<Object> params) throws SQLException
+	{
+		if(childQuery.getParentIdQuery() != null)
+		{
+			setChildQueryParams(childQuery.getParentIdQuery(), pstmt, params);
+		}
+		else if(childQuery.getParentConditions() != null)
+		{
+			for(QueryCondition condition: childQuery.getParentConditions())
 			{
-				if(column.isSequenceGenerated())
-				{
-					continue;
-				}
-				
-				value = column.getValue();
+				addParamsRecursively(condition, pstmt, params);
+			}
+		}
+
+		if(childQuery.getChildConditions() != null)
+		{
+			for(QueryCondition condition: childQuery.getChildConditions())
+			{
+				pstmt.setObject(params.size() + 1, condition.getValue());
+				params.add(condition.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Sets the column values of specified save query as params on specified statement. Lob streams
+	 * opened during this process will be added to specified closeables.
+	 * @param pstmt Statement on which params needs to be set
+	 * @param saveQuery Save query whose column values needs to be set
+	 * @param closeables Collection to which opened streams will be added
+	 */
+	private void setSaveParams(PreparedStatement pstmt, SaveQuery saveQuery, List<Closeable> closeables) throws SQLException
+	{
+		int index = 1;
+		List<Object> params = new ArrayList<>();
+		Object value = null;
+		
+		for(ColumnParam column: saveQuery.getColumns())
+		{
+			if(column.isSequenceGenerated())
+			{
+				continue;
+			}
+			
+			value = column.getValue();
+			
+			if(value instanceof LobData)
+			{
+				LobData lobData = (LobData)value;
+				closeables.add(lobData);
 				
-				if(value instanceof LobData)
+				if(lobData.isTextStream())
 				{
-					LobData lobData = (LobData)value;
-					closeables.add(lobData);
-					
-					if(lobData.isTextStream())
-					{
-						pstmt.setCharacterStream(index, lobData.openReader() );
-					}
-					else
-					{
-						pstmt.setBinaryStream(index,  lobData.openStream() );
-					}
+					pstmt.setCharacterStream(index, lobData.openReader() );
 				}
 				else
 				{
-					pstmt.setObject(index, value);
+					pstmt.setBinaryStream(index,  lobData.openStream() );
 				}
-				
-				params.add(value);
-				index++;
+			}
+			else
+			{
+				pstmt.setObject(index, value);
 			}
 			
-			logger.debug("Executing using params: {}", params);
+			params.add(value);
+			index++;
+		}
+		
+		logger.debug("Executing using params: {}", params);
+	}
+	
+	@Override
+	public int save(SaveQuery saveQuery, EntityDetails entityDetails, ObjectWrapper<Object> idGenerated)
+	{
+		logger.trace("Started method: save");
+		logger.debug("Trying to save entity to table '{}' using query: {}", saveQuery.getTableName(), saveQuery);
+		
+		PreparedStatement pstmt = null;
+		ResultSet keysRs = null;
+		
+		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
+		{
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.SAVE_QUERY, saveQuery);
+			
+			logger.debug("Built save query as: \n\t{}", query);
+			
+			pstmt = transaction.getTransaction().prepareStatement(query);
+			List<Closeable> closeables = new ArrayList<>();
+			
+			setSaveParams(pstmt, saveQuery, closeables);
 			
 			int count = pstmt.executeUpdate();
 			
@@ -636,6 +825,88 @@ public class RdbmsDataStore implements IDataStore
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.IDataStore#saveAll(java.util.List, com.yukthi.persistence.EntityDetails)
+	 */
+	@Override
+	public int[] saveAll(List<SaveQuery> saveQueries, EntityDetails entityDetails)
+	{
+		logger.trace("Started method: saveAll");
+		
+		int counts[] = new int[saveQueries.size()];
+		
+		if(saveQueries.isEmpty())
+		{
+			return counts;
+		}
+		
+		SaveQuery firstQuery = saveQueries.get(0);
+		logger.debug("Trying to save {} entities to table '{}' using batch", saveQueries.size(), firstQuery.getTableName());
+		
+		PreparedStatement pstmt = null;
+		List<Closeable> closeables = new ArrayList<>();
+		
+		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
+		{
+			//as all queries are of same shape, same query string can be used for all
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.SAVE_QUERY, firstQuery);
+			
+			logger.debug("Built batch save query as: \n\t{}", query);
+			
+			pstmt = transaction.getTransaction().prepareStatement(query);
+			
+			int batchStart = 0, batchSize = 0;
+			int batchCounts[] = null;
+			
+			for(int i = 0; i < saveQueries.size(); i++)
+			{
+				setSaveParams(pstmt, saveQueries.get(i), closeables);
+				pstmt.addBatch();
+				batchSize++;
+				
+				//execute batch when max size is reached or when last query is added
+				if(batchSize < MAX_BATCH_SIZE && i < saveQueries.size() - 1)
+				{
+					continue;
+				}
+				
+				batchCounts = pstmt.executeBatch();
+				
+				for(int j = 0; j < batchCounts.length; j++)
+				{
+					//some drivers do not return count for batch statements, on success
+					counts[batchStart + j] = (batchCounts[j] == Statement.SUCCESS_NO_INFO) ? 1 : batchCounts[j];
+				}
+				
+				//close any open closeables (like blob streams)
+				for(Closeable closeable : closeables)
+				{
+					closeable.close();
+				}
+				
+				closeables.clear();
+				
+				batchStart += batchSize;
+				batchSize = 0;
+			}
+			
+			logger.debug("Saved {} records into table: {}", saveQueries.size(), firstQuery.getTableName());
+			
+			transaction.commit();
+			return counts;
+		}catch(Exception ex)
+		{
+			logger.error("An error occurred while saving entities to table '{}' using batch", firstQuery.getTableName(), ex);
+
+			SqlExceptionHandler.handleException("An error occurred while saving entities to table '" 
+					+ firstQuery.getTableName() + "'", ex, entityDetailsFactory, false);
+			return null;
+		}finally
+		{
+			closeResources(null, pstmt);
+		}
+	}
+
 	@Override
 	public int update(UpdateQuery updateQuery, EntityDetails entityDetails)
 	{
@@ -646,12 +917,11 @@ public class RdbmsDataStore implements IDataStore
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.UPDATE_QUERY, "query", updateQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.UPDATE_QUERY, updateQuery);
 			
 			logger.debug("Built update query as: \n\t{}", query);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			int index = 1;
 			List<Object> params = new ArrayList<>();
 			Object value = null;
@@ -686,10 +956,7 @@ public class RdbmsDataStore implements IDataStore
 			
 			for(QueryCondition condition: updateQuery.getConditions())
 			{
-				pstmt.setObject(index, condition.getValue());
-				params.add(condition.getValue());
-				
-				index++;
+				addParamsRecursively(condition, pstmt, params);
 			}
 			
 			logger.debug("Executing using params: {}", params);
@@ -731,21 +998,16 @@ public class RdbmsDataStore implements IDataStore
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.DELETE_QUERY, "query", deleteQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.DELETE_QUERY, deleteQuery);
 			
 			logger.debug("Built delete query as: \n\t{}", query);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
-			int index = 1;
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			List<Object> params = new ArrayList<>();
 			
 			for(QueryCondition condition: deleteQuery.getConditions())
 			{
-				pstmt.setObject(index, condition.getValue());
-				params.add(condition.getValue());
-				
-				index++;
+				addParamsRecursively(condition, pstmt, params);
 			}
 			
 			logger.debug("Executing using params: {}", params);
@@ -778,8 +1040,7 @@ public class RdbmsDataStore implements IDataStore
 		
 		logger.debug("Built query as: \n\t{}", query);
 		
-		Connection connection = transaction.getConnection();
-		PreparedStatement pstmt = connection.prepareStatement(query);
+		PreparedStatement pstmt = transaction.prepareStatement(query);
 		int index = 1;
 		
 		for(Object value: paramValues)
@@ -843,8 +1104,17 @@ public class RdbmsDataStore implements IDataStore
 	
 	private void addParamsRecursively(QueryCondition condition, PreparedStatement stmt, List<Object> params) throws SQLException
 	{
+		//for multi valued conditions (like IN), each value will be a separate param
+		if(condition.isMultiValued())
+		{
+			for(Object value : (Collection<?>)condition.getValue())
+			{
+				stmt.setObject(params.size() + 1, value);
+				params.add(value);
+			}
+		}
 		//for null based conditions templates should take care of nulls
-		if(condition.getValue() != null)
+		else if(condition.getValue() != null)
 		{
 			stmt.setObject(params.size() + 1, condition.getValue());
 			params.add(condition.getValue());
@@ -861,6 +1131,307 @@ public class RdbmsDataStore implements IDataStore
 		}
 	}
 
+	/**
+	 * Sets the paging values (offset and limit) of specified finder query, if any, as params on specified statement. 
+	 * Finder templates render paging values as params, so that query text is not changed across pages.
+	 * @param findQuery Finder query whose paging values needs to be set
+	 * @param stmt Statement on which params needs to be set
+	 * @param params Params set so far
+	 */
+	private void addPagingParams(FinderQuery findQuery, PreparedStatement stmt, List<Object> params) throws SQLException
+	{
+		if(findQuery.getResultsOffset() == null)
+		{
+			return;
+		}
+		
+		stmt.setInt(params.size() + 1, findQuery.getResultsOffset());
+		params.add(findQuery.getResultsOffset());
+		
+		stmt.setInt(params.size() + 1, findQuery.getResultsLimit());
+		params.add(findQuery.getResultsLimit());
+	}
+
+	/**
+	 * Fetches the column labels of specified result set
+	 * @param rs Result set whose labels needs to be fetched
+	 * @return Column labels
+	 */
+	private String[] getColumnLabels(ResultSet rs) throws SQLException
+	{
+		ResultSetMetaData metaData = rs.getMetaData();
+		String colNames[] = new String[metaData.getColumnCount()];
+		
+		for(int i = 0 ; i < colNames.length ; i++)
+		{
+			colNames[i] = metaData.getColumnLabel(i + 1);
+		}
+		
+		return colNames;
+	}
+	
+	/**
+	 * Converts current row of specified result set into record
+	 * @param rs Result set to be used
+	 * @param colNames Column labels of the result set
+	 * @return Converted record
+	 */
+	private Record toRecord(ResultSet rs, String colNames[]) throws SQLException
+	{
+		Record rec = new Record(colNames.length);
+		Object cellValue = null;
+		
+		//fetch column values for each record
+		for(int i = 0 ; i < colNames.length ; i++)
+		{
+			cellValue = rs.getObject(i + 1);
+			
+			if(cellValue instanceof Clob)
+			{
+				cellValue = convertClob((Clob)cellValue);
+			}
+			else if(cellValue instanceof Blob)
+			{
+				cellValue = convertBlob((Blob)cellValue);
+			}
+			
+			rec.set(i, colNames[i], cellValue);
+		}
+		
+		return rec;
+	}
+	
+	/**
+	 * Iterator over the result set rows of finder query. Keeps the statement, result set and transaction open
+	 * till the iterator is closed. Iterator closes itself once all the rows are consumed or when an error occurs
+	 * while fetching rows, so that fully consumed streams do not hold connections even if they are not closed.
+	 * @author akiran
+	 */
+	private class RecordIterator implements Iterator<Record>
+	{
+		private TransactionWrapper<RdbmsTransaction> transaction;
+		
+		private PreparedStatement pstmt;
+		
+		private ResultSet rs;
+		
+		private String colNames[];
+		
+		private IFinderRecordProcessor recordProcessor;
+		
+		private String tableName;
+		
+		/**
+		 * Next record to be returned, fetched while checking for next record
+		 */
+		private Record nextRecord;
+		
+		private long recordNo = -1;
+		
+		private boolean completed = false;
+		
+		/**
+		 * Indicates the db resources and transaction are closed
+		 */
+		private boolean closed = false;
+		
+		public RecordIterator(TransactionWrapper<RdbmsTransaction> transaction, PreparedStatement pstmt, ResultSet rs, 
+				IFinderRecordProcessor recordProcessor, String tableName) throws SQLException
+		{
+			this.transaction = transaction;
+			this.pstmt = pstmt;
+			this.rs = rs;
+			this.colNames = getColumnLabels(rs);
+			this.recordProcessor = recordProcessor;
+			this.tableName = tableName;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			if(nextRecord != null)
+			{
+				return true;
+			}
+			
+			if(completed)
+			{
+				return false;
+			}
+			
+			try
+			{
+				IFinderRecordProcessor.Action action = null;
+				
+				while(rs.next())
+				{
+					recordNo++;
+					Record rec = toRecord(rs, colNames);
+					
+					if(recordProcessor != null)
+					{
+						//check the action to be performed
+						action = recordProcessor.process(recordNo, rec);
+						
+						if(action == Action.STOP)
+						{
+							//stop further processing
+							break;
+						}
+						
+						if(action == Action.IGNORE)
+						{
+							//ignore current record and go to next record
+							continue;
+						}
+					}
+					
+					nextRecord = rec;
+					return true;
+				}
+				
+				completed = true;
+				close();
+				
+				return false;
+			}catch(SQLException | RuntimeException ex)
+			{
+				completed = true;
+				close(false);
+				
+				throw new PersistenceException("An error occurred while streaming rows from table: " + tableName, ex);
+			}
+		}
+		
+		@Override
+		public Record next()
+		{
+			if(!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			
+			Record rec = nextRecord;
+			nextRecord = null;
+			return rec;
+		}
+		
+		/**
+		 * Closes the db resources and the transaction used by this iterator. Closing an already closed iterator has no effect.
+		 */
+		public void close()
+		{
+			close(true);
+		}
+		
+		/**
+		 * Closes the db resources and the transaction used by this iterator.
+		 * @param commit If true, transaction will be committed before closing
+		 */
+		private void close(boolean commit)
+		{
+			if(closed)
+			{
+				return;
+			}
+			
+			closed = true;
+			logger.debug("Closing record stream of table: {}. Records read: {}", tableName, recordNo + 1);
+			
+			closeResources(rs, pstmt);
+			
+			try
+			{
+				try
+				{
+					if(commit)
+					{
+						transaction.commit();
+					}
+				}finally
+				{
+					transaction.close();
+				}
+			}catch(TransactionException ex)
+			{
+				throw new PersistenceException("An error occurred while closing transaction of record stream", ex);
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.IDataStore#streamFinder(com.yukthi.persistence.query.FinderQuery, com.yukthi.persistence.EntityDetails, com.yukthi.persistence.IFinderRecordProcessor)
+	 */
+	@Override
+	public Stream<Record> streamFinder(FinderQuery findQuery, EntityDetails entityDetails, IFinderRecordProcessor recordProcessor)
+	{
+		logger.trace("Started method: streamFinder");
+		logger.debug("Streaming records from table '{}' using query: {}", findQuery.getTableName(), findQuery);
+		
+		TransactionWrapper<RdbmsTransaction> transaction = null;
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		
+		try
+		{
+			//transaction will be closed only when stream is closed
+			transaction = transactionManager.newOrExistingTransaction();
+			
+			//if a new transaction is started for the stream, unbind it from current thread. So that the further
+			//operations of the thread use their own transactions, even if the stream is abandoned without closing
+			if(!transaction.isExistingTransaction())
+			{
+				transactionManager.removeTransaction(transaction.getTransaction());
+			}
+			
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.FINDER_QUERY, findQuery);
+			
+			logger.debug("Built find query as: \n\t{}", query);
+			List<Object> params = new ArrayList<>();
+			
+			Connection connection = transaction.getTransaction().getConnection();
+			pstmt = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			pstmt.setFetchSize(getStatementFetchSize());
+			
+			for(QueryCondition condition: findQuery.getConditions())
+			{
+				addParamsRecursively(condition, pstmt, params);
+			}
+			
+			addPagingParams(findQuery, pstmt, params);
+			
+			logger.debug("Executing using params: {}", params);
+			
+			rs = pstmt.executeQuery();
+			
+			RecordIterator iterator = new RecordIterator(transaction, pstmt, rs, recordProcessor, findQuery.getTableName());
+			
+			return StreamSupport
+					.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+					.onClose(iterator::close);
+		}catch(Exception ex)
+		{
+			logger.error("An error occurred while streaming rows from table '" 
+					+ findQuery.getTableName() + "' using query: " + findQuery, ex);
+			
+			closeResources(rs, pstmt);
+			
+			try
+			{
+				if(transaction != null)
+				{
+					transaction.close();
+				}
+			}catch(TransactionException tex)
+			{
+				logger.error("An error occurred while closing transaction", tex);
+			}
+			
+			throw new PersistenceException("An error occurred while streaming rows from table '" 
+						+ findQuery.getTableName() + "' using query: " + findQuery, ex);
+		}
+	}
+
 	@Override
 	public List<Record> executeFinder(FinderQuery findQuery, EntityDetails entityDetails, IFinderRecordProcessor recordProcessor)
 	{
@@ -872,29 +1443,27 @@ public class RdbmsDataStore implements IDataStore
 		
 		try(TransactionWrapper<RdbmsTransaction> transaction = transactionManager.newOrExistingTransaction())
 		{
-			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.FINDER_QUERY, "query", findQuery);
+			String query = rdbmsConfig.buildQuery(RdbmsConfiguration.FINDER_QUERY, findQuery);
 			
 			logger.debug("Built find query as: \n\t{}", query);
 			List<Object> params = new ArrayList<>();
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			
 			for(QueryCondition condition: findQuery.getConditions())
 			{
 				addParamsRecursively(condition, pstmt, params);
 			}
 			
+			addPagingParams(findQuery, pstmt, params);
+			
 			logger.debug("Executing using params: {}", params);
 			
 			rs = pstmt.executeQuery();
 			
 			List<Record> records = new ArrayList<>();
-			ResultSetMetaData metaData = rs.getMetaData();
 			Record  rec = null;
-			int colCount = metaData.getColumnCount();
 			String colNames[] = null;
-			Object cellValue = null;
 			long recordNo = -1;
 			IFinderRecordProcessor.Action action = null;
 			
@@ -906,32 +1475,10 @@ public class RdbmsDataStore implements IDataStore
 				//are shared across the reocrds
 				if(colNames == null)
 				{
-					colNames = new String[colCount];
-					
-					for(int i = 0 ; i < colCount ; i++)
-					{
-						colNames[i] = metaData.getColumnLabel(i + 1);
-					}
+					colNames = getColumnLabels(rs);
 				}
 				
-				rec = new Record(colCount);
-				
-				//fetch column values for each record
-				for(int i = 0 ; i < colCount ; i++)
-				{
-					cellValue = rs.getObject(i + 1);
-					
-					if(cellValue instanceof Clob)
-					{
-						cellValue = convertClob((Clob)cellValue);
-					}
-					else if(cellValue instanceof Blob)
-					{
-						cellValue = convertBlob((Blob)cellValue);
-					}
-					
-					rec.set(i, colNames[i], cellValue);
-				}
+				rec = toRecord(rs, colNames);
 				
 				if(recordProcessor != null)
 				{
@@ -989,8 +1536,7 @@ public class RdbmsDataStore implements IDataStore
 			logger.debug("Built native find query as: \n\t{}", query);
 			logger.debug("Executing using params: {}", params);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
+			pstmt = transaction.getTransaction().prepareStatement(query);
 
 			int paramCount = params.size();
 			
@@ -1074,8 +1620,7 @@ public class RdbmsDataStore implements IDataStore
 			logger.debug("Built update query as: \n\t{}", query);
 			logger.debug("Executing using params: {}", params);
 			
-			Connection connection = transaction.getTransaction().getConnection();
-			pstmt = connection.prepareStatement(query);
+			pstmt = transaction.getTransaction().prepareStatement(query);
 			int index = 1;
 			Object value = null;
 			List<Closeable> closeables = new ArrayList<>();
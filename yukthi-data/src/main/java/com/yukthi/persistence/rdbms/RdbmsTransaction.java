@@ -1,7 +1,12 @@
 package com.yukthi.persistence.rdbms;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,7 +18,7 @@ public class RdbmsTransaction implements ITransaction
 {
 	private static Logger logger = LogManager.getLogger(RdbmsTransaction.class);
 	
-	private boolean closed = false;
+	private volatile boolean closed = false;
 	private boolean committed = false;
 	private boolean rolledBack = false;
 	
@@ -22,10 +27,26 @@ public class RdbmsTransaction implements ITransaction
 	
 	private Connection connection;
 	
-	RdbmsTransaction(RdbmsTransactionManager manager, Connection connection)
+	/**
+	 * Cache of prepared statements of the physical connection, null if caching is disabled
+	 */
+	private StatementCache statementCache;
+	
+	/**
+	 * Lock to serialize operations on this transaction, when it is shared by multiple threads
+	 */
+	private ReentrantLock executionLock = new ReentrantLock();
+	
+	/**
+	 * Listeners to be invoked once transaction is closed, keyed by listener key
+	 */
+	private Map<Object, Runnable> closeListeners;
+	
+	RdbmsTransaction(RdbmsTransactionManager manager, Connection connection, StatementCache statementCache)
 	{
 		this.manager = manager;
 		this.connection = connection;
+		this.statementCache = statementCache;
 		
 		try
 		{
@@ -39,6 +60,25 @@ public class RdbmsTransaction implements ITransaction
 	@Override
 	public void close() throws TransactionException
 	{
+		//wait for operations in progress (by other threads sharing this transaction) to complete
+		executionLock.lock();
+		
+		try
+		{
+			closeConnection();
+		}finally
+		{
+			executionLock.unlock();
+		}
+	}
+	
+	private void closeConnection() throws TransactionException
+	{
+		if(closed)
+		{
+			return;
+		}
+		
 		if(!rolledBack)
 		{
 			if(!committed)
@@ -55,14 +95,74 @@ public class RdbmsTransaction implements ITransaction
 		}catch(SQLException ex)
 		{
 			throw new TransactionException("Failed to close DB connection", ex);
+		}finally
+		{
+			//statement cache is retained with the physical connection, unless the pool has closed it
+			if(statementCache != null)
+			{
+				manager.releaseStatementCache(statementCache);
+			}
+			
+			//connection may be handed out to other transactions by the pool, so references are dropped
+			//to ensure late operations on this transaction can not use it
+			closed = true;
+			statementCache = null;
+			connection = null;
+			
+			//ensure thread binding is released even if connection closing fails
+			manager.removeTransaction(this);
+			invokeCloseListeners();
 		}
 		
-		
-		manager.removeTransaction();
-		closed =  true;
 		logger.trace("Closed transaction");
 	}
 	
+	/**
+	 * Invokes (and removes) the close listeners added to this transaction
+	 */
+	private void invokeCloseListeners()
+	{
+		Map<Object, Runnable> listeners = null;
+		
+		synchronized(this)
+		{
+			listeners = closeListeners;
+			closeListeners = null;
+		}
+		
+		if(listeners == null)
+		{
+			return;
+		}
+		
+		for(Runnable listener : listeners.values())
+		{
+			try
+			{
+				listener.run();
+			}catch(RuntimeException ex)
+			{
+				logger.error("An error occurred while invoking transaction close listener", ex);
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransaction#addCloseListener(java.lang.Object, java.lang.Runnable)
+	 */
+	@Override
+	public synchronized void addCloseListener(Object key, Runnable listener)
+	{
+		checkIfClosed();
+		
+		if(closeListeners == null)
+		{
+			closeListeners = new LinkedHashMap<>();
+		}
+		
+		closeListeners.putIfAbsent(key, listener);
+	}
+	
 	private void checkIfClosed()
 	{
 		if(!closed)
@@ -76,43 +176,97 @@ public class RdbmsTransaction implements ITransaction
 	@Override
 	public void commit() throws TransactionException
 	{
-		checkIfClosed();
+		executionLock.lock();
 		
 		try
 		{
-			connection.commit();
-			committed = true;
-			logger.trace("committed transaction");
-		}catch(SQLException ex)
-		{
-			throw new TransactionException("An error occurred while commiting connection", ex);
+			checkIfClosed();
+			
+			try
+			{
+				connection.commit();
+				committed = true;
+				logger.trace("committed transaction");
+			}catch(SQLException ex)
+			{
+				throw new TransactionException("An error occurred while commiting connection", ex);
+			}finally
+			{
+				this.close();
+			}
 		}finally
 		{
-			this.close();
+			executionLock.unlock();
 		}
 	}
 
 	@Override
 	public void rollback() throws TransactionException
 	{
-		checkIfClosed();
+		executionLock.lock();
 		
 		try
 		{
-			rolledBack = true;
-			connection.rollback();
-			logger.trace("Rolling back transaction");
-		}catch(SQLException ex)
-		{
-			throw new TransactionException("An error occurred while rolling back connection", ex);
+			checkIfClosed();
+			
+			try
+			{
+				rolledBack = true;
+				connection.rollback();
+				logger.trace("Rolling back transaction");
+			}catch(SQLException ex)
+			{
+				throw new TransactionException("An error occurred while rolling back connection", ex);
+			}finally
+			{
+				this.close();
+			}
 		}finally
 		{
-			this.close();
+			executionLock.unlock();
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransaction#isClosed()
+	 */
+	@Override
+	public boolean isClosed()
+	{
+		return closed;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransaction#getExecutionLock()
+	 */
+	@Override
+	public Lock getExecutionLock()
+	{
+		return executionLock;
+	}
+	
 	public Connection getConnection()
 	{
+		checkIfClosed();
 		return connection;
 	}
+	
+	/**
+	 * Prepares statement for specified query on underlying connection. If statement caching is enabled, 
+	 * statement prepared earlier for same query (in this or earlier transaction using same physical connection) 
+	 * will be reused. Returned statement should be closed after use, so that it can be reused.
+	 * @param query Query to prepare
+	 * @return Prepared statement
+	 */
+	public PreparedStatement prepareStatement(String query) throws SQLException
+	{
+		checkIfClosed();
+		
+		if(statementCache == null)
+		{
+			return connection.prepareStatement(query);
+		}
+		
+		return statementCache.prepareStatement(query);
+	}
 }
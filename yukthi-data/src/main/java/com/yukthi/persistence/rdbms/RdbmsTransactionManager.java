@@ -1,11 +1,14 @@
 package com.yukthi.persistence.rdbms;
 
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.dbcp2.DelegatingConnection;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -17,36 +20,182 @@ public class RdbmsTransactionManager implements ITransactionManager<RdbmsTransac
 {
 	private static Logger logger = LogManager.getLogger(RdbmsTransactionManager.class);
 	
-	private Map<Thread, RdbmsTransaction> threadToTransaction = new HashMap<>();
+	/**
+	 * Transaction bound to current thread. As each thread accesses only its own binding,
+	 * no locking is needed while fetching or starting transactions.
+	 */
+	private ThreadLocal<RdbmsTransaction> threadTransaction = new ThreadLocal<>();
 	
 	private DataSource dataSource;
 	
+	/**
+	 * Maximum number of prepared statements to be cached per connection
+	 */
+	private int statementCacheSize;
+	
+	/**
+	 * Statistics of statement caches of all connections
+	 */
+	private StatementCacheStatistics statementCacheStatistics = new StatementCacheStatistics();
+	
+	/**
+	 * Statement caches by physical connection, so that statements are reused across transactions (including
+	 * the ones started implicitly for single operation) which borrow the same physical connection from pool.
+	 * Driver connections do not override equals(), so physical connections are effectively compared by identity.
+	 */
+	private Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+	
 	public void setDataSource(DataSource dataSource)
 	{
 		this.dataSource = dataSource;
 	}
 	
+	/**
+	 * Sets the maximum number of prepared statements to be cached per connection. Zero disables the caching.
+	 * @param statementCacheSize the new maximum number of prepared statements to be cached per connection
+	 */
+	void setStatementCacheSize(int statementCacheSize)
+	{
+		this.statementCacheSize = statementCacheSize;
+	}
+	
+	/**
+	 * Gets the statistics of statement caches of all connections.
+	 * @return the statement cache statistics
+	 */
+	StatementCacheStatistics getStatementCacheStatistics()
+	{
+		return statementCacheStatistics;
+	}
+	
+	/**
+	 * Fetches the physical connection of specified (pooled) connection. For dbcp connections innermost delegate is used,
+	 * for other pools connection unwrapped as {@link Connection} is used. If physical connection cannot be determined,
+	 * specified connection itself is returned (in which case cached statements will be reused only in current transaction).
+	 * @param connection Connection obtained from data source
+	 * @return Physical connection
+	 */
+	private Connection getPhysicalConnection(Connection connection)
+	{
+		Connection physicalConnection = null;
+		
+		try
+		{
+			if(connection instanceof DelegatingConnection)
+			{
+				physicalConnection = ((DelegatingConnection<?>)connection).getInnermostDelegateInternal();
+			}
+			else
+			{
+				physicalConnection = connection.unwrap(Connection.class);
+			}
+		}catch(SQLException | RuntimeException ex)
+		{
+			logger.trace("Failed to unwrap physical connection, using connection as is", ex);
+		}
+		
+		return (physicalConnection != null) ? physicalConnection : connection;
+	}
+	
+	/**
+	 * Fetches the statement cache of the physical connection of specified connection. If not present, new cache is
+	 * created. As a new physical connection may be replacing the ones closed by the pool (for example, idle 
+	 * connections evicted without being used by any transaction), the caches of closed connections are swept
+	 * whenever a new cache is created.
+	 * @param connection Connection obtained from data source
+	 * @return Statement cache to use, null if caching is disabled
+	 */
+	private StatementCache getStatementCache(Connection connection)
+	{
+		if(statementCacheSize <= 0)
+		{
+			return null;
+		}
+		
+		Connection physicalConnection = getPhysicalConnection(connection);
+		StatementCache statementCache = statementCaches.get(physicalConnection);
+		
+		if(statementCache != null)
+		{
+			return statementCache;
+		}
+
+		statementCache = statementCaches.computeIfAbsent(physicalConnection, 
+				conn -> new StatementCache(conn, statementCacheSize, statementCacheStatistics));
+		
+		removeClosedStatementCaches();
+		return statementCache;
+	}
+	
+	/**
+	 * Closes and removes the statement caches whose physical connections are closed by the pool.
+	 */
+	private void removeClosedStatementCaches()
+	{
+		Iterator<StatementCache> it = statementCaches.values().iterator();
+		StatementCache statementCache = null;
+		
+		while(it.hasNext())
+		{
+			statementCache = it.next();
+			
+			if(isClosed(statementCache.getConnection()))
+			{
+				statementCache.close();
+				it.remove();
+			}
+		}
+	}
+	
+	private boolean isClosed(Connection connection)
+	{
+		try
+		{
+			return connection.isClosed();
+		}catch(SQLException ex)
+		{
+			return true;
+		}
+	}
+	
+	/**
+	 * Called when the transaction using specified statement cache is closed. If the physical connection is closed
+	 * by the pool (instead of retaining it), the cache is closed and removed.
+	 * @param statementCache Statement cache used by the closed transaction
+	 */
+	void releaseStatementCache(StatementCache statementCache)
+	{
+		if(!isClosed(statementCache.getConnection()))
+		{
+			return;
+		}
+		
+		statementCache.close();
+		statementCaches.remove(statementCache.getConnection(), statementCache);
+	}
+	
 	private RdbmsTransaction createTransaction() throws TransactionException
 	{
 		RdbmsTransaction transaction = null;
 		
 		try
 		{
-			transaction = new RdbmsTransaction(this, dataSource.getConnection());
+			Connection connection = dataSource.getConnection();
+			transaction = new RdbmsTransaction(this, connection, getStatementCache(connection));
 			logger.trace("Created new transaction: {}", transaction);
 		}catch(SQLException ex)
 		{
 			throw new TransactionException("An error occurred while opnening new DB connection", ex);
 		}
 		
-		threadToTransaction.put(Thread.currentThread(), transaction);
+		threadTransaction.set(transaction);
 		return transaction;
 	}
 	
 	@Override
 	public RdbmsTransaction newTransaction() throws TransactionException
 	{
-		RdbmsTransaction transaction = threadToTransaction.get(Thread.currentThread());
+		RdbmsTransaction transaction = threadTransaction.get();
 		
 		if(transaction != null)
 		{
@@ -60,7 +209,7 @@ public class RdbmsTransactionManager implements ITransactionManager<RdbmsTransac
 	@Override
 	public TransactionWrapper<RdbmsTransaction> currentTransaction() throws TransactionException
 	{
-		RdbmsTransaction transaction = threadToTransaction.get(Thread.currentThread());
+		RdbmsTransaction transaction = threadTransaction.get();
 		
 		if(transaction != null)
 		{
@@ -73,7 +222,7 @@ public class RdbmsTransactionManager implements ITransactionManager<RdbmsTransac
 	@Override
 	public TransactionWrapper<RdbmsTransaction> newOrExistingTransaction() throws TransactionException
 	{
-		RdbmsTransaction transaction = threadToTransaction.get(Thread.currentThread());
+		RdbmsTransaction transaction = threadTransaction.get();
 		
 		if(transaction != null)
 		{
@@ -84,9 +233,54 @@ public class RdbmsTransactionManager implements ITransactionManager<RdbmsTransac
 		return new TransactionWrapper<RdbmsTransaction>(createTransaction(), false);
 	}
 
-	void removeTransaction()
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransactionManager#isTransactionInProgress()
+	 */
+	@Override
+	public boolean isTransactionInProgress()
+	{
+		return (threadTransaction.get() != null);
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransactionManager#getThreadTransaction()
+	 */
+	@Override
+	public RdbmsTransaction getThreadTransaction()
+	{
+		return threadTransaction.get();
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.ITransactionManager#bindThreadTransaction(com.yukthi.persistence.ITransaction)
+	 */
+	@Override
+	public RdbmsTransaction bindThreadTransaction(RdbmsTransaction transaction)
+	{
+		RdbmsTransaction prevTransaction = threadTransaction.get();
+		
+		if(transaction == null)
+		{
+			threadTransaction.remove();
+		}
+		else
+		{
+			threadTransaction.set(transaction);
+		}
+		
+		return prevTransaction;
+	}
+
+	/**
+	 * Removes specified transaction binding from current thread, if it is the one bound to current thread.
+	 * @param transaction Transaction being closed
+	 */
+	void removeTransaction(RdbmsTransaction transaction)
 	{
-		threadToTransaction.remove(Thread.currentThread());
+		if(threadTransaction.get() == transaction)
+		{
+			threadTransaction.remove();
+		}
 	}
 
 }
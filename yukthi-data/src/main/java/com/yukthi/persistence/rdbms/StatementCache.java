@@ -0,0 +1,268 @@
+package com.yukthi.persistence.rdbms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * LRU cache of prepared statements of single physical connection, keyed by sql text. Statements are handed out as proxies,
+ * closing which returns the statement to the cache instead of closing the actual statement. Actual statements
+ * are closed when evicted or when the cache is closed (when the physical connection is closed).
+ * 
+ * Statements are prepared on physical connection (instead of pooled connection handed out by pool), so that they
+ * are not closed by the pool when pooled connection is returned, and can be reused by subsequent transactions using
+ * the same physical connection.
+ * 
+ * Though a physical connection is used by one transaction at a time, operations are synchronized, as statements
+ * of a transaction may get released after the connection is returned to pool.
+ * @author akiran
+ */
+class StatementCache
+{
+	private static Logger logger = LogManager.getLogger(StatementCache.class);
+
+	/**
+	 * Physical connection whose statements are cached
+	 */
+	private Connection connection;
+
+	/**
+	 * Maximum number of statements to be cached
+	 */
+	private int maxSize;
+
+	/**
+	 * Statistics to be updated
+	 */
+	private StatementCacheStatistics statistics;
+
+	/**
+	 * Cached statements in access order
+	 */
+	private Map<String, CachedStatement> sqlToStatement;
+
+	/**
+	 * Indicates cache is closed
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Proxy handler of cached statement
+	 * @author akiran
+	 */
+	private class CachedStatement implements InvocationHandler
+	{
+		/**
+		 * Actual statement
+		 */
+		private PreparedStatement statement;
+
+		/**
+		 * Proxy handed out to callers
+		 */
+		private PreparedStatement proxy;
+
+		/**
+		 * Indicates statement is currently being used by a caller
+		 */
+		private boolean inUse = false;
+
+		/**
+		 * Indicates statement is removed from cache while being used
+		 */
+		private boolean evicted = false;
+
+		public CachedStatement(PreparedStatement statement)
+		{
+			this.statement = statement;
+			this.proxy = (PreparedStatement)Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, this);
+		}
+
+		/**
+		 * Returns the statement back to cache, called when proxy is closed.
+		 */
+		private void release() throws SQLException
+		{
+			synchronized(StatementCache.this)
+			{
+				if(!inUse)
+				{
+					return;
+				}
+	
+				inUse = false;
+	
+				//if statement is no more part of cache
+				if(evicted || closed)
+				{
+					statement.close();
+					return;
+				}
+	
+				statement.clearParameters();
+				statement.clearBatch();
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String methodName = method.getName();
+
+			if("close".equals(methodName) && method.getParameterCount() == 0)
+			{
+				release();
+				return null;
+			}
+
+			if("isClosed".equals(methodName) && method.getParameterCount() == 0)
+			{
+				return !inUse || statement.isClosed();
+			}
+
+			try
+			{
+				return method.invoke(statement, args);
+			}catch(InvocationTargetException ex)
+			{
+				throw ex.getCause();
+			}
+		}
+	}
+
+	/**
+	 * Instantiates a new statement cache.
+	 * @param connection Physical connection whose statements needs to be cached
+	 * @param maxSize Maximum number of statements to be cached
+	 * @param statistics Statistics to be updated
+	 */
+	@SuppressWarnings("serial")
+	public StatementCache(Connection connection, int maxSize, StatementCacheStatistics statistics)
+	{
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.statistics = statistics;
+
+		this.sqlToStatement = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest)
+			{
+				if(size() <= StatementCache.this.maxSize)
+				{
+					return false;
+				}
+
+				evict(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Closes specified statement which is being removed from cache. If the statement is in use, it
+	 * will be closed on release.
+	 * @param cachedStatement Statement being removed
+	 */
+	private void evict(CachedStatement cachedStatement)
+	{
+		statistics.recordEviction();
+
+		if(cachedStatement.inUse)
+		{
+			cachedStatement.evicted = true;
+			return;
+		}
+
+		closeStatement(cachedStatement.statement);
+	}
+
+	private void closeStatement(PreparedStatement statement)
+	{
+		try
+		{
+			statement.close();
+		}catch(SQLException ex)
+		{
+			logger.warn("An error occurred while closing cached statement", ex);
+		}
+	}
+
+	/**
+	 * Fetches cached statement for specified query. If not cached, or if cached statement is in use,
+	 * new statement will be prepared.
+	 * @param query Query to be prepared
+	 * @return Prepared statement, which should be closed after use
+	 */
+	public synchronized PreparedStatement prepareStatement(String query) throws SQLException
+	{
+		//if physical connection was closed and cache is being used by a transaction started before that
+		if(closed)
+		{
+			return connection.prepareStatement(query);
+		}
+
+		CachedStatement cachedStatement = sqlToStatement.get(query);
+
+		if(cachedStatement != null && !cachedStatement.inUse)
+		{
+			statistics.recordHit();
+
+			cachedStatement.inUse = true;
+			return cachedStatement.proxy;
+		}
+
+		statistics.recordMiss();
+
+		//when same query is used recursively, use non-cached statement
+		if(cachedStatement != null)
+		{
+			return connection.prepareStatement(query);
+		}
+
+		cachedStatement = new CachedStatement(connection.prepareStatement(query));
+		cachedStatement.inUse = true;
+
+		sqlToStatement.put(query, cachedStatement);
+		return cachedStatement.proxy;
+	}
+
+	/**
+	 * Gets the physical connection whose statements are cached.
+	 * @return the physical connection
+	 */
+	public Connection getConnection()
+	{
+		return connection;
+	}
+
+	/**
+	 * Closes all cached statements, statements in use will be closed on release.
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+
+		for(CachedStatement cachedStatement : sqlToStatement.values())
+		{
+			if(!cachedStatement.inUse)
+			{
+				closeStatement(cachedStatement.statement);
+			}
+		}
+
+		sqlToStatement.clear();
+	}
+}
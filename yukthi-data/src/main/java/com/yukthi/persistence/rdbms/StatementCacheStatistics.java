@@ -0,0 +1,110 @@
+package com.yukthi.persistence.rdbms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of prepared statement caches of a data store, aggregated across connections.
+ * @author akiran
+ */
+public class StatementCacheStatistics
+{
+	/**
+	 * Number of prepare requests served with cached statements
+	 */
+	private AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * Number of prepare requests which resulted in new statement
+	 */
+	private AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Number of statements closed because of cache size limit
+	 */
+	private AtomicLong evictionCount = new AtomicLong();
+
+	void recordHit()
+	{
+		hitCount.incrementAndGet();
+	}
+
+	void recordMiss()
+	{
+		missCount.incrementAndGet();
+	}
+
+	void recordEviction()
+	{
+		evictionCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of prepare requests served with cached statements.
+	 *
+	 * @return the number of prepare requests served with cached statements
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the number of prepare requests which resulted in new statement.
+	 *
+	 * @return the number of prepare requests which resulted in new statement
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * Gets the number of statements closed because of cache size limit.
+	 *
+	 * @return the number of statements evicted
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	/**
+	 * Gets the fraction of prepare requests served with cached statements.
+	 *
+	 * @return the reuse ratio, between 0 and 1
+	 */
+	public double getReuseRatio()
+	{
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+
+		return (total == 0) ? 0 : ((double)hits / total);
+	}
+
+	/**
+	 * Resets all the counters.
+	 */
+	public void reset()
+	{
+		hitCount.set(0);
+		missCount.set(0);
+		evictionCount.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append("[");
+
+		builder.append("Hits: ").append(hitCount.get());
+		builder.append(",").append("Misses: ").append(missCount.get());
+		builder.append(",").append("Evictions: ").append(evictionCount.get());
+
+		builder.append("]");
+		return builder.toString();
+	}
+}
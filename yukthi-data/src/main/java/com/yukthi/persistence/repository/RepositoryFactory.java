@@ -1,10 +1,22 @@
 package com.yukthi.persistence.repository;
 
+import java.io.File;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.persistence.Table;
 
@@ -17,9 +29,16 @@ import com.yukthi.persistence.IDataStore;
 import com.yukthi.persistence.IInternalRepository;
 import com.yukthi.persistence.InvalidMappingException;
 import com.yukthi.persistence.listeners.EntityListenerManager;
+import com.yukthi.persistence.repository.cache.EntityCacheManager;
+import com.yukthi.persistence.repository.cache.QueryResultCache;
 
 public class RepositoryFactory
 {
+	/**
+	 * Default number of lazy entities to be loaded in single query
+	 */
+	public static final int DEFAULT_LAZY_LOAD_BATCH_SIZE = 100;
+	
 	private IDataStore dataStore;
 	
 	private Map<Class<?>, ICrudRepository<?>> typeToRepo = new HashMap<>();
@@ -36,6 +55,27 @@ public class RepositoryFactory
 	 */
 	private EntityListenerManager listenerManager = new EntityListenerManager();
 	
+	/**
+	 * Number of lazy entity proxies (of a result set) to be loaded in single query. Batch loading is 
+	 * disabled if this value is one or less.
+	 */
+	private int lazyLoadBatchSize = DEFAULT_LAZY_LOAD_BATCH_SIZE;
+	
+	/**
+	 * Manages second level caches of entities
+	 */
+	private EntityCacheManager entityCacheManager = new EntityCacheManager();
+	
+	/**
+	 * Cache of search results of methods marked with @CachedResults
+	 */
+	private QueryResultCache queryResultCache = new QueryResultCache();
+	
+	/**
+	 * Executor used to execute async repository methods (methods returning CompletableFuture)
+	 */
+	private volatile Executor asyncExecutor;
+	
 	public IDataStore getDataStore()
 	{
 		return dataStore;
@@ -57,6 +97,27 @@ public class RepositoryFactory
 		this.createTables = createTables;
 	}
 	
+	/**
+	 * Gets the number of lazy entity proxies (of a result set) to be loaded in single query.
+	 *
+	 * @return the number of lazy entity proxies to be loaded in single query
+	 */
+	public int getLazyLoadBatchSize()
+	{
+		return lazyLoadBatchSize;
+	}
+
+	/**
+	 * Sets the number of lazy entity proxies (of a result set) to be loaded in single query. 
+	 * Batch loading is disabled if this value is one or less.
+	 *
+	 * @param lazyLoadBatchSize the new number of lazy entity proxies to be loaded in single query
+	 */
+	public void setLazyLoadBatchSize(int lazyLoadBatchSize)
+	{
+		this.lazyLoadBatchSize = lazyLoadBatchSize;
+	}
+	
 	/**
 	 * Registers specified listener container 
 	 * @param listenerContainer
@@ -71,7 +132,100 @@ public class RepositoryFactory
 		return listenerManager;
 	}
 	
-	public ExecutorFactory getExecutorFactory()
+	/**
+	 * Gets the manager of second level entity caches. Can be used to fetch cache metrics or to 
+	 * invalidate caches when tables are modified outside repositories.
+	 *
+	 * @return the entity cache manager
+	 */
+	public EntityCacheManager getEntityCacheManager()
+	{
+		return entityCacheManager;
+	}
+	
+	/**
+	 * Gets the cache of search results. Can be used to configure cache limits, to fetch cache metrics or to 
+	 * invalidate results when tables are modified outside repositories.
+	 *
+	 * @return the query result cache
+	 */
+	public QueryResultCache getQueryResultCache()
+	{
+		return queryResultCache;
+	}
+	
+	/**
+	 * Sets the executor to be used to execute async repository methods (methods returning CompletableFuture).
+	 *
+	 * @param asyncExecutor the executor for async repository methods
+	 */
+	public void setAsyncExecutor(Executor asyncExecutor)
+	{
+		this.asyncExecutor = asyncExecutor;
+	}
+	
+	/**
+	 * Gets the executor used to execute async repository methods. If no executor is configured, virtual thread
+	 * per task executor is used when supported by the runtime, otherwise a cached pool of daemon threads is used.
+	 *
+	 * @return the executor for async repository methods
+	 */
+	public Executor getAsyncExecutor()
+	{
+		if(asyncExecutor != null)
+		{
+			return asyncExecutor;
+		}
+		
+		synchronized(this)
+		{
+			if(asyncExecutor == null)
+			{
+				asyncExecutor = newDefaultAsyncExecutor();
+			}
+			
+			return asyncExecutor;
+		}
+	}
+	
+	/**
+	 * Creates default executor for async repository methods.
+	 * @return Virtual thread executor if supported by runtime, otherwise a cached daemon thread pool
+	 */
+	private static Executor newDefaultAsyncExecutor()
+	{
+		try
+		{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		}catch(Exception ex)
+		{
+			//virtual threads are not supported by current runtime
+		}
+		
+		AtomicInteger threadCount = new AtomicInteger();
+		
+		return Executors.newCachedThreadPool(runnable -> 
+		{
+			Thread thread = new Thread(runnable, "repository-async-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			
+			return thread;
+		});
+	}
+	
+	/**
+	 * Sets the file in which table metadata should be persisted during {@link #loadRepositories(Collection)}, so that
+	 * warm restarts can skip metadata introspection. This file should be deleted when tables are altered outside the repositories.
+	 *
+	 * @param metadataSnapshotFile the new metadata snapshot file
+	 */
+	public void setMetadataSnapshotFile(File metadataSnapshotFile)
+	{
+		entityDetailsFactory.setMetadataSnapshotFile(metadataSnapshotFile);
+	}
+	
+	public synchronized ExecutorFactory getExecutorFactory()
 	{
 		if(executorFactory == null)
 		{
@@ -161,9 +315,71 @@ public class RepositoryFactory
 		}
 		
 		EntityDetails entityDetails = fetchEntityDetails(repositoryType);
-		RepositoryProxy proxyImpl = new RepositoryProxy(dataStore, repositoryType, entityDetails, getExecutorFactory());
+		RepositoryProxy proxyImpl = new RepositoryProxy(this, dataStore, repositoryType, entityDetails, getExecutorFactory());
 		
-		repo = (R)Proxy.newProxyInstance(RepositoryFactory.class.getClassLoader(), new Class<?>[] {repositoryType, IInternalRepository.class}, proxyImpl);
+		return (R)registerRepository(repositoryType, entityDetails, proxyImpl);
+	}
+	
+	/**
+	 * Loads specified repositories in bulk. Metadata of all tables is fetched in single pass (or loaded from metadata snapshot 
+	 * file, if configured), required tables are created in dependency order and then the repository method executors are 
+	 * built in parallel. Should be preferred over invoking {@link #getRepository(Class)} repeatedly during application bootstrap.
+	 * @param repositoryTypes Repository types to be loaded
+	 */
+	public void loadRepositories(Collection<Class<? extends ICrudRepository<?>>> repositoryTypes)
+	{
+		entityDetailsFactory.loadTableMetadata(dataStore);
+		
+		ExecutorFactory executorFactory = getExecutorFactory();
+		Map<Class<? extends ICrudRepository<?>>, EntityDetails> typeToEntityDetails = new LinkedHashMap<>();
+		
+		//entity details are resolved sequentially, as entity graphs are built recursively and
+			//tables are created in dependency order by entity details factory
+		synchronized(this)
+		{
+			for(Class<? extends ICrudRepository<?>> repositoryType : repositoryTypes)
+			{
+				if(!typeToRepo.containsKey(repositoryType))
+				{
+					typeToEntityDetails.put(repositoryType, fetchEntityDetails(repositoryType));
+				}
+			}
+		}
+		
+		entityDetailsFactory.saveMetadataSnapshot();
+		
+		//build the repository proxies (which in turn builds query executors of methods) in parallel
+		List<Class<? extends ICrudRepository<?>>> types = new ArrayList<>(typeToEntityDetails.keySet());
+		List<RepositoryProxy> proxies = types
+			.parallelStream()
+			.map(type -> new RepositoryProxy(this, dataStore, type, typeToEntityDetails.get(type), executorFactory))
+			.collect(Collectors.toList());
+		
+		synchronized(this)
+		{
+			for(int i = 0; i < types.size(); i++)
+			{
+				//ignore repositories loaded by other threads in meantime
+				if(typeToRepo.containsKey(types.get(i)))
+				{
+					continue;
+				}
+				
+				registerRepository(types.get(i), typeToEntityDetails.get(types.get(i)), proxies.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Creates repository proxy instance with specified handler and registers it.
+	 * @param repositoryType Repository type
+	 * @param entityDetails Entity details of the repository
+	 * @param proxyImpl Repository handler
+	 * @return Repository proxy
+	 */
+	private ICrudRepository<?> registerRepository(Class<?> repositoryType, EntityDetails entityDetails, RepositoryProxy proxyImpl)
+	{
+		ICrudRepository<?> repo = (ICrudRepository<?>)Proxy.newProxyInstance(RepositoryFactory.class.getClassLoader(), new Class<?>[] {repositoryType, IInternalRepository.class}, proxyImpl);
 		typeToRepo.put(repositoryType, repo);
 		entityTypeToRepo.put(entityDetails.getEntityType(), repo);
 		
@@ -181,7 +397,7 @@ public class RepositoryFactory
 		}
 
 		EntityDetails entityDetails = entityDetailsFactory.getEntityDetails((Class)entityType, dataStore, createTables);
-		RepositoryProxy proxyImpl = new RepositoryProxy(dataStore, (Class)ICrudRepository.class, entityDetails, getExecutorFactory());
+		RepositoryProxy proxyImpl = new RepositoryProxy(this, dataStore, (Class)ICrudRepository.class, entityDetails, getExecutorFactory());
 		
 		repo = (ICrudRepository)Proxy.newProxyInstance(RepositoryFactory.class.getClassLoader(), 
 							new Class<?>[] {ICrudRepository.class, IInternalRepository.class}, proxyImpl);
@@ -209,13 +425,19 @@ public class RepositoryFactory
 	 */
 	public <T> void dropRepository(Class<T> entityType)
 	{
-		IInternalRepository repository = (IInternalRepository)getRepositoryForEntity(entityType);
+		ICrudRepository<T> crudRepository = getRepositoryForEntity(entityType);
+		IInternalRepository repository = (IInternalRepository)crudRepository;
 
 		//drop the underlying data store table
 		repository.dropEntityTable();
 		
+		//remove cached entities and results of dropped table
+		entityCacheManager.removeCache(entityType);
+		queryResultCache.invalidate(Arrays.asList(crudRepository.getEntityDetails().getTableName()));
+		
 		//remove from entity details factory, so that required tables will get auto created
 		entityDetailsFactory.removeEntityDetails(entityType);
+		entityDetailsFactory.saveMetadataSnapshot();
 	
 		//remove from local entity type cache
 		this.entityTypeToRepo.remove(entityType);
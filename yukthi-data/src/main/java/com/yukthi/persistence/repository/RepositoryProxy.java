@@ -7,6 +7,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
@@ -16,6 +18,8 @@ import com.yukthi.persistence.EntityDetails;
 import com.yukthi.persistence.ForeignConstraintDetails;
 import com.yukthi.persistence.ICrudRepository;
 import com.yukthi.persistence.IDataStore;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.ITransactionManager;
 import com.yukthi.persistence.JoinTableDetails;
 import com.yukthi.persistence.TransactionException;
 import com.yukthi.persistence.query.DropTableQuery;
@@ -42,7 +46,14 @@ class RepositoryProxy implements InvocationHandler
 	
 	private QueryExecutionContext queryExecutionContext = new QueryExecutionContext();
 	
-	public RepositoryProxy(IDataStore dataStore, Class<? extends ICrudRepository<?>> repositoryType, EntityDetails entityDetails, ExecutorFactory executorFactory)
+	/**
+	 * Names of methods returning CompletableFuture, which are executed using async executor of repository factory
+	 */
+	private Set<String> asyncMethods = new HashSet<>();
+	
+	private RepositoryFactory repositoryFactory;
+	
+	public RepositoryProxy(RepositoryFactory repositoryFactory, IDataStore dataStore, Class<? extends ICrudRepository<?>> repositoryType, EntityDetails entityDetails, ExecutorFactory executorFactory)
 	{
 		defaultedMethods.put("getEntityDetails", this::getEntityDetails);
 		defaultedMethods.put("newTransaction", this::newTransaction);
@@ -52,6 +63,7 @@ class RepositoryProxy implements InvocationHandler
 		defaultedMethods.put("getRepositoryType", this::getRepositoryType);
 		defaultedMethods.put("setExecutionContext", this::setExecutionContext);
 
+		this.repositoryFactory = repositoryFactory;
 		this.dataStore = dataStore;
 		this.entityDetails = entityDetails;
 		this.repositoryType = repositoryType;
@@ -85,6 +97,12 @@ class RepositoryProxy implements InvocationHandler
 			if(queryExecutor != null)
 			{
 				methodToExecutor.put(methodName, queryExecutor);
+				
+				if(QueryExecutor.isAsyncMethod(method))
+				{
+					asyncMethods.add(methodName);
+				}
+				
 				continue;
 			}
 			
@@ -114,9 +132,38 @@ class RepositoryProxy implements InvocationHandler
 		
 		logger.debug("Executing method '" + method.getName() + "' with arguments: " + Arrays.toString(args));
 		
+		QueryExecutor queryExecutor = methodToExecutor.get(method.getName());
+		
+		if(asyncMethods.contains(methodName))
+		{
+			return executeAsync(dataStore.getTransactionManager(), queryExecutor, method, args);
+		}
+		
+		ITransaction transaction = dataStore.getTransactionManager().getThreadTransaction();
+		
+		//if no transaction is in progress, execute directly
+		if(transaction == null)
+		{
+			return execute(queryExecutor, method, args);
+		}
+		
+		//as transaction may be shared with async operations, execute while holding transaction lock
+		Lock executionLock = transaction.getExecutionLock();
+		executionLock.lock();
+		
+		try
+		{
+			return execute(queryExecutor, method, args);
+		}finally
+		{
+			executionLock.unlock();
+		}
+	}
+	
+	private Object execute(QueryExecutor queryExecutor, Method method, Object args[])
+	{
 		try
 		{
-			QueryExecutor queryExecutor = methodToExecutor.get(method.getName());
 			return queryExecutor.execute(queryExecutionContext, dataStore, dataStore.getConversionService(), args);
 		}catch(RuntimeException ex)
 		{
@@ -125,6 +172,59 @@ class RepositoryProxy implements InvocationHandler
 		}
 	}
 
+	/**
+	 * Executes specified query executor using async executor of repository factory. Transaction of the calling 
+	 * thread (if any) is bound to the executing thread, so that the async operation joins caller transaction. As 
+	 * transaction connection is not thread safe, the operation is executed while holding transaction execution lock, which 
+	 * serializes it with other async operations and with repository calls of the caller on same transaction. Order in which
+	 * pending async operations are executed is not guaranteed. Caller should wait for pending operations before 
+	 * commit/close of the transaction, as operations started after close fail (the returned future completes 
+	 * exceptionally) without being executed.
+	 * @param transactionManager Transaction manager used to propagate transaction
+	 * @param queryExecutor Executor to execute
+	 * @param method Method being invoked
+	 * @param args Arguments for execution
+	 * @return Future which completes with the result of execution
+	 */
+	private <T extends ITransaction> CompletableFuture<Object> executeAsync(ITransactionManager<T> transactionManager, 
+			QueryExecutor queryExecutor, Method method, Object args[])
+	{
+		T callerTransaction = transactionManager.getThreadTransaction();
+		
+		return CompletableFuture.supplyAsync(() -> 
+		{
+			if(callerTransaction == null)
+			{
+				return execute(queryExecutor, method, args);
+			}
+			
+			Lock executionLock = callerTransaction.getExecutionLock();
+			executionLock.lock();
+			
+			try
+			{
+				//caller transaction might have got closed while this operation is waiting for execution
+				if(callerTransaction.isClosed())
+				{
+					throw new IllegalStateException("Caller transaction is closed before execution of async method: " + method.getName());
+				}
+				
+				T prevTransaction = transactionManager.bindThreadTransaction(callerTransaction);
+				
+				try
+				{
+					return execute(queryExecutor, method, args);
+				}finally
+				{
+					transactionManager.bindThreadTransaction(prevTransaction);
+				}
+			}finally
+			{
+				executionLock.unlock();
+			}
+		}, repositoryFactory.getAsyncExecutor());
+	}
+
 	private Object getEntityDetails(Object args[])
 	{
 		return entityDetails;
@@ -0,0 +1,464 @@
+package com.yukthi.persistence.repository.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.ClassUtils;
+
+import com.yukthi.persistence.EntityDetails;
+import com.yukthi.persistence.Record;
+import com.yukthi.utils.ConvertUtils;
+
+/**
+ * Second level cache of single entity type. Maintains db records of entities keyed by entity id, with
+ * LRU eviction once max size is reached. Records (instead of entities) are cached, so that every fetch gets
+ * its own entity instance and modifications done by callers does not affect the cache.
+ *
+ * Records are maintained in concurrent map, so that lookups do not lock. Every entry maintains its last access
+ * time, and when max size is crossed, least recently accessed entries (a fraction of max size) are evicted in one go.
+ *
+ * Every invalidation increments the generation of invalidated id. Records fetched from db are added to cache only if
+ * generation of the id is not changed during the fetch, so that records read concurrently with an update are not cached.
+ * Generations are maintained for stripes of ids (instead of whole cache), so that an update does not prevent caching of
+ * other entities being fetched concurrently.
+ * @author akiran
+ */
+public class EntityCache
+{
+	/**
+	 * Fraction of max size evicted, when max size is crossed
+	 */
+	private static final int EVICTION_FRACTION = 10;
+
+	/**
+	 * Number of id stripes for which generations are maintained. Expected to be power of 2.
+	 */
+	private static final int GENERATION_STRIPES = 64;
+
+	/**
+	 * Cached record along with its last access time
+	 * @author akiran
+	 */
+	private static class CacheEntry
+	{
+		private Record record;
+
+		private volatile long accessTime;
+
+		public CacheEntry(Record record)
+		{
+			this.record = record;
+			this.accessTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Entity type being cached
+	 */
+	private Class<?> entityType;
+
+	/**
+	 * Java type of the id, used to normalize id values
+	 */
+	private Class<?> idType;
+
+	/**
+	 * Maximum number of entities to be cached
+	 */
+	private int maxSize;
+
+	/**
+	 * Cached records
+	 */
+	private Map<Object, CacheEntry> idToEntry = new ConcurrentHashMap<>();
+
+	/**
+	 * Lock used while evicting entries
+	 */
+	private Object evictionLock = new Object();
+
+	/**
+	 * Incremented when all the entities are invalidated
+	 */
+	private AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Generations of id stripes, incremented when an id of the stripe is invalidated
+	 */
+	private AtomicLongArray stripeGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+	/**
+	 * Incremented on every invalidation, used while caching multiple records fetched using single query
+	 */
+	private AtomicLong modificationCount = new AtomicLong();
+
+	/**
+	 * Number of lookups served from cache
+	 */
+	private LongAdder hitCount = new LongAdder();
+
+	/**
+	 * Number of lookups which were not found in cache
+	 */
+	private LongAdder missCount = new LongAdder();
+
+	/**
+	 * Number of records evicted because of size limit
+	 */
+	private LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * Instantiates a new entity cache.
+	 * @param entityDetails Details of the entity to be cached
+	 */
+	public EntityCache(EntityDetails entityDetails)
+	{
+		this.entityType = entityDetails.getEntityType();
+		this.idType = ClassUtils.primitiveToWrapper(entityDetails.getIdField().getField().getType());
+		this.maxSize = entityDetails.getCacheSize();
+	}
+
+	/**
+	 * Converts specified id value into id type, so that different types of same id matches.
+	 * @param id Id to normalize
+	 * @return Normalized id
+	 */
+	private Object toKey(Object id)
+	{
+		return idType.isInstance(id) ? id : ConvertUtils.convert(id, idType);
+	}
+
+	/**
+	 * Gets the entity type being cached.
+	 *
+	 * @return the entity type being cached
+	 */
+	public Class<?> getEntityType()
+	{
+		return entityType;
+	}
+
+	/**
+	 * Fetches the index of generation stripe of specified key.
+	 * @param key Normalized id
+	 * @return Stripe index
+	 */
+	private int toStripe(Object key)
+	{
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+	}
+
+	/**
+	 * Fetches the generation of specified key. As generations are never decremented, sum will change
+	 * when either all entities or the stripe of the key is invalidated.
+	 * @param key Normalized id
+	 * @return Generation of the key
+	 */
+	private long getKeyGeneration(Object key)
+	{
+		return generation.get() + stripeGenerations.get(toStripe(key));
+	}
+
+	/**
+	 * Gets the current generation of the cache, which changes on every invalidation. This value should be fetched 
+	 * before fetching multiple records from db using single query, and should be passed while adding the fetched 
+	 * records to cache (using {@link #putAll(Map, long)}).
+	 * @return current generation
+	 */
+	public long getGeneration()
+	{
+		return modificationCount.get();
+	}
+
+	/**
+	 * Gets the current generation of specified entity id. This value should be fetched before fetching 
+	 * the record from db, and should be passed while adding the fetched record to cache (using {@link #put(Object, Record, long)}).
+	 * @param id Id of the entity
+	 * @return current generation of the id
+	 */
+	public long getGeneration(Object id)
+	{
+		if(id == null)
+		{
+			return generation.get();
+		}
+
+		return getKeyGeneration(toKey(id));
+	}
+
+	/**
+	 * Checks if record of specified entity is cached. Unlike {@link #get(Object)}, this does not affect the
+	 * hit/miss counts or the access order.
+	 * @param id Id of the entity
+	 * @return true if record is cached
+	 */
+	public boolean contains(Object id)
+	{
+		return (id != null) && idToEntry.containsKey(toKey(id));
+	}
+
+	/**
+	 * Fetches cached record of entity with specified id.
+	 * @param id Id of the entity
+	 * @return Cached record, null if not found
+	 */
+	public Record get(Object id)
+	{
+		if(id == null)
+		{
+			return null;
+		}
+
+		CacheEntry entry = idToEntry.get(toKey(id));
+
+		if(entry == null)
+		{
+			missCount.increment();
+			return null;
+		}
+
+		entry.accessTime = System.nanoTime();
+		hitCount.increment();
+
+		return entry.record;
+	}
+
+	/**
+	 * Adds specified entity record to the cache, if the id is not invalidated after specified generation.
+	 * @param id Id of the entity
+	 * @param record Record to cache
+	 * @param generation Generation of the id (see {@link #getGeneration(Object)}) before record was fetched from db
+	 */
+	public void put(Object id, Record record, long generation)
+	{
+		if(id == null || record == null)
+		{
+			return;
+		}
+
+		Object key = toKey(id);
+
+		//if the id is invalidated while record is being fetched
+		if(getKeyGeneration(key) != generation)
+		{
+			return;
+		}
+
+		CacheEntry entry = new CacheEntry(record);
+		idToEntry.put(key, entry);
+
+		//if the id is invalidated while adding the entry, remove the entry. As invalidation increments generation before
+		// removing entries, either the invalidation or this check would remove the stale entry
+		if(getKeyGeneration(key) != generation)
+		{
+			idToEntry.remove(key, entry);
+			return;
+		}
+
+		if(idToEntry.size() > maxSize)
+		{
+			evict();
+		}
+	}
+
+	/**
+	 * Adds specified entity records, fetched using single query, to the cache if cache is not invalidated after 
+	 * specified generation.
+	 * @param idToRecord Records to cache by entity id
+	 * @param generation Generation of the cache (see {@link #getGeneration()}) before records were fetched from db
+	 */
+	public void putAll(Map<Object, Record> idToRecord, long generation)
+	{
+		//if cache is invalidated while records are being fetched
+		if(modificationCount.get() != generation || idToRecord.isEmpty())
+		{
+			return;
+		}
+
+		List<Object> keys = new ArrayList<>(idToRecord.size());
+		List<CacheEntry> entries = new ArrayList<>(idToRecord.size());
+		Object key = null;
+		CacheEntry entry = null;
+
+		for(Map.Entry<Object, Record> idEntry : idToRecord.entrySet())
+		{
+			if(idEntry.getKey() == null || idEntry.getValue() == null)
+			{
+				continue;
+			}
+
+			key = toKey(idEntry.getKey());
+			entry = new CacheEntry(idEntry.getValue());
+
+			idToEntry.put(key, entry);
+
+			keys.add(key);
+			entries.add(entry);
+		}
+
+		//similar to put(), remove added entries, if cache is invalidated while adding them
+		if(modificationCount.get() != generation)
+		{
+			for(int i = 0; i < keys.size(); i++)
+			{
+				idToEntry.remove(keys.get(i), entries.get(i));
+			}
+
+			return;
+		}
+
+		if(idToEntry.size() > maxSize)
+		{
+			evict();
+		}
+	}
+
+	/**
+	 * Removes least recently accessed entries, till the size is brought below max size by eviction fraction.
+	 */
+	private void evict()
+	{
+		synchronized(evictionLock)
+		{
+			int count = idToEntry.size() - maxSize;
+
+			//if other thread already evicted the entries
+			if(count <= 0)
+			{
+				return;
+			}
+
+			count += (maxSize / EVICTION_FRACTION);
+
+			//find the least recently accessed entries, by keeping most recent of them on top
+			PriorityQueue<Map.Entry<Object, CacheEntry>> oldestEntries = new PriorityQueue<>(count + 1,
+					Comparator.comparingLong((Map.Entry<Object, CacheEntry> entry) -> entry.getValue().accessTime).reversed());
+
+			for(Map.Entry<Object, CacheEntry> entry : idToEntry.entrySet())
+			{
+				oldestEntries.add(entry);
+
+				if(oldestEntries.size() > count)
+				{
+					oldestEntries.poll();
+				}
+			}
+
+			for(Map.Entry<Object, CacheEntry> entry : oldestEntries)
+			{
+				if(idToEntry.remove(entry.getKey(), entry.getValue()))
+				{
+					evictionCount.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the record of entity with specified id from cache. If id is null, all records are removed.
+	 * @param id Id of the entity
+	 */
+	public void invalidate(Object id)
+	{
+		if(id == null)
+		{
+			invalidateAll();
+			return;
+		}
+
+		Object key = toKey(id);
+
+		modificationCount.incrementAndGet();
+		stripeGenerations.incrementAndGet(toStripe(key));
+
+		idToEntry.remove(key);
+	}
+
+	/**
+	 * Removes all records from the cache.
+	 */
+	public void invalidateAll()
+	{
+		modificationCount.incrementAndGet();
+		generation.incrementAndGet();
+
+		idToEntry.clear();
+	}
+
+	/**
+	 * Gets the maximum number of entities to be cached.
+	 *
+	 * @return the maximum number of entities to be cached
+	 */
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * Gets the number of entities currently cached.
+	 *
+	 * @return the number of entities currently cached
+	 */
+	public int getSize()
+	{
+		return idToEntry.size();
+	}
+
+	/**
+	 * Gets the number of lookups served from cache.
+	 *
+	 * @return the number of lookups served from cache
+	 */
+	public long getHitCount()
+	{
+		return hitCount.sum();
+	}
+
+	/**
+	 * Gets the number of lookups which were not found in cache.
+	 *
+	 * @return the number of lookups which were not found in cache
+	 */
+	public long getMissCount()
+	{
+		return missCount.sum();
+	}
+
+	/**
+	 * Gets the number of records evicted because of size limit.
+	 *
+	 * @return the number of records evicted
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append("[");
+
+		builder.append("Type: ").append(entityType.getName());
+		builder.append(",").append("Size: ").append(getSize()).append("/").append(maxSize);
+		builder.append(",").append("Hits: ").append(hitCount.sum());
+		builder.append(",").append("Misses: ").append(missCount.sum());
+		builder.append(",").append("Evictions: ").append(evictionCount.sum());
+
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,86 @@
+package com.yukthi.persistence.repository.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yukthi.persistence.EntityDetails;
+
+/**
+ * Maintains second level caches of entity types which are marked with {@link com.yukthi.persistence.annotations.CachedEntity}.
+ * @author akiran
+ */
+public class EntityCacheManager
+{
+	/**
+	 * Caches by entity type
+	 */
+	private Map<Class<?>, EntityCache> typeToCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Fetches cache for specified entity. Cache will be created on first access.
+	 * @param entityDetails Entity whose cache needs to be fetched
+	 * @return Entity cache, null if caching is not enabled for specified entity
+	 */
+	public EntityCache getCache(EntityDetails entityDetails)
+	{
+		if(!entityDetails.isCacheable())
+		{
+			return null;
+		}
+
+		EntityCache cache = typeToCache.get(entityDetails.getEntityType());
+
+		if(cache != null)
+		{
+			return cache;
+		}
+
+		return typeToCache.computeIfAbsent(entityDetails.getEntityType(), type -> new EntityCache(entityDetails));
+	}
+
+	/**
+	 * Fetches existing cache of specified entity type, which can be used to fetch cache metrics.
+	 * @param entityType Entity type whose cache needs to be fetched
+	 * @return Entity cache, null if no cache is created for specified type
+	 */
+	public EntityCache getCache(Class<?> entityType)
+	{
+		return typeToCache.get(entityType);
+	}
+
+	/**
+	 * Fetches caches of all entity types.
+	 * @return Entity caches created so far
+	 */
+	public Collection<EntityCache> getCaches()
+	{
+		return new ArrayList<>(typeToCache.values());
+	}
+
+	/**
+	 * Removes the cache of specified entity type.
+	 * @param entityType Entity type whose cache needs to be removed
+	 */
+	public void removeCache(Class<?> entityType)
+	{
+		EntityCache cache = typeToCache.remove(entityType);
+
+		if(cache != null)
+		{
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Clears all entity caches. Useful when entity tables are modified outside repositories.
+	 */
+	public void invalidateAll()
+	{
+		for(EntityCache cache : typeToCache.values())
+		{
+			cache.invalidateAll();
+		}
+	}
+}
@@ -0,0 +1,436 @@
+package com.yukthi.persistence.repository.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yukthi.persistence.Record;
+
+/**
+ * Cache of query results, used by search methods marked with {@link com.yukthi.persistence.repository.annotations.CachedResults}.
+ * Results are cached as db records keyed by query shape and parameter values, along with the tables used by the query. When a table
+ * is modified, all the results using that table are removed.
+ *
+ * Cache is bounded by number of entries and total number of records (which is used as measure of memory), with LRU eviction.
+ * Similar to {@link EntityCache}, every table maintains a generation which is incremented on modification. Results fetched from db
+ * are added to cache only if generations of used tables are not changed during the fetch.
+ * @author akiran
+ */
+public class QueryResultCache
+{
+	/**
+	 * Default maximum number of results to be cached
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	/**
+	 * Default maximum number of records (across all results) to be cached
+	 */
+	public static final int DEFAULT_MAX_RECORDS = 100000;
+
+	/**
+	 * Cached result details
+	 * @author akiran
+	 */
+	private static class CacheEntry
+	{
+		/**
+		 * Records of the result
+		 */
+		private List<Record> records;
+
+		/**
+		 * Tables used by the query
+		 */
+		private Set<String> tables;
+
+		/**
+		 * Time (in millis) at which entry expires
+		 */
+		private long expiryTime;
+
+		public CacheEntry(List<Record> records, Set<String> tables, long expiryTime)
+		{
+			this.records = records;
+			this.tables = tables;
+			this.expiryTime = expiryTime;
+		}
+	}
+
+	/**
+	 * Maximum number of results to be cached
+	 */
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	/**
+	 * Maximum number of records (across all results) to be cached
+	 */
+	private int maxRecords = DEFAULT_MAX_RECORDS;
+
+	/**
+	 * Cached results in access order
+	 */
+	private Map<Object, CacheEntry> keyToEntry = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Keys of cached results by the table used
+	 */
+	private Map<String, Set<Object>> tableToKeys = new HashMap<>();
+
+	/**
+	 * Generation of tables, incremented on modification of the table
+	 */
+	private Map<String, Long> tableToGeneration = new HashMap<>();
+
+	/**
+	 * Incremented when complete cache is invalidated
+	 */
+	private long generation;
+
+	/**
+	 * Number of records currently cached
+	 */
+	private int recordCount;
+
+	/**
+	 * Number of lookups served from cache
+	 */
+	private AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * Number of lookups which were not found in cache
+	 */
+	private AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Number of results evicted because of size limits
+	 */
+	private AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Number of results removed because of table modifications
+	 */
+	private AtomicLong invalidationCount = new AtomicLong();
+
+	/**
+	 * Converts table name into key used for tracking.
+	 * @param table Table name
+	 * @return Table key
+	 */
+	private static String toTableKey(String table)
+	{
+		return table.toUpperCase();
+	}
+
+	/**
+	 * Gets the current generation of specified tables. This value should be fetched before fetching records
+	 * from db, and should be passed while adding the fetched records to cache.
+	 * @param tables Tables used by the query
+	 * @return Current generation of specified tables
+	 */
+	public synchronized long getGeneration(Collection<String> tables)
+	{
+		long res = generation;
+		Long tableGeneration = null;
+
+		//as generations are never decremented, sum will change when any of the table is modified
+		for(String table : tables)
+		{
+			tableGeneration = tableToGeneration.get(toTableKey(table));
+			res += (tableGeneration != null) ? tableGeneration : 0;
+		}
+
+		return res;
+	}
+
+	/**
+	 * Fetches cached result with specified key.
+	 * @param key Key of the query result
+	 * @return Cached records, null if not found or expired
+	 */
+	public synchronized List<Record> get(Object key)
+	{
+		CacheEntry entry = keyToEntry.get(key);
+
+		if(entry != null && entry.expiryTime < System.currentTimeMillis())
+		{
+			removeEntry(key);
+			entry = null;
+		}
+
+		if(entry == null)
+		{
+			missCount.incrementAndGet();
+			return null;
+		}
+
+		hitCount.incrementAndGet();
+		return entry.records;
+	}
+
+	/**
+	 * Adds specified query result to the cache, if none of specified tables is modified after specified generation.
+	 * @param key Key of the query result
+	 * @param records Records to cache
+	 * @param tables Tables used by the query
+	 * @param ttlMillis Time (in millis) for which result should be cached
+	 * @param generation Generation of tables before records were fetched from db
+	 */
+	public synchronized void put(Object key, List<Record> records, Collection<String> tables, long ttlMillis, long generation)
+	{
+		//if result alone crosses the limit, dont cache it
+		if(records == null || records.size() > maxRecords)
+		{
+			return;
+		}
+
+		//if any of the table is modified while records are being fetched
+		if(getGeneration(tables) != generation)
+		{
+			return;
+		}
+
+		removeEntry(key);
+
+		Set<String> tableKeys = new HashSet<>();
+
+		for(String table : tables)
+		{
+			tableKeys.add(toTableKey(table));
+		}
+
+		keyToEntry.put(key, new CacheEntry(Collections.unmodifiableList(records), tableKeys, System.currentTimeMillis() + ttlMillis));
+		recordCount += records.size();
+
+		for(String table : tableKeys)
+		{
+			tableToKeys.computeIfAbsent(table, tab -> new HashSet<>()).add(key);
+		}
+
+		//evict least recently used results till the limits are met
+		Iterator<Map.Entry<Object, CacheEntry>> entryIt = keyToEntry.entrySet().iterator();
+		Map.Entry<Object, CacheEntry> eldestEntry = null;
+
+		while((keyToEntry.size() > maxEntries || recordCount > maxRecords) && entryIt.hasNext())
+		{
+			eldestEntry = entryIt.next();
+			entryIt.remove();
+
+			unlinkEntry(eldestEntry.getKey(), eldestEntry.getValue());
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes entry with specified key.
+	 * @param key Key to be removed
+	 */
+	private void removeEntry(Object key)
+	{
+		unlinkEntry(key, keyToEntry.remove(key));
+	}
+
+	/**
+	 * Removes table references and record count of specified entry, which is already removed from main map.
+	 * @param key Key of the entry
+	 * @param entry Entry removed
+	 */
+	private void unlinkEntry(Object key, CacheEntry entry)
+	{
+		if(entry == null)
+		{
+			return;
+		}
+
+		recordCount -= entry.records.size();
+
+		Set<Object> keys = null;
+
+		for(String table : entry.tables)
+		{
+			keys = tableToKeys.get(table);
+
+			if(keys == null)
+			{
+				continue;
+			}
+
+			keys.remove(key);
+
+			if(keys.isEmpty())
+			{
+				tableToKeys.remove(table);
+			}
+		}
+	}
+
+	/**
+	 * Removes all the results which are using any of the specified tables. Should be invoked whenever
+	 * specified tables are modified.
+	 * @param tables Modified tables
+	 */
+	public synchronized void invalidate(Collection<String> tables)
+	{
+		String tableKey = null;
+		Set<Object> keys = null;
+
+		for(String table : tables)
+		{
+			tableKey = toTableKey(table);
+			tableToGeneration.merge(tableKey, 1L, Long::sum);
+
+			keys = tableToKeys.remove(tableKey);
+
+			if(keys == null)
+			{
+				continue;
+			}
+
+			for(Object key : keys.toArray())
+			{
+				removeEntry(key);
+				invalidationCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Removes all the results from the cache. Useful when tables are modified outside repositories,
+	 * like using native queries.
+	 */
+	public synchronized void invalidateAll()
+	{
+		generation++;
+
+		keyToEntry.clear();
+		tableToKeys.clear();
+		recordCount = 0;
+	}
+
+	/**
+	 * Gets the maximum number of results to be cached.
+	 *
+	 * @return the maximum number of results to be cached
+	 */
+	public int getMaxEntries()
+	{
+		return maxEntries;
+	}
+
+	/**
+	 * Sets the maximum number of results to be cached.
+	 *
+	 * @param maxEntries the new maximum number of results to be cached
+	 */
+	public void setMaxEntries(int maxEntries)
+	{
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Gets the maximum number of records (across all results) to be cached.
+	 *
+	 * @return the maximum number of records to be cached
+	 */
+	public int getMaxRecords()
+	{
+		return maxRecords;
+	}
+
+	/**
+	 * Sets the maximum number of records (across all results) to be cached.
+	 *
+	 * @param maxRecords the new maximum number of records to be cached
+	 */
+	public void setMaxRecords(int maxRecords)
+	{
+		this.maxRecords = maxRecords;
+	}
+
+	/**
+	 * Gets the number of results currently cached.
+	 *
+	 * @return the number of results currently cached
+	 */
+	public synchronized int getSize()
+	{
+		return keyToEntry.size();
+	}
+
+	/**
+	 * Gets the number of records currently cached.
+	 *
+	 * @return the number of records currently cached
+	 */
+	public synchronized int getRecordCount()
+	{
+		return recordCount;
+	}
+
+	/**
+	 * Gets the number of lookups served from cache.
+	 *
+	 * @return the number of lookups served from cache
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the number of lookups which were not found in cache.
+	 *
+	 * @return the number of lookups which were not found in cache
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * Gets the number of results evicted because of size limits.
+	 *
+	 * @return the number of results evicted
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	/**
+	 * Gets the number of results removed because of table modifications.
+	 *
+	 * @return the number of results invalidated
+	 */
+	public long getInvalidationCount()
+	{
+		return invalidationCount.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append("[");
+
+		builder.append("Size: ").append(getSize()).append("/").append(maxEntries);
+		builder.append(",").append("Records: ").append(getRecordCount()).append("/").append(maxRecords);
+		builder.append(",").append("Hits: ").append(hitCount.get());
+		builder.append(",").append("Misses: ").append(missCount.get());
+		builder.append(",").append("Evictions: ").append(evictionCount.get());
+		builder.append(",").append("Invalidations: ").append(invalidationCount.get());
+
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -1,6 +1,8 @@
 package com.yukthi.persistence.repository.executors;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
@@ -12,13 +14,17 @@ import com.yukthi.persistence.FieldDetails;
 import com.yukthi.persistence.ForeignConstraintDetails;
 import com.yukthi.persistence.ForeignConstraintViolationException;
 import com.yukthi.persistence.IDataStore;
+import com.yukthi.persistence.Record;
 import com.yukthi.persistence.UniqueConstraintDetails;
 import com.yukthi.persistence.UniqueConstraintViolationException;
 import com.yukthi.persistence.conversion.ConversionService;
+import com.yukthi.persistence.query.AbstractConditionalQuery;
 import com.yukthi.persistence.query.CountQuery;
+import com.yukthi.persistence.query.FinderQuery;
 import com.yukthi.persistence.query.QueryCondition;
 import com.yukthi.persistence.repository.annotations.JoinOperator;
 import com.yukthi.persistence.repository.annotations.Operator;
+import com.yukthi.utils.exceptions.InvalidArgumentException;
 
 public abstract class AbstractPersistQueryExecutor extends QueryExecutor
 {
@@ -134,4 +140,48 @@ public abstract class AbstractPersistQueryExecutor extends QueryExecutor
 			}
 		}
 	}
+	
+	/**
+	 * Fetches ids of entities matching with conditions of specified builder, using single query. This is used
+	 * by bulk operations to raise listener events.
+	 * @param context Execution context
+	 * @param dataStore Data store to use
+	 * @param conditionQueryBuilder Builder with conditions to use
+	 * @param params Condition params
+	 * @return Matching entity ids
+	 */
+	protected List<Object> fetchMatchingIds(QueryExecutionContext context, IDataStore dataStore, ConditionQueryBuilder conditionQueryBuilder, Object params[])
+	{
+		FinderQuery finderQuery = new FinderQuery(entityDetails);
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), finderQuery, params);
+		
+		List<Record> records = dataStore.executeFinder(finderQuery, entityDetails, null);
+		List<Object> ids = new ArrayList<>();
+		
+		if(records == null)
+		{
+			return ids;
+		}
+		
+		for(Record record : records)
+		{
+			ids.add(record.getObject(ConditionQueryBuilder.DEF_TABLE_ID_COL));
+		}
+		
+		return ids;
+	}
+	
+	/**
+	 * Ensures specified bulk query does not involve any joins, as bulk update and delete statements can not
+	 * refer other tables.
+	 * @param query Query to check
+	 * @param methodDesc Description of method being executed
+	 */
+	protected void checkForJoins(AbstractConditionalQuery query, String methodDesc)
+	{
+		if(!query.getJoinConditions().isEmpty())
+		{
+			throw new InvalidArgumentException("Conditions on related entity fields are not supported by {}", methodDesc);
+		}
+	}
 }
@@ -8,6 +8,7 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.stream.Stream;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang3.reflect.TypeUtils;
@@ -17,6 +18,8 @@ import org.apache.logging.log4j.Logger;
 import com.yukthi.persistence.FieldDetails;
 import com.yukthi.persistence.ICrudRepository;
 import com.yukthi.persistence.InvalidMappingException;
+import com.yukthi.persistence.Record;
+import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.repository.InvalidRepositoryException;
 import com.yukthi.persistence.repository.annotations.ExtendedFieldNames;
 import com.yukthi.persistence.repository.annotations.Field;
@@ -37,10 +40,17 @@ public abstract class AbstractSearchQuery extends QueryExecutor
 {
 	private static Logger logger = LogManager.getLogger(AbstractSearchQuery.class);
 	
-	private static RecursiveAnnotationFactory recursiveAnnotationFactory = new RecursiveAnnotationFactory();
+	protected static RecursiveAnnotationFactory recursiveAnnotationFactory = new RecursiveAnnotationFactory();
 	
 	protected Class<?> returnType;
 	protected Class<?> collectionReturnType = null;
+	
+	/**
+	 * Indicates the results are expected as stream, in which case records are converted as
+	 * and when they are consumed. As the stream keeps the connection open till it is consumed fully,
+	 * callers of such repository methods are expected to close the stream using try-with-resources.
+	 */
+	protected boolean streamResult = false;
 
 	/**
 	 * Keeps track of different parts required by query
@@ -112,19 +122,74 @@ public abstract class AbstractSearchQuery extends QueryExecutor
 		this.returnType = entityDetails.getEntityType();
 	}
 	
+	/**
+	 * Fetches the element type of the collection (or stream) return type of specified method
+	 * @param method Method whose return element type needs to be fetched
+	 * @return Element type
+	 */
+	private Class<?> getElementType(Method method)
+	{
+		if(!(getGenericReturnType(method) instanceof ParameterizedType))
+		{
+			throw new InvalidRepositoryException("Non-parameterized collection return type found on finder '" 
+						+ method.getName() + "' of repository: " + repositoryType.getName());
+		}
+		
+		ParameterizedType type = (ParameterizedType)getGenericReturnType(method);
+		Type typeArgs[] = type.getActualTypeArguments();
+		
+		if(typeArgs.length != 1)
+		{
+			throw new InvalidRepositoryException("Unsupported collection return type (with mutliple type params) found on finder '" 
+						+ method.getName() + "' of repository: " + repositoryType.getName());
+		}
+
+		return TypeUtils.getRawType(typeArgs[0], repositoryType);
+	}
+	
+	/**
+	 * Converts specified record stream into stream of return type beans. Records are converted
+	 * as and when they are consumed. If conversion fails, the record stream is closed before
+	 * throwing the error, so that db resources are released.
+	 * @param records Records to be converted
+	 * @param conditionQueryBuilder Query builder to be used for conversion
+	 * @param conversionService Conversion service to use
+	 * @return Stream of converted beans
+	 */
+	protected Stream<Object> toResultStream(Stream<Record> records, ConditionQueryBuilder conditionQueryBuilder, ConversionService conversionService)
+	{
+		return records.map(record -> 
+		{
+			try
+			{
+				return conditionQueryBuilder.parseRecord(record, returnType, conversionService, persistenceExecutionContext);
+			}catch(RuntimeException ex)
+			{
+				records.close();
+				throw ex;
+			}
+		});
+	}
+	
 	protected void fetchReturnDetails(Method method)
 	{
 		logger.trace("Started method: fetchReturnDetails");
 		
-		this.returnType = method.getReturnType();
+		this.returnType = getReturnType(method);
 		
 		if(void.class.equals(this.returnType))
 		{
 			throw new InvalidRepositoryException("Found void finder method '" + method.getName() + "' in repository: " + repositoryType.getName());
 		}
 		
+		//if results are expected as stream
+		if(Stream.class.equals(returnType))
+		{
+			this.streamResult = true;
+			this.returnType = getElementType(method);
+		}
 		//TODO: Support map types
-		if(Collection.class.isAssignableFrom(returnType))
+		else if(Collection.class.isAssignableFrom(returnType))
 		{
 			if(returnType.isAssignableFrom(ArrayList.class))
 			{
@@ -147,20 +212,11 @@ public abstract class AbstractSearchQuery extends QueryExecutor
 				}
 			}
 			
-			ParameterizedType type = (ParameterizedType)method.getGenericReturnType();
-			Type typeArgs[] = type.getActualTypeArguments();
-			
-			if(typeArgs.length != 1)
-			{
-				throw new InvalidRepositoryException("Unsupported collection return type (with mutliple type params) found on finder '" 
-							+ method.getName() + "' of repository: " + repositoryType.getName());
-			}
-
-			this.returnType = TypeUtils.getRawType(typeArgs[0], repositoryType);
+			this.returnType = getElementType(method);
 		}
 		else
 		{
-			this.returnType = TypeUtils.getRawType(method.getGenericReturnType(), repositoryType);
+			this.returnType = TypeUtils.getRawType(getGenericReturnType(method), repositoryType);
 		}
 		
 		SearchResult searchResult = recursiveAnnotationFactory.findAnnotationRecursively(method, SearchResult.class);
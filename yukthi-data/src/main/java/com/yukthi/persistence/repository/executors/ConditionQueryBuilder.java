@@ -1,6 +1,5 @@
 package com.yukthi.persistence.repository.executors;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -18,9 +17,11 @@ import com.yukthi.persistence.ExtendedTableDetails;
 import com.yukthi.persistence.ExtendedTableEntity;
 import com.yukthi.persistence.FieldDetails;
 import com.yukthi.persistence.ForeignConstraintDetails;
+import com.yukthi.persistence.ICrudRepository;
 import com.yukthi.persistence.InvalidMappingException;
 import com.yukthi.persistence.JoinTableDetails;
 import com.yukthi.persistence.Record;
+import com.yukthi.persistence.UniqueConstraintDetails;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.query.FinderQuery;
 import com.yukthi.persistence.query.IConditionalQuery;
@@ -32,12 +33,14 @@ import com.yukthi.persistence.repository.RepositoryFactory;
 import com.yukthi.persistence.repository.annotations.JoinOperator;
 import com.yukthi.persistence.repository.annotations.Operator;
 import com.yukthi.persistence.repository.annotations.OrderByType;
+import com.yukthi.persistence.repository.executors.proxy.ProxyBatchLoader;
 import com.yukthi.persistence.repository.executors.proxy.ProxyEntityCreator;
 import com.yukthi.persistence.repository.search.DynamicResultField;
 import com.yukthi.persistence.repository.search.IDynamicSearchResult;
 import com.yukthi.utils.CommonUtils;
 import com.yukthi.utils.ConvertUtils;
 import com.yukthi.utils.ObjectWrapper;
+import com.yukthi.utils.exceptions.InvalidArgumentException;
 import com.yukthi.utils.exceptions.InvalidStateException;
 
 /**
@@ -252,6 +255,22 @@ public class ConditionQueryBuilder implements Cloneable
 			this.code = code;
 			this.fieldType = fieldType;
 		}
+		
+		/**
+		 * Creates a copy of this result field with specified order type. Result fields are shared
+		 * between builder clones, so order type is never set on the shared instance.
+		 * @param orderType Order type to be used
+		 * @return Copy of this field with specified order type
+		 */
+		public ResultField withOrderType(OrderByType orderType)
+		{
+			ResultField copy = new ResultField(property, code, fieldType);
+			copy.table = table;
+			copy.fieldDetails = fieldDetails;
+			copy.orderType = orderType;
+			
+			return copy;
+		}
 	}
 
 	/**
@@ -280,6 +299,11 @@ public class ConditionQueryBuilder implements Cloneable
 	 * Entity details on which this query is going to be executed
 	 */
 	private EntityDetails entityDetails;
+	
+	/**
+	 * Indicates id field is added as last order-by field, as other order-by fields are not unique
+	 */
+	private boolean idOrderTieBreakerAdded = false;
 
 	/**
 	 * List of conditions of this query
@@ -324,6 +348,12 @@ public class ConditionQueryBuilder implements Cloneable
 	 * return type (not a bean and sub property)
 	 */
 	private boolean isSingleFieldReturn;
+	
+	/**
+	 * Mapper with pre-compiled accessors for last used result type. Built lazily and reset
+	 * when result fields are modified.
+	 */
+	private volatile ResultBeanMapper resultMapper;
 
 	public ConditionQueryBuilder(EntityDetails entityDetails)
 	{
@@ -670,6 +700,8 @@ public class ConditionQueryBuilder implements Cloneable
 				fieldIt.remove();
 			}
 		}
+		
+		this.resultMapper = null;
 	}
 
 	/**
@@ -700,6 +732,7 @@ public class ConditionQueryBuilder implements Cloneable
 		String entityFieldParts[] = entityFieldExpression.trim().split("\\s*\\.\\s*");
 
 		ResultField resultField = new ResultField(resultProperty, nextFieldCode(), resultPropertyType);
+		this.resultMapper = null;
 
 		// if this mapping is for direct property mapping
 		if(entityFieldParts.length == 1)
@@ -939,14 +972,13 @@ public class ConditionQueryBuilder implements Cloneable
 	 * @param resultType
 	 * @param conversionService
 	 * @param persistenceExecutionContext
+	 * @param batchLoaders Batch loaders (by entity type) to be used for lazy proxies. If null, proxies are loaded individually.
 	 * @return
-	 * @throws IllegalAccessException
-	 * @throws InstantiationException
-	 * @throws NoSuchMethodException
-	 * @throws InvocationTargetException
+	 * @throws Exception
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private <T> T parseResult(Record record, Class<T> resultType, ConversionService conversionService, PersistenceExecutionContext persistenceExecutionContext) throws IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException
+	private <T> T parseResult(Record record, Class<T> resultType, ConversionService conversionService, PersistenceExecutionContext persistenceExecutionContext, 
+			Map<Class<?>, ProxyBatchLoader> batchLoaders) throws Exception
 	{
 		if(isSingleFieldReturn)
 		{
@@ -956,7 +988,9 @@ public class ConditionQueryBuilder implements Cloneable
 			return (T) ConvertUtils.convert(res, resField.fieldType);
 		}
 
-		T result = resultType.newInstance();
+		ResultBeanMapper mapper = getResultMapper(resultType);
+		T result = (T) mapper.newInstance();
+		ResultField resultField = null;
 		Object value = null;
 		ProxyEntityCreator proxyEntityCreator = null;
 		ForeignConstraintDetails foreignConstraint = null;
@@ -964,8 +998,9 @@ public class ConditionQueryBuilder implements Cloneable
 
 		RepositoryFactory repositoryFactory = persistenceExecutionContext.getRepositoryFactory();
 
-		for(ResultField resultField : this.resultFields)
+		for(int i = 0; i < this.resultFields.size(); i++)
 		{
+			resultField = this.resultFields.get(i);
 			value = record.getObject(resultField.code);
 
 			// ignore null values
@@ -984,7 +1019,20 @@ public class ConditionQueryBuilder implements Cloneable
 					foreignConstraint = resultField.fieldDetails.getForeignConstraintDetails();
 					foreignEntityDetails = foreignConstraint.getTargetEntityDetails();
 
-					proxyEntityCreator = new ProxyEntityCreator(foreignEntityDetails, repositoryFactory.getRepositoryForEntity((Class) foreignEntityDetails.getEntityType()), value);
+					ICrudRepository<?> foreignRepository = repositoryFactory.getRepositoryForEntity((Class) foreignEntityDetails.getEntityType());
+					ProxyBatchLoader batchLoader = null;
+					
+					if(batchLoaders != null)
+					{
+						EntityDetails targetEntityDetails = foreignEntityDetails;
+						
+						batchLoader = batchLoaders.computeIfAbsent(targetEntityDetails.getEntityType(), 
+								type -> new ProxyBatchLoader(targetEntityDetails, foreignRepository, repositoryFactory.getLazyLoadBatchSize(), 
+										repositoryFactory.getEntityCacheManager().getCache(targetEntityDetails), 
+										repositoryFactory.getDataStore().getTransactionManager()));
+					}
+					
+					proxyEntityCreator = new ProxyEntityCreator(foreignEntityDetails, foreignRepository, value, batchLoader);
 					value = proxyEntityCreator.getProxyEntity();
 				}
 				//if this is extension field
@@ -1023,7 +1071,12 @@ public class ConditionQueryBuilder implements Cloneable
 				else
 				{
 					value = conversionService.convertToJavaType(value, resultField.fieldDetails);
-					value = ConvertUtils.convert(value, resultField.fieldType);
+					
+					//convert only if value is not of required type already
+					if(!mapper.isCompatible(i, value))
+					{
+						value = ConvertUtils.convert(value, resultField.fieldType);
+					}
 				}
 			} catch(Exception ex)
 			{
@@ -1036,11 +1089,39 @@ public class ConditionQueryBuilder implements Cloneable
 				continue;
 			}
 
-			PropertyUtils.setProperty(result, resultField.property, value);
+			mapper.setProperty(result, i, resultField.property, value);
 		}
 
 		return result;
 	}
+	
+	/**
+	 * Fetches the mapper for specified result type. If current mapper is not built for specified type,
+	 * new mapper will be built.
+	 * @param resultType Result type for which mapper is needed
+	 * @return Mapper for result type
+	 */
+	private ResultBeanMapper getResultMapper(Class<?> resultType)
+	{
+		ResultBeanMapper mapper = this.resultMapper;
+		
+		if(mapper != null && mapper.getBeanType().equals(resultType))
+		{
+			return mapper;
+		}
+		
+		List<String> properties = new ArrayList<>(resultFields.size());
+		
+		for(ResultField field : resultFields)
+		{
+			properties.add(field.property);
+		}
+		
+		mapper = new ResultBeanMapper(resultType, properties);
+		this.resultMapper = mapper;
+		
+		return mapper;
+	}
 
 	/**
 	 * Converts specified records into specified return type beans
@@ -1053,11 +1134,19 @@ public class ConditionQueryBuilder implements Cloneable
 	 */
 	public <T> void parseResults(List<Record> records, Class<T> returnType, Collection<T> resultCollection, ConversionService conversionService, PersistenceExecutionContext persistenceExecutionContext)
 	{
+		//lazy proxies of the records share loaders, so that they get loaded in batches
+		Map<Class<?>, ProxyBatchLoader> batchLoaders = null;
+		
+		if(persistenceExecutionContext.getRepositoryFactory().getLazyLoadBatchSize() > 1)
+		{
+			batchLoaders = new HashMap<>();
+		}
+		
 		for(Record record : records)
 		{
 			try
 			{
-				resultCollection.add(parseResult(record, returnType, conversionService, persistenceExecutionContext));
+				resultCollection.add(parseResult(record, returnType, conversionService, persistenceExecutionContext, batchLoaders));
 			} catch(Exception ex)
 			{
 				throw new IllegalArgumentException("An error occurred while parsing record - " + record, ex);
@@ -1065,6 +1154,27 @@ public class ConditionQueryBuilder implements Cloneable
 		}
 	}
 
+	/**
+	 * Converts specified record into specified return type bean. Used while streaming results, 
+	 * where records are converted as and when they are fetched.
+	 * 
+	 * @param record
+	 * @param returnType
+	 * @param conversionService
+	 * @param persistenceExecutionContext
+	 * @return Converted bean
+	 */
+	public <T> T parseRecord(Record record, Class<T> returnType, ConversionService conversionService, PersistenceExecutionContext persistenceExecutionContext)
+	{
+		try
+		{
+			return parseResult(record, returnType, conversionService, persistenceExecutionContext, null);
+		} catch(Exception ex)
+		{
+			throw new IllegalArgumentException("An error occurred while parsing record - " + record, ex);
+		}
+	}
+
 	/**
 	 * Used by search query to clear order by fields before adding dynamic order
 	 * by fields
@@ -1088,8 +1198,156 @@ public class ConditionQueryBuilder implements Cloneable
 			orderByType = OrderByType.ASC;
 		}
 			
-		resultField.orderType = orderByType;
-		this.orderByFields.add(resultField);
+		this.orderByFields.add(resultField.withOrderType(orderByType));
+	}
+	
+	/**
+	 * Checks if current order-by fields identify a record uniquely, that is if id field or all fields of an unique
+	 * constraint of the entity are part of order-by fields.
+	 * @return True if order-by fields are unique
+	 */
+	private boolean isUniqueOrder()
+	{
+		Set<String> orderFieldNames = new HashSet<>();
+		
+		for(ResultField field : orderByFields)
+		{
+			if(!DEF_TABLE_CODE.equals(field.table.tableCode))
+			{
+				continue;
+			}
+			
+			if(field.fieldDetails.isIdField())
+			{
+				return true;
+			}
+			
+			orderFieldNames.add(field.fieldDetails.getName());
+		}
+		
+		for(UniqueConstraintDetails constraint : entityDetails.getUniqueConstraints())
+		{
+			if(orderFieldNames.containsAll(constraint.getFields()))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * If current order-by fields are not unique, adds id field as last order-by field (in ascending order). Used while
+	 * paging results, so that records with same order-by values are not skipped or repeated between pages.
+	 */
+	public void addIdOrderTieBreaker()
+	{
+		if(orderByFields.isEmpty() || isUniqueOrder())
+		{
+			return;
+		}
+		
+		FieldDetails idField = entityDetails.getIdField();
+		ResultField idResultField = new ResultField(idField.getName(), DEF_TABLE_ID_COL, idField.getField().getType());
+		idResultField.table = codeToTable.get(DEF_TABLE_CODE);
+		idResultField.fieldDetails = idField;
+		
+		orderByFields.add(idResultField.withOrderType(OrderByType.ASC));
+		idOrderTieBreakerAdded = true;
+	}
+	
+	/**
+	 * Adds keyset (seek) conditions based on current order-by fields, so that only the records following specified
+	 * key are fetched. For order-by fields f1, f2... and key values v1, v2... condition of form 
+	 * <code>(f1 &gt; v1 OR (f1 = v1 AND f2 &gt; v2) OR ...)</code> is added, with &lt; used for descending fields.
+	 * 
+	 * If order-by fields are not unique, id field is added as last order-by field (see {@link #addIdOrderTieBreaker()}) 
+	 * and id of last record is expected as last key value.
+	 * @param keyValues Values of order-by fields (in order) of the last record of previous page, followed by its id if 
+	 * order-by fields are not unique
+	 * @param index Parameter index from which key values can be found (in order)
+	 * @param methodDesc Method description used in errors
+	 */
+	public void addKeysetConditions(List<Object> keyValues, int index, String methodDesc)
+	{
+		if(orderByFields.isEmpty())
+		{
+			throw new InvalidArgumentException("Keyset paging is used without order-by fields in {}", methodDesc);
+		}
+		
+		addIdOrderTieBreaker();
+		
+		if(keyValues.size() != orderByFields.size())
+		{
+			if(idOrderTieBreakerAdded)
+			{
+				throw new InvalidArgumentException("Keyset value count {} does not match with order-by field count {} in {}. As order-by "
+						+ "fields are not unique, id of the last record should be specified as last key value", 
+						keyValues.size(), orderByFields.size(), methodDesc);
+			}
+			
+			throw new InvalidArgumentException("Keyset value count {} does not match with order-by field count {} in {}", 
+					keyValues.size(), orderByFields.size(), methodDesc);
+		}
+		
+		if(keyValues.contains(null))
+		{
+			throw new InvalidArgumentException("Null value is specified as keyset value in {}", methodDesc);
+		}
+		
+		Condition rootCondition = null, groupHead = null, condition = null;
+		ResultField field = null;
+		
+		//for each field add condition - previous fields are equal and current field follows key value
+		for(int i = 0; i < orderByFields.size(); i++)
+		{
+			groupHead = null;
+			
+			for(int j = 0; j <= i; j++)
+			{
+				field = orderByFields.get(j);
+				
+				condition = new Condition(keysetOperator(field, j < i), index + j, null, field.property, 
+						(groupHead == null && i > 0) ? JoinOperator.OR : JoinOperator.AND, false, false);
+				condition.fieldDetails = field.fieldDetails;
+				condition.table = field.table;
+				
+				if(groupHead == null)
+				{
+					groupHead = condition;
+				}
+				else
+				{
+					groupHead.addCondition(condition);
+				}
+			}
+			
+			if(rootCondition == null)
+			{
+				rootCondition = groupHead;
+				conditions.add(rootCondition);
+			}
+			else
+			{
+				rootCondition.addCondition(groupHead);
+			}
+		}
+	}
+	
+	/**
+	 * Fetches operator to be used for keyset condition of specified order field.
+	 * @param field Order-by field
+	 * @param equality Whether equality operator is required
+	 * @return Matching operator
+	 */
+	private Operator keysetOperator(ResultField field, boolean equality)
+	{
+		if(equality)
+		{
+			return Operator.EQ;
+		}
+		
+		return (field.orderType == OrderByType.DESC) ? Operator.LT : Operator.GT;
 	}
 
 	/**
@@ -1123,6 +1381,7 @@ public class ConditionQueryBuilder implements Cloneable
 			newBuilder.orderByFields = new ArrayList<>(orderByFields);
 			newBuilder.propToTable = new HashMap<>(propToTable);
 			newBuilder.resultFields = new ArrayList<>(resultFields);
+			newBuilder.resultMapper = null;
 
 			return newBuilder;
 		} catch(CloneNotSupportedException ex)
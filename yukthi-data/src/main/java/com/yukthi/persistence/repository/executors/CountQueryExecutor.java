@@ -4,7 +4,6 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -35,7 +34,6 @@ public class CountQueryExecutor extends QueryExecutor
 			Integer.class, int.class
 	));
 	
-	private ReentrantLock queryLock = new ReentrantLock();
 	private Class<?> returnType;
 	private ConditionQueryBuilder conditionQueryBuilder;
 	private String methodDesc;
@@ -57,7 +55,7 @@ public class CountQueryExecutor extends QueryExecutor
 		
 		super.fetchMethodLevelConditions(method, conditionQueryBuilder, methodDesc);
 		
-		this.returnType = method.getReturnType();
+		this.returnType = getReturnType(method);
 		
 		if(!SUPPORTED_RETURN_TYPES.contains(returnType))
 		{
@@ -74,30 +72,22 @@ public class CountQueryExecutor extends QueryExecutor
 	{
 		logger.trace("Started method: execute");
 		
-		queryLock.lock();
+		CountQuery query = new CountQuery(entityDetails);
 		
-		try
-		{
-			CountQuery query = new CountQuery(entityDetails);
-			
-			//set condition values on query
-			conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), query, params);
-			
-			//execute the query and fetch result count
-			long count = dataStore.getCount(query, entityDetails);
-			
-			//if return type is boolean
-			if(boolean.class.equals(this.returnType) || Boolean.class.equals(this.returnType))
-			{
-				return (count > 0);
-			}
-			
-			//convert the count to required return type
-			return ConvertUtils.convert(count, returnType);
-		}finally
+		//set condition values on query
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), query, params);
+		
+		//execute the query and fetch result count
+		long count = dataStore.getCount(query, entityDetails);
+		
+		//if return type is boolean
+		if(boolean.class.equals(this.returnType) || Boolean.class.equals(this.returnType))
 		{
-			queryLock.unlock();
+			return (count > 0);
 		}
+		
+		//convert the count to required return type
+		return ConvertUtils.convert(count, returnType);
 	}
 	
 	
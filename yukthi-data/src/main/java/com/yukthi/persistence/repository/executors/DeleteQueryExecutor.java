@@ -2,8 +2,9 @@ package com.yukthi.persistence.repository.executors;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,11 +20,15 @@ import com.yukthi.persistence.PersistenceException;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.listeners.EntityEventType;
 import com.yukthi.persistence.query.ChildrenExistenceQuery;
+import com.yukthi.persistence.query.DeleteChildrenQuery;
 import com.yukthi.persistence.query.DeleteQuery;
 import com.yukthi.persistence.query.FetchChildrenIdsQuery;
 import com.yukthi.persistence.query.IChildQuery;
 import com.yukthi.persistence.query.QueryCondition;
 import com.yukthi.persistence.repository.InvalidRepositoryException;
+import com.yukthi.persistence.repository.cache.EntityCache;
+import com.yukthi.persistence.repository.search.SearchQuery;
+import com.yukthi.utils.exceptions.NullValueException;
 
 /**
  * Conditions are not mandatory for delete query
@@ -36,10 +41,13 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 	private static Logger logger = LogManager.getLogger(DeleteQueryExecutor.class);
 	
 	private Class<?> returnType;
-	private ReentrantLock queryLock = new ReentrantLock();
 	private ConditionQueryBuilder conditionQueryBuilder;
 	private String methodDesc;
 	
+	/**
+	 * Indicates delete conditions are specified dynamically using search query
+	 */
+	private boolean searchDelete;
 	
 	public DeleteQueryExecutor(Class<?> repositoryType, Method method, EntityDetails entityDetails)
 	{
@@ -49,8 +57,16 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 		conditionQueryBuilder = new ConditionQueryBuilder(entityDetails);
 		methodDesc = String.format("delete method '%s' of repository - '%s'", method.getName(), repositoryType.getName());
 		
+		Class<?> paramTypes[] = method.getParameterTypes();
+		searchDelete = (paramTypes.length == 1 && SearchQuery.class.equals(paramTypes[0]));
+		
+		//for search based delete, conditions are added dynamically during execution
+		if(searchDelete)
+		{
+			logger.debug("Treating {} as search based delete method", methodDesc);
+		}
 		//try to find conditions based on annotations
-		if(!super.fetchConditonsByAnnotations(method, true, conditionQueryBuilder, methodDesc, false))
+		else if(!super.fetchConditonsByAnnotations(method, true, conditionQueryBuilder, methodDesc, false))
 		{
 			//if conditions are not found based on annotations, try to find based on method name
 			super.fetchConditionsByName(method, conditionQueryBuilder, methodDesc);
@@ -58,7 +74,7 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 		
 		super.fetchMethodLevelConditions(method, conditionQueryBuilder, methodDesc);
 		
-		returnType = method.getReturnType();
+		returnType = getReturnType(method);
 		
 		if(!boolean.class.equals(returnType) && !void.class.equals(returnType) && !int.class.equals(returnType))
 		{
@@ -66,13 +82,17 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 		}
 	}
 	
-	private void populateChildQuery(ForeignConstraintDetails childConstraint, DeleteQuery deleteQuery, IChildQuery childQuery, 
-			IDataStore dataStore, ConversionService conversionService, Object... params)
+	private void populateChildQuery(ForeignConstraintDetails childConstraint, DeleteQuery deleteQuery, FetchChildrenIdsQuery parentIdQuery, IChildQuery childQuery)
 	{
 		logger.trace("Started method: populateChildQuery");
 		
+		//if parent is a child entity of entity being deleted, use parent id query to find parent records
+		if(parentIdQuery != null)
+		{
+			childQuery.setParentIdQuery(parentIdQuery);
+		}
 		//add conditions from main delete query as parent conditions
-		if(deleteQuery.getConditions() != null)
+		else if(deleteQuery.getConditions() != null)
 		{
 			for(QueryCondition condition: deleteQuery.getConditions())
 			{
@@ -88,19 +108,112 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 		childQuery.addMapping( ownerFieldDetails.getDbColumnName(), childTargetEntity.getIdField().getDbColumnName());
 	}
 	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.repository.executors.QueryExecutor#getModifiedTables()
+	 */
+	@Override
+	protected Set<String> getModifiedTables()
+	{
+		//child constraints get added as child entities are loaded, so cascaded tables are computed every time
+		Set<String> tables = new HashSet<>(super.getModifiedTables());
+		addCascadedTables(entityDetails, tables, new HashSet<>());
+		
+		return tables;
+	}
+	
+	/**
+	 * Adds tables of child entities (recursively) whose records get deleted along with specified entity.
+	 * @param parentEntityDetails Entity being deleted
+	 * @param tables Collection to which tables should be added
+	 * @param entityTypes Entity types processed so far, used to avoid cyclic relations
+	 */
+	private void addCascadedTables(EntityDetails parentEntityDetails, Set<String> tables, Set<Class<?>> entityTypes)
+	{
+		if(!entityTypes.add(parentEntityDetails.getEntityType()))
+		{
+			return;
+		}
+		
+		for(ForeignConstraintDetails childConstraint : parentEntityDetails.getChildConstraints())
+		{
+			if(childConstraint.getJoinTableDetails() != null)
+			{
+				tables.add(childConstraint.getJoinTableDetails().getTableName());
+			}
+			
+			if(!childConstraint.isDeleteCascaded())
+			{
+				continue;
+			}
+			
+			tables.add(childConstraint.getOwnerEntityDetails().getTableName());
+			addCascadedTables(childConstraint.getOwnerEntityDetails(), tables, entityTypes);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.repository.executors.QueryExecutor#invalidateCaches(java.lang.Object)
+	 */
+	@Override
+	protected void invalidateCaches(Object id)
+	{
+		super.invalidateCaches(id);
+		invalidateCascadedCaches(entityDetails, new HashSet<>());
+	}
+	
+	/**
+	 * Clears entity caches of child entities (recursively) whose records get deleted along with specified entity. As child
+	 * records deleted by db (using ON DELETE CASCADE) are not known, complete child caches are cleared.
+	 * @param parentEntityDetails Entity being deleted
+	 * @param entityTypes Entity types processed so far, used to avoid cyclic relations
+	 */
+	private void invalidateCascadedCaches(EntityDetails parentEntityDetails, Set<Class<?>> entityTypes)
+	{
+		if(!entityTypes.add(parentEntityDetails.getEntityType()))
+		{
+			return;
+		}
+		
+		EntityCache childCache = null;
+		
+		for(ForeignConstraintDetails childConstraint : parentEntityDetails.getChildConstraints())
+		{
+			if(!childConstraint.isDeleteCascaded())
+			{
+				continue;
+			}
+			
+			childCache = persistenceExecutionContext.getRepositoryFactory().getEntityCacheManager().getCache(childConstraint.getOwnerEntityDetails().getEntityType());
+			
+			if(childCache != null)
+			{
+				childCache.invalidateAll();
+			}
+			
+			invalidateCascadedCaches(childConstraint.getOwnerEntityDetails(), entityTypes);
+		}
+	}
+	
 	/**
 	 * Based on the "deleteCascade" enabled on child tables, child entities will be deleted recursively. 
 	 * If deleteCascade is false, then this method ensures no child entities are refering the entity being deleted. If not an error will be thrown.
 	 * Note - This functionality is mainly required for NO SQL DBs.
-	 * @param dataStore
-	 * @param conversionService
-	 * @param params
+	 * 
+	 * Children are deleted using single statement per relation, where the parent records are identified using nested queries built 
+	 * from main delete conditions. Deepest relations are processed first, so that parent records are available while deleting children.
+	 * 
+	 * @param dataStore Data store to use
+	 * @param parentEntityDetails Entity whose child constraints needs to be processed
+	 * @param deleteQuery Main delete query
+	 * @param parentIdQuery Query to fetch ids of parent records. Null, if parent is the entity being deleted
+	 * @param entityTypes Entity types from entity being deleted to current parent, used to detect cyclic relations
 	 */
-	private void processChildConstraints(IDataStore dataStore, DeleteQuery deleteQuery, ConversionService conversionService, Object... params)
+	private void processChildConstraints(IDataStore dataStore, EntityDetails parentEntityDetails, DeleteQuery deleteQuery, 
+			FetchChildrenIdsQuery parentIdQuery, Set<Class<?>> entityTypes)
 	{
 		logger.trace("Started method: processChildConstraints");
 		
-		List<ForeignConstraintDetails> childConstraints = entityDetails.getChildConstraints();
+		List<ForeignConstraintDetails> childConstraints = parentEntityDetails.getChildConstraints();
 		
 		//if no child constraints are defined
 		if(childConstraints == null || childConstraints.isEmpty())
@@ -108,47 +221,71 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 			return;
 		}
 		
-		//DeleteChildrenQuery deleteChildQuery = null;
+		EntityDetails childEntityDetails = null;
 		ChildrenExistenceQuery childrenExistenceQuery = null;
 		
 		//loop through child constraints
 		for(ForeignConstraintDetails childConstraint: childConstraints)
 		{
-			//if delete cascade is enabled
-			if(childConstraint.isDeleteCascaded())
+			childEntityDetails = childConstraint.getOwnerEntityDetails();
+			
+			//if delete cascade is not enabled
+			if(!childConstraint.isDeleteCascaded())
 			{
-				//fetch child entity ids referring to current entity
-				//  This is needed to perform delete recursively
-				FetchChildrenIdsQuery fetchChildrenIdsQuery = new FetchChildrenIdsQuery(childConstraint.getOwnerEntityDetails(), entityDetails);
-				populateChildQuery(childConstraint, deleteQuery, fetchChildrenIdsQuery, dataStore, conversionService, params);
+				//check if any child entities are referring to current entity
+				childrenExistenceQuery = new ChildrenExistenceQuery(childEntityDetails, parentEntityDetails);
+				populateChildQuery(childConstraint, deleteQuery, parentIdQuery, childrenExistenceQuery);
 				
+				if(dataStore.checkChildrenExistence(childrenExistenceQuery) > 0)
+				{
+					throw new ChildConstraintViolationException(childConstraint.getConstraintName(), "Found child items of type '" 
+									+ childEntityDetails.getEntityType().getName() + "'");
+				}
+				
+				continue;
+			}
+			
+			FetchChildrenIdsQuery fetchChildrenIdsQuery = new FetchChildrenIdsQuery(childEntityDetails, parentEntityDetails);
+			populateChildQuery(childConstraint, deleteQuery, parentIdQuery, fetchChildrenIdsQuery);
+			
+			//for cyclic relations (like self references) nesting can not be done. So delete child entities one by one
+			if(entityTypes.contains(childEntityDetails.getEntityType()))
+			{
 				List<Object> childrenIds = dataStore.fetchChildrenIds(fetchChildrenIdsQuery);
 				
 				//if child entities are present
 				if(childrenIds != null)
 				{
 					//execute delete on child entities recursively 
-					ICrudRepository<?> childRepository = super.getCrudRepository(childConstraint.getOwnerEntityDetails().getEntityType());
+					ICrudRepository<?> childRepository = super.getCrudRepository(childEntityDetails.getEntityType());
 					
 					for(Object childId: childrenIds)
 					{
 						childRepository.deleteById(childId);
 					}
 				}
+				
+				continue;
 			}
-			//if delete cascade is not enabled
-			else
+			
+			//delete the grand children, before deleting the children
+			Set<Class<?>> childEntityTypes = new HashSet<>(entityTypes);
+			childEntityTypes.add(childEntityDetails.getEntityType());
+			
+			processChildConstraints(dataStore, childEntityDetails, deleteQuery, fetchChildrenIdsQuery, childEntityTypes);
+
+			DeleteChildrenQuery deleteChildrenQuery = new DeleteChildrenQuery(childEntityDetails, parentEntityDetails);
+			populateChildQuery(childConstraint, deleteQuery, parentIdQuery, deleteChildrenQuery);
+			
+			int count = dataStore.deleteChildren(deleteChildrenQuery);
+			logger.debug("Deleted {} child records of type: {}", count, childEntityDetails.getEntityType().getName());
+			
+			//as deleted child entities are not known, clear all cached child entities
+			EntityCache childCache = persistenceExecutionContext.getRepositoryFactory().getEntityCacheManager().getCache(childEntityDetails);
+			
+			if(childCache != null)
 			{
-				//check if any child entities are referring to current entity
-				childrenExistenceQuery = new ChildrenExistenceQuery(childConstraint.getOwnerEntityDetails(), entityDetails);
-				
-				populateChildQuery(childConstraint, deleteQuery, childrenExistenceQuery, dataStore, conversionService, params);
-				
-				if(dataStore.checkChildrenExistence(childrenExistenceQuery) > 0)
-				{
-					throw new ChildConstraintViolationException(childConstraint.getConstraintName(), "Found child items of type '" 
-									+ childConstraint.getOwnerEntityDetails().getEntityType().getName() + "'");
-				}
+				childCache.invalidateAll();
 			}
 		}
 	}
@@ -161,31 +298,58 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 	{
 		logger.trace("Started method: execute");
 		
-		queryLock.lock();
+		ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder;
+		Object conditionParams[] = params;
 		
-		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
+		//for search based delete, add search conditions to a copy of builder
+		if(searchDelete)
 		{
-			if(super.isListenerAvailable(EntityEventType.PRE_DELETE))
+			SearchQuery searchQuery = (SearchQuery)params[0];
+			
+			if(searchQuery == null)
 			{
-				//TODO: If listeners are available use delete query conditions to fetch entity ids
-					// and for each entity id invoke listeners
+				throw new NullValueException("Null search query is passed to {}", methodDesc);
 			}
 			
-			DeleteQuery deleteQuery = new DeleteQuery(entityDetails);
-			conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), deleteQuery, params);
+			conditionQueryBuilder = this.conditionQueryBuilder.clone();
+			conditionParams = super.addSearchConditions(searchQuery, conditionQueryBuilder, methodDesc).toArray();
+		}
+		
+		DeleteQuery deleteQuery = new DeleteQuery(entityDetails);
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), deleteQuery, conditionParams);
+		
+		if(searchDelete)
+		{
+			super.checkForJoins(deleteQuery, methodDesc);
+		}
+		
+		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
+		{
+			List<Object> entityIds = null;
+			
+			//if listeners are available, fetch ids of entities being deleted, so that single bulk event can be raised
+			if(super.isListenerAvailable(EntityEventType.PRE_DELETE) || super.isListenerAvailable(EntityEventType.POST_DELETE))
+			{
+				entityIds = super.fetchMatchingIds(context, dataStore, conditionQueryBuilder, conditionParams);
+				super.notifyBulkEntityEvent(entityIds, EntityEventType.PRE_DELETE);
+			}
 			
 			//if datastore requires explicit child delete handling (like NOSQL DBs)
 			if(dataStore.isExplicitForeignCheckRequired())
 			{
-				processChildConstraints(dataStore, deleteQuery, conversionService, params);
+				Set<Class<?>> entityTypes = new HashSet<>();
+				entityTypes.add(entityDetails.getEntityType());
+				
+				processChildConstraints(dataStore, entityDetails, deleteQuery, null, entityTypes);
 			}
 
+			//as deleted entities are not known, clear all cached entities
+			super.invalidateCaches(transaction, null);
 			int res = dataStore.delete(deleteQuery, entityDetails);
 			
-			if(res > 0 && super.isListenerAvailable(EntityEventType.POST_DELETE))
+			if(res > 0 && entityIds != null)
 			{
-				//TODO: If listeners are available use delete query conditions to fetch entity ids
-					// and for each entity id invoke listeners
+				super.notifyBulkEntityEvent(entityIds, EntityEventType.POST_DELETE);
 			}
 
 			transaction.commit();
@@ -201,9 +365,6 @@ public class DeleteQueryExecutor extends AbstractPersistQueryExecutor
 		}catch(Exception ex)
 		{
 			throw new PersistenceException("An error occured while deleting entity", ex);
-		}finally
-		{
-			queryLock.unlock();
 		}
 		
 	}
@@ -5,28 +5,32 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.yukthi.ccg.util.CCGUtility;
 import com.yukthi.persistence.EntityDetails;
+import com.yukthi.persistence.ICrudRepository;
 import com.yukthi.persistence.IDataStore;
 import com.yukthi.persistence.Record;
 import com.yukthi.persistence.RecordCountMistmatchException;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.query.FinderQuery;
+import com.yukthi.persistence.repository.cache.EntityCache;
 
 @QueryExecutorPattern(prefixes = {"find", "fetch"})
 public class FinderQueryExecutor extends AbstractSearchQuery
 {
 	private static Logger logger = LogManager.getLogger(FinderQueryExecutor.class);
 	
-	private ReentrantLock queryLock = new ReentrantLock();
-	
 	private int customFieldsIndex = -1;
 	
+	/**
+	 * Indicates current method is findById() of crud repository, whose results can be served from second level cache
+	 */
+	private boolean idFinder = false;
+	
 	public FinderQueryExecutor(Class<?> repositoryType, Method method, EntityDetails entityDetails)
 	{
 		super.repositoryType = repositoryType;
@@ -47,6 +51,29 @@ public class FinderQueryExecutor extends AbstractSearchQuery
 		super.fetchOrderDetails(method);
 		
 		customFieldsIndex = super.getExtendedFieldParam(method);
+		
+		idFinder = ICrudRepository.class.equals(method.getDeclaringClass()) && "findById".equals(method.getName());
+	}
+	
+	/**
+	 * Fetches entity cache to be used for current execution. Cache is not used when a transaction is in progress
+	 * as the transaction may see (or may populate the cache with) uncommitted changes.
+	 * @param dataStore Data store in use
+	 * @return Entity cache, null if cache should not be used
+	 */
+	private EntityCache getIdFinderCache(IDataStore dataStore)
+	{
+		if(!idFinder || !entityDetails.isCacheable())
+		{
+			return null;
+		}
+		
+		if(dataStore.getTransactionManager().isTransactionInProgress())
+		{
+			return null;
+		}
+		
+		return super.getEntityCache();
 	}
 	
 
@@ -59,89 +86,111 @@ public class FinderQueryExecutor extends AbstractSearchQuery
 	{
 		logger.trace("Started method: execute");
 		
-		queryLock.lock();
+		ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder;
 		
-		try
+		if(this.customFieldsIndex >= 0)
 		{
-			ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder;
+			Collection<String> customFieldNames = (Collection<String>) params[customFieldsIndex];
 			
-			if(this.customFieldsIndex >= 0)
+			if(customFieldNames != null && !customFieldNames.isEmpty())
 			{
-				Collection<String> customFieldNames = (Collection<String>) params[customFieldsIndex];
+				conditionQueryBuilder = this.conditionQueryBuilder.clone();
+				String prefix = entityDetails.getExtendedTableDetails().getEntityField().getName();
 				
-				if(customFieldNames != null && !customFieldNames.isEmpty())
+				for(String custFld : customFieldNames)
 				{
-					conditionQueryBuilder = this.conditionQueryBuilder.clone();
-					String prefix = entityDetails.getExtendedTableDetails().getEntityField().getName();
-					
-					for(String custFld : customFieldNames)
-					{
-						conditionQueryBuilder.addResultField("@" + custFld, String.class, prefix + "." + custFld, super.methodDesc);
-					}
+					conditionQueryBuilder.addResultField("@" + custFld, String.class, prefix + "." + custFld, super.methodDesc);
 				}
 			}
-			
-			FinderQuery finderQuery = new FinderQuery(entityDetails);
+		}
+		
+		FinderQuery finderQuery = new FinderQuery(entityDetails);
 
-			//set the result fields, conditions and tables details on finder query
-			conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), finderQuery, params);
-			
-			//add order-by fields
-			conditionQueryBuilder.loadOrderByFields(finderQuery);
-			
-			//execute the query and fetch records
-			List<Record> records = dataStore.executeFinder(finderQuery, entityDetails, null);
+		//set the result fields, conditions and tables details on finder query
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), finderQuery, params);
+		
+		//add order-by fields
+		conditionQueryBuilder.loadOrderByFields(finderQuery);
+		
+		//if results are expected as stream, records will be fetched and converted when stream is consumed
+		if(streamResult)
+		{
+			return toResultStream(dataStore.streamFinder(finderQuery, entityDetails, null), conditionQueryBuilder, conversionService);
+		}
+		
+		EntityCache entityCache = getIdFinderCache(dataStore);
+		long cacheGeneration = 0;
+		List<Record> records = null;
+		
+		//if entity is found in second level cache, use cached record instead of executing the query
+		if(entityCache != null)
+		{
+			Record cachedRecord = entityCache.get(params[0]);
 			
-			//if no results found
-			if(records == null || records.isEmpty())
+			if(cachedRecord != null)
 			{
-				//if primitive return type is expected simply return default value
-				if(collectionReturnType == null)
-				{
-					return returnType.isPrimitive() ? CCGUtility.getDefaultPrimitiveValue(returnType) : null;
-				}
-
-				try
-				{
-					return collectionReturnType.newInstance();
-				}catch(Exception ex)
-				{
-					throw new IllegalStateException("An error occurred while creating return collection: " + collectionReturnType.getName(), ex);
-				}
-			}
-
-			//if single element is expected as result
-			if(collectionReturnType == null)
-			{
-				if(records.size() > 1)
-				{
-					throw new RecordCountMistmatchException("Multiple records found when single record is expected.");
-				}
-				
 				ArrayList<Object> resLst = new ArrayList<>();
-				conditionQueryBuilder.parseResults(Arrays.asList(records.get(0)), (Class)returnType, resLst, conversionService, persistenceExecutionContext);
+				conditionQueryBuilder.parseResults(Arrays.asList(cachedRecord), (Class)returnType, resLst, conversionService, persistenceExecutionContext);
 				return resLst.get(0);
 			}
-	
-			//if collection of objects are expected as result
-			Collection<Object> lst = null;
 			
+			cacheGeneration = entityCache.getGeneration(params[0]);
+		}
+		
+		//execute the query and fetch records
+		records = dataStore.executeFinder(finderQuery, entityDetails, null);
+		
+		if(entityCache != null && records != null && records.size() == 1)
+		{
+			entityCache.put(params[0], records.get(0), cacheGeneration);
+		}
+		
+		//if no results found
+		if(records == null || records.isEmpty())
+		{
+			//if primitive return type is expected simply return default value
+			if(collectionReturnType == null)
+			{
+				return returnType.isPrimitive() ? CCGUtility.getDefaultPrimitiveValue(returnType) : null;
+			}
+
 			try
 			{
-				lst = (Collection)collectionReturnType.newInstance();
+				return collectionReturnType.newInstance();
 			}catch(Exception ex)
 			{
 				throw new IllegalStateException("An error occurred while creating return collection: " + collectionReturnType.getName(), ex);
 			}
+		}
+
+		//if single element is expected as result
+		if(collectionReturnType == null)
+		{
+			if(records.size() > 1)
+			{
+				throw new RecordCountMistmatchException("Multiple records found when single record is expected.");
+			}
 			
-			//parse records into required types
-			conditionQueryBuilder.parseResults(records, (Class)returnType, lst, conversionService, persistenceExecutionContext);
-			
-			return lst;
-		}finally
+			ArrayList<Object> resLst = new ArrayList<>();
+			conditionQueryBuilder.parseResults(Arrays.asList(records.get(0)), (Class)returnType, resLst, conversionService, persistenceExecutionContext);
+			return resLst.get(0);
+		}
+
+		//if collection of objects are expected as result
+		Collection<Object> lst = null;
+		
+		try
+		{
+			lst = (Collection)collectionReturnType.newInstance();
+		}catch(Exception ex)
 		{
-			queryLock.unlock();
+			throw new IllegalStateException("An error occurred while creating return collection: " + collectionReturnType.getName(), ex);
 		}
+		
+		//parse records into required types
+		conditionQueryBuilder.parseResults(records, (Class)returnType, lst, conversionService, persistenceExecutionContext);
+		
+		return lst;
 	}
 	
 	
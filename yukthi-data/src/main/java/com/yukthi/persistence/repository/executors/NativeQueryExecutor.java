@@ -19,11 +19,13 @@ import org.apache.logging.log4j.Logger;
 
 import com.yukthi.persistence.EntityDetails;
 import com.yukthi.persistence.IDataStore;
+import com.yukthi.persistence.ITransaction;
 import com.yukthi.persistence.Record;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.repository.InvalidRepositoryException;
 import com.yukthi.persistence.repository.annotations.NativeQuery;
 import com.yukthi.persistence.repository.annotations.NativeQueryType;
+import com.yukthi.persistence.repository.cache.QueryResultCache;
 import com.yukthi.utils.ConvertUtils;
 import com.yukthi.utils.ReflectionUtils;
 import com.yukthi.utils.exceptions.InvalidStateException;
@@ -75,7 +77,7 @@ public class NativeQueryExecutor extends QueryExecutor
 
 		//fetch native query details
 		nativeQueryAnnotation = method.getAnnotation(NativeQuery.class);
-		returnType = method.getReturnType();
+		returnType = getReturnType(method);
 		
 		//validate parameters
 		Class<?> parameterTypes[] = method.getParameterTypes();
@@ -114,7 +116,7 @@ public class NativeQueryExecutor extends QueryExecutor
 					}
 				}
 
-				returnType = (Class<?>)((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0];
+				returnType = (Class<?>)((ParameterizedType) getGenericReturnType(method)).getActualTypeArguments()[0];
 			}
 			
 			//load the return type fields
@@ -215,6 +217,20 @@ public class NativeQueryExecutor extends QueryExecutor
 		return result;
 	}
 
+	/**
+	 * Removes all cached search results, as tables modified by native queries are not known. Results are removed immediately 
+	 * and again when specified transaction is actually closed, so that results cached by other threads before actual commit
+	 * do not remain stale.
+	 * @param transaction Transaction in which native query is executed
+	 */
+	private void invalidateQueryResults(ITransaction transaction)
+	{
+		QueryResultCache queryResultCache = persistenceExecutionContext.getRepositoryFactory().getQueryResultCache();
+		
+		queryResultCache.invalidateAll();
+		transaction.addCloseListener(this, queryResultCache::invalidateAll);
+	}
+
 	/**
 	 * Executes the target query
 	 * @param dataStore
@@ -275,14 +291,29 @@ public class NativeQueryExecutor extends QueryExecutor
 			//if current query is DML query
 			else
 			{
-				int res = dataStore.executeNativeDml(nativeQueryAnnotation.name(), context);
-				
-				if(boolean.class.equals(returnType))
+				try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
+				{
+					invalidateQueryResults(transaction);
+					int res = dataStore.executeNativeDml(nativeQueryAnnotation.name(), context);
+					
+					transaction.commit();
+					
+					if(boolean.class.equals(returnType))
+					{
+						return (res > 0);
+					}
+					
+					return res;
+				}catch(Exception ex)
 				{
-					return (res > 0);
+					//rethrow the catched exception
+					if(ex instanceof RuntimeException)
+					{
+						throw (RuntimeException)ex;
+					}
+					
+					throw new IllegalStateException(ex);
 				}
-				
-				return res;
 			}
 		}finally
 		{
@@ -3,8 +3,18 @@ package com.yukthi.persistence.repository.executors;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.TypeUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -13,6 +23,7 @@ import com.yukthi.persistence.EntityDetails;
 import com.yukthi.persistence.FieldDetails;
 import com.yukthi.persistence.ICrudRepository;
 import com.yukthi.persistence.IDataStore;
+import com.yukthi.persistence.ITransaction;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.listeners.EntityEventType;
 import com.yukthi.persistence.repository.InvalidRepositoryException;
@@ -26,6 +37,9 @@ import com.yukthi.persistence.repository.annotations.JoinOperator;
 import com.yukthi.persistence.repository.annotations.MethodConditions;
 import com.yukthi.persistence.repository.annotations.NullCheck;
 import com.yukthi.persistence.repository.annotations.Operator;
+import com.yukthi.persistence.repository.cache.EntityCache;
+import com.yukthi.persistence.repository.search.SearchCondition;
+import com.yukthi.persistence.repository.search.SearchQuery;
 import com.yukthi.utils.annotations.RecursiveAnnotationFactory;
 
 public abstract class QueryExecutor
@@ -39,6 +53,11 @@ public abstract class QueryExecutor
 	
 	protected RecursiveAnnotationFactory recursiveAnnotationFactory = new RecursiveAnnotationFactory();
 	
+	/**
+	 * Tables modified by current executor, computed on first use
+	 */
+	private volatile Set<String> modifiedTables;
+	
 	public void setPersistenceExecutionContext(PersistenceExecutionContext persistenceExecutionContext)
 	{
 		this.persistenceExecutionContext = persistenceExecutionContext;
@@ -60,6 +79,17 @@ public abstract class QueryExecutor
 		factory.getEntityListenerManager().handleEventType(entityDetails.getEntityType(), factory, key, entity, eventType);
 	}
 	
+	/**
+	 * Notifies entity listeners, if any, with single bulk event for specified entity ids.
+	 * @param entityIds Ids of the entities affected
+	 * @param eventType Type of the event
+	 */
+	protected void notifyBulkEntityEvent(List<Object> entityIds, EntityEventType eventType)
+	{
+		RepositoryFactory factory = persistenceExecutionContext.getRepositoryFactory();
+		factory.getEntityListenerManager().handleBulkEvent(entityDetails.getEntityType(), factory, entityIds, eventType);
+	}
+	
 	/**
 	 * Checks if listener is available for specified event
 	 * @param eventType
@@ -71,8 +101,235 @@ public abstract class QueryExecutor
 		return factory.getEntityListenerManager().isListenerPresent(entityDetails.getEntityType(), eventType);
 	}
 	
+	/**
+	 * Fetches second level cache of current entity.
+	 * @return Entity cache, null if caching is not enabled for current entity
+	 */
+	protected EntityCache getEntityCache()
+	{
+		if(!entityDetails.isCacheable())
+		{
+			return null;
+		}
+		
+		return persistenceExecutionContext.getRepositoryFactory().getEntityCacheManager().getCache(entityDetails);
+	}
+	
+	/**
+	 * Fetches the tables which may get modified when entities of current type are modified. Tables are computed 
+	 * using {@link #fetchModifiedTables()} on first use.
+	 * @return Tables modified by current executor
+	 */
+	protected Set<String> getModifiedTables()
+	{
+		Set<String> tables = this.modifiedTables;
+		
+		if(tables == null)
+		{
+			tables = fetchModifiedTables();
+			this.modifiedTables = tables;
+		}
+		
+		return tables;
+	}
+	
+	/**
+	 * Computes the tables which may get modified when entities of current type are modified. By default, this includes entity
+	 * table, extension table and join tables of the entity.
+	 * @return Tables modified by current executor
+	 */
+	protected Set<String> fetchModifiedTables()
+	{
+		Set<String> tables = new HashSet<>();
+		tables.add(entityDetails.getTableName());
+		
+		if(entityDetails.getExtendedTableDetails() != null)
+		{
+			tables.add(entityDetails.getExtendedTableDetails().getTableName());
+		}
+		
+		for(FieldDetails field : entityDetails.getFieldDetails())
+		{
+			if(field.getForeignConstraintDetails() != null && field.getForeignConstraintDetails().getJoinTableDetails() != null)
+			{
+				tables.add(field.getForeignConstraintDetails().getJoinTableDetails().getTableName());
+			}
+		}
+		
+		return tables;
+	}
+	
+	/**
+	 * Removes cached search results which are using tables of current entity.
+	 */
+	protected void invalidateQueryResults()
+	{
+		persistenceExecutionContext.getRepositoryFactory().getQueryResultCache().invalidate(getModifiedTables());
+	}
+	
+	/**
+	 * Removes entity with specified id from second level cache, if caching is enabled for current entity. 
+	 * If id is null, all the cached entities will be removed. Cached search results using tables of current
+	 * entity are removed as well.
+	 * @param id Id of the entity to be removed
+	 */
+	protected void invalidateCaches(Object id)
+	{
+		invalidateQueryResults();
+		
+		EntityCache entityCache = getEntityCache();
+		
+		if(entityCache == null)
+		{
+			return;
+		}
+		
+		if(id == null)
+		{
+			entityCache.invalidateAll();
+			return;
+		}
+		
+		entityCache.invalidate(id);
+	}
+	
+	/**
+	 * Invalidates caches (as done by {@link #invalidateCaches(Object)}) as part of modification done in specified transaction. 
+	 * Caches are invalidated immediately, so that fetches in progress are not cached, and again when the transaction is 
+	 * actually closed. As commit on existing (outer) transaction does not commit the changes, records cached by other threads 
+	 * before actual commit would otherwise remain stale.
+	 * @param transaction Transaction in which modification is done
+	 * @param id Id of the entity being modified, null if all entities needs to be invalidated
+	 */
+	protected void invalidateCaches(ITransaction transaction, Object id)
+	{
+		invalidateCaches(id);
+		transaction.addCloseListener(Arrays.asList(this, id), () -> invalidateCaches(id));
+	}
+	
 	public abstract Object execute(QueryExecutionContext context, IDataStore dataStore, ConversionService conversionService, Object... params);
 	
+	/**
+	 * Adds conditions of specified search query to specified builder, so that they will be validated.
+	 * @param searchQuery Search query whose conditions needs to be added
+	 * @param conditionQueryBuilder Builder to which conditions should be added
+	 * @param methodDesc Description of method being executed, used in error messages
+	 * @return Condition values, in the order of condition indexes
+	 */
+	protected List<Object> addSearchConditions(SearchQuery searchQuery, ConditionQueryBuilder conditionQueryBuilder, String methodDesc)
+	{
+		List<Object> conditionParams = new ArrayList<>();
+		
+		if(searchQuery.getConditions() == null)
+		{
+			return conditionParams;
+		}
+		
+		for(SearchCondition condition : searchQuery.getConditions())
+		{
+			addSearchConditionRecursively(condition, conditionQueryBuilder, conditionParams, null, methodDesc);
+		}
+		
+		return conditionParams;
+	}
+	
+	/**
+	 * Adds search condition recursively to specified builder
+	 * @param condition
+	 * @param conditionQueryBuilder
+	 * @param conditionParams
+	 * @param groupHead
+	 * @param methodDesc
+	 */
+	private void addSearchConditionRecursively(SearchCondition condition, ConditionQueryBuilder conditionQueryBuilder, List<Object> conditionParams, 
+			ConditionQueryBuilder.Condition groupHead, String methodDesc)
+	{
+		ConditionQueryBuilder.Condition builderCondition = null;
+		boolean ignoreCase = ((condition.getValue() instanceof String) && condition.isIgnoreCase());
+		
+		builderCondition = conditionQueryBuilder.addCondition(groupHead, condition.getOperator(), conditionParams.size(), null, 
+				condition.getField(), condition.getJoinOperator(), methodDesc, condition.isNullable(), ignoreCase, null);
+		
+		conditionParams.add(condition.getValue());
+		
+		//if no group conditions are present ignore
+		if(condition.getGroupedConditions() == null)
+		{
+			return;
+		}
+		
+		//add group conditions recursively
+		for(SearchCondition grpCondition : condition.getGroupedConditions())
+		{
+			addSearchConditionRecursively(grpCondition, conditionQueryBuilder, conditionParams, builderCondition, methodDesc);
+		}
+	}
+	
+	/**
+	 * Checks if specified repository method is an async method, that is, method with return type {@link CompletableFuture}
+	 * (or {@link CompletionStage}).
+	 * @param method Method to check
+	 * @return true if method is async
+	 */
+	public static boolean isAsyncMethod(Method method)
+	{
+		Class<?> returnType = method.getReturnType();
+		return CompletableFuture.class.equals(returnType) || CompletionStage.class.equals(returnType);
+	}
+	
+	/**
+	 * Fetches the generic return type of specified method. For async methods, type argument of the future
+	 * is returned.
+	 * @param method Method whose return type needs to be fetched
+	 * @return Effective generic return type
+	 */
+	protected Type getGenericReturnType(Method method)
+	{
+		if(!isAsyncMethod(method))
+		{
+			return method.getGenericReturnType();
+		}
+		
+		if(!(method.getGenericReturnType() instanceof ParameterizedType))
+		{
+			throw new InvalidRepositoryException("Non-parameterized future return type found on async method '" 
+						+ method.getName() + "' of repository: " + repositoryType.getName());
+		}
+		
+		return ((ParameterizedType)method.getGenericReturnType()).getActualTypeArguments()[0];
+	}
+	
+	/**
+	 * Fetches the return type of specified method. For async methods, type argument of the future is returned, with 
+	 * wrapper types converted to primitive types (and Void to void), so that async methods are validated and executed 
+	 * the same way as sync methods.
+	 * @param method Method whose return type needs to be fetched
+	 * @return Effective return type
+	 */
+	protected Class<?> getReturnType(Method method)
+	{
+		if(!isAsyncMethod(method))
+		{
+			return method.getReturnType();
+		}
+		
+		Class<?> returnType = TypeUtils.getRawType(getGenericReturnType(method), repositoryType);
+		
+		if(returnType == null)
+		{
+			throw new InvalidRepositoryException("Failed to determine future type of async method '" 
+					+ method.getName() + "' of repository: " + repositoryType.getName());
+		}
+		
+		if(Void.class.equals(returnType))
+		{
+			return void.class;
+		}
+		
+		Class<?> primitiveType = ClassUtils.wrapperToPrimitive(returnType);
+		return (primitiveType != null) ? primitiveType : returnType;
+	}
+	
 	private boolean fetchConditionsFromObject(String methodName, Class<?> queryobjType,  
 			int index, ConditionQueryBuilder conditionQueryBuilder, String methodDesc, boolean allowNested)
 	{
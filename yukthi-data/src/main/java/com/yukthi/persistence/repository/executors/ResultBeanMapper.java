@@ -0,0 +1,175 @@
+package com.yukthi.persistence.repository.executors;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang3.ClassUtils;
+
+import com.yukthi.utils.exceptions.InvalidStateException;
+
+/**
+ * Pre-compiled accessors of a result bean type, used to convert query records into beans without going
+ * through reflection for every row. Setters are resolved once per result property, only nested properties
+ * (properties with dots) are set using bean-utils.
+ * @author akiran
+ */
+class ResultBeanMapper
+{
+	/**
+	 * Bean type for which this mapper is built
+	 */
+	private Class<?> beanType;
+
+	/**
+	 * Default constructor handle of bean type, adapted to ()Object
+	 */
+	private MethodHandle constructor;
+
+	/**
+	 * Setter handles of result properties, adapted to (Object, Object)void. Entries will be null
+	 * for properties which are not simple properties of bean.
+	 */
+	private MethodHandle setters[];
+
+	/**
+	 * Types of the result properties (wrapper type in case of primitives)
+	 */
+	private Class<?> propertyTypes[];
+
+	/**
+	 * Instantiates a new mapper for specified bean type and properties.
+	 * @param beanType Bean type to be mapped
+	 * @param properties Result properties to be populated, in the order of result fields
+	 */
+	public ResultBeanMapper(Class<?> beanType, List<String> properties)
+	{
+		this.beanType = beanType;
+		this.setters = new MethodHandle[properties.size()];
+		this.propertyTypes = new Class<?>[properties.size()];
+
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+		try
+		{
+			Constructor<?> defaultConstructor = beanType.getDeclaredConstructor();
+			defaultConstructor.setAccessible(true);
+
+			constructor = lookup.unreflectConstructor(defaultConstructor).asType(MethodType.methodType(Object.class));
+		}catch(Exception ex)
+		{
+			throw new InvalidStateException(ex, "Failed to fetch default constructor of result type: {}", beanType.getName());
+		}
+
+		Map<String, PropertyDescriptor> descriptors = new HashMap<>();
+
+		for(PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(beanType))
+		{
+			descriptors.put(descriptor.getName(), descriptor);
+		}
+
+		PropertyDescriptor descriptor = null;
+		Method writeMethod = null;
+		String property = null;
+
+		for(int i = 0; i < setters.length; i++)
+		{
+			property = properties.get(i);
+			descriptor = (property != null) ? descriptors.get(property) : null;
+			writeMethod = (descriptor != null) ? descriptor.getWriteMethod() : null;
+
+			//for nested or non-bean properties, bean-utils will be used
+			if(writeMethod == null)
+			{
+				continue;
+			}
+
+			try
+			{
+				writeMethod.setAccessible(true);
+
+				setters[i] = lookup.unreflect(writeMethod).asType(MethodType.methodType(void.class, Object.class, Object.class));
+				propertyTypes[i] = ClassUtils.primitiveToWrapper(descriptor.getPropertyType());
+			}catch(Exception ex)
+			{
+				throw new InvalidStateException(ex, "Failed to create setter for property '{}' of result type: {}", property, beanType.getName());
+			}
+		}
+	}
+
+	/**
+	 * Gets the bean type for which this mapper is built.
+	 *
+	 * @return the bean type for which this mapper is built
+	 */
+	public Class<?> getBeanType()
+	{
+		return beanType;
+	}
+
+	/**
+	 * Creates new instance of the bean type
+	 * @return New bean instance
+	 */
+	public Object newInstance()
+	{
+		try
+		{
+			return constructor.invokeExact();
+		}catch(RuntimeException | Error ex)
+		{
+			throw ex;
+		}catch(Throwable ex)
+		{
+			throw new InvalidStateException(ex, "Failed to create instance of result type: {}", beanType.getName());
+		}
+	}
+
+	/**
+	 * Checks if specified value can be set directly on property with specified index, without
+	 * any type conversion.
+	 * @param index Index of the property
+	 * @param value Value to check
+	 * @return true, if value is already of property type
+	 */
+	public boolean isCompatible(int index, Object value)
+	{
+		return propertyTypes[index] != null && propertyTypes[index].isInstance(value);
+	}
+
+	/**
+	 * Sets the value on property with specified index.
+	 * @param bean Bean on which value needs to be set
+	 * @param index Index of the property
+	 * @param property Name of the property, used when property is not a simple property
+	 * @param value Value to set
+	 */
+	public void setProperty(Object bean, int index, String property, Object value) throws Exception
+	{
+		MethodHandle setter = setters[index];
+
+		if(setter == null)
+		{
+			PropertyUtils.setProperty(bean, property, value);
+			return;
+		}
+
+		try
+		{
+			setter.invokeExact(bean, value);
+		}catch(Exception | Error ex)
+		{
+			throw ex;
+		}catch(Throwable ex)
+		{
+			throw new InvalidStateException(ex, "Failed to set property '{}' of result type: {}", property, beanType.getName());
+		}
+	}
+}
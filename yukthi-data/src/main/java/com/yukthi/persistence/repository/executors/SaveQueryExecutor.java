@@ -2,9 +2,11 @@ package com.yukthi.persistence.repository.executors;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -44,8 +46,55 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 	private static Logger logger = LogManager.getLogger(SaveQueryExecutor.class);
 	private static final String COL_UQ_ENTITY_ID = "UQ_ENTITY_ID";
 	
+	/**
+	 * Maximum number of entity uids to be used in single query while fetching ids of batch saved entities
+	 */
+	private static final int MAX_ID_FETCH_SIZE = 100;
+	
+	/**
+	 * Details of entity being saved, which are needed after main entity is saved
+	 * @author akiran
+	 */
+	private static class EntitySaveDetails
+	{
+		private Object entity;
+		
+		private SaveQuery query;
+		
+		/**
+		 * Wrapper object to hold id value
+		 */
+		private ObjectWrapper<Object> idWrapper = new ObjectWrapper<>();
+		
+		/**
+		 * Random unique id of the entity, used to fetch generated id
+		 */
+		private String entityUid = UUID.randomUUID().toString();
+		
+		/**
+		 * Fields that needs to be added to join tables after main entity is saved
+		 */
+		private Map<FieldDetails, Object> tableJoinedFields = new HashMap<>();
+		
+		/**
+		 * Child fields that needs to be saved after main entity is saved
+		 */
+		private Map<FieldDetails, Object> childFields = new HashMap<>();
+		
+		public EntitySaveDetails(Object entity, SaveQuery query)
+		{
+			this.entity = entity;
+			this.query = query;
+		}
+	}
+	
 	private Class<?> returnType;
 	
+	/**
+	 * Indicates this executor is meant for saving collection of entities
+	 */
+	private boolean batchSave;
+	
 	public SaveQueryExecutor(Class<?> repositoryType, Method method, EntityDetails entityDetails)
 	{
 		super.entityDetails = entityDetails;
@@ -59,29 +108,37 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 			throw new InvalidRepositoryException("Non-single parameter save method '" + method.getName() + "' in repository: " + repositoryType.getName());
 		}
 		
-		if(!entityDetails.getEntityType().equals(paramTypes[0]) && !isCoreInterface)
+		batchSave = Collection.class.isAssignableFrom(paramTypes[0]);
+		
+		if(!batchSave && !entityDetails.getEntityType().equals(paramTypes[0]) && !isCoreInterface)
 		{
 			throw new InvalidRepositoryException("Save method '" + method.getName() + "' found with non-entity parameter in repository: " + repositoryType.getName());
 		}
 		
-		returnType = method.getReturnType();
+		returnType = getReturnType(method);
 		
-		if(!boolean.class.equals(returnType) && !void.class.equals(returnType))
+		if(batchSave)
+		{
+			if(!int.class.equals(returnType) && !void.class.equals(returnType))
+			{
+				throw new InvalidRepositoryException("Batch save method '" + method.getName() + "' found with non-int and non-void return type in repository: " + repositoryType.getName());
+			}
+		}
+		else if(!boolean.class.equals(returnType) && !void.class.equals(returnType))
 		{
 			throw new InvalidRepositoryException("Save method '" + method.getName() + "' found with non-boolean and non-void return type in repository: " + repositoryType.getName());
 		}
 	}
 	
-	/* (non-Javadoc)
-	 * @see com.yukthi.persistence.repository.executors.QueryExecutor#execute(com.yukthi.persistence.repository.executors.QueryExecutionContext, com.yukthi.persistence.IDataStore, com.yukthi.persistence.conversion.ConversionService, java.lang.Object[])
+	/**
+	 * Validates specified entity and builds save query for the same.
+	 * @param entity Entity to be saved
+	 * @param dataStore Data store to use
+	 * @param conversionService Conversion service to use
+	 * @return Save details of the entity
 	 */
-	@Override
-	public Object execute(QueryExecutionContext context, IDataStore dataStore, ConversionService conversionService, Object... params)
+	private EntitySaveDetails buildSaveDetails(Object entity, IDataStore dataStore, ConversionService conversionService)
 	{
-		logger.trace("Started method: execute");
-		
-		Object entity = params[0];
-
 		if(entity == null)
 		{
 			throw new NullPointerException("Entity can not be null");
@@ -100,16 +157,11 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 		}
 
 		SaveQuery query = new SaveQuery(entityDetails);
+		EntitySaveDetails saveDetails = new EntitySaveDetails(entity, query);
 		Object value = null;
 		
-		//wrapper object to hold id value
-		ObjectWrapper<Object> idWrapper = new ObjectWrapper<>();
 		ForeignConstraintDetails foreignConstraint = null;
 		
-		//keep track of the fields that needs to be added after main entity is saved
-		Map<FieldDetails, Object> tableJoinedFields = new HashMap<>();
-		Map<FieldDetails, Object> childFields = new HashMap<>();
-		
 		for(FieldDetails field: entityDetails.getFieldDetails())
 		{
 			if(field.isIdField())
@@ -149,7 +201,7 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 				//if the relation is maintained by using intermediate table
 				else if(field.isTableJoined())
 				{
-					tableJoinedFields.put(field, value);
+					saveDetails.tableJoinedFields.put(field, value);
 					continue;
 				}
 				//if the relation is mapped relation
@@ -171,7 +223,7 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 						continue;
 					}
 					
-					childFields.put(field, value);
+					saveDetails.childFields.put(field, value);
 					continue;
 				}
 			}
@@ -184,20 +236,76 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 			//if field is id field and value was set manually
 			if(field.isIdField())
 			{
-				idWrapper.setValue(value);
+				saveDetails.idWrapper.setValue(value);
 			}
 		}
 		
 		//add random unique id while persisting entity, which in turn can be used to fetch primary key value
-		String entityUid = UUID.randomUUID().toString();
-		query.addColumn(new ColumnParam(COL_UQ_ENTITY_ID, entityUid, -1));
+		query.addColumn(new ColumnParam(COL_UQ_ENTITY_ID, saveDetails.entityUid, -1));
+		
+		return saveDetails;
+	}
+	
+	/**
+	 * Saves the dependent data (extension fields, child entities and join table entries) of the saved 
+	 * entity and fires POST_SAVE event. Expected to be called after id is populated on the entity.
+	 * @param saveDetails Save details of the saved entity
+	 * @param transaction Transaction in which entity is saved
+	 * @param dataStore Data store to use
+	 * @param conversionService Conversion service to use
+	 */
+	private void postSave(EntitySaveDetails saveDetails, ITransaction transaction, IDataStore dataStore, ConversionService conversionService)
+	{
+		Object entity = saveDetails.entity;
+		
+		saveExtensionFields((Long)saveDetails.idWrapper.getValue(), entity, entityDetails, conversionService, dataStore);
+		
+		//save child entities, if any
+		for(FieldDetails field : saveDetails.childFields.keySet())
+		{
+			/*
+			 * Child fields are fields with mapped relation under current entity.
+			 * Saving child entity with inverse relation will take care of populating join 
+			 * table update, if required
+			 */
+			saveChildEntities(field, saveDetails.childFields.get(field), entity);
+		}
+		
+		//save join table entries if any
+		for(FieldDetails field : saveDetails.tableJoinedFields.keySet())
+		{
+			saveJoinTableEntry(field, entity, saveDetails.tableJoinedFields.get(field), conversionService, dataStore);
+		}
+		
+		//ensure no stale entry is present in second level cache for the new id
+		super.invalidateCaches(transaction, saveDetails.idWrapper.getValue());
+		
+		super.notifyEntityEvent(null, entity, EntityEventType.POST_SAVE);
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.yukthi.persistence.repository.executors.QueryExecutor#execute(com.yukthi.persistence.repository.executors.QueryExecutionContext, com.yukthi.persistence.IDataStore, com.yukthi.persistence.conversion.ConversionService, java.lang.Object[])
+	 */
+	@Override
+	public Object execute(QueryExecutionContext context, IDataStore dataStore, ConversionService conversionService, Object... params)
+	{
+		logger.trace("Started method: execute");
+		
+		if(batchSave)
+		{
+			return executeBatch(dataStore, conversionService, (Collection<?>)params[0]);
+		}
+		
+		EntitySaveDetails saveDetails = buildSaveDetails(params[0], dataStore, conversionService);
+		Object entity = saveDetails.entity;
+		ObjectWrapper<Object> idWrapper = saveDetails.idWrapper;
 		
 		//save the entity
 		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
 		{
 			super.notifyEntityEvent(null, entity, EntityEventType.PRE_SAVE);
 
-			int res = dataStore.save(query, entityDetails, idWrapper);
+			int res = dataStore.save(saveDetails.query, entityDetails, idWrapper);
 			
 			//if insertion was successful
 			if(res > 0)
@@ -206,7 +314,7 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 				if(idWrapper.getValue() == null)
 				{
 					//fetch the newly save entry id and populate it to entity
-					idWrapper.setValue( fetchId(entity, dataStore, entityUid, conversionService) );
+					idWrapper.setValue( fetchId(entity, dataStore, saveDetails.entityUid, conversionService) );
 				}
 				else
 				{
@@ -214,30 +322,109 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 					entityDetails.getIdField().setValue(entity, idWrapper.getValue());
 				}
 				
-				saveExtensionFields((Long)idWrapper.getValue(), entity, entityDetails, conversionService, dataStore);
+				postSave(saveDetails, transaction, dataStore, conversionService);
+			}
+			
+			transaction.commit();
+			
+			//invalidate again, so that results cached by other threads before commit are removed
+			super.invalidateQueryResults();
+			
+			return (boolean.class.equals(returnType)) ? (res > 0) : null;
+		}catch(Exception ex)
+		{
+			//rethrow the catched exception
+			if(ex instanceof RuntimeException)
+			{
+				throw (RuntimeException)ex;
+			}
+			
+			throw new IllegalStateException(ex);
+		}
+	}
+	
+	/**
+	 * Saves specified entities using batches. Entities resulting in same query shape are grouped and saved
+	 * using single batch. Ids of the saved entities are fetched in bulk using entity uids.
+	 * @param dataStore Data store to use
+	 * @param conversionService Conversion service to use
+	 * @param entities Entities to be saved
+	 * @return Number of entities saved, if return type is int
+	 */
+	private Object executeBatch(IDataStore dataStore, ConversionService conversionService, Collection<?> entities)
+	{
+		if(entities == null)
+		{
+			throw new NullPointerException("Entities can not be null");
+		}
+		
+		//group the entities by query shape, so that each group can be saved using single batch
+		Map<String, List<EntitySaveDetails>> shapeGroups = new LinkedHashMap<>();
+		EntitySaveDetails saveDetails = null;
+		
+		for(Object entity : entities)
+		{
+			saveDetails = buildSaveDetails(entity, dataStore, conversionService);
+			shapeGroups.computeIfAbsent(saveDetails.query.getQueryShape(), shape -> new ArrayList<>()).add(saveDetails);
+		}
+		
+		int savedCount = 0;
+		
+		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
+		{
+			for(List<EntitySaveDetails> group : shapeGroups.values())
+			{
+				List<SaveQuery> queries = new ArrayList<>(group.size());
+				
+				for(EntitySaveDetails details : group)
+				{
+					super.notifyEntityEvent(null, details.entity, EntityEventType.PRE_SAVE);
+					queries.add(details.query);
+				}
+				
+				int res[] = dataStore.saveAll(queries, entityDetails);
+				List<EntitySaveDetails> savedEntities = new ArrayList<>(group.size());
+				List<EntitySaveDetails> idLessEntities = new ArrayList<>();
 				
-				//save child entities, if any
-				for(FieldDetails field : childFields.keySet())
+				for(int i = 0; i < res.length; i++)
 				{
-					/*
-					 * Child fields are fields with mapped relation under current entity.
-					 * Saving child entity with inverse relation will take care of populating join 
-					 * table update, if required
-					 */
-					saveChildEntities(field, childFields.get(field), entity);
+					//ignore entities whose insertion failed
+					if(res[i] <= 0)
+					{
+						continue;
+					}
+					
+					saveDetails = group.get(i);
+					savedEntities.add(saveDetails);
+					
+					//if id value was explicitly specified
+					if(saveDetails.idWrapper.getValue() != null)
+					{
+						entityDetails.getIdField().setValue(saveDetails.entity, saveDetails.idWrapper.getValue());
+					}
+					else
+					{
+						idLessEntities.add(saveDetails);
+					}
 				}
 				
-				//save join table entries if any
-				for(FieldDetails field : tableJoinedFields.keySet())
+				//fetch the ids of newly saved entities and populate them to entities
+				fetchIds(idLessEntities, dataStore, conversionService);
+				
+				for(EntitySaveDetails details : savedEntities)
 				{
-					saveJoinTableEntry(field, entity, tableJoinedFields.get(field), conversionService, dataStore);
+					postSave(details, transaction, dataStore, conversionService);
 				}
 				
-				super.notifyEntityEvent(null, entity, EntityEventType.POST_SAVE);
+				savedCount += savedEntities.size();
 			}
 			
 			transaction.commit();
-			return (boolean.class.equals(returnType)) ? (res > 0) : null;
+			
+			//invalidate again, so that results cached by other threads before commit are removed
+			super.invalidateQueryResults();
+			
+			return (int.class.equals(returnType)) ? savedCount : null;
 		}catch(Exception ex)
 		{
 			//rethrow the catched exception
@@ -407,6 +594,53 @@ public class SaveQueryExecutor extends AbstractPersistQueryExecutor
 		}
 	}
 	
+	/**
+	 * Fetches ids of specified saved entities based on their uuids and populates them on the entities. Ids are
+	 * fetched in chunks of {@link #MAX_ID_FETCH_SIZE} using single IN query per chunk.
+	 * @param saveDetailsList Save details of the saved entities
+	 * @param dataStore Data store to use
+	 * @param conversionService Conversion service to use
+	 */
+	private void fetchIds(List<EntitySaveDetails> saveDetailsList, IDataStore dataStore, ConversionService conversionService)
+	{
+		logger.trace("Started method: fetchIds");
+		
+		FieldDetails idFieldDetails = entityDetails.getIdField();
+		
+		for(int start = 0; start < saveDetailsList.size(); start += MAX_ID_FETCH_SIZE)
+		{
+			List<EntitySaveDetails> chunk = saveDetailsList.subList(start, Math.min(start + MAX_ID_FETCH_SIZE, saveDetailsList.size()));
+			Map<String, EntitySaveDetails> uidToDetails = new HashMap<>();
+			
+			//build finder query
+			FinderQuery findQuery = new FinderQuery(entityDetails);
+			findQuery.addResultField(new QueryResultField(null, idFieldDetails.getDbColumnName(), null));
+			findQuery.addResultField(new QueryResultField(null, COL_UQ_ENTITY_ID, null));
+			
+			for(EntitySaveDetails details : chunk)
+			{
+				uidToDetails.put(details.entityUid, details);
+			}
+			
+			findQuery.addCondition(new QueryCondition(null, COL_UQ_ENTITY_ID, Operator.IN, new ArrayList<>(uidToDetails.keySet()), JoinOperator.AND, false));
+			
+			//execute finder query 
+			List<Record> records = dataStore.executeFinder(findQuery, entityDetails, null);
+			EntitySaveDetails details = null;
+			Object idValue = null;
+			
+			for(Record record : records)
+			{
+				details = uidToDetails.get(record.getObject(1));
+				
+				//set the id value on entity
+				idValue = conversionService.convertToJavaType(record.getObject(0), idFieldDetails);
+				idFieldDetails.setValue(details.entity, idValue);
+				details.idWrapper.setValue(idValue);
+			}
+		}
+	}
+	
 	/**
 	 * Fetches entity id based on specified uuid (generated for entity)
 	 * @param entity
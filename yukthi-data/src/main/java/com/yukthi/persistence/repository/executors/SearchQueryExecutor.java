@@ -4,8 +4,11 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.logging.log4j.LogManager;
@@ -21,10 +24,14 @@ import com.yukthi.persistence.RecordCountMistmatchException;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.query.CountQuery;
 import com.yukthi.persistence.query.FinderQuery;
+import com.yukthi.persistence.query.QueryCondition;
+import com.yukthi.persistence.query.QueryJoinCondition;
 import com.yukthi.persistence.repository.InvalidRepositoryException;
+import com.yukthi.persistence.repository.annotations.CachedResults;
 import com.yukthi.persistence.repository.annotations.SearchFunction;
+import com.yukthi.persistence.repository.cache.EntityCache;
+import com.yukthi.persistence.repository.cache.QueryResultCache;
 import com.yukthi.persistence.repository.search.IDynamicSearchResult;
-import com.yukthi.persistence.repository.search.SearchCondition;
 import com.yukthi.persistence.repository.search.SearchQuery;
 import com.yukthi.utils.ConvertUtils;
 
@@ -33,10 +40,13 @@ public class SearchQueryExecutor extends AbstractSearchQuery
 {
 	private static Logger logger = LogManager.getLogger(SearchQueryExecutor.class);
 	
-	private ReentrantLock queryLock = new ReentrantLock();
-	
 	private Class<?> countReturnType;
 	
+	/**
+	 * Time (in millis) for which results should be cached. Zero, if caching is not enabled.
+	 */
+	private long resultsCacheTtl;
+	
 	public SearchQueryExecutor(Class<?> repositoryType, Method method, EntityDetails entityDetails)
 	{
 		super.repositoryType = repositoryType;
@@ -52,7 +62,7 @@ public class SearchQueryExecutor extends AbstractSearchQuery
 			throw new InvalidRepositoryException("Invalid parameters specified for search method. Search method should have single parameter and it should of type - " + SearchQuery.class.getName());
 		}
 		
-		countReturnType = method.getReturnType();
+		countReturnType = getReturnType(method);
 		
 		if(Long.class.equals(countReturnType) || long.class.equals(countReturnType) || Integer.class.equals(countReturnType) || int.class.equals(countReturnType))
 		{
@@ -65,36 +75,119 @@ public class SearchQueryExecutor extends AbstractSearchQuery
 		}
 		
 		super.fetchOrderDetails(method);
+		
+		CachedResults cachedResults = recursiveAnnotationFactory.findAnnotationRecursively(method, CachedResults.class);
+		
+		if(cachedResults != null)
+		{
+			resultsCacheTtl = cachedResults.timeUnit().toMillis(cachedResults.ttl());
+		}
 	}
 	
 	/**
-	 * Adds search condition recursively to specified builder
-	 * @param condition
-	 * @param conditionQueryBuilder
-	 * @param conditionParams
-	 * @param groupHead
+	 * Fetches the result cache to be used for current execution. Cache is not used when a transaction is in progress
+	 * as the transaction may see (or may populate the cache with) uncommitted changes.
+	 * @param dataStore Data store in use
+	 * @return Result cache, null if cache should not be used
 	 */
-	private void addConditionsRecursively(SearchCondition condition, ConditionQueryBuilder conditionQueryBuilder, List<Object> conditionParams, ConditionQueryBuilder.Condition groupHead)
+	private QueryResultCache getResultCache(IDataStore dataStore)
 	{
-		ConditionQueryBuilder.Condition builderCondition = null;
-		boolean ignoreCase = ((condition.getValue() instanceof String) && condition.isIgnoreCase());
+		if(resultsCacheTtl <= 0 || streamResult)
+		{
+			return null;
+		}
 		
-		builderCondition = conditionQueryBuilder.addCondition(groupHead, condition.getOperator(), conditionParams.size(), null, 
-				condition.getField(), condition.getJoinOperator(), methodDesc, condition.isNullable(), ignoreCase, null);
+		if(dataStore.getTransactionManager().isTransactionInProgress())
+		{
+			return null;
+		}
+		
+		return persistenceExecutionContext.getRepositoryFactory().getQueryResultCache();
+	}
+	
+	/**
+	 * Fetches the entity cache to which search results should be added. Results are cached only when full entities
+	 * (with same fields as fetched by find-by-id) are being fetched, outside the transaction.
+	 * @param dataStore Data store in use
+	 * @param searchQuery Search query being executed
+	 * @return Entity cache to populate, null if results should not be cached
+	 */
+	private EntityCache getEntityCacheToPopulate(IDataStore dataStore, SearchQuery searchQuery)
+	{
+		if(!entityDetails.isCacheable() || !entityDetails.getEntityType().equals(returnType))
+		{
+			return null;
+		}
+		
+		if(CollectionUtils.isNotEmpty(searchQuery.getExcludeFields()))
+		{
+			return null;
+		}
+		
+		if(dataStore.getTransactionManager().isTransactionInProgress())
+		{
+			return null;
+		}
+		
+		return super.getEntityCache();
+	}
+	
+	/**
+	 * Adds values of specified conditions (recursively) to specified list.
+	 * @param conditions Conditions whose values needs to be added
+	 * @param values List to which values should be added
+	 */
+	private void addConditionValues(List<QueryCondition> conditions, List<Object> values)
+	{
+		for(QueryCondition condition : conditions)
+		{
+			values.add(condition.getValue());
+			
+			if(condition.getGroupedConditions() != null)
+			{
+				addConditionValues(condition.getGroupedConditions(), values);
+			}
+		}
+	}
+	
+	/**
+	 * Fetches the records of specified query from the result cache. If not found in cache, records will be fetched from 
+	 * data store and will be added to cache.
+	 * @param resultCache Cache to use
+	 * @param dataStore Data store to use
+	 * @param finderQuery Query to execute
+	 * @param recordCountLimiter Record processor to use
+	 * @return Matching records
+	 */
+	private List<Record> fetchCachedRecords(QueryResultCache resultCache, IDataStore dataStore, FinderQuery finderQuery, IFinderRecordProcessor recordCountLimiter)
+	{
+		//shape covers the query structure, which along with values (including paging) identifies the result
+		List<Object> key = new ArrayList<>();
+		key.add(finderQuery.getQueryShape());
+		addConditionValues(finderQuery.getConditions(), key);
+		key.add(finderQuery.getResultsOffset());
+		key.add(finderQuery.getResultsLimit());
 		
-		conditionParams.add(condition.getValue());
+		List<Record> records = resultCache.get(key);
 		
-		//if no group conditions are present ignore
-		if(condition.getGroupedConditions() == null)
+		if(records != null)
 		{
-			return;
+			return records;
 		}
+
+		Set<String> tables = new HashSet<>();
+		tables.add(finderQuery.getTableName());
 		
-		//add group conditions recursively
-		for(SearchCondition grpCondition : condition.getGroupedConditions())
+		for(QueryJoinCondition joinCondition : finderQuery.getJoinConditions())
 		{
-			addConditionsRecursively(grpCondition, conditionQueryBuilder, conditionParams, builderCondition);
+			tables.add(joinCondition.getJoiningTableName());
 		}
+		
+		long generation = resultCache.getGeneration(tables);
+		records = dataStore.executeFinder(finderQuery, entityDetails, recordCountLimiter);
+		
+		resultCache.put(key, records, tables, resultsCacheTtl, generation);
+		return records;
 	}
 	
 	private Long findCount(QueryExecutionContext context, IDataStore dataStore, ConversionService conversionService, Object... params)
@@ -105,13 +198,8 @@ public class SearchQueryExecutor extends AbstractSearchQuery
 		//create a clone so that every time dynamic conditions can be added freshly
 		ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder.clone();
 		
-		List<Object> conditionParams = new ArrayList<>();
-
 		//add conditions to query builder so that they will be validated
-		for(SearchCondition condition : searchQuery.getConditions())
-		{
-			addConditionsRecursively(condition, conditionQueryBuilder, conditionParams, null);
-		}
+		List<Object> conditionParams = super.addSearchConditions(searchQuery, conditionQueryBuilder, methodDesc);
 		
 		//load condition values
 		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), countQuery, conditionParams.toArray());
@@ -130,165 +218,197 @@ public class SearchQueryExecutor extends AbstractSearchQuery
 	{
 		logger.trace("Started method: execute");
 		
-		queryLock.lock();
+		if(countReturnType != null)
+		{
+			Long count = findCount(context, dataStore, conversionService, params);
+			return ConvertUtils.convert(count, countReturnType);
+		}
+
+		final FinderQuery finderQuery = new FinderQuery(entityDetails);
+		SearchQuery searchQuery = (SearchQuery)params[0];
 		
-		try
+		//create a clone so that every time dynamic conditions can be added freshly
+		ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder.clone();
+		
+		//remove result fields, which are excluded explicitly
+		if(CollectionUtils.isNotEmpty(searchQuery.getExcludeFields()))
 		{
-			if(countReturnType != null)
+			for(String excludedProperty : searchQuery.getExcludeFields())
 			{
-				Long count = findCount(context, dataStore, conversionService, params);
-				return ConvertUtils.convert(count, countReturnType);
+				conditionQueryBuilder.removeResultField(excludedProperty);
 			}
-
-			final FinderQuery finderQuery = new FinderQuery(entityDetails);
-			SearchQuery searchQuery = (SearchQuery)params[0];
-			
-			//create a clone so that every time dynamic conditions can be added freshly
-			ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder.clone();
-			
-			//remove result fields, which are excluded explicitly
-			if(CollectionUtils.isNotEmpty(searchQuery.getExcludeFields()))
+		}
+		
+		//if return type dynamic field data
+		if(IDynamicSearchResult.class.isAssignableFrom(returnType))
+		{
+			//if search query has additional field details to fetch
+			if(CollectionUtils.isNotEmpty(searchQuery.getAdditionalEntityFields()))
 			{
-				for(String excludedProperty : searchQuery.getExcludeFields())
+				//add dynamic fields to condition builder
+				for(String additionalProp : searchQuery.getAdditionalEntityFields())
 				{
-					conditionQueryBuilder.removeResultField(excludedProperty);
+					conditionQueryBuilder.addResultField("#" + additionalProp, Object.class, additionalProp, "<Addidional Property> - " + additionalProp);
 				}
 			}
+		}
+		
+		//add conditions to query builder so that they will be validated
+		List<Object> conditionParams = super.addSearchConditions(searchQuery, conditionQueryBuilder, methodDesc);
+		
+		//add order-by fields
+		if(CollectionUtils.isNotEmpty(searchQuery.getOrderByFields()))
+		{
+			conditionQueryBuilder.clearOrderByFields();
 			
-			//if return type dynamic field data
-			if(IDynamicSearchResult.class.isAssignableFrom(returnType))
+			for(OrderByField field : searchQuery.getOrderByFields())
 			{
-				//if search query has additional field details to fetch
-				if(CollectionUtils.isNotEmpty(searchQuery.getAdditionalEntityFields()))
-				{
-					//add dynamic fields to condition builder
-					for(String additionalProp : searchQuery.getAdditionalEntityFields())
-					{
-						conditionQueryBuilder.addResultField("#" + additionalProp, Object.class, additionalProp, "<Addidional Property> - " + additionalProp);
-					}
-				}
+				conditionQueryBuilder.addOrderByField(field.getName(), field.getOrderByType(), methodDesc);
 			}
-			
-			//set the result fields, conditions and tables details on finder query
-			List<Object> conditionParams = new ArrayList<>();
+		}
+		
+		//when results are paged, order by id as well (if order-by fields are not unique), so that records with same
+		//order-by values are not skipped or repeated between pages
+		if(searchQuery.getResultsLimit() > 0 || searchQuery.getResultsOffset() > 0 || searchQuery.getResultsAfterKey() != null)
+		{
+			conditionQueryBuilder.addIdOrderTieBreaker();
+		}
+		
+		//if keyset is specified, add conditions to resume after the key, instead of skipping rows
+		if(searchQuery.getResultsAfterKey() != null)
+		{
+			conditionQueryBuilder.addKeysetConditions(searchQuery.getResultsAfterKey(), conditionParams.size(), methodDesc);
+			conditionParams.addAll(searchQuery.getResultsAfterKey());
+		}
 
-			//add conditions to query builder so that they will be validated
-			for(SearchCondition condition : searchQuery.getConditions())
-			{
-				addConditionsRecursively(condition, conditionQueryBuilder, conditionParams, null);
-			}
+		logger.debug("Executing search query with params - {}", conditionParams);
+
+		//load condition values
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), finderQuery, conditionParams.toArray());
+		conditionQueryBuilder.loadOrderByFields(finderQuery);
+		
+		IFinderRecordProcessor recordCountLimiter = null;
+
+		//if results needs to be limited
+		if(searchQuery.getResultsLimit() > 0 || searchQuery.getResultsOffset() > 0)
+		{
+			int start = searchQuery.getResultsOffset();
+			int countLimit = searchQuery.getResultsLimit();
 			
-			logger.debug("Executing search query with params - {}", conditionParams);
+			start = (start <= 0) ? 0 : start;
+			countLimit = (countLimit <= 0) ? Integer.MAX_VALUE : countLimit;
 			
-			//add order-by fields
-			if(searchQuery.getOrderByFields() != null)
-			{
-				conditionQueryBuilder.clearOrderByFields();
-				
-				for(OrderByField field : searchQuery.getOrderByFields())
-				{
-					conditionQueryBuilder.addOrderByField(field.getName(), field.getOrderByType(), methodDesc);
-				}
-			}
-
-			//load condition values
-			conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), finderQuery, conditionParams.toArray());
-			conditionQueryBuilder.loadOrderByFields(finderQuery);
 			
-			IFinderRecordProcessor recordCountLimiter = null;
-
-			//if results needs to be limited
-			if(searchQuery.getResultsLimit() > 0 || searchQuery.getResultsOffset() > 0)
+			finderQuery.setResultsOffset(start);
+			finderQuery.setResultsLimit(countLimit);
+			
+			//As some of the DB's like Derby does not support limit, explicit processor 
+			//	is added to stop records fetching after the limit
+			if(!dataStore.isPagingSupported())
 			{
-				int start = searchQuery.getResultsOffset();
-				int countLimit = searchQuery.getResultsLimit();
-				
-				start = (start <= 0) ? 0 : start;
-				countLimit = (countLimit <= 0) ? Integer.MAX_VALUE : countLimit;
-				
-				
-				finderQuery.setResultsOffset(start);
-				finderQuery.setResultsLimit(countLimit);
-				
-				//As some of the DB's like Derby does not support limit, explicit processor 
-				//	is added to stop records fetching after the limit
-				if(!dataStore.isPagingSupported())
+				recordCountLimiter = new IFinderRecordProcessor()
 				{
-					recordCountLimiter = new IFinderRecordProcessor()
+					int recStart = finderQuery.getResultsOffset();
+					int count = 0;
+					int recLimit = finderQuery.getResultsLimit();
+					
+					@Override
+					public Action process(long recordNo, Record record)
 					{
-						int recStart = finderQuery.getResultsOffset();
-						int count = 0;
-						int recLimit = finderQuery.getResultsLimit();
-						
-						@Override
-						public Action process(long recordNo, Record record)
+						if(recordNo < recStart)
 						{
-							if(recordNo < recStart)
-							{
-								return Action.IGNORE;
-							}
-							
-							count++;
-							
-							return (count <= recLimit) ? Action.PROCESS : Action.STOP;
+							return Action.IGNORE;
 						}
-					};
-				}
+						
+						count++;
+						
+						return (count <= recLimit) ? Action.PROCESS : Action.STOP;
+					}
+				};
 			}
+		}
+		
+		//if results are expected as stream, records will be fetched and converted when stream is consumed
+		if(streamResult)
+		{
+			return toResultStream(dataStore.streamFinder(finderQuery, entityDetails, recordCountLimiter), conditionQueryBuilder, conversionService);
+		}
+		
+		QueryResultCache resultCache = getResultCache(dataStore);
+		List<Record> records = null;
+		
+		//execute the query and fetch records
+		if(resultCache != null)
+		{
+			records = fetchCachedRecords(resultCache, dataStore, finderQuery, recordCountLimiter);
+		}
+		else
+		{
+			EntityCache entityCache = getEntityCacheToPopulate(dataStore, searchQuery);
+			long cacheGeneration = (entityCache != null) ? entityCache.getGeneration() : 0;
 			
-			//execute the query and fetch records
-			List<Record> records = dataStore.executeFinder(finderQuery, entityDetails, recordCountLimiter);
+			records = dataStore.executeFinder(finderQuery, entityDetails, recordCountLimiter);
 			
-			//if no results found
-			if(records == null || records.isEmpty())
+			//add fetched entities to second level cache, so that subsequent find-by-id (like lazy loading) can use them
+			if(entityCache != null && records != null)
 			{
-				//if primitive return type is expected simply return default value
-				if(collectionReturnType == null)
-				{
-					return returnType.isPrimitive() ? CCGUtility.getDefaultPrimitiveValue(returnType) : null;
-				}
+				Map<Object, Record> idToRecord = new HashMap<>();
 				
-				try
+				for(Record record : records)
 				{
-					return (Collection)collectionReturnType.newInstance();
-				}catch(Exception ex)
-				{
-					throw new IllegalStateException("An error occurred while creating return collection: " + collectionReturnType.getName(), ex);
+					idToRecord.put(record.getObject(ConditionQueryBuilder.DEF_TABLE_ID_COL), record);
 				}
+				
+				entityCache.putAll(idToRecord, cacheGeneration);
 			}
-
-			//if single element is expected as result
+		}
+		
+		//if no results found
+		if(records == null || records.isEmpty())
+		{
+			//if primitive return type is expected simply return default value
 			if(collectionReturnType == null)
 			{
-				if(records.size() > 1)
-				{
-					throw new RecordCountMistmatchException("Multiple records found when single record is expected.");
-				}
-				
-				ArrayList<Object> resLst = new ArrayList<>();
-				conditionQueryBuilder.parseResults(Arrays.asList(records.get(0)), (Class)returnType, resLst, conversionService, persistenceExecutionContext);
-				return resLst.get(0);
+				return returnType.isPrimitive() ? CCGUtility.getDefaultPrimitiveValue(returnType) : null;
 			}
-	
-			//if collection of objects are expected as result
-			Collection<Object> lst = null;
 			
 			try
 			{
-				lst = (Collection)collectionReturnType.newInstance();
+				return (Collection)collectionReturnType.newInstance();
 			}catch(Exception ex)
 			{
 				throw new IllegalStateException("An error occurred while creating return collection: " + collectionReturnType.getName(), ex);
 			}
+		}
+
+		//if single element is expected as result
+		if(collectionReturnType == null)
+		{
+			if(records.size() > 1)
+			{
+				throw new RecordCountMistmatchException("Multiple records found when single record is expected.");
+			}
 			
-			//parse records into required types
-			conditionQueryBuilder.parseResults(records, (Class)returnType, lst, conversionService, persistenceExecutionContext);
-			
-			return lst;
-		}finally
+			ArrayList<Object> resLst = new ArrayList<>();
+			conditionQueryBuilder.parseResults(Arrays.asList(records.get(0)), (Class)returnType, resLst, conversionService, persistenceExecutionContext);
+			return resLst.get(0);
+		}
+
+		//if collection of objects are expected as result
+		Collection<Object> lst = null;
+		
+		try
+		{
+			lst = (Collection)collectionReturnType.newInstance();
+		}catch(Exception ex)
 		{
-			queryLock.unlock();
+			throw new IllegalStateException("An error occurred while creating return collection: " + collectionReturnType.getName(), ex);
 		}
+		
+		//parse records into required types
+		conditionQueryBuilder.parseResults(records, (Class)returnType, lst, conversionService, persistenceExecutionContext);
+		
+		return lst;
 	}
 	
 	
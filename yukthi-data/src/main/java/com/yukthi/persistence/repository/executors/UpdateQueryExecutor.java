@@ -2,8 +2,9 @@ package com.yukthi.persistence.repository.executors;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.reflect.TypeUtils;
 import org.apache.logging.log4j.LogManager;
@@ -18,7 +19,6 @@ import com.yukthi.persistence.IDataStore;
 import com.yukthi.persistence.ITransaction;
 import com.yukthi.persistence.conversion.ConversionService;
 import com.yukthi.persistence.listeners.EntityEventType;
-import com.yukthi.persistence.query.ColumnParam;
 import com.yukthi.persistence.query.QueryCondition;
 import com.yukthi.persistence.query.UpdateColumnParam;
 import com.yukthi.persistence.query.UpdateQuery;
@@ -28,7 +28,10 @@ import com.yukthi.persistence.repository.annotations.JoinOperator;
 import com.yukthi.persistence.repository.annotations.Operator;
 import com.yukthi.persistence.repository.annotations.UpdateFunction;
 import com.yukthi.persistence.repository.annotations.UpdateOperator;
+import com.yukthi.persistence.repository.search.SearchQuery;
+import com.yukthi.utils.exceptions.InvalidArgumentException;
 import com.yukthi.utils.exceptions.InvalidStateException;
+import com.yukthi.utils.exceptions.NullValueException;
 
 @QueryExecutorPattern(prefixes = {"update"}, annotatedWith = UpdateFunction.class)
 public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
@@ -36,12 +39,21 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 	private static Logger logger = LogManager.getLogger(UpdateQueryExecutor.class);
 
 	private Class<?> returnType;
-	private ReentrantLock queryLock = new ReentrantLock();
 	private boolean entityUpdate = false;
+	
+	/**
+	 * Indicates update conditions are specified using search query and field values are specified as map
+	 */
+	private boolean searchUpdate = false;
+
 	private ConditionQueryBuilder conditionQueryBuilder;
 	private String methodDesc;
 	
-	private UpdateQuery updateQuery;
+	/**
+	 * Columns to be updated by non-entity update method. For every execution, a copy of these
+	 * columns is populated with values, so that this executor can be used concurrently.
+	 */
+	private List<UpdateColumnParam> updateColumns = new ArrayList<>();
 	
 	public UpdateQueryExecutor(Class<?> repositoryType, Method method, EntityDetails entityDetails)
 	{
@@ -62,7 +74,13 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 		boolean isCoreInterface = ICrudRepository.class.equals(method.getDeclaringClass());
 		Class<?> firstParamType = TypeUtils.getRawType(method.getGenericParameterTypes()[0], repositoryType);
 		
-		if( ( paramTypes.length >= 1 && entityDetails.getEntityType().equals(firstParamType) ) || isCoreInterface)
+		if(paramTypes.length == 2 && SearchQuery.class.equals(paramTypes[0]) && Map.class.isAssignableFrom(paramTypes[1]))
+		{
+			//for search based update, conditions and columns are added dynamically during execution
+			searchUpdate = true;
+			super.fetchMethodLevelConditions(method, conditionQueryBuilder, methodDesc);
+		}
+		else if( ( paramTypes.length >= 1 && entityDetails.getEntityType().equals(firstParamType) ) || isCoreInterface)
 		{
 			entityUpdate = true;
 			
@@ -71,8 +89,6 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 		}
 		else
 		{
-			updateQuery = new UpdateQuery(entityDetails);
-			
 			if(!super.fetchConditonsByAnnotations(method, false, conditionQueryBuilder, methodDesc, false))
 			{
 				throw new InvalidRepositoryException("For non-entity update method '" + method.getName() + "' no conditions are specified, in repository: " + repositoryType.getName());
@@ -86,7 +102,7 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 			}
 		}
 		
-		returnType = method.getReturnType();
+		returnType = getReturnType(method);
 		
 		if(!boolean.class.equals(returnType) && !void.class.equals(returnType) && !int.class.equals(returnType))
 		{
@@ -129,14 +145,14 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 						field.value(), repositoryType.getName(), method.getName());
 			}
 			
-			updateQuery.addColumn(new UpdateColumnParam(fieldDetails.getDbColumnName(), null, i, field.updateOp()));
+			updateColumns.add(new UpdateColumnParam(fieldDetails.getDbColumnName(), null, i, field.updateOp()));
 			found = true;
 		}
 		
 		//add implicit version update instructions
 		if(entityDetails.hasVersionField())
 		{
-			updateQuery.addColumn(new UpdateColumnParam(entityDetails.getVersionField().getDbColumnName(), 1, -1, UpdateOperator.ADD));
+			updateColumns.add(new UpdateColumnParam(entityDetails.getVersionField().getDbColumnName(), 1, -1, UpdateOperator.ADD));
 		}
 
 		return found;
@@ -267,10 +283,13 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 		
 		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), query, params);
 		
+		Object id = entityDetails.getIdField().getValue(entity);
+		
 		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
 		{
 			super.notifyEntityEvent(null, entity, EntityEventType.PRE_UPDATE);
 			
+			super.invalidateCaches(transaction, id);
 			int res = dataStore.update(query, entityDetails);
 			
 			updateExtensionFields(dataStore, conversionService, entity);
@@ -300,6 +319,123 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 		}
 	}
 
+	/**
+	 * Updates all the entities matching with specified search query, with specified field values, using single statement.
+	 * @param context Execution context
+	 * @param dataStore Data store to use
+	 * @param conversionService Conversion service to use
+	 * @param params Search query and field values
+	 * @return Number of entities updated, converted to return type
+	 */
+	@SuppressWarnings("unchecked")
+	private Object updateBySearch(QueryExecutionContext context, IDataStore dataStore, ConversionService conversionService, Object... params)
+	{
+		logger.trace("Started method: updateBySearch");
+		
+		SearchQuery searchQuery = (SearchQuery)params[0];
+		Map<String, Object> fieldValues = (Map<String, Object>)params[1];
+		
+		if(searchQuery == null)
+		{
+			throw new NullValueException("Null search query is passed to {}", methodDesc);
+		}
+		
+		if(fieldValues == null || fieldValues.isEmpty())
+		{
+			throw new InvalidArgumentException("No field values are specified for {}", methodDesc);
+		}
+		
+		//add search conditions to a copy of builder
+		ConditionQueryBuilder conditionQueryBuilder = this.conditionQueryBuilder.clone();
+		Object conditionParams[] = super.addSearchConditions(searchQuery, conditionQueryBuilder, methodDesc).toArray();
+		
+		UpdateQuery updateQuery = new UpdateQuery(entityDetails);
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), updateQuery, conditionParams);
+		super.checkForJoins(updateQuery, methodDesc);
+		
+		FieldDetails field = null;
+		Object value = null;
+		
+		for(Map.Entry<String, Object> entry : fieldValues.entrySet())
+		{
+			field = entityDetails.getFieldDetailsByField(entry.getKey());
+			
+			if(field == null)
+			{
+				throw new InvalidArgumentException("Invalid field '{}' is specified for {}", entry.getKey(), methodDesc);
+			}
+			
+			if(field.isIdField() || field.isVersionField() || !field.isUpdateable())
+			{
+				throw new InvalidArgumentException("Non-updateable field '{}' is specified for {}", entry.getKey(), methodDesc);
+			}
+			
+			value = entry.getValue();
+			
+			//if current field is relation field
+			if(field.isRelationField())
+			{
+				if(!field.isTableOwned())
+				{
+					throw new InvalidArgumentException("Non-owned relation field '{}' is specified for {}", entry.getKey(), methodDesc);
+				}
+				
+				if(value != null)
+				{
+					//if current table owns the relation in same table, replace the entity value with foreign entity id value
+					value = field.getForeignConstraintDetails().getTargetEntityDetails().getIdField().getValue(value);
+				}
+			}
+			
+			value = conversionService.convertToDBType(value, field);
+			updateQuery.addColumn(new UpdateColumnParam(field.getDbColumnName(), value, -1, UpdateOperator.NONE));
+		}
+		
+		//add implicit version update instructions
+		if(entityDetails.hasVersionField())
+		{
+			updateQuery.addColumn(new UpdateColumnParam(entityDetails.getVersionField().getDbColumnName(), 1, -1, UpdateOperator.ADD));
+		}
+		
+		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
+		{
+			List<Object> entityIds = null;
+			
+			//if listeners are available, fetch ids of entities being updated, so that single bulk event can be raised
+			if(super.isListenerAvailable(EntityEventType.PRE_UPDATE) || super.isListenerAvailable(EntityEventType.POST_UPDATE))
+			{
+				entityIds = super.fetchMatchingIds(context, dataStore, conditionQueryBuilder, conditionParams);
+				super.notifyBulkEntityEvent(entityIds, EntityEventType.PRE_UPDATE);
+			}
+			
+			//as updated entities are not known, clear all cached entities
+			super.invalidateCaches(transaction, null);
+			int res = dataStore.update(updateQuery, entityDetails);
+			
+			if(res > 0 && entityIds != null)
+			{
+				super.notifyBulkEntityEvent(entityIds, EntityEventType.POST_UPDATE);
+			}
+
+			transaction.commit();
+			
+			if(int.class.equals(returnType))
+			{
+				return res;
+			}
+			
+			return (boolean.class.equals(returnType)) ? (res > 0) : null;
+		}catch(Exception ex)
+		{
+			//rethrow the catched exception
+			if(ex instanceof RuntimeException)
+			{
+				throw (RuntimeException)ex;
+			}
+			
+			throw new IllegalStateException(ex);
+		}
+	}
 	
 	/* (non-Javadoc)
 	 * @see com.yukthi.persistence.repository.executors.QueryExecutor#execute(com.yukthi.persistence.repository.executors.QueryExecutionContext, com.yukthi.persistence.IDataStore, com.yukthi.persistence.conversion.ConversionService, java.lang.Object[])
@@ -314,81 +450,84 @@ public class UpdateQueryExecutor extends AbstractPersistQueryExecutor
 			return updateFullEntity(context, dataStore, conversionService, params);
 		}
 		
-		queryLock.lock();
+		if(searchUpdate)
+		{
+			return updateBySearch(context, dataStore, conversionService, params);
+		}
+		
+		Object value = null;
 		
-		try
+		UpdateQuery updateQuery = new UpdateQuery(entityDetails);
+		conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), updateQuery, params);
+		
+		//TODO: When unique fields are getting updated, make sure unique constraints are not violated
+			//during unique field update might be we have to mandate id is provided as condition
+		
+		
+		//TODO: Extension field update using annotaionts
+		FieldDetails field = null;
+		
+		for(UpdateColumnParam columnTemplate : updateColumns)
 		{
-			Object value = null;
-			
-			updateQuery.clearConditions();
-			conditionQueryBuilder.loadConditionalQuery(context.getRepositoryExecutionContext(), updateQuery, params);
-			
-			//TODO: When unique fields are getting updated, make sure unique constraints are not violated
-				//during unique field update might be we have to mandate id is provided as condition
+			//index would be less than internal fields like version
+			if(columnTemplate.getIndex() < 0)
+			{
+				updateQuery.addColumn(columnTemplate);
+				continue; 
+			}
 			
+			UpdateColumnParam column = new UpdateColumnParam(columnTemplate.getName(), null, columnTemplate.getIndex(), columnTemplate.getUpdateOperator());
+			updateQuery.addColumn(column);
+
+			field = entityDetails.getFieldDetailsByColumn(column.getName());
 			
-			//TODO: Extension field update using annotaionts
-			FieldDetails field = null;
+			value = params[column.getIndex()];
 			
-			for(ColumnParam column: updateQuery.getColumns())
+			//if current field is relation field
+			if(field.isRelationField())
 			{
-				field = entityDetails.getFieldDetailsByColumn(column.getName());
-				
-				//index would be less than internal fields like version
-				if(column.getIndex() < 0)
+				//if current table does not own relation, ignore current field
+				if(!field.isTableOwned())
 				{
-					continue; 
+					//TODO: Take care of cases where join table is involved
+					continue;
 				}
 				
-				value = params[column.getIndex()];
-				
-				//if current field is relation field
-				if(field.isRelationField())
+				if(value != null)
 				{
-					//if current table does not own relation, ignore current field
-					if(!field.isTableOwned())
-					{
-						//TODO: Take care of cases where join table is involved
-						continue;
-					}
-					
-					if(value != null)
-					{
-						//if current table owns the relation in same table, replace the entity value with foreign entity id value
-						value = field.getForeignConstraintDetails().getTargetEntityDetails().getIdField().getValue(value);
-					}
+					//if current table owns the relation in same table, replace the entity value with foreign entity id value
+					value = field.getForeignConstraintDetails().getTargetEntityDetails().getIdField().getValue(value);
 				}
+			}
 
-				value = conversionService.convertToDBType(value, field);
+			value = conversionService.convertToDBType(value, field);
 
-				column.setValue(value);
-			}
-			
-			try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
-			{
-				int res = dataStore.update(updateQuery, entityDetails);
+			column.setValue(value);
+		}
+		
+		try(ITransaction transaction = dataStore.getTransactionManager().newOrExistingTransaction())
+		{
+			//as updated entities are not known, clear all cached entities
+			super.invalidateCaches(transaction, null);
+			int res = dataStore.update(updateQuery, entityDetails);
 
-				transaction.commit();
-				
-				if(int.class.equals(returnType))
-				{
-					return res;
-				}
-				
-				return (boolean.class.equals(returnType)) ? (res > 0) : null;
-			}catch(Exception ex)
+			transaction.commit();
+			
+			if(int.class.equals(returnType))
 			{
-				//rethrow the catched exception
-				if(ex instanceof RuntimeException)
-				{
-					throw (RuntimeException)ex;
-				}
-				
-				throw new IllegalStateException(ex);
+				return res;
 			}
-		}finally
+			
+			return (boolean.class.equals(returnType)) ? (res > 0) : null;
+		}catch(Exception ex)
 		{
-			queryLock.unlock();
+			//rethrow the catched exception
+			if(ex instanceof RuntimeException)
+			{
+				throw (RuntimeException)ex;
+			}
+			
+			throw new IllegalStateException(ex);
 		}
 		
 	}
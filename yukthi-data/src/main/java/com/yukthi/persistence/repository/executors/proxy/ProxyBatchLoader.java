@@ -0,0 +1,197 @@
+package com.yukthi.persistence.repository.executors.proxy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.yukthi.persistence.EntityDetails;
+import com.yukthi.persistence.FieldDetails;
+import com.yukthi.persistence.ICrudRepository;
+import com.yukthi.persistence.ITransactionManager;
+import com.yukthi.persistence.repository.annotations.Operator;
+import com.yukthi.persistence.repository.cache.EntityCache;
+import com.yukthi.persistence.repository.search.SearchCondition;
+import com.yukthi.persistence.repository.search.SearchQuery;
+import com.yukthi.utils.ConvertUtils;
+
+/**
+ * Loads actual entities of lazy entity proxies in batches. Proxies of same entity type, created while parsing
+ * single result set, share the same loader. So that when one of the proxy is accessed, pending sibling proxies
+ * are also loaded using single IN query, instead of a query per proxy.
+ * 
+ * If target entity is cached, entities found in second level cache are loaded from cache and only the missing
+ * entities are fetched from db (which in turn get added to the cache).
+ * @author akiran
+ */
+public class ProxyBatchLoader
+{
+	private static Logger logger = LogManager.getLogger(ProxyBatchLoader.class);
+
+	/**
+	 * CRUD repository of the target entity
+	 */
+	private ICrudRepository<?> repository;
+
+	/**
+	 * Id field of the target entity
+	 */
+	private FieldDetails idField;
+
+	/**
+	 * Java type of the id, used to normalize id values
+	 */
+	private Class<?> idType;
+
+	/**
+	 * Maximum number of entities to be loaded in single query
+	 */
+	private int batchSize;
+
+	/**
+	 * Second level cache of the target entity, null if target entity is not cached
+	 */
+	private EntityCache entityCache;
+
+	/**
+	 * Transaction manager used to check if transaction is in progress, in which case cache is not used
+	 */
+	private ITransactionManager<?> transactionManager;
+
+	/**
+	 * Proxies which are not loaded yet, grouped by entity id (as multiple proxies may refer to same entity)
+	 */
+	private Map<Object, List<ProxyEntityCreator>> pendingProxies = new LinkedHashMap<>();
+
+	/**
+	 * Instantiates a new batch loader.
+	 * @param entityDetails Details of the target entity
+	 * @param repository Repository of the target entity
+	 * @param batchSize Maximum number of entities to be loaded in single query
+	 * @param entityCache Second level cache of the target entity, null if target entity is not cached
+	 * @param transactionManager Transaction manager of the target entity's data store
+	 */
+	public ProxyBatchLoader(EntityDetails entityDetails, ICrudRepository<?> repository, int batchSize, 
+			EntityCache entityCache, ITransactionManager<?> transactionManager)
+	{
+		this.repository = repository;
+		this.idField = entityDetails.getIdField();
+		this.idType = ClassUtils.primitiveToWrapper(idField.getField().getType());
+		this.batchSize = batchSize;
+		this.entityCache = entityCache;
+		this.transactionManager = transactionManager;
+	}
+
+	/**
+	 * Converts specified id value into id type, so that different db types of same id matches.
+	 * @param id Id to normalize
+	 * @return Normalized id
+	 */
+	private Object toKey(Object id)
+	{
+		return idType.isInstance(id) ? id : ConvertUtils.convert(id, idType);
+	}
+
+	/**
+	 * Registers specified proxy for loading.
+	 * @param proxyCreator Proxy to be registered
+	 */
+	synchronized void register(ProxyEntityCreator proxyCreator)
+	{
+		pendingProxies.computeIfAbsent(toKey(proxyCreator.getEntityId()), key -> new ArrayList<>()).add(proxyCreator);
+	}
+
+	/**
+	 * Loads the actual entity of specified proxy along with pending sibling proxies (up to batch size).
+	 * @param proxyCreator Proxy whose entity needs to be loaded
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	synchronized void load(ProxyEntityCreator proxyCreator)
+	{
+		//if the proxy is already loaded as part of previous batch
+		if(proxyCreator.isActualEntityLoaded())
+		{
+			return;
+		}
+
+		Object requestedKey = toKey(proxyCreator.getEntityId());
+		List<Object> ids = new ArrayList<>();
+		ids.add(requestedKey);
+
+		for(Object key : pendingProxies.keySet())
+		{
+			if(ids.size() >= batchSize)
+			{
+				break;
+			}
+
+			if(!key.equals(requestedKey))
+			{
+				ids.add(key);
+			}
+		}
+
+		Map<Object, Object> idToEntity = new HashMap<>();
+		List<Object> missingIds = ids;
+
+		//load cached entities from cache (findById() uses the cache), so that only missing entities are fetched from db.
+		//	As cache is not used in transactions, all entities are fetched from db during transaction
+		if(entityCache != null && !transactionManager.isTransactionInProgress())
+		{
+			missingIds = new ArrayList<>();
+
+			for(Object id : ids)
+			{
+				if(entityCache.contains(id))
+				{
+					idToEntity.put(id, repository.findById(id));
+				}
+				else
+				{
+					missingIds.add(id);
+				}
+			}
+		}
+
+		if(!missingIds.isEmpty())
+		{
+			logger.debug("Loading {} entities of type {} in single batch", missingIds.size(), idField.getField().getDeclaringClass().getName());
+
+			List<Object> entities = (List)repository.search(new SearchQuery(new SearchCondition(idField.getName(), Operator.IN, missingIds)));
+
+			for(Object entity : entities)
+			{
+				idToEntity.put(toKey(idField.getValue(entity)), entity);
+			}
+		}
+
+		List<ProxyEntityCreator> proxies = null;
+
+		for(Object id : ids)
+		{
+			proxies = pendingProxies.remove(id);
+
+			if(proxies == null)
+			{
+				continue;
+			}
+
+			//proxies of missing entities are also marked as loaded, so that they fail on access
+			for(ProxyEntityCreator proxy : proxies)
+			{
+				proxy.setActualEntity(idToEntity.get(id));
+			}
+		}
+
+		//proxy would not be in pending list if it is not registered
+		if(!proxyCreator.isActualEntityLoaded())
+		{
+			proxyCreator.setActualEntity(idToEntity.get(requestedKey));
+		}
+	}
+}
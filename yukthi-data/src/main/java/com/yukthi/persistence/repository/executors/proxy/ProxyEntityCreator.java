@@ -24,12 +24,12 @@ public class ProxyEntityCreator
 	/**
 	 * The actual entity which would be loaded lazily on need basis 
 	 */
-	private Object actualEntity;
+	private volatile Object actualEntity;
 	
 	/**
 	 * Flag indicating if actual entity is loaded
 	 */
-	private boolean actualEntityLoaded = false;
+	private volatile boolean actualEntityLoaded = false;
 	
 	/**
 	 * CRUD repository for the entity
@@ -56,14 +56,38 @@ public class ProxyEntityCreator
 	 */
 	private Object proxyEntity;
 	
+	/**
+	 * Loader to be used to load actual entity along with sibling proxies. If null, entity is loaded individually.
+	 */
+	private ProxyBatchLoader batchLoader;
+	
 	public ProxyEntityCreator(EntityDetails entityDetails, ICrudRepository<?> repository, Object entityId)
 	{
-		this(entityDetails, repository, entityId, null);
+		this(entityDetails, repository, entityId, (ProxyBatchLoader)null);
+	}
+	
+	/**
+	 * Creates a proxy for specified entity id, which gets loaded using specified batch loader
+	 * @param entityDetails
+	 * @param repository
+	 * @param entityId
+	 * @param batchLoader
+	 */
+	public ProxyEntityCreator(EntityDetails entityDetails, ICrudRepository<?> repository, Object entityId, ProxyBatchLoader batchLoader)
+	{
+		this(entityDetails, repository, entityId, (SearchCondition)null);
+		
+		this.batchLoader = batchLoader;
+		
+		if(batchLoader != null)
+		{
+			batchLoader.register(this);
+		}
 	}
 
 	public ProxyEntityCreator(EntityDetails entityDetails, ICrudRepository<?> repository, SearchCondition condition)
 	{
-		this(entityDetails, repository, null, condition);
+		this(entityDetails, repository, (Object)null, condition);
 	}
 
 	/**
@@ -130,6 +154,32 @@ public class ProxyEntityCreator
 		return proxyEntity;
 	}
 	
+	/**
+	 * @return Id of the entity
+	 */
+	Object getEntityId()
+	{
+		return entityId;
+	}
+	
+	/**
+	 * @return true, if actual entity is loaded
+	 */
+	boolean isActualEntityLoaded()
+	{
+		return actualEntityLoaded;
+	}
+	
+	/**
+	 * Sets the actual entity loaded by batch loader
+	 * @param actualEntity Loaded entity, null if entity is not found
+	 */
+	void setActualEntity(Object actualEntity)
+	{
+		this.actualEntity = actualEntity;
+		this.actualEntityLoaded = true;
+	}
+	
 	/**
 	 * Proxy method invocation handler method
 	 * @param proxy
@@ -146,41 +196,54 @@ public class ProxyEntityCreator
 			return entityId;
 		}
 
-		synchronized(this)
+		if(!actualEntityLoaded)
 		{
-			if(actualEntityLoaded)
+			//if batch loader is present, load entity along with sibling proxies
+			if(batchLoader != null)
 			{
-				if(actualEntity == null)
-				{
-					throw new NoSuchEntityException();
-				}
-				
-				return method.invoke(actualEntity, args);
-			}
-			
-			//if enity id is present use it for fetching entity
-			if(entityId != null)
-			{
-				actualEntity = repository.findById(entityId);
+				batchLoader.load(this);
 			}
-			//if not use search condition to fetch entity
 			else
 			{
-				@SuppressWarnings({ "unchecked", "rawtypes" })
-				List<Object> entities = (List)repository.search(new SearchQuery(this.searchCondition));
-				this.actualEntity = (entities.size() > 0) ? entities.get(0) : null;
-			}
-			
-			actualEntityLoaded = true;
-			
-			//if entity is not found with specified criteria
-			if(actualEntity == null)
-			{
-				throw new NoSuchEntityException();
+				loadActualEntity();
 			}
-			
-			return method.invoke(actualEntity, args);
 		}
+		
+		//if entity is not found with specified criteria
+		if(actualEntity == null)
+		{
+			throw new NoSuchEntityException();
+		}
+		
+		return method.invoke(actualEntity, args);
+	}
+	
+	/**
+	 * Loads the actual entity individually, using entity id or search condition
+	 */
+	private synchronized void loadActualEntity()
+	{
+		if(actualEntityLoaded)
+		{
+			return;
+		}
+		
+		Object entity = null;
+		
+		//if enity id is present use it for fetching entity
+		if(entityId != null)
+		{
+			entity = repository.findById(entityId);
+		}
+		//if not use search condition to fetch entity
+		else
+		{
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			List<Object> entities = (List)repository.search(new SearchQuery(this.searchCondition));
+			entity = (entities.size() > 0) ? entities.get(0) : null;
+		}
+		
+		setActualEntity(entity);
 	}
 	
 }
@@ -36,6 +36,12 @@ public class SearchQuery
 	 */
 	private int resultsLimit = -1;
 	
+	/**
+	 * Values of order-by fields (in order) of the last record of previous page. When specified, 
+	 * only the records following this key are fetched (keyset paging).
+	 */
+	private List<Object> resultsAfterKey;
+	
 	/**
 	 * Additional fields to include along with standard return fields.
 	 */
@@ -159,6 +165,33 @@ public class SearchQuery
 		this.resultsLimit = resultsLimit;
 	}
 	
+	/**
+	 * Gets the values of order-by fields of the last record of previous page.
+	 *
+	 * @return the values of order-by fields of the last record of previous page
+	 */
+	public List<Object> getResultsAfterKey()
+	{
+		return resultsAfterKey;
+	}
+
+	/**
+	 * Sets the values of order-by fields (in the same order) of the last record of previous page. When 
+	 * specified, instead of skipping the rows before the offset, conditions are added to fetch only the records
+	 * following this key. If order-by fields are not unique (do not include id or all fields of an unique constraint),
+	 * paged results are ordered by id as well, and the id of last record should be specified as last key value.
+	 * 
+	 * Note: Keyset conditions are joined with other conditions using AND, so OR conditions of the query should be grouped.
+	 *
+	 * @param resultsAfterKey the values of order-by fields of the last record of previous page
+	 * @return current query
+	 */
+	public SearchQuery setResultsAfterKey(List<Object> resultsAfterKey)
+	{
+		this.resultsAfterKey = resultsAfterKey;
+		return this;
+	}
+	
 	/**
 	 * Gets the additional fields to include along with standard return fields.
 	 *
@@ -243,6 +276,11 @@ public class SearchQuery
 		builder.append(", ").append("Results Offset: ").append(resultsOffset);
 		builder.append(", ").append("Results Limit: ").append(resultsLimit);
 		
+		if(resultsAfterKey != null)
+		{
+			builder.append(", ").append("Results After: ").append(resultsAfterKey);
+		}
+		
 		if(CollectionUtils.isNotEmpty(additionalEntityFields))
 		{
 			builder.append(", ").append("Additional Fields: ").append(additionalEntityFields);
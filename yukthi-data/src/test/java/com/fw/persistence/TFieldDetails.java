@@ -0,0 +1,100 @@
+package com.fw.persistence;
+
+import java.lang.reflect.Field;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yukthi.persistence.FieldDetails;
+
+/**
+ * Tests field value access using field details, including primitive and boxed fields.
+ */
+public class TFieldDetails
+{
+	public static class TestBean
+	{
+		private int intValue;
+		private long longValue;
+		private boolean flag;
+		private double doubleValue;
+		private Integer boxedInt;
+		private Long boxedLong;
+		private String name;
+	}
+
+	private FieldDetails fieldDetails(String name) throws Exception
+	{
+		return new FieldDetails(TestBean.class.getDeclaredField(name), null, false, true);
+	}
+
+	private void checkRoundTrip(String name, Object value) throws Exception
+	{
+		FieldDetails fieldDetails = fieldDetails(name);
+		Field field = TestBean.class.getDeclaredField(name);
+		field.setAccessible(true);
+
+		TestBean bean = new TestBean();
+
+		fieldDetails.setValue(bean, value);
+
+		Assert.assertEquals(fieldDetails.getValue(bean), value);
+		Assert.assertEquals(field.get(bean), value);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		checkRoundTrip("intValue", 10);
+		checkRoundTrip("longValue", Long.MAX_VALUE);
+		checkRoundTrip("flag", true);
+		checkRoundTrip("doubleValue", 12.5);
+		checkRoundTrip("boxedInt", 20);
+		checkRoundTrip("boxedLong", -30L);
+		checkRoundTrip("name", "test");
+
+		//null values on boxed fields
+		checkRoundTrip("boxedInt", null);
+		checkRoundTrip("name", null);
+
+		//default values of primitive fields should be returned as boxed values
+		TestBean bean = new TestBean();
+		Assert.assertEquals(fieldDetails("intValue").getValue(bean), 0);
+		Assert.assertEquals(fieldDetails("flag").getValue(bean), false);
+		Assert.assertNull(fieldDetails("boxedLong").getValue(bean));
+	}
+
+	@Test
+	public void testInvalidValues() throws Exception
+	{
+		TestBean bean = new TestBean();
+
+		//runtime exceptions should be thrown as is, without wrapping
+		try
+		{
+			fieldDetails("intValue").setValue(bean, null);
+			Assert.fail("Null value is accepted by primitive field");
+		}catch(IllegalArgumentException ex)
+		{
+			//expected
+		}
+
+		try
+		{
+			fieldDetails("boxedInt").setValue(bean, "abc");
+			Assert.fail("Value of different type is accepted");
+		}catch(IllegalArgumentException ex)
+		{
+			//expected
+		}
+
+		try
+		{
+			fieldDetails("name").getValue("not a bean");
+			Assert.fail("Value is fetched from object of different type");
+		}catch(IllegalArgumentException ex)
+		{
+			//expected
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.repository.RepositoryFactory;
+
+/**
+ * Ensures repository methods returning CompletableFuture are executed asynchronously and join 
+ * the transaction of the calling thread.
+ * @author akiran
+ */
+public class TAsyncRepository extends TestSuiteBase
+{
+	/**
+	 * Number of employees used for testing
+	 */
+	private static final int EMP_COUNT = 20;
+	
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+	
+	@Test(dataProvider = "repositoryFactories")
+	public void testAsyncMethods(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+		
+		//saves are done one after another, as derby identity generation fails on heavy contention
+		for(int i = 0; i < EMP_COUNT; i++)
+		{
+			Assert.assertTrue(empRepository.saveAsync(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, "1234", 20 + i)).get(1, TimeUnit.MINUTES));
+		}
+		
+		//fetch entities concurrently
+		List<CompletableFuture<Employee>> fetchResults = new ArrayList<>();
+		
+		for(int i = 0; i < EMP_COUNT; i++)
+		{
+			fetchResults.add(empRepository.fetchByEmployeeNoAsync("E" + i));
+		}
+		
+		CompletableFuture.allOf(fetchResults.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+		
+		for(int i = 0; i < EMP_COUNT; i++)
+		{
+			Assert.assertEquals(fetchResults.get(i).get().getName(), "emp" + i);
+		}
+		
+		//compose multiple async calls
+		long count = empRepository.getCountByPhoneAsync("1234")
+			.thenCombine(empRepository.fetchByPhoneAsync("1234"), (cnt, emps) -> 
+			{
+				Assert.assertEquals(emps.size(), cnt.intValue());
+				Assert.assertEquals(emps.get(0).getAge(), 20);
+				
+				return cnt;
+			})
+			.get(1, TimeUnit.MINUTES);
+		Assert.assertEquals(count, EMP_COUNT);
+		
+		//update and delete
+		Assert.assertEquals(empRepository.updateAgeAsync("emp3", 50).get(1, TimeUnit.MINUTES).intValue(), 1);
+		Assert.assertEquals(empRepository.findByEmployeeNo("E3").getAge(), 50);
+		
+		Assert.assertEquals(empRepository.deleteByPhoneAsync("1234").get(1, TimeUnit.MINUTES).intValue(), EMP_COUNT);
+		Assert.assertNull(empRepository.findByEmployeeNo("E3"));
+	}
+
+	@Test(dataProvider = "repositoryFactories")
+	public void testTransactionPropagation(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+		
+		empRepository.save(new Employee("E1", "emp1@test.com", "emp1", "1234", 30));
+		
+		//rolled back transaction should revert changes done by async calls
+		try(ITransaction transaction = empRepository.newTransaction())
+		{
+			Assert.assertTrue(empRepository.saveAsync(new Employee("E2", "emp2@test.com", "emp2", "1234", 40)).get(1, TimeUnit.MINUTES));
+			Assert.assertEquals(empRepository.updateAgeAsync("emp1", 35).get(1, TimeUnit.MINUTES).intValue(), 1);
+			
+			//changes should be visible within the transaction
+			Assert.assertEquals(empRepository.findByEmployeeNo("E1").getAge(), 35);
+			Assert.assertNotNull(empRepository.findByEmployeeNo("E2"));
+			
+			transaction.rollback();
+		}
+		
+		Assert.assertEquals(empRepository.findByEmployeeNo("E1").getAge(), 30);
+		Assert.assertNull(empRepository.findByEmployeeNo("E2"));
+		
+		//committed transaction should persist changes done by async calls
+		try(ITransaction transaction = empRepository.newTransaction())
+		{
+			Assert.assertEquals(empRepository.updateAgeAsync("emp1", 45).get(1, TimeUnit.MINUTES).intValue(), 1);
+			transaction.commit();
+		}
+		
+		Assert.assertEquals(empRepository.findByEmployeeNo("E1").getAge(), 45);
+		
+		//async calls should not leave transaction bound to executor threads
+		Assert.assertFalse(factory.getDataStore().getTransactionManager().isTransactionInProgress());
+	}
+
+	@Test(dataProvider = "repositoryFactories")
+	public void testConcurrentCallsInTransaction(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+		
+		empRepository.save(new Employee("E0", "emp0@test.com", "emp0", "1234", 30));
+		
+		try(ITransaction transaction = empRepository.newTransaction())
+		{
+			List<CompletableFuture<?>> results = new ArrayList<>();
+			
+			//fire async writes without waiting in between, these share the transaction connection
+			for(int i = 1; i <= EMP_COUNT; i++)
+			{
+				results.add(empRepository.saveAsync(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, "1234", 20 + i)));
+				results.add(empRepository.updateAgeAsync("emp0", 30 + i));
+			}
+			
+			//caller work overlapping with pending async calls
+			for(int i = 0; i < EMP_COUNT; i++)
+			{
+				Assert.assertNotNull(empRepository.findByEmployeeNo("E0"));
+			}
+			
+			CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+			
+			for(CompletableFuture<?> result : results)
+			{
+				Assert.assertFalse(result.isCompletedExceptionally());
+			}
+			
+			Assert.assertEquals(empRepository.getCountByPhoneAsync("1234").get(1, TimeUnit.MINUTES).intValue(), EMP_COUNT + 1);
+			transaction.commit();
+		}
+		
+		Assert.assertEquals(empRepository.fetchByPhoneAsync("1234").get(1, TimeUnit.MINUTES).size(), EMP_COUNT + 1);
+		Assert.assertFalse(factory.getDataStore().getTransactionManager().isTransactionInProgress());
+	}
+
+	@Test(dataProvider = "repositoryFactories")
+	public void testCallAfterCallerCommit(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+		
+		//executor which holds the async calls till the gate is opened
+		CountDownLatch gate = new CountDownLatch(1);
+		Executor prevExecutor = factory.getAsyncExecutor();
+		
+		factory.setAsyncExecutor(runnable -> new Thread(() -> 
+		{
+			try
+			{
+				gate.await();
+			}catch(InterruptedException ex)
+			{
+				throw new IllegalStateException(ex);
+			}
+			
+			runnable.run();
+		}).start());
+		
+		try
+		{
+			CompletableFuture<Boolean> result = null;
+			
+			try(ITransaction transaction = empRepository.newTransaction())
+			{
+				result = empRepository.saveAsync(new Employee("E1", "emp1@test.com", "emp1", "1234", 30));
+				transaction.commit();
+			}
+			
+			//new transaction, which may reuse the connection released by caller transaction
+			try(ITransaction transaction = empRepository.newTransaction())
+			{
+				gate.countDown();
+				
+				try
+				{
+					result.get(1, TimeUnit.MINUTES);
+					Assert.fail("Async call is executed after caller transaction is committed");
+				}catch(ExecutionException ex)
+				{
+					Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+				}
+				
+				//queued call should not have written through the connection of current transaction
+				Assert.assertNull(empRepository.findByEmployeeNo("E1"));
+				transaction.rollback();
+			}
+		}finally
+		{
+			factory.setAsyncExecutor(prevExecutor);
+		}
+		
+		Assert.assertNull(empRepository.findByEmployeeNo("E1"));
+		Assert.assertFalse(factory.getDataStore().getTransactionManager().isTransactionInProgress());
+	}
+}
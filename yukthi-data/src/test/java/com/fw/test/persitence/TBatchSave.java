@@ -0,0 +1,149 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.yukthi.persistence.UniqueConstraintViolationException;
+import com.yukthi.persistence.listeners.EntityEvent;
+import com.yukthi.persistence.listeners.EntityEventHandler;
+import com.yukthi.persistence.listeners.EntityEventType;
+import com.yukthi.persistence.repository.RepositoryFactory;
+
+/**
+ * Test cases to test batch save functionality
+ * @author akiran
+ */
+public class TBatchSave extends TestSuiteBase
+{
+	/**
+	 * Number of employees to be saved in batch. Kept more than id fetch size, so that
+	 * ids gets fetched in multiple chunks.
+	 */
+	private static final int EMP_COUNT = 250;
+
+	public class EventHandler
+	{
+		@EntityEventHandler(eventType = EntityEventType.PRE_SAVE)
+		public void presave(EntityEvent event)
+		{
+			//listeners are retained by factory, so ignore entities of other test cases
+			if(!(event.getEntity() instanceof Employee))
+			{
+				return;
+			}
+
+			preSaveEntities.add(event.getEntity());
+		}
+
+		@EntityEventHandler(eventType = EntityEventType.POST_SAVE)
+		public void postsave(EntityEvent event)
+		{
+			if(!(event.getEntity() instanceof Employee))
+			{
+				return;
+			}
+
+			//by post save, id should be populated on entity
+			Assert.assertTrue(((Employee)event.getEntity()).getId() > 0);
+			postSaveEntities.add(event.getEntity());
+		}
+	}
+
+	private List<Object> preSaveEntities = new ArrayList<>();
+
+	private List<Object> postSaveEntities = new ArrayList<>();
+
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+
+	/**
+	 * Saves employees in batch and ensures ids are populated and events are fired for each entity
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testBatchSave(RepositoryFactory factory)
+	{
+		factory.registerListeners(new EventHandler());
+		preSaveEntities.clear();
+		postSaveEntities.clear();
+
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+
+		List<Employee> employees = new ArrayList<>();
+
+		for(int i = 0; i < EMP_COUNT; i++)
+		{
+			//keep phone number null for few employees
+			employees.add(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, (i % 3 == 0) ? null : "1234", 20 + i));
+		}
+
+		Assert.assertEquals(empRepository.saveAll(employees), EMP_COUNT);
+		Assert.assertEquals(empRepository.getCount(), EMP_COUNT);
+
+		//ensure ids are populated properly
+		Set<Long> ids = new HashSet<>();
+
+		for(Employee emp : employees)
+		{
+			Assert.assertTrue(ids.add(emp.getId()), "Duplicate id populated: " + emp.getId());
+
+			Employee dbEmp = empRepository.findByEmployeeNo(emp.getEmployeeNo());
+			Assert.assertEquals(dbEmp.getId(), emp.getId());
+			Assert.assertEquals(dbEmp.getEmailId(), emp.getEmailId());
+			Assert.assertEquals(dbEmp.getPhoneNo(), emp.getPhoneNo());
+		}
+
+		//ensure events are fired for each entity
+		Assert.assertEquals(preSaveEntities.size(), EMP_COUNT);
+		Assert.assertEquals(postSaveEntities.size(), EMP_COUNT);
+	}
+
+	/**
+	 * Ensures when one of the entity fails, none of the batch entities are saved
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testBatchSaveFailure(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+
+		List<Employee> employees = new ArrayList<>();
+
+		for(int i = 0; i < 10; i++)
+		{
+			employees.add(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, "1234", 20 + i));
+		}
+
+		//add employee with duplicate email id
+		employees.add(new Employee("E100", "emp5@test.com", "emp100", "1234", 30));
+
+		try
+		{
+			empRepository.saveAll(employees);
+			Assert.fail("Batch with duplicate email id got saved");
+		}catch(UniqueConstraintViolationException ex)
+		{
+			//expected
+		}
+
+		Assert.assertEquals(empRepository.getCount(), 0);
+	}
+}
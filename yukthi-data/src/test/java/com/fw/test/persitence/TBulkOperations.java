@@ -0,0 +1,198 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Customer;
+import com.fw.test.persitence.entity.CustomerGroup;
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.fw.test.persitence.entity.Order;
+import com.fw.test.persitence.entity.OrderItem;
+import com.yukthi.persistence.EntityDetails;
+import com.yukthi.persistence.GenericRepository;
+import com.yukthi.persistence.IDataStore;
+import com.yukthi.persistence.listeners.EntityEvent;
+import com.yukthi.persistence.listeners.EntityEventHandler;
+import com.yukthi.persistence.listeners.EntityEventType;
+import com.yukthi.persistence.query.DeleteChildrenQuery;
+import com.yukthi.persistence.query.FetchChildrenIdsQuery;
+import com.yukthi.persistence.query.QueryCondition;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.annotations.JoinOperator;
+import com.yukthi.persistence.repository.annotations.Operator;
+import com.yukthi.persistence.repository.search.SearchCondition;
+import com.yukthi.persistence.repository.search.SearchQuery;
+import com.yukthi.utils.exceptions.InvalidArgumentException;
+
+/**
+ * Test cases for set based operations - delete/update by search query and nested child queries.
+ * @author akiran
+ */
+public class TBulkOperations extends TestSuiteBase
+{
+	/**
+	 * Records bulk events raised for employees
+	 */
+	public static class BulkEventHandler
+	{
+		private List<String> events = Collections.synchronizedList(new ArrayList<>());
+		
+		@EntityEventHandler(eventType = EntityEventType.PRE_DELETE, entityTypes = Employee.class)
+		public void preDelete(EntityEvent event)
+		{
+			events.add("pre-delete:" + event.getEntityIds().size());
+		}
+
+		@EntityEventHandler(eventType = EntityEventType.POST_DELETE, entityTypes = Employee.class)
+		public void postDelete(EntityEvent event)
+		{
+			events.add("post-delete:" + event.getEntityIds().size());
+		}
+	}
+	
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+		
+		factory.dropRepository(Employee.class);
+		
+		factory.dropRepository(OrderItem.class);
+		factory.dropRepository(Order.class);
+		factory.dropRepository(Customer.class);
+		factory.dropRepository(CustomerGroup.class);
+	}
+	
+	private IEmployeeRepository saveEmployees(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+		
+		for(int i = 0; i < 10; i++)
+		{
+			empRepository.save(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, (i % 2 == 0) ? "1111" : "2222", 20 + i));
+		}
+		
+		return empRepository;
+	}
+
+	@Test(dataProvider = "repositoryFactories")
+	public void testDeleteMatching(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = saveEmployees(factory);
+		
+		BulkEventHandler eventHandler = new BulkEventHandler();
+		factory.registerListeners(eventHandler);
+		
+		//delete employees with phone 1111 and age less than 25 or with age 29
+		SearchCondition ageCondition = new SearchCondition("age", Operator.LT, 25);
+		ageCondition.addCondition(new SearchCondition("phoneNo", Operator.EQ, "1111"));
+		
+		SearchQuery query = new SearchQuery(ageCondition, new SearchCondition(JoinOperator.OR, "age", Operator.EQ, 29));
+		
+		//E0, E2, E4 and E9 should be deleted
+		Assert.assertEquals(empRepository.deleteMatching(query), 4);
+		Assert.assertEquals(empRepository.getCount(), 6);
+		
+		Assert.assertNull(empRepository.findByEmployeeNo("E2"));
+		Assert.assertNull(empRepository.findByEmployeeNo("E9"));
+		Assert.assertNotNull(empRepository.findByEmployeeNo("E1"));
+		Assert.assertNotNull(empRepository.findByEmployeeNo("E6"));
+		
+		//single event should be raised for all deleted entities
+		Assert.assertEquals(eventHandler.events, Arrays.asList("pre-delete:4", "post-delete:4"));
+		
+		//delete with IN condition
+		query = new SearchQuery(new SearchCondition("employeeNo", Operator.IN, Arrays.asList("E1", "E3", "E100")));
+		Assert.assertEquals(empRepository.deleteMatching(query), 2);
+		Assert.assertEquals(empRepository.getCount(), 4);
+	}
+
+	@Test(dataProvider = "repositoryFactories")
+	public void testUpdateMatching(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = saveEmployees(factory);
+		
+		Map<String, Object> values = new HashMap<>();
+		values.put("phoneNo", "3333");
+		values.put("age", 50);
+		
+		SearchQuery query = new SearchQuery(new SearchCondition("phoneNo", Operator.EQ, "2222"), new SearchCondition("age", Operator.GT, 24));
+		
+		//E5, E7, E9 should be updated
+		Assert.assertEquals(empRepository.updateMatching(query, values), 3);
+		
+		Assert.assertEquals(empRepository.findByEmployeeNo("E5").getPhoneNo(), "3333");
+		Assert.assertEquals(empRepository.findByEmployeeNo("E9").getAge(), 50);
+		Assert.assertEquals(empRepository.findByEmployeeNo("E3").getPhoneNo(), "2222");
+		Assert.assertEquals(empRepository.findByEmployeeNo("E4").getPhoneNo(), "1111");
+		
+		//ensure invalid fields are not accepted
+		try
+		{
+			empRepository.updateMatching(query, Collections.singletonMap("id", 100));
+			Assert.fail("Id field update is accepted");
+		}catch(InvalidArgumentException ex)
+		{
+			//expected
+		}
+	}
+	
+	/**
+	 * Ensures multi level relations can be expressed as nested child queries
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testNestedChildQueries(RepositoryFactory factory)
+	{
+		GenericRepository genericRepository = new GenericRepository(factory);
+		
+		Order order1 = new Order("order1", 10, null, Arrays.asList(new OrderItem("soap", 10, null), new OrderItem("box", 20, null)));
+		Order order2 = new Order("order2", 10, null, Arrays.asList(new OrderItem("brush", 3, null)));
+		Order order3 = new Order("order3", 10, null, Arrays.asList(new OrderItem("book", 20, null)));
+		
+		genericRepository.save(new Customer("Customer1", null, Arrays.asList(order1, order2)));
+		genericRepository.save(new Customer("Customer2", null, Arrays.asList(order3)));
+		
+		IDataStore dataStore = factory.getDataStore();
+		EntityDetails customerDetails = factory.getRepositoryForEntity(Customer.class).getEntityDetails();
+		EntityDetails orderDetails = factory.getRepositoryForEntity(Order.class).getEntityDetails();
+		EntityDetails itemDetails = factory.getRepositoryForEntity(OrderItem.class).getEntityDetails();
+		
+		//query for orders of customer1
+		FetchChildrenIdsQuery orderIdQuery = new FetchChildrenIdsQuery(orderDetails, customerDetails);
+		orderIdQuery.addParentCondition(new QueryCondition(null, customerDetails.getFieldDetailsByField("name").getDbColumnName(), 
+				Operator.EQ, "Customer1", JoinOperator.AND, false));
+		orderIdQuery.addMapping(orderDetails.getFieldDetailsByField("customer").getDbColumnName(), customerDetails.getIdField().getDbColumnName());
+		
+		Assert.assertEquals(dataStore.fetchChildrenIds(orderIdQuery).size(), 2);
+		
+		//fetch items of orders of customer1
+		String itemOrderColumn = itemDetails.getFieldDetailsByField("order").getDbColumnName();
+		FetchChildrenIdsQuery itemIdQuery = new FetchChildrenIdsQuery(itemDetails, orderDetails);
+		itemIdQuery.setParentIdQuery(orderIdQuery);
+		itemIdQuery.addMapping(itemOrderColumn, orderDetails.getIdField().getDbColumnName());
+		
+		Assert.assertEquals(dataStore.fetchChildrenIds(itemIdQuery).size(), 3);
+		
+		//delete items of orders of customer1
+		DeleteChildrenQuery deleteItemsQuery = new DeleteChildrenQuery(itemDetails, orderDetails);
+		deleteItemsQuery.setParentIdQuery(orderIdQuery);
+		deleteItemsQuery.addMapping(itemOrderColumn, orderDetails.getIdField().getDbColumnName());
+		
+		Assert.assertEquals(dataStore.deleteChildren(deleteItemsQuery), 3);
+		Assert.assertEquals(factory.getRepositoryForEntity(OrderItem.class).getCount(), 1);
+		Assert.assertEquals(factory.getRepositoryForEntity(Order.class).getCount(), 3);
+	}
+}
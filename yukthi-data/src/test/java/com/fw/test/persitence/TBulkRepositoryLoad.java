@@ -0,0 +1,91 @@
+package com.fw.test.persitence;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Country;
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.ICountryRepository;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.yukthi.persistence.ICrudRepository;
+import com.yukthi.persistence.repository.RepositoryFactory;
+
+/**
+ * Test cases to test bulk loading of repositories and metadata snapshot
+ * @author akiran
+ */
+public class TBulkRepositoryLoad extends TestSuiteBase
+{
+	private File snapshotFile = new File("target/metadata-snapshot.properties");
+	
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the tables
+		factory.dropRepository(Country.class);
+		factory.dropRepository(Employee.class);
+		
+		factory.setMetadataSnapshotFile(null);
+		snapshotFile.delete();
+	}
+	
+	private Properties loadSnapshot() throws Exception
+	{
+		Properties snapshot = new Properties();
+		
+		try(InputStream is = new FileInputStream(snapshotFile))
+		{
+			snapshot.load(is);
+		}
+		
+		return snapshot;
+	}
+	
+	@Test(dataProvider = "repositoryFactories")
+	public void testLoadRepositories(RepositoryFactory factory) throws Exception
+	{
+		snapshotFile.delete();
+		factory.setMetadataSnapshotFile(snapshotFile);
+		
+		factory.loadRepositories(Arrays.<Class<? extends ICrudRepository<?>>>asList(ICountryRepository.class, IEmployeeRepository.class));
+		
+		//ensure loaded repositories are registered and usable
+		ICountryRepository countryRepository = factory.getRepository(ICountryRepository.class);
+		countryRepository.save(new Country("IN", "India"));
+		
+		IEmployeeRepository employeeRepository = factory.getRepository(IEmployeeRepository.class);
+		employeeRepository.save(new Employee("1230", "user0@test.com", "abc", "1234560", 20));
+		
+		Assert.assertSame(factory.getRepositoryForEntity(Country.class), countryRepository);
+		Assert.assertEquals(countryRepository.getCount(), 1L);
+		Assert.assertEquals(employeeRepository.findByEmployeeNo("1230").getName(), "abc");
+		
+		//ensure metadata of created tables is persisted
+		Properties snapshot = loadSnapshot();
+		Assert.assertTrue(snapshot.containsKey("COUNTRY"));
+		Assert.assertTrue(snapshot.containsKey("EMPLOYEE"));
+		
+		//ensure dropped tables are removed from snapshot, and get recreated on reload
+		factory.dropRepository(Country.class);
+		Assert.assertFalse(loadSnapshot().containsKey("COUNTRY"));
+		
+		factory.loadRepositories(Arrays.<Class<? extends ICrudRepository<?>>>asList(ICountryRepository.class, IEmployeeRepository.class));
+		countryRepository = factory.getRepository(ICountryRepository.class);
+		countryRepository.save(new Country("JP", "Japan"));
+		
+		Assert.assertEquals(countryRepository.getCount(), 1L);
+		Assert.assertSame(factory.getRepository(IEmployeeRepository.class), employeeRepository);
+		Assert.assertTrue(loadSnapshot().containsKey("COUNTRY"));
+	}
+}
@@ -0,0 +1,175 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.fw.test.persitence.queries.DynamicEmpSearchResult;
+import com.yukthi.persistence.OrderByField;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.annotations.OrderByType;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+/**
+ * Benchmark for concurrent execution of same repository method. Executes a fixed number of
+ * finder calls with increasing number of threads and logs the throughput for each thread count. 
+ * Also ensures concurrent finder, count and search calls get their own results.
+ * @author akiran
+ */
+public class TConcurrentFinders extends TestSuiteBase
+{
+	/**
+	 * Number of employees used for testing
+	 */
+	private static final int EMP_COUNT = 50;
+
+	/**
+	 * Total number of repository calls executed for each thread count
+	 */
+	private static final int CALL_COUNT = 1200;
+
+	/**
+	 * Thread counts to be benchmarked
+	 */
+	private static final int THREAD_COUNTS[] = {1, 4, 8};
+
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+
+	/**
+	 * Executes same finder method repeatedly from specified thread and validates the results.
+	 * @param empRepository Repository to use
+	 * @param threadIdx Index of the thread
+	 * @param callCount Number of calls to execute
+	 * @param mixedCalls If true, finder, count and search methods will be invoked alternatively
+	 */
+	private void executeCalls(IEmployeeRepository empRepository, int threadIdx, int callCount, boolean mixedCalls)
+	{
+		for(int i = 0; i < callCount; i++)
+		{
+			int empIdx = (threadIdx * 7 + i) % EMP_COUNT;
+
+			switch(mixedCalls ? (i % 3) : 0)
+			{
+				case 0:
+				{
+					Employee emp = empRepository.findByEmployeeNo("E" + empIdx);
+					Assert.assertEquals(emp.getName(), "emp" + empIdx);
+					break;
+				}
+				case 1:
+				{
+					Assert.assertEquals(empRepository.getCountByMailId("emp" + empIdx + "@test.com"), 1L);
+					break;
+				}
+				default:
+				{
+					//alternate ordering between threads, so that order-by of one call does not affect other
+					OrderByType orderType = (threadIdx % 2 == 0) ? OrderByType.ASC : OrderByType.DESC;
+
+					SearchQuery query = new SearchQuery();
+					query.setOrderByFields(Arrays.asList(new OrderByField("age", orderType)));
+
+					List<DynamicEmpSearchResult> results = empRepository.searchByName(query);
+					Assert.assertEquals(results.size(), EMP_COUNT);
+
+					int first = results.get(0).getAge();
+					int last = results.get(results.size() - 1).getAge();
+					Assert.assertTrue( (orderType == OrderByType.ASC) ? (first < last) : (first > last) );
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes {@link #CALL_COUNT} calls distributed among specified number of threads.
+	 * @param empRepository Repository to use
+	 * @param threadCount Number of threads to use
+	 * @param mixedCalls Whether different repository methods should be invoked
+	 * @return Time taken in millis
+	 */
+	private long executeConcurrently(IEmployeeRepository empRepository, int threadCount, boolean mixedCalls) throws Exception
+	{
+		ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		CountDownLatch startLatch = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>();
+
+		for(int i = 0; i < threadCount; i++)
+		{
+			final int threadIdx = i;
+
+			results.add(executorService.submit(() ->
+			{
+				startLatch.await();
+				executeCalls(empRepository, threadIdx, CALL_COUNT / threadCount, mixedCalls);
+				return null;
+			}));
+		}
+
+		long startTime = System.nanoTime();
+		startLatch.countDown();
+
+		executorService.shutdown();
+		Assert.assertTrue(executorService.awaitTermination(5, TimeUnit.MINUTES));
+
+		long timeTaken = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+		//ensure no errors occurred in any thread
+		for(Future<?> result : results)
+		{
+			result.get();
+		}
+		
+		return timeTaken;
+	}
+
+	/**
+	 * Executes same repository method from different number of threads and logs throughput.
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testConcurrentFinders(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+
+		for(int i = 0; i < EMP_COUNT; i++)
+		{
+			empRepository.save(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, "1234", 20 + i));
+		}
+
+		//warm up, so that first measurement is not affected by class loading and query building
+		executeConcurrently(empRepository, 1, true);
+
+		for(int threadCount : THREAD_COUNTS)
+		{
+			long timeTaken = executeConcurrently(empRepository, threadCount, false);
+
+			System.out.println(String.format("Executed %d finder calls with %d thread(s) in %d ms. Throughput: %d calls/sec",
+					CALL_COUNT, threadCount, timeTaken, (CALL_COUNT * 1000L) / Math.max(timeTaken, 1)));
+		}
+		
+		//ensure different methods invoked concurrently, fetch correct results
+		executeConcurrently(empRepository, THREAD_COUNTS[THREAD_COUNTS.length - 1], true);
+	}
+}
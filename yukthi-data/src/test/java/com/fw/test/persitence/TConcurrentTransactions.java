@@ -0,0 +1,144 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.TransactionWrapper;
+import com.yukthi.persistence.repository.RepositoryFactory;
+
+/**
+ * Stress test to ensure transactions started by concurrent threads are isolated from each other.
+ * @author akiran
+ */
+public class TConcurrentTransactions extends TestSuiteBase
+{
+	/**
+	 * Number of threads starting transactions concurrently
+	 */
+	private static final int THREAD_COUNT = 20;
+
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+
+	/**
+	 * Starts transactions from multiple threads concurrently and ensures each thread sees only its own
+	 * transaction and commit/rollback of one thread does not affect the others.
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testConcurrentTransactions(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+		CountDownLatch startLatch = new CountDownLatch(1);
+		
+		//inserts are done one after another, as derby identity generation fails on heavy contention. Transactions
+		//still overlap, as they are started, committed and rolled back concurrently
+		ReentrantLock saveLock = new ReentrantLock();
+		List<Future<Boolean>> results = new ArrayList<>();
+
+		for(int i = 0; i < THREAD_COUNT; i++)
+		{
+			final int threadIdx = i;
+
+			results.add(executorService.submit(() ->
+			{
+				startLatch.await();
+
+				//even threads commit their transactions and odd threads roll back
+				boolean commit = (threadIdx % 2 == 0);
+
+				try(ITransaction transaction = empRepository.newTransaction())
+				{
+					TransactionWrapper<?> current = (TransactionWrapper<?>)empRepository.currentTransaction();
+					Assert.assertSame(current.getTransaction(), transaction);
+
+					saveLock.lock();
+					
+					try
+					{
+						empRepository.save(new Employee("E" + threadIdx, "emp" + threadIdx + "@test.com", "emp" + threadIdx, "1234", 30));
+					}finally
+					{
+						saveLock.unlock();
+					}
+
+					//ensure repository calls within transaction does not alter the thread's transaction
+					current = (TransactionWrapper<?>)empRepository.currentTransaction();
+					Assert.assertSame(current.getTransaction(), transaction);
+
+					if(commit)
+					{
+						transaction.commit();
+					}
+					else
+					{
+						transaction.rollback();
+					}
+				}
+
+				//after completion, no transaction should be bound to current thread
+				try
+				{
+					empRepository.currentTransaction();
+					Assert.fail("Transaction binding is not released after completion");
+				}catch(IllegalStateException ex)
+				{
+					//expected
+				}
+
+				return commit;
+			}));
+		}
+
+		startLatch.countDown();
+		executorService.shutdown();
+		Assert.assertTrue(executorService.awaitTermination(5, TimeUnit.MINUTES));
+
+		int committedCount = 0;
+
+		for(int i = 0; i < THREAD_COUNT; i++)
+		{
+			boolean committed = results.get(i).get();
+			Employee emp = empRepository.findByEmployeeNo("E" + i);
+
+			if(committed)
+			{
+				committedCount++;
+				Assert.assertNotNull(emp, "Committed employee not found: E" + i);
+				Assert.assertEquals(emp.getEmailId(), "emp" + i + "@test.com");
+			}
+			else
+			{
+				Assert.assertNull(emp, "Rolled back employee found: E" + i);
+			}
+		}
+
+		//even threads commit and odd threads roll back
+		Assert.assertEquals(committedCount, THREAD_COUNT / 2);
+		Assert.assertEquals(empRepository.getCount(), THREAD_COUNT / 2);
+	}
+}
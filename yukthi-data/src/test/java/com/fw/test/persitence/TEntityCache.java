@@ -0,0 +1,276 @@
+package com.fw.test.persitence;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.City;
+import com.fw.test.persitence.entity.Country;
+import com.fw.test.persitence.entity.ICityRepository;
+import com.fw.test.persitence.entity.ICountryRepository;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.Record;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.cache.EntityCache;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+/**
+ * Test cases to test second level entity cache
+ * @author akiran
+ */
+public class TEntityCache extends TestSuiteBase
+{
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the country table
+		factory.dropRepository(Country.class);
+	}
+
+	private Country save(ICountryRepository repository, String code, String name)
+	{
+		Country country = new Country(code, name);
+		Assert.assertTrue(repository.save(country));
+
+		return country;
+	}
+
+	/**
+	 * Ensures repeated fetches are served from cache with separate instances
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testCacheHits(RepositoryFactory factory)
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		Country india = save(repository, "IN", "India");
+
+		Country country1 = repository.findById(india.getId());
+		EntityCache cache = factory.getEntityCacheManager().getCache(Country.class);
+		Assert.assertEquals(cache.getMissCount(), 1);
+		Assert.assertEquals(cache.getHitCount(), 0);
+
+		//change done on fetched instance should not affect the cache
+		country1.setName("Changed");
+
+		Country country2 = repository.findById(india.getId());
+		Assert.assertEquals(cache.getHitCount(), 1);
+		Assert.assertNotSame(country2, country1);
+		Assert.assertEquals(country2.getName(), "India");
+
+		//different type of same id should also be served from cache
+		Assert.assertEquals(repository.findById((int)india.getId()).getName(), "India");
+		Assert.assertEquals(cache.getHitCount(), 2);
+
+		//non-existing entities should not be cached
+		Assert.assertNull(repository.findById(india.getId() + 100));
+		Assert.assertEquals(cache.getSize(), 1);
+	}
+
+	/**
+	 * Ensures cached entities are invalidated on update and delete
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testInvalidation(RepositoryFactory factory)
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		Country india = save(repository, "IN", "India");
+		Country japan = save(repository, "JP", "Japan");
+
+		Assert.assertEquals(repository.findById(india.getId()).getName(), "India");
+		Assert.assertEquals(repository.findById(japan.getId()).getName(), "Japan");
+
+		//entity update
+		india.setName("Bharat");
+		Assert.assertTrue(repository.update(india));
+		Assert.assertEquals(repository.findById(india.getId()).getName(), "Bharat");
+
+		//conditional update
+		Assert.assertTrue(repository.updateName("JP", "Nippon"));
+		Assert.assertEquals(repository.findById(japan.getId()).getName(), "Nippon");
+
+		//delete
+		Assert.assertTrue(repository.deleteById(india.getId()));
+		Assert.assertNull(repository.findById(india.getId()));
+
+		Assert.assertTrue(repository.deleteByCode("JP"));
+		Assert.assertNull(repository.findById(japan.getId()));
+	}
+
+	/**
+	 * Ensures uncommitted changes are not cached and rolled back changes are not visible
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testTransactionRollback(RepositoryFactory factory) throws Exception
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		Country india = save(repository, "IN", "India");
+
+		Assert.assertEquals(repository.findById(india.getId()).getName(), "India");
+
+		try(ITransaction transaction = repository.newTransaction())
+		{
+			india.setName("Bharat");
+			Assert.assertTrue(repository.update(india));
+
+			//within transaction, uncommitted value should be visible
+			Assert.assertEquals(repository.findById(india.getId()).getName(), "Bharat");
+
+			transaction.rollback();
+		}
+
+		Assert.assertEquals(repository.findById(india.getId()).getName(), "India");
+	}
+
+	/**
+	 * Ensures records cached by other threads, while an update is pending in explicit transaction, are
+	 * invalidated once the transaction is committed. As stores like derby lock the updated row, the concurrent
+	 * reader (which on MVCC stores would read and cache committed value) is simulated by caching the old record.
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testConcurrentReaderDuringTransaction(RepositoryFactory factory) throws Exception
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		Country india = save(repository, "IN", "India");
+		Country japan = save(repository, "JP", "Japan");
+
+		Assert.assertEquals(repository.findById(india.getId()).getName(), "India");
+		Assert.assertEquals(repository.findById(japan.getId()).getName(), "Japan");
+
+		EntityCache cache = factory.getEntityCacheManager().getCache(Country.class);
+		Record oldRecord = cache.get(india.getId());
+
+		try(ITransaction transaction = repository.newTransaction())
+		{
+			india.setName("Bharat");
+			Assert.assertTrue(repository.update(india));
+
+			//update should invalidate only the updated entity
+			Assert.assertFalse(cache.contains(india.getId()));
+			Assert.assertTrue(cache.contains(japan.getId()));
+
+			//as commit on inner transaction of update is ignored, other threads still read (and cache) committed value
+			cache.put(india.getId(), oldRecord, cache.getGeneration(india.getId()));
+			Assert.assertTrue(cache.contains(india.getId()));
+
+			transaction.commit();
+		}
+
+		Assert.assertEquals(repository.findById(india.getId()).getName(), "Bharat");
+		Assert.assertEquals(repository.findById(japan.getId()).getName(), "Japan");
+	}
+
+	/**
+	 * Ensures lazy loading of cached entities uses the cache, and entities loaded from db are added to cache
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testLazyLoadingWithCache(RepositoryFactory factory)
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		ICityRepository cityRepository = factory.getRepository(ICityRepository.class);
+
+		try
+		{
+			Country india = save(repository, "IN", "India");
+			Country japan = save(repository, "JP", "Japan");
+
+			Assert.assertTrue(cityRepository.save(new City("Delhi", india)));
+			Assert.assertTrue(cityRepository.save(new City("Mumbai", india)));
+			Assert.assertTrue(cityRepository.save(new City("Tokyo", japan)));
+
+			//cache only india
+			Assert.assertEquals(repository.findById(india.getId()).getName(), "India");
+
+			EntityCache cache = factory.getEntityCacheManager().getCache(Country.class);
+			long hitCount = cache.getHitCount();
+
+			List<City> cities = cityRepository.search(new SearchQuery());
+			Assert.assertEquals(cities.size(), 3);
+
+			for(City city : cities)
+			{
+				Assert.assertEquals(city.getCountry().getName(), "Tokyo".equals(city.getName()) ? "Japan" : "India");
+			}
+
+			//india should be loaded from cache and japan (loaded from db) should be added to cache
+			Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+			Assert.assertTrue(cache.contains(japan.getId()));
+
+			Assert.assertEquals(repository.findById(japan.getId()).getName(), "Japan");
+			Assert.assertEquals(cache.getHitCount(), hitCount + 2);
+		}finally
+		{
+			factory.dropRepository(City.class);
+		}
+	}
+
+	/**
+	 * Ensures cached child entities are invalidated, when they are deleted along with parent by db
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testCascadedDelete(RepositoryFactory factory)
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		ICityRepository cityRepository = factory.getRepository(ICityRepository.class);
+
+		try
+		{
+			Country india = save(repository, "IN", "India");
+			City delhi = new City("Delhi", india);
+			Assert.assertTrue(cityRepository.save(delhi));
+
+			Assert.assertNotNull(cityRepository.findById(delhi.getId()));
+			Assert.assertNotNull(cityRepository.findById(delhi.getId()));
+			Assert.assertEquals(factory.getEntityCacheManager().getCache(City.class).getHitCount(), 1);
+
+			//deleting parent should remove cached child entities
+			Assert.assertTrue(repository.deleteById(india.getId()));
+			Assert.assertNull(cityRepository.findById(delhi.getId()));
+		}finally
+		{
+			factory.dropRepository(City.class);
+		}
+	}
+
+	/**
+	 * Ensures least recently used entities are evicted when cache is full
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testEviction(RepositoryFactory factory)
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		Country countries[] = new Country[5];
+
+		for(int i = 0; i < countries.length; i++)
+		{
+			countries[i] = save(repository, "C" + i, "Country" + i);
+			repository.findById(countries[i].getId());
+		}
+
+		EntityCache cache = factory.getEntityCacheManager().getCache(Country.class);
+		Assert.assertEquals(cache.getSize(), cache.getMaxSize());
+		Assert.assertEquals(cache.getEvictionCount(), 2);
+
+		//recent entity should be served from cache, and evicted one from db
+		long hitCount = cache.getHitCount();
+		long missCount = cache.getMissCount();
+
+		Assert.assertEquals(repository.findById(countries[4].getId()).getName(), "Country4");
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+
+		Assert.assertEquals(repository.findById(countries[0].getId()).getName(), "Country0");
+		Assert.assertEquals(cache.getMissCount(), missCount + 1);
+	}
+}
@@ -0,0 +1,141 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Customer;
+import com.fw.test.persitence.entity.CustomerGroup;
+import com.fw.test.persitence.entity.IOrderRepository;
+import com.fw.test.persitence.entity.Order;
+import com.fw.test.persitence.entity.OrderItem;
+import com.yukthi.persistence.GenericRepository;
+import com.yukthi.persistence.ICrudRepository;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+/**
+ * Ensures lazy relation proxies of a result set are loaded in batches
+ * @author akiran
+ */
+public class TLazyBatchLoading extends TestSuiteBase
+{
+	/**
+	 * Number of customers used for testing
+	 */
+	private static final int CUSTOMER_COUNT = 5;
+
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the tables
+		factory.dropRepository(OrderItem.class);
+		factory.dropRepository(Order.class);
+		factory.dropRepository(Customer.class);
+		factory.dropRepository(CustomerGroup.class);
+	}
+
+	/**
+	 * Creates customers with orders and fetches all orders
+	 * @param factory
+	 * @return Fetched orders with lazy customers
+	 */
+	private List<Order> fetchOrders(RepositoryFactory factory)
+	{
+		GenericRepository genericRepository = new GenericRepository(factory);
+
+		for(int i = 0; i < CUSTOMER_COUNT; i++)
+		{
+			Order order1 = new Order("order" + i + "_1", i * 10 + 1, null, null);
+			Order order2 = new Order("order" + i + "_2", i * 10 + 2, null, null);
+
+			genericRepository.save(new Customer("Customer" + i, null, Arrays.asList(order1, order2)));
+		}
+
+		IOrderRepository orderRepository = factory.getRepository(IOrderRepository.class);
+		List<Order> orders = orderRepository.search(new SearchQuery());
+
+		Assert.assertEquals(orders.size(), CUSTOMER_COUNT * 2);
+		return orders;
+	}
+
+	/**
+	 * Renames all the customers in db
+	 * @param factory
+	 */
+	private void renameCustomers(RepositoryFactory factory)
+	{
+		ICrudRepository<Customer> customerRepository = factory.getRepositoryForEntity(Customer.class);
+
+		for(Customer customer : new ArrayList<>(customerRepository.search(new SearchQuery())))
+		{
+			customer.setName(customer.getName() + "_new");
+			Assert.assertTrue(customerRepository.update(customer));
+		}
+	}
+
+	/**
+	 * Access of single customer proxy should load all sibling customers, so that changes done later
+	 * in db are not visible to sibling proxies.
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testBatchLoading(RepositoryFactory factory)
+	{
+		List<Order> orders = fetchOrders(factory);
+
+		//access first proxy, which should load all sibling customers
+		Assert.assertTrue(orders.get(0).getCustomer().getName().startsWith("Customer"));
+
+		renameCustomers(factory);
+
+		for(Order order : orders)
+		{
+			String expectedName = "Customer" + (order.getOrderNo() / 10);
+			Assert.assertEquals(order.getCustomer().getName(), expectedName);
+		}
+	}
+
+	/**
+	 * With batching disabled, each proxy should be loaded individually
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testIndividualLoading(RepositoryFactory factory)
+	{
+		int batchSize = factory.getLazyLoadBatchSize();
+		factory.setLazyLoadBatchSize(1);
+
+		try
+		{
+			List<Order> orders = fetchOrders(factory);
+			Customer firstCustomer = orders.get(0).getCustomer();
+			Assert.assertTrue(firstCustomer.getName().startsWith("Customer"));
+
+			renameCustomers(factory);
+
+			for(Order order : orders)
+			{
+				//proxies sharing the already loaded customer would not see the change
+				if(order.getCustomer().getId() == firstCustomer.getId())
+				{
+					continue;
+				}
+
+				String expectedName = "Customer" + (order.getOrderNo() / 10) + "_new";
+				Assert.assertEquals(order.getCustomer().getName(), expectedName);
+			}
+		}finally
+		{
+			factory.setLazyLoadBatchSize(batchSize);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Country;
+import com.fw.test.persitence.entity.ICountryRepository;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.NativeQueryFactory;
+import com.yukthi.persistence.OrderByField;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.annotations.Operator;
+import com.yukthi.persistence.repository.annotations.OrderByType;
+import com.yukthi.persistence.repository.cache.QueryResultCache;
+import com.yukthi.persistence.repository.search.SearchCondition;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+/**
+ * Test cases to test search result cache
+ * @author akiran
+ */
+public class TQueryResultCache extends TestSuiteBase
+{
+	@Override
+	protected void initFactoryBeforeClass(RepositoryFactory factory)
+	{
+		NativeQueryFactory nativeQueryFactory = new NativeQueryFactory();
+		nativeQueryFactory.addResource("/test-native-queries.xml");
+		
+		factory.getDataStore().setNativeQueryFactory(nativeQueryFactory);
+	}
+	
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the country table
+		factory.dropRepository(Country.class);
+		
+		factory.getQueryResultCache().setMaxEntries(QueryResultCache.DEFAULT_MAX_ENTRIES);
+	}
+	
+	private ICountryRepository saveCountries(RepositoryFactory factory)
+	{
+		ICountryRepository repository = factory.getRepository(ICountryRepository.class);
+		
+		repository.save(new Country("IN", "India"));
+		repository.save(new Country("JP", "Japan"));
+		repository.save(new Country("IR", "Iran"));
+		
+		return repository;
+	}
+	
+	private SearchQuery newQuery(String namePattern)
+	{
+		SearchQuery query = new SearchQuery(new SearchCondition("name", Operator.LIKE, namePattern));
+		query.setOrderByFields(Arrays.asList(new OrderByField("name", OrderByType.ASC)));
+		
+		return query;
+	}
+	
+	private List<String> names(List<Country> countries)
+	{
+		List<String> names = new ArrayList<>();
+		countries.forEach(country -> names.add(country.getName()));
+		
+		return names;
+	}
+
+	/**
+	 * Ensures identical queries are served from cache and modifications invalidate the results
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testCacheHitsAndInvalidation(RepositoryFactory factory)
+	{
+		ICountryRepository repository = saveCountries(factory);
+		QueryResultCache cache = factory.getQueryResultCache();
+		
+		long hitCount = cache.getHitCount();
+		
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iran"));
+		Assert.assertEquals(cache.getHitCount(), hitCount);
+		
+		//identical query should be served from cache
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iran"));
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+		
+		//query with different values should not use the cached result
+		Assert.assertEquals(names(repository.searchCountries(newQuery("J%"))), Arrays.asList("Japan"));
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+		
+		//save should invalidate the results
+		repository.save(new Country("IQ", "Iraq"));
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iran", "Iraq"));
+		
+		//update should invalidate the results
+		Assert.assertTrue(repository.updateName("IR", "Persia"));
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iraq"));
+		
+		//delete should invalidate the results
+		Assert.assertTrue(repository.deleteByCode("IQ"));
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India"));
+		
+		//results should be fetched freshly after explicit invalidation
+		cache.invalidateAll();
+		hitCount = cache.getHitCount();
+		
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India"));
+		Assert.assertEquals(cache.getHitCount(), hitCount);
+	}
+
+	/**
+	 * Ensures results are not cached beyond ttl and within transactions
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testExpiryAndTransactions(RepositoryFactory factory) throws Exception
+	{
+		ICountryRepository repository = saveCountries(factory);
+		QueryResultCache cache = factory.getQueryResultCache();
+		
+		repository.searchRecentCountries(newQuery("I%"));
+		long hitCount = cache.getHitCount();
+		
+		repository.searchRecentCountries(newQuery("I%"));
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+		
+		//after ttl, results should be fetched again
+		Thread.sleep(200);
+		
+		repository.searchRecentCountries(newQuery("I%"));
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+		
+		//within transaction cache should not be used
+		try(ITransaction transaction = repository.newTransaction())
+		{
+			repository.save(new Country("IQ", "Iraq"));
+			Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iran", "Iraq"));
+			
+			transaction.rollback();
+		}
+
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iran"));
+	}
+	
+	/**
+	 * Ensures native dml invalidates the results immediately and again when the transaction is closed
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testNativeDmlInvalidation(RepositoryFactory factory) throws Exception
+	{
+		ICountryRepository repository = saveCountries(factory);
+		QueryResultCache cache = factory.getQueryResultCache();
+		
+		Map<String, Object> params = new HashMap<>();
+		params.put("code", "IR");
+		params.put("name", "Persia");
+		
+		repository.searchCountries(newQuery("I%"));
+		
+		Assert.assertEquals(repository.updateNameNatively(params), 1);
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India"));
+		
+		try(ITransaction transaction = repository.newTransaction())
+		{
+			params.put("name", "Iran");
+			Assert.assertEquals(repository.updateNameNatively(params), 1);
+			
+			//simulate a concurrent reader caching old result after the immediate invalidation, but before commit
+			List<String> tables = Arrays.asList("COUNTRY");
+			cache.put("staleResult", new ArrayList<>(), tables, 60000, cache.getGeneration(tables));
+			Assert.assertNotNull(cache.get("staleResult"));
+			
+			transaction.commit();
+		}
+		
+		Assert.assertNull(cache.get("staleResult"));
+		Assert.assertEquals(names(repository.searchCountries(newQuery("I%"))), Arrays.asList("India", "Iran"));
+	}
+	
+	/**
+	 * Ensures least recently used results are evicted when cache is full
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testEviction(RepositoryFactory factory)
+	{
+		ICountryRepository repository = saveCountries(factory);
+		QueryResultCache cache = factory.getQueryResultCache();
+		
+		cache.invalidateAll();
+		cache.setMaxEntries(2);
+		
+		long evictionCount = cache.getEvictionCount();
+		
+		repository.searchCountries(newQuery("I%"));
+		repository.searchCountries(newQuery("J%"));
+		repository.searchCountries(newQuery("%a%"));
+		
+		Assert.assertEquals(cache.getSize(), 2);
+		Assert.assertEquals(cache.getEvictionCount(), evictionCount + 1);
+		
+		//recent result should be served from cache and evicted one from db
+		long hitCount = cache.getHitCount();
+		
+		repository.searchCountries(newQuery("%a%"));
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+		
+		repository.searchCountries(newQuery("I%"));
+		Assert.assertEquals(cache.getHitCount(), hitCount + 1);
+	}
+}
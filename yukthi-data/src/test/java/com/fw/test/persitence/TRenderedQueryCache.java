@@ -0,0 +1,137 @@
+package com.fw.test.persitence;
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.yukthi.persistence.OrderByField;
+import com.yukthi.persistence.rdbms.RdbmsConfiguration;
+import com.yukthi.persistence.rdbms.RdbmsDataStore;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.annotations.OrderByType;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+/**
+ * Test cases to test caching of rendered query text
+ * @author akiran
+ */
+public class TRenderedQueryCache extends TestSuiteBase
+{
+	private static final String NAMES[] = {"abc", "def", "ghi", "xyz", "zie"};
+
+	@Override
+	protected void initFactoryBeforeClass(RepositoryFactory factory)
+	{
+		IEmployeeRepository repo = factory.getRepository(IEmployeeRepository.class);
+		repo.deleteAll();
+
+		for(int i = 0; i < NAMES.length; i++)
+		{
+			repo.save(new Employee("123" + i, "user" + i + "@test.com", NAMES[i], "123456" + i, 20 + i));
+		}
+	}
+
+	@Override
+	protected void cleanFactoryAfterClass(RepositoryFactory factory)
+	{
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+
+	private RdbmsConfiguration getConfiguration(RepositoryFactory factory)
+	{
+		return ((RdbmsDataStore)factory.getDataStore()).getRdbmsConfiguration();
+	}
+
+	/**
+	 * Ensures all pages of a search use same rendered query, with paging values bound as params
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testPagingReuse(RepositoryFactory factory)
+	{
+		IEmployeeRepository repo = factory.getRepository(IEmployeeRepository.class);
+		RdbmsConfiguration configuration = getConfiguration(factory);
+
+		SearchQuery searchQuery = new SearchQuery();
+		searchQuery.setOrderByFields(Arrays.asList(new OrderByField("name", OrderByType.ASC)));
+		searchQuery.setResultsLimit(1);
+
+		//ensure the query is rendered once
+		searchQuery.setResultsOffset(0);
+		repo.search(searchQuery);
+
+		int cachedCount = configuration.getCachedQueryCount();
+		long missCount = configuration.getQueryCacheMissCount();
+		long hitCount = configuration.getQueryCacheHitCount();
+
+		for(int i = 0; i < NAMES.length; i++)
+		{
+			searchQuery.setResultsOffset(i);
+
+			Assert.assertEquals(repo.search(searchQuery).get(0).getName(), NAMES[i]);
+		}
+
+		Assert.assertEquals(configuration.getCachedQueryCount(), cachedCount);
+		Assert.assertEquals(configuration.getQueryCacheMissCount(), missCount);
+		Assert.assertEquals(configuration.getQueryCacheHitCount(), hitCount + NAMES.length);
+	}
+
+	/**
+	 * Ensures queries of different shapes (different conditions and null values) do not share rendered text
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testKeySeparation(RepositoryFactory factory)
+	{
+		IEmployeeRepository repo = factory.getRepository(IEmployeeRepository.class);
+
+		for(int i = 0; i < 2; i++)
+		{
+			Assert.assertEquals(repo.findByEmployeeNo("1231").getName(), "def");
+			Assert.assertEquals(repo.findEmpByEmail("user2@test.com").getName(), "ghi");
+
+			//null value condition is rendered as null check
+			Assert.assertEquals(repo.findEmpByName1("xyz").size(), 1);
+			Assert.assertEquals(repo.findEmpByName1(null).size(), 0);
+		}
+	}
+
+	/**
+	 * Ensures least recently used queries are evicted when the cache is full
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testEviction(RepositoryFactory factory)
+	{
+		IEmployeeRepository repo = factory.getRepository(IEmployeeRepository.class);
+		RdbmsConfiguration configuration = getConfiguration(factory);
+		int cacheSize = configuration.getQueryCacheSize();
+
+		try
+		{
+			configuration.setQueryCacheSize(2);
+
+			for(int i = 0; i < 2; i++)
+			{
+				Assert.assertEquals(repo.findByEmployeeNo("1231").getName(), "def");
+				Assert.assertEquals(repo.findEmpByEmail("user2@test.com").getName(), "ghi");
+				Assert.assertEquals(repo.findEmpByName1("xyz").size(), 1);
+				Assert.assertEquals(repo.findByPhoneNo("123456%").size(), NAMES.length);
+			}
+
+			Assert.assertTrue(configuration.getCachedQueryCount() <= 2);
+
+			//most recently used query should still be served from cache
+			long hitCount = configuration.getQueryCacheHitCount();
+			Assert.assertEquals(repo.findByPhoneNo("123456%").size(), NAMES.length);
+			Assert.assertEquals(configuration.getQueryCacheHitCount(), hitCount + 1);
+		}finally
+		{
+			configuration.setQueryCacheSize(cacheSize);
+		}
+	}
+}
@@ -18,6 +18,7 @@ import com.yukthi.persistence.repository.annotations.Operator;
 import com.yukthi.persistence.repository.annotations.OrderByType;
 import com.yukthi.persistence.repository.search.SearchCondition;
 import com.yukthi.persistence.repository.search.SearchQuery;
+import com.yukthi.utils.exceptions.InvalidArgumentException;
 
 
 public class TSearchWithOrderAndLimit extends TestSuiteBase
@@ -198,6 +199,130 @@ public class TSearchWithOrderAndLimit extends TestSuiteBase
 		Assert.assertEquals(names, Arrays.asList("ghi", "xyz", "zie"));
 	}
 	
+	/**
+	 * Tests paging by resuming after the key of last record of previous page
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testKeysetPaging(RepositoryFactory factory)
+	{
+		IEmployeeRepository repo = factory.getRepository(IEmployeeRepository.class);
+		
+		SearchQuery searchQuery = new SearchQuery(
+			new SearchCondition("age", Operator.LE, 35)
+		);
+		
+		searchQuery.setOrderByFields(Arrays.asList(
+			new OrderByField("age", OrderByType.DESC),
+			new OrderByField("name", OrderByType.ASC)
+		));
+		searchQuery.setResultsLimit(2);
+
+		List<String> names = new ArrayList<>();
+		List<Employee> results = repo.search(searchQuery);
+		
+		//fetch pages till end, using last record of each page as key
+		while(!results.isEmpty())
+		{
+			results.forEach(e -> names.add(e.getName()));
+			
+			Employee last = results.get(results.size() - 1);
+			//as age and name are not unique, id is expected as last key value
+			searchQuery.setResultsAfterKey(Arrays.asList(last.getAge(), last.getName(), last.getId()));
+			
+			results = repo.search(searchQuery);
+		}
+		
+		Assert.assertEquals(names, Arrays.asList("zie", "def", "xyz", "abc"));
+		
+		//ensure key values should match with order fields
+		searchQuery.setResultsAfterKey(Arrays.asList(30));
+		
+		try
+		{
+			repo.search(searchQuery);
+			Assert.fail("Invalid keyset is accepted");
+		}catch(InvalidArgumentException ex)
+		{
+			//expected
+		}
+	}
+	
+	/**
+	 * Tests keyset paging over order-by field having duplicate values, where records having same value
+	 * span across pages
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testKeysetPagingWithDuplicates(RepositoryFactory factory)
+	{
+		IEmployeeRepository repo = factory.getRepository(IEmployeeRepository.class);
+		int ages[] = {50, 60, 50, 50, 70, 60, 70};
+		
+		for(int i = 0; i < ages.length; i++)
+		{
+			repo.save(new Employee("D" + i, "dup" + i + "@test.com", "dup" + i, "999", ages[i]));
+		}
+		
+		try
+		{
+			SearchQuery searchQuery = new SearchQuery(
+				new SearchCondition("phoneNo", Operator.EQ, "999")
+			);
+			
+			searchQuery.setOrderByFields(Arrays.asList(
+				new OrderByField("age", OrderByType.ASC)
+			));
+			searchQuery.setResultsLimit(2);
+			
+			List<String> empNos = new ArrayList<>();
+			List<Employee> results = repo.search(searchQuery);
+			
+			//fetch pages till end, using age and id of last record of each page as key
+			while(!results.isEmpty())
+			{
+				results.forEach(e -> empNos.add(e.getEmployeeNo()));
+				
+				Employee last = results.get(results.size() - 1);
+				searchQuery.setResultsAfterKey(Arrays.asList(last.getAge(), last.getId()));
+				
+				results = repo.search(searchQuery);
+			}
+			
+			//records with same age should be ordered by id (order of insertion)
+			Assert.assertEquals(empNos, Arrays.asList("D0", "D2", "D3", "D1", "D5", "D4", "D6"));
+			
+			//id should be required, as age is not unique
+			searchQuery.setResultsAfterKey(Arrays.asList(50));
+			
+			try
+			{
+				repo.search(searchQuery);
+				Assert.fail("Keyset without id is accepted for non-unique order");
+			}catch(InvalidArgumentException ex)
+			{
+				//expected
+			}
+			
+			//id should not be required, when order-by fields are unique
+			searchQuery.setOrderByFields(Arrays.asList(
+				new OrderByField("emailId", OrderByType.ASC)
+			));
+			searchQuery.setResultsAfterKey(Arrays.asList("dup4@test.com"));
+			
+			results = repo.search(searchQuery);
+			Assert.assertEquals(results.size(), 2);
+			Assert.assertEquals(results.get(0).getEmployeeNo(), "D5");
+			Assert.assertEquals(results.get(1).getEmployeeNo(), "D6");
+		}finally
+		{
+			for(int i = 0; i < ages.length; i++)
+			{
+				repo.deleteByMailId("dup" + i + "@test.com");
+			}
+		}
+	}
+	
 	@Test(dataProvider = "repositoryFactories")
 	public void testEmpDynamicSearch(RepositoryFactory factory)
 	{
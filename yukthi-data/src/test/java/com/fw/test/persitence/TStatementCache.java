@@ -0,0 +1,139 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.rdbms.RdbmsDataStore;
+import com.yukthi.persistence.rdbms.StatementCacheStatistics;
+import com.yukthi.persistence.repository.RepositoryFactory;
+
+/**
+ * Test cases to test prepared statement reuse within and across transactions
+ * @author akiran
+ */
+public class TStatementCache extends TestSuiteBase
+{
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+
+	private IEmployeeRepository createEmployees(RepositoryFactory factory, int count)
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+
+		List<Employee> employees = new ArrayList<>();
+
+		for(int i = 0; i < count; i++)
+		{
+			employees.add(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, "1234", 20 + i));
+		}
+
+		empRepository.saveAll(employees);
+		return empRepository;
+	}
+
+	/**
+	 * Ensures repeated queries within a transaction reuse the prepared statements
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testStatementReuse(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = createEmployees(factory, 10);
+		StatementCacheStatistics statistics = ((RdbmsDataStore)factory.getDataStore()).getStatementCacheStatistics();
+
+		long hitCount = statistics.getHitCount();
+		long missCount = statistics.getMissCount();
+
+		try(ITransaction transaction = empRepository.newTransaction())
+		{
+			for(int i = 0; i < 10; i++)
+			{
+				Assert.assertEquals(empRepository.findByEmployeeNo("E" + i).getName(), "emp" + i);
+			}
+
+			transaction.commit();
+		}
+
+		//first execution prepares the statement (unless prepared earlier on same pooled connection) and rest should reuse it
+		Assert.assertTrue(statistics.getMissCount() <= missCount + 1);
+		Assert.assertEquals((statistics.getMissCount() - missCount) + (statistics.getHitCount() - hitCount), 10);
+		Assert.assertTrue(statistics.getReuseRatio() > 0);
+	}
+
+	/**
+	 * Ensures repeated queries without explicit transaction (each using separate implicit transaction) reuse the
+	 * statements prepared on the pooled physical connection
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testReuseAcrossTransactions(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = createEmployees(factory, 10);
+		StatementCacheStatistics statistics = ((RdbmsDataStore)factory.getDataStore()).getStatementCacheStatistics();
+
+		//ensure the statement is prepared on the pooled connection
+		Assert.assertEquals(empRepository.findByEmployeeNo("E0").getName(), "emp0");
+
+		long hitCount = statistics.getHitCount();
+		long missCount = statistics.getMissCount();
+
+		for(int i = 0; i < 10; i++)
+		{
+			Assert.assertEquals(empRepository.findByEmployeeNo("E" + i).getName(), "emp" + i);
+		}
+
+		Assert.assertEquals(statistics.getMissCount(), missCount);
+		Assert.assertEquals(statistics.getHitCount(), hitCount + 10);
+	}
+
+	/**
+	 * Ensures updates using reused statements within a transaction are applied and rolled back properly
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testUpdatesWithReuse(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = createEmployees(factory, 5);
+
+		try(ITransaction transaction = empRepository.newTransaction())
+		{
+			for(int i = 0; i < 5; i++)
+			{
+				Assert.assertEquals(empRepository.updateAge("emp" + i, 50 + i), 1);
+			}
+
+			transaction.commit();
+		}
+
+		try(ITransaction transaction = empRepository.newTransaction())
+		{
+			for(int i = 0; i < 5; i++)
+			{
+				Assert.assertEquals(empRepository.updateAge("emp" + i, 70), 1);
+			}
+
+			transaction.rollback();
+		}
+
+		for(int i = 0; i < 5; i++)
+		{
+			Assert.assertEquals(empRepository.findByEmployeeNo("E" + i).getAge(), 50 + i);
+		}
+	}
+}
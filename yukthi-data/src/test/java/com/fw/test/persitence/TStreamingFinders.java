@@ -0,0 +1,233 @@
+package com.fw.test.persitence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.fw.test.persitence.entity.Employee;
+import com.fw.test.persitence.entity.IEmployeeRepository;
+import com.fw.test.persitence.queries.DynamicEmpSearchResult;
+import com.yukthi.persistence.ITransaction;
+import com.yukthi.persistence.OrderByField;
+import com.yukthi.persistence.repository.RepositoryFactory;
+import com.yukthi.persistence.repository.annotations.OrderByType;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+/**
+ * Test cases to test finder and search methods returning results as stream
+ * @author akiran
+ */
+public class TStreamingFinders extends TestSuiteBase
+{
+	/**
+	 * Number of employees used for testing
+	 */
+	private static final int EMP_COUNT = 300;
+
+	@AfterMethod
+	public void cleanup(ITestResult result)
+	{
+		Object params[] = result.getParameters();
+		RepositoryFactory factory = (RepositoryFactory)params[0];
+
+		//cleanup the emp table
+		factory.dropRepository(Employee.class);
+	}
+
+	private IEmployeeRepository createEmployees(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = factory.getRepository(IEmployeeRepository.class);
+		empRepository.deleteAll();
+
+		List<Employee> employees = new ArrayList<>();
+
+		for(int i = 0; i < EMP_COUNT; i++)
+		{
+			employees.add(new Employee("E" + i, "emp" + i + "@test.com", "emp" + i, (i % 2 == 0) ? "1234" : "5678", 20 + i));
+		}
+
+		empRepository.saveAll(employees);
+		return empRepository;
+	}
+
+	/**
+	 * Ensures no transaction is left open on current thread
+	 * @param empRepository
+	 */
+	private void assertNoTransaction(IEmployeeRepository empRepository)
+	{
+		try
+		{
+			empRepository.currentTransaction();
+			Assert.fail("Transaction is not released after stream is closed");
+		}catch(IllegalStateException ex)
+		{
+			//expected
+		}
+	}
+
+	/**
+	 * Tests finder method returning stream consumes all matching records in order
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testStreamFinder(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = createEmployees(factory);
+
+		int count = 0;
+		int prevAge = -1;
+
+		try(Stream<Employee> employees = empRepository.fetchEmployeesByPhone("1234"))
+		{
+			Iterator<Employee> it = employees.iterator();
+			Employee emp = null;
+
+			while(it.hasNext())
+			{
+				emp = it.next();
+
+				Assert.assertEquals(emp.getPhoneNo(), "1234");
+				Assert.assertTrue(emp.getAge() > prevAge);
+
+				prevAge = emp.getAge();
+				count++;
+			}
+		}
+
+		Assert.assertEquals(count, EMP_COUNT / 2);
+		assertNoTransaction(empRepository);
+	}
+
+	/**
+	 * Ensures resources are released when stream is closed without consuming all records, and
+	 * repository is usable after that
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testPartialConsumption(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = createEmployees(factory);
+
+		for(int i = 0; i < 5; i++)
+		{
+			try(Stream<Employee> employees = empRepository.fetchEmployeesByPhone("5678"))
+			{
+				List<String> names = employees.limit(3).map(Employee::getName).collect(Collectors.toList());
+				Assert.assertEquals(names, Arrays.asList("emp1", "emp3", "emp5"));
+			}
+
+			assertNoTransaction(empRepository);
+		}
+
+		Assert.assertEquals(empRepository.findByEmployeeNo("E10").getName(), "emp10");
+	}
+
+	/**
+	 * Ensures streams which are consumed fully release the connection and the transaction, even if 
+	 * they are not closed explicitly
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testFullConsumptionWithoutClose(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = createEmployees(factory);
+
+		//more iterations than connections in pool, so that leaked connections would block
+		for(int i = 0; i < 20; i++)
+		{
+			List<Employee> employees = empRepository.fetchEmployeesByPhone("1234").collect(Collectors.toList());
+			Assert.assertEquals(employees.size(), EMP_COUNT / 2);
+
+			assertNoTransaction(empRepository);
+		}
+
+		SearchQuery query = new SearchQuery();
+		query.setResultsLimit(5);
+
+		int counts[] = {0};
+		empRepository.searchStreamByName(query).forEach(res -> counts[0]++);
+
+		Assert.assertEquals(counts[0], 5);
+		assertNoTransaction(empRepository);
+
+		//ensure next operations on the thread use their own transaction
+		Assert.assertEquals(empRepository.updateAge("emp10", 99), 1);
+		Assert.assertEquals(empRepository.findByEmployeeNo("E10").getAge(), 99);
+	}
+
+	/**
+	 * Ensures a partially consumed stream, which is not closed yet, does not leave its transaction bound to 
+	 * current thread. And stream started within a transaction uses the same transaction, which is not closed
+	 * along with the stream
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testUnclosedStream(RepositoryFactory factory) throws Exception
+	{
+		IEmployeeRepository empRepository = createEmployees(factory);
+
+		Stream<Employee> employees = empRepository.fetchEmployeesByPhone("1234");
+		Iterator<Employee> it = employees.iterator();
+
+		Assert.assertEquals(it.next().getName(), "emp0");
+		assertNoTransaction(empRepository);
+
+		//operations of current thread, while the stream is open, should use their own transactions
+		Assert.assertEquals(empRepository.updateAge("emp10", 99), 1);
+		Assert.assertEquals(empRepository.findByEmployeeNo("E10").getAge(), 99);
+		assertNoTransaction(empRepository);
+
+		Assert.assertEquals(it.next().getName(), "emp2");
+		employees.close();
+
+		//stream within transaction
+		try(ITransaction transaction = empRepository.newOrExistingTransaction())
+		{
+			try(Stream<Employee> txnEmployees = empRepository.fetchEmployeesByPhone("1234"))
+			{
+				Assert.assertEquals(txnEmployees.findFirst().get().getName(), "emp0");
+			}
+
+			Assert.assertFalse(transaction.isClosed());
+			Assert.assertEquals(empRepository.findByEmployeeNo("E10").getAge(), 99);
+			
+			transaction.commit();
+		}
+
+		assertNoTransaction(empRepository);
+	}
+
+	/**
+	 * Tests search method returning stream along with results limit
+	 * @param factory
+	 */
+	@Test(dataProvider = "repositoryFactories")
+	public void testStreamSearch(RepositoryFactory factory)
+	{
+		IEmployeeRepository empRepository = createEmployees(factory);
+
+		SearchQuery query = new SearchQuery();
+		query.setOrderByFields(Arrays.asList(new OrderByField("age", OrderByType.DESC)));
+		query.setResultsOffset(10);
+		query.setResultsLimit(20);
+
+		try(Stream<DynamicEmpSearchResult> results = empRepository.searchStreamByName(query))
+		{
+			List<Integer> ages = results.map(DynamicEmpSearchResult::getAge).collect(Collectors.toList());
+
+			Assert.assertEquals(ages.size(), 20);
+			Assert.assertEquals(ages.get(0).intValue(), 20 + EMP_COUNT - 11);
+		}
+
+		assertNoTransaction(empRepository);
+	}
+}
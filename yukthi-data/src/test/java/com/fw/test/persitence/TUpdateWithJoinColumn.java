@@ -3,6 +3,7 @@ package com.fw.test.persitence;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.fw.test.persitence.entity.Customer;
 import com.fw.test.persitence.entity.IOrderItemRepository;
 import com.fw.test.persitence.entity.IOrderRepository;
 import com.fw.test.persitence.entity.Order;
@@ -26,6 +27,7 @@ public class TUpdateWithJoinColumn extends TestSuiteBase
 		//cleanup the emp table
 		factory.dropRepository(OrderItem.class);
 		factory.dropRepository(Order.class);
+		factory.dropRepository(Customer.class);
 	}
 
 	/**
@@ -0,0 +1,84 @@
+package com.fw.test.persitence.entity;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import com.yukthi.persistence.annotations.CachedEntity;
+import com.yukthi.persistence.annotations.DeleteWithParent;
+
+@Table(name = "CITY")
+@CachedEntity(maxSize = 10)
+public class City
+{
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+	private String name;
+
+	@ManyToOne
+	@DeleteWithParent
+	@Column(name = "COUNTRY_ID")
+	private Country country;
+
+	public City()
+	{}
+
+	public City(String name, Country country)
+	{
+		this.name = name;
+		this.country = country;
+	}
+
+	/**
+	 * @return the {@link #id id}
+	 */
+	public long getId()
+	{
+		return id;
+	}
+
+	/**
+	 * @param id the {@link #id id} to set
+	 */
+	public void setId(long id)
+	{
+		this.id = id;
+	}
+
+	/**
+	 * @return the {@link #name name}
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @param name the {@link #name name} to set
+	 */
+	public void setName(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * @return the {@link #country country}
+	 */
+	public Country getCountry()
+	{
+		return country;
+	}
+
+	/**
+	 * @param country the {@link #country country} to set
+	 */
+	public void setCountry(Country country)
+	{
+		this.country = country;
+	}
+}
@@ -0,0 +1,7 @@
+package com.fw.test.persitence.entity;
+
+import com.yukthi.persistence.ICrudRepository;
+
+public interface ICityRepository extends ICrudRepository<City>
+{
+}
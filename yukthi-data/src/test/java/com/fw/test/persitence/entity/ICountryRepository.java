@@ -0,0 +1,32 @@
+package com.fw.test.persitence.entity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.yukthi.persistence.ICrudRepository;
+import com.yukthi.persistence.repository.annotations.CachedResults;
+import com.yukthi.persistence.repository.annotations.Condition;
+import com.yukthi.persistence.repository.annotations.Field;
+import com.yukthi.persistence.repository.annotations.NativeQuery;
+import com.yukthi.persistence.repository.annotations.NativeQueryType;
+import com.yukthi.persistence.repository.annotations.SearchFunction;
+import com.yukthi.persistence.repository.search.SearchQuery;
+
+public interface ICountryRepository extends ICrudRepository<Country>
+{
+	public boolean updateName(@Condition("code") String code, @Field("name") String name);
+	
+	public boolean deleteByCode(@Condition("code") String code);
+	
+	@NativeQuery(name = "updateCountryName", type = NativeQueryType.UPDATE)
+	public int updateNameNatively(Map<String, Object> params);
+	
+	@SearchFunction
+	@CachedResults(ttl = 10, timeUnit = TimeUnit.MINUTES)
+	public List<Country> searchCountries(SearchQuery searchQuery);
+
+	@SearchFunction
+	@CachedResults(ttl = 100, timeUnit = TimeUnit.MILLISECONDS)
+	public List<Country> searchRecentCountries(SearchQuery searchQuery);
+}
@@ -2,6 +2,8 @@ package com.fw.test.persitence.entity;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import com.fw.test.persitence.queries.DynamicEmpSearchResult;
 import com.fw.test.persitence.queries.EmpSearchQuery;
@@ -115,4 +117,25 @@ public interface IEmployeeRepository extends ICrudRepository<Employee>
 	@SearchFunction
 	@SearchResult
 	public List<DynamicEmpSearchResult> searchByName(SearchQuery searchQuery);
+	
+	@OrderBy("age")
+	public Stream<Employee> fetchEmployeesByPhone(@Condition("phoneNo") String phoneNo);
+	
+	@SearchFunction
+	@SearchResult
+	public Stream<DynamicEmpSearchResult> searchStreamByName(SearchQuery searchQuery);
+	
+	public CompletableFuture<Boolean> saveAsync(Employee employee);
+	
+	public CompletableFuture<Employee> fetchByEmployeeNoAsync(@Condition("employeeNo") String empNo);
+	
+	@OrderBy("age")
+	public CompletableFuture<List<Employee>> fetchByPhoneAsync(@Condition("phoneNo") String phoneNo);
+	
+	public CompletableFuture<Integer> updateAgeAsync(@Condition("name") String name, @Field("age") int age);
+	
+	@CountFunction
+	public CompletableFuture<Long> getCountByPhoneAsync(@Condition("phoneNo") String phoneNo);
+	
+	public CompletableFuture<Integer> deleteByPhoneAsync(@Condition("phoneNo") String phoneNo);
 }
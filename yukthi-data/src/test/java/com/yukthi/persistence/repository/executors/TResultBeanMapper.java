@@ -0,0 +1,201 @@
+package com.yukthi.persistence.repository.executors;
+
+import java.util.Arrays;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests population of result beans using result bean mapper, including primitive and boxed properties. Comparison
+ * test prints the time taken by mapper and bean-utils (used earlier for every property) to populate beans.
+ */
+public class TResultBeanMapper
+{
+	public static class ResultBean
+	{
+		private int age;
+		private long salary;
+		private boolean active;
+		private Integer rank;
+		private String name;
+
+		public int getAge()
+		{
+			return age;
+		}
+
+		public void setAge(int age)
+		{
+			this.age = age;
+		}
+
+		public long getSalary()
+		{
+			return salary;
+		}
+
+		public void setSalary(long salary)
+		{
+			this.salary = salary;
+		}
+
+		public boolean isActive()
+		{
+			return active;
+		}
+
+		public void setActive(boolean active)
+		{
+			this.active = active;
+		}
+
+		public Integer getRank()
+		{
+			return rank;
+		}
+
+		public void setRank(Integer rank)
+		{
+			this.rank = rank;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void setName(String name)
+		{
+			if("invalid".equals(name))
+			{
+				throw new IllegalArgumentException("Invalid name specified");
+			}
+
+			this.name = name;
+		}
+	}
+
+	private ResultBeanMapper newMapper()
+	{
+		return new ResultBeanMapper(ResultBean.class, Arrays.asList("age", "salary", "active", "rank", "name"));
+	}
+
+	@Test
+	public void testPopulation() throws Exception
+	{
+		ResultBeanMapper mapper = newMapper();
+		ResultBean bean = (ResultBean)mapper.newInstance();
+
+		mapper.setProperty(bean, 0, "age", 30);
+		mapper.setProperty(bean, 1, "salary", 1000L);
+		mapper.setProperty(bean, 2, "active", true);
+		mapper.setProperty(bean, 3, "rank", 5);
+		mapper.setProperty(bean, 4, "name", "abc");
+
+		Assert.assertEquals(bean.getAge(), 30);
+		Assert.assertEquals(bean.getSalary(), 1000L);
+		Assert.assertTrue(bean.isActive());
+		Assert.assertEquals(bean.getRank(), Integer.valueOf(5));
+		Assert.assertEquals(bean.getName(), "abc");
+
+		//null values on boxed properties
+		mapper.setProperty(bean, 3, "rank", null);
+		mapper.setProperty(bean, 4, "name", null);
+
+		Assert.assertNull(bean.getRank());
+		Assert.assertNull(bean.getName());
+
+		Assert.assertTrue(mapper.isCompatible(0, 10));
+		Assert.assertFalse(mapper.isCompatible(0, 10L));
+	}
+
+	@Test
+	public void testExceptions() throws Exception
+	{
+		ResultBeanMapper mapper = newMapper();
+		ResultBean bean = (ResultBean)mapper.newInstance();
+
+		//exception thrown by setter should be thrown as is, without wrapping
+		try
+		{
+			mapper.setProperty(bean, 4, "name", "invalid");
+			Assert.fail("Exception thrown by setter is not propagated");
+		}catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals(ex.getMessage(), "Invalid name specified");
+		}
+
+		try
+		{
+			mapper.setProperty(bean, 0, "age", null);
+			Assert.fail("Null value is accepted by primitive property");
+		}catch(NullPointerException ex)
+		{
+			//expected
+		}
+	}
+
+	@Test
+	public void testPopulationTime() throws Exception
+	{
+		final int ITERATIONS = 200000;
+		ResultBeanMapper mapper = newMapper();
+		long sum = 0;
+
+		//warm up both the paths
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			sum += populateWithMapper(mapper, i).getAge();
+			sum += populateWithBeanUtils(i).getAge();
+		}
+
+		long startTime = System.nanoTime();
+
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			sum += populateWithMapper(mapper, i).getAge();
+		}
+
+		long mapperTime = System.nanoTime() - startTime;
+		startTime = System.nanoTime();
+
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			sum += populateWithBeanUtils(i).getAge();
+		}
+
+		long beanUtilsTime = System.nanoTime() - startTime;
+
+		System.out.println("Result bean population - mapper: " + (mapperTime / ITERATIONS) + " ns/bean, bean-utils: "
+				+ (beanUtilsTime / ITERATIONS) + " ns/bean [" + sum + "]");
+
+		Assert.assertTrue(mapperTime < beanUtilsTime, "Mapper is slower than bean-utils");
+	}
+
+	private ResultBean populateWithMapper(ResultBeanMapper mapper, int value) throws Exception
+	{
+		ResultBean bean = (ResultBean)mapper.newInstance();
+
+		mapper.setProperty(bean, 0, "age", value);
+		mapper.setProperty(bean, 1, "salary", (long)value);
+		mapper.setProperty(bean, 2, "active", true);
+		mapper.setProperty(bean, 3, "rank", value);
+		mapper.setProperty(bean, 4, "name", "name");
+
+		return bean;
+	}
+
+	private ResultBean populateWithBeanUtils(int value) throws Exception
+	{
+		ResultBean bean = ResultBean.class.newInstance();
+
+		PropertyUtils.setProperty(bean, "age", value);
+		PropertyUtils.setProperty(bean, "salary", (long)value);
+		PropertyUtils.setProperty(bean, "active", true);
+		PropertyUtils.setProperty(bean, "rank", value);
+		PropertyUtils.setProperty(bean, "name", "name");
+
+		return bean;
+	}
+}
@@ -1,12 +1,18 @@
 /**
- * 
+ *
  */
 package com.yukthi.utils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -17,142 +23,473 @@ import org.apache.logging.log4j.Logger;
  * A Utility class which helps in locking objects till they are released. This class will
  * ensure an object is locked at a time by single thread. Other thread which tries to lock
  * same object will wait till lock is obtained.
- * 
- * This is done by using single ReentrantLock and pool of conditions.
- * 
- * Please note. If same thread tries to acquire lock on same object twice, there will be dead lock.
- * 
+ *
+ * Objects are distributed (based on hash code) among multiple stripes. Each stripe has its own ReentrantLock
+ * and pool of conditions, so that threads locking unrelated objects do not contend on same lock.
+ *
+ * Locks are reentrant, if same thread locks same object multiple times, it has to release the object same
+ * number of times. For diagnostics, {@link #findDeadlockedThreads()} can be used to find threads waiting
+ * on each other's objects.
+ *
  * @author akiran
  */
 public class ObjectLockManager
 {
 	private static Logger logger = LogManager.getLogger(ObjectLockManager.class);
-	
+
+	/**
+	 * Default number of stripes
+	 */
+	public static final int DEFAULT_STRIPE_COUNT = 64;
+
 	/**
-	 * Lock to synchronize the threads will obtaining object lock
+	 * Interval after which waiting threads log about the thread holding the lock
 	 */
-	private ReentrantLock lock = new ReentrantLock();
-	
+	private static final long LONG_WAIT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	/**
+	 * Lock details of single object
+	 * @author akiran
+	 */
+	private static class ObjectLock
+	{
+		/**
+		 * Condition used to notify other waiting threads for same object lock.
+		 */
+		private Condition condition;
+
+		/**
+		 * Thread which obtained the lock
+		 */
+		private Thread owner;
+
+		/**
+		 * Number of times owner has locked the object
+		 */
+		private int holdCount;
+
+		public ObjectLock(Condition condition)
+		{
+			this.condition = condition;
+		}
+	}
+
+	/**
+	 * Part of lock manager, which maintains locks of subset of objects
+	 * @author akiran
+	 */
+	private static class Stripe
+	{
+		/**
+		 * Lock to synchronize the threads while obtaining object lock
+		 */
+		private ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * Maintains the objects that are locked and their corresponding lock details.
+		 */
+		private Map<Object, ObjectLock> objectToLocks = new HashMap<Object, ObjectLock>();
+
+		/**
+		 * Pool of object locks (conditions). So that condition objects can be reused
+		 */
+		private List<ObjectLock> lockPool = new ArrayList<ObjectLock>();
+	}
+
+	private Stripe stripes[];
+
 	/**
-	 * Maintains the objects that are locked and their corresponding conditions. Conditions are used to 
-	 * notify other waiting threads for same object lock.
+	 * Mask used to compute stripe index from hash code
 	 */
-	private Map<Object, Condition> objectToConditions = new HashMap<Object, Condition>();
-	
+	private int stripeMask;
+
 	/**
-	 * Pool of conditions. So that condition objects can be reused
+	 * Number of objects currently locked
 	 */
-	private List<Condition> conditionPool = new ArrayList<Condition>();
-	
+	private AtomicInteger lockCount = new AtomicInteger();
+
 	/**
-	 * Keeps track maximum pool size that was used during this lock manager
+	 * Keeps track maximum number of objects locked at a time during this lock manager
 	 * life
 	 */
-	private int maxConditionsUsed = 0;
-	
+	private AtomicInteger maxConditionsUsed = new AtomicInteger();
+
+	/**
+	 * Number of times threads had to wait for lock
+	 */
+	private AtomicInteger contentionCount = new AtomicInteger();
+
+	/**
+	 * Objects for which threads are currently waiting. Used for deadlock diagnostics
+	 */
+	private Map<Thread, Object> waitingThreads = new ConcurrentHashMap<Thread, Object>();
+
+	/**
+	 * Creates lock manager with {@link #DEFAULT_STRIPE_COUNT} stripes
+	 */
+	public ObjectLockManager()
+	{
+		this(DEFAULT_STRIPE_COUNT);
+	}
+
+	/**
+	 * Creates lock manager with specified number of stripes. The count is rounded up to power of 2.
+	 * @param stripeCount Number of stripes
+	 */
+	public ObjectLockManager(int stripeCount)
+	{
+		if(stripeCount <= 0)
+		{
+			throw new IllegalArgumentException("Stripe count should be non-zero positive value - " + stripeCount);
+		}
+
+		int count = 1;
+
+		while(count < stripeCount)
+		{
+			count <<= 1;
+		}
+
+		stripes = new Stripe[count];
+		stripeMask = count - 1;
+
+		for(int i = 0; i < count; i++)
+		{
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Fetches stripe to be used for specified object
+	 * @param object
+	 * @return
+	 */
+	private Stripe getStripe(Object object)
+	{
+		int hash = object.hashCode();
+
+		//spread higher bits, so that hash codes differing only in higher bits fall in different stripes
+		hash ^= (hash >>> 16);
+		return stripes[hash & stripeMask];
+	}
+
 	public boolean isObjectLocked(Object object)
 	{
-		return  (objectToConditions.get(object) != null);
+		Stripe stripe = getStripe(object);
+		stripe.lock.lock();
+
+		try
+		{
+			return  (stripe.objectToLocks.get(object) != null);
+		}finally
+		{
+			stripe.lock.unlock();
+		}
 	}
 
 	/**
 	 * Locks the specified "object" till {@link #releaseObject(Object)} is called with same object. Other threads
 	 * which tries to obtain lock on same object, will wait till lock is obtained
 	 * @param object
-	 * @throws InterruptedException 
+	 * @throws InterruptedException
 	 */
 	public void lockObject(Object object) throws InterruptedException
 	{
-		lock.lock();
-		
+		lockObject(object, -1);
+	}
+
+	/**
+	 * Tries to lock specified "object", waiting for specified timeout if the object is locked by other thread.
+	 * @param object Object to lock
+	 * @param timeout Max time to wait
+	 * @param unit Unit of timeout
+	 * @return True if lock is obtained, false if timeout elapsed before obtaining the lock
+	 * @throws InterruptedException
+	 */
+	public boolean tryLockObject(Object object, long timeout, TimeUnit unit) throws InterruptedException
+	{
+		if(timeout < 0)
+		{
+			throw new IllegalArgumentException("Timeout can not be negative - " + timeout);
+		}
+
+		return lockObject(object, unit.toNanos(timeout));
+	}
+
+	/**
+	 * Locks the specified object
+	 * @param object Object to lock
+	 * @param timeoutNanos Max time to wait in nanos. Negative value indicates to wait till lock is obtained
+	 * @return True if lock is obtained
+	 * @throws InterruptedException
+	 */
+	private boolean lockObject(Object object, long timeoutNanos) throws InterruptedException
+	{
+		Thread currentThread = Thread.currentThread();
+		Stripe stripe = getStripe(object);
+
+		stripe.lock.lockInterruptibly();
+
 		try
 		{
-			//wait till condition is present (that is locked) for the current object
-			Condition condition = objectToConditions.get(object);
-	
-			while(condition != null)
+			ObjectLock objectLock = stripe.objectToLocks.get(object);
+
+			//if current thread already has the lock
+			if(objectLock != null && objectLock.owner == currentThread)
+			{
+				objectLock.holdCount++;
+				return true;
+			}
+
+			//wait till lock is present for the current object
+			if(objectLock != null)
 			{
-				//note different iterations may get different conditions
-				// based on the number of threads running parallely on same object
-				logger.debug("Waiting for lock on object - {}", object);
-					
-				condition.await();
-				
-				condition = objectToConditions.get(object);
+				if(timeoutNanos == 0)
+				{
+					return false;
+				}
+
+				contentionCount.incrementAndGet();
+				waitingThreads.put(currentThread, object);
+
+				try
+				{
+					long remaining = timeoutNanos;
+
+					while(objectLock != null)
+					{
+						//note different iterations may get different conditions
+						// based on the number of threads running parallely on same object
+						logger.debug("Waiting for lock on object - {}", object);
+
+						if(timeoutNanos < 0)
+						{
+							if(objectLock.condition.awaitNanos(LONG_WAIT_NANOS) <= 0)
+							{
+								logger.warn("Thread {} is waiting for long time for lock on object - {} [Lock Owner: {}]",
+										currentThread.getName(), object, objectLock.owner);
+							}
+						}
+						else
+						{
+							if(remaining <= 0)
+							{
+								return false;
+							}
+
+							remaining = objectLock.condition.awaitNanos(remaining);
+						}
+
+						objectLock = stripe.objectToLocks.get(object);
+					}
+				}finally
+				{
+					waitingThreads.remove(currentThread);
+				}
 			}
-			
-			//if no conditions are available in pool
-			if(conditionPool.isEmpty())
+
+			//if no locks are available in pool
+			if(stripe.lockPool.isEmpty())
 			{
 				//create new condition
-				condition = lock.newCondition();
-				
-				maxConditionsUsed++;
+				objectLock = new ObjectLock(stripe.lock.newCondition());
 			}
 			//if pool has conditions
 			else
 			{
 				//reuse the condition from pool
-				condition = conditionPool.remove(conditionPool.size() - 1);
+				objectLock = stripe.lockPool.remove(stripe.lockPool.size() - 1);
 			}
-			
-			//put the condition on map locking the object
-			objectToConditions.put(object, condition);
+
+			objectLock.owner = currentThread;
+			objectLock.holdCount = 1;
+
+			//put the lock on map locking the object
+			stripe.objectToLocks.put(object, objectLock);
+			updateMaxConditionsUsed(lockCount.incrementAndGet());
+
+			return true;
 		}finally
 		{
-			lock.unlock();			
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Updates max number of objects locked at a time
+	 * @param count Current lock count
+	 */
+	private void updateMaxConditionsUsed(int count)
+	{
+		int max = 0;
+
+		while(count > (max = maxConditionsUsed.get()))
+		{
+			if(maxConditionsUsed.compareAndSet(max, count))
+			{
+				break;
+			}
 		}
 	}
-	
+
 	/**
-	 * Releases the lock obtained on specified "object" by {@link #lockObject(Object)}. This will signal
-	 * all the other threads waiting for locking this object. 
+	 * Releases the lock obtained on specified "object" by {@link #lockObject(Object)}. If the object is locked multiple
+	 * times by same thread, the object will be unlocked only when release count matches with lock count.
+	 * On unlock, this will signal all the other threads waiting for locking this object.
+	 *
+	 * Note: For compatibility, object can be released from thread other than the one which has locked it.
 	 * @param object
 	 */
 	public void releaseObject(Object object)
 	{
-		lock.lock();
-		
+		Stripe stripe = getStripe(object);
+		stripe.lock.lock();
+
 		try
 		{
-			//get the condition-lock of specified object
-			Condition condition = objectToConditions.get(object);
-			
+			//get the lock of specified object
+			ObjectLock objectLock = stripe.objectToLocks.get(object);
+
 			//if the object was not locked
-			if(condition == null)
+			if(objectLock == null)
 			{
 				throw new IllegalStateException("Specified object is not locked by this manager - " + object);
 			}
-			
+
+			objectLock.holdCount--;
+
+			//if lock is still held by the owner
+			if(objectLock.holdCount > 0)
+			{
+				return;
+			}
+
 			//remove the lock
-			objectToConditions.remove(object);
-			
-			//add the condition back to pool
-			conditionPool.add(condition);
-			
+			stripe.objectToLocks.remove(object);
+			lockCount.decrementAndGet();
+
+			//add the lock back to pool
+			objectLock.owner = null;
+			stripe.lockPool.add(objectLock);
+
 			//signal other threads which are waiting for this object
-			condition.signalAll();
+			objectLock.condition.signalAll();
+		}finally
+		{
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Fetches the thread which currently holds lock on specified object
+	 * @param object
+	 * @return Owner thread, null if object is not locked
+	 */
+	public Thread getLockOwner(Object object)
+	{
+		Stripe stripe = getStripe(object);
+		stripe.lock.lock();
+
+		try
+		{
+			ObjectLock objectLock = stripe.objectToLocks.get(object);
+			return (objectLock != null) ? objectLock.owner : null;
 		}finally
 		{
-			lock.unlock();
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Finds threads which are waiting for each other's objects (directly or through a chain of threads).
+	 * Note that the result is computed from a snapshot of waiting threads and is meant for diagnostics.
+	 * @return Threads which are deadlocked, empty set if none
+	 */
+	public Set<Thread> findDeadlockedThreads()
+	{
+		Map<Thread, Thread> waitsFor = new HashMap<Thread, Thread>();
+
+		//build thread to owner thread mapping, stripe locks are taken one at a time
+		for(Map.Entry<Thread, Object> entry : waitingThreads.entrySet())
+		{
+			Thread owner = getLockOwner(entry.getValue());
+
+			if(owner != null && owner != entry.getKey())
+			{
+				waitsFor.put(entry.getKey(), owner);
+			}
+		}
+
+		Set<Thread> deadlockedThreads = new HashSet<Thread>();
+
+		for(Thread thread : waitsFor.keySet())
+		{
+			if(deadlockedThreads.contains(thread))
+			{
+				continue;
+			}
+
+			//follow the wait chain till it ends or a thread repeats
+			Set<Thread> chain = new LinkedHashSet<Thread>();
+			Thread current = thread;
+
+			while(current != null && chain.add(current))
+			{
+				current = waitsFor.get(current);
+			}
+
+			if(current == null)
+			{
+				continue;
+			}
+
+			//add only the threads which are part of the cycle
+			boolean inCycle = false;
+
+			for(Thread chainThread : chain)
+			{
+				inCycle = inCycle || (chainThread == current);
+
+				if(inCycle)
+				{
+					deadlockedThreads.add(chainThread);
+				}
+			}
+		}
+
+		if(!deadlockedThreads.isEmpty())
+		{
+			logger.warn("Found deadlocked threads: {}", deadlockedThreads);
 		}
+
+		return deadlockedThreads;
 	}
-	
+
 	/**
-	 * Gets maxumum number of conditions used by this manager
+	 * Gets maximum number of objects locked at a time by this manager. As each locked object uses
+	 * a condition, this is also maximum number of conditions used.
 	 * @return the maxConditionsUsed
 	 */
 	public int getMaxConditionsUsed()
 	{
-		return maxConditionsUsed;
+		return maxConditionsUsed.get();
+	}
+
+	/**
+	 * Gets number of times threads had to wait for obtaining lock
+	 * @return
+	 */
+	public int getContentionCount()
+	{
+		return contentionCount.get();
 	}
-	
+
 	/**
 	 * Obtains number of locks controlled by this manager currently.
 	 * @return
 	 */
 	public int getLockCount()
 	{
-		return objectToConditions.size();
+		return lockCount.get();
 	}
 }
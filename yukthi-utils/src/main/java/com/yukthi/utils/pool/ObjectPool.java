@@ -1,9 +1,12 @@
 package com.yukthi.utils.pool;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -11,24 +14,145 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Maintains the pool of objects
- * 
+ * Maintains the pool of objects.
+ *
+ * Freed objects are first kept in a small per-thread cache, so that a thread which frees and gets objects
+ * repeatedly does not touch any shared state. Overflow goes to a lock-free shared free stack. Lock is used only
+ * by threads which have to wait for an object, once pool limit is reached. Objects left in the cache of a thread
+ * (for example, by a thread which is no longer using the pool) are picked up by other threads by scanning the pool
+ * entries, before creating new objects.
+ *
+ * Optionally max idle count can be set, in which case objects freed beyond this count are discarded from the pool. While
+ * freeing, only the objects in shared free stack and in the cache of freeing thread are counted against this limit.
+ *
  * @author akiran
  */
 public class ObjectPool<T>
 {
 	private static Logger logger = LogManager.getLogger(ObjectPool.class);
+
+	/**
+	 * Max number of free objects cached per thread
+	 */
+	private static final int THREAD_CACHE_SIZE = 4;
+
+	private static final int STATE_FREE = 0;
+	private static final int STATE_USED = 1;
+	private static final int STATE_REMOVED = 2;
 	
-	private List<T> freeObjects = new LinkedList<T>();
-	private Set<T> usedObjects = new HashSet<T>();
-	
+	/**
+	 * Free state of the entries kept in thread cache
+	 */
+	private static final int STATE_CACHED = 3;
+
+	/**
+	 * Key used to look up entries by object identity
+	 * @author akiran
+	 */
+	private static class IdentityKey
+	{
+		private Object object;
+		private int hashCode;
+
+		public void set(Object object)
+		{
+			this.object = object;
+			this.hashCode = System.identityHashCode(object);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj)
+		{
+			return (obj instanceof IdentityKey) && ((IdentityKey)obj).object == object;
+		}
+	}
+
+	/**
+	 * Wraps pooled object along with its state. State transitions are done using CAS, which
+	 * makes it safe for the same entry to be referred from more than one free list.
+	 * @author akiran
+	 */
+	private static class Entry<T>
+	{
+		private T object;
+		private IdentityKey key = new IdentityKey();
+		private AtomicInteger state = new AtomicInteger(STATE_USED);
+
+		public Entry(T object)
+		{
+			this.object = object;
+			this.key.set(object);
+		}
+	}
+
+	/**
+	 * All the objects (free and used) of this pool
+	 */
+	private Map<IdentityKey, Entry<T>> entries = new ConcurrentHashMap<IdentityKey, Entry<T>>();
+
+	/**
+	 * Shared free list, used as stack
+	 */
+	private ConcurrentLinkedDeque<Entry<T>> freeStack = new ConcurrentLinkedDeque<Entry<T>>();
+
+	/**
+	 * Per thread free list
+	 */
+	private ThreadLocal<ArrayDeque<Entry<T>>> threadCache = new ThreadLocal<ArrayDeque<Entry<T>>>()
+	{
+		protected ArrayDeque<Entry<T>> initialValue()
+		{
+			return new ArrayDeque<Entry<T>>(THREAD_CACHE_SIZE);
+		}
+	};
+
+	/**
+	 * Reusable key to look up entries, to avoid creating key per free
+	 */
+	private ThreadLocal<IdentityKey> lookupKey = new ThreadLocal<IdentityKey>()
+	{
+		protected IdentityKey initialValue()
+		{
+			return new IdentityKey();
+		}
+	};
+
 	private ReentrantLock poolLock = new ReentrantLock();
 	private Condition OBJECT_AVAILALBE = poolLock.newCondition();
-	
+
+	/**
+	 * Number of threads waiting for free object
+	 */
+	private AtomicInteger waitCount = new AtomicInteger();
+
 	private Class<T> type;
-	private int poolSize = 0;
-	private int poolSizeLimit = Integer.MAX_VALUE;
+	private AtomicInteger poolSize = new AtomicInteger();
 	
+	/**
+	 * Number of free objects in shared free stack
+	 */
+	private AtomicInteger idleCount = new AtomicInteger();
+	
+	/**
+	 * Number of free objects in thread caches (of all threads)
+	 */
+	private AtomicInteger cachedCount = new AtomicInteger();
+	
+	private int poolSizeLimit = Integer.MAX_VALUE;
+	private volatile int maxIdle = Integer.MAX_VALUE;
+
 	/**
 	 * Creates object pool of specified type and limit
 	 * @param type Type of object to be maintained in pool
@@ -40,12 +164,12 @@ public class ObjectPool<T>
 		{
 			throw new IllegalArgumentException("Pool size limit should be non-zero positive value - " + limit);
 		}
-		
+
 		this.type = type;
 		this.poolSizeLimit = limit;
 	}
 
-	
+
 	/**
 	 * Equivalent to call {@link #ObjectPool(Class, int) ObjectPool(type, Integer.MAX_VALUE)}
 	 * @param type
@@ -54,109 +178,274 @@ public class ObjectPool<T>
 	{
 		this(type, Integer.MAX_VALUE);
 	}
-	
-	
+
 	/**
-	 * Creates and return new object of underlying type. 
-	 * 
-	 * @return
+	 * Sets max number of free objects to be retained by this pool. Objects freed
+	 * after this count is reached are discarded.
+	 * @param maxIdle Max free objects to retain
+	 */
+	public void setMaxIdle(int maxIdle)
+	{
+		if(maxIdle < 0)
+		{
+			throw new IllegalArgumentException("Max idle count can not be negative - " + maxIdle);
+		}
+
+		this.maxIdle = maxIdle;
+	}
+
+	/**
+	 * @return Max number of free objects retained by this pool
+	 */
+	public int getMaxIdle()
+	{
+		return maxIdle;
+	}
+
+	/**
+	 * @return Number of objects (free and used) currently maintained by this pool
+	 */
+	public int getPoolSize()
+	{
+		return poolSize.get();
+	}
+
+	/**
+	 * @return Number of free objects in this pool
 	 */
-	private T newObject()
+	public int getIdleCount()
 	{
+		return idleCount.get() + cachedCount.get();
+	}
+
+	/**
+	 * Creates and return new object of underlying type, if pool is within limits.
+	 *
+	 * @return New object entry or null, if pool limit is reached
+	 */
+	private Entry<T> newEntry()
+	{
+		int size = 0;
+
+		while(true)
+		{
+			size = poolSize.get();
+
+			if(size >= poolSizeLimit)
+			{
+				return null;
+			}
+
+			if(poolSize.compareAndSet(size, size + 1))
+			{
+				break;
+			}
+		}
+
 		try
 		{
-			T inst = type.newInstance();
-			poolSize++;
-			
-			return inst;
+			Entry<T> entry = new Entry<T>(type.newInstance());
+			entries.put(entry.key, entry);
+
+			return entry;
 		}catch(Exception ex)
 		{
+			poolSize.decrementAndGet();
 			throw new IllegalStateException("An error occurred while creating instance of type: " + type.getName(), ex);
 		}
 	}
-	
+
+	/**
+	 * Marks specified entry as used, if it is free
+	 * @param entry
+	 * @return True, if entry was free and marked as used
+	 */
+	private boolean acquire(Entry<T> entry)
+	{
+		if(entry.state.compareAndSet(STATE_FREE, STATE_USED))
+		{
+			idleCount.decrementAndGet();
+			return true;
+		}
+
+		if(entry.state.compareAndSet(STATE_CACHED, STATE_USED))
+		{
+			cachedCount.decrementAndGet();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Scans all pool entries for a free entry, which might be cached by other threads
+	 * @return Free object entry, if any
+	 */
+	private Entry<T> scanEntries()
+	{
+		for(Entry<T> poolEntry : entries.values())
+		{
+			if(acquire(poolEntry))
+			{
+				return poolEntry;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Tries to fetch free object without waiting. Current thread cache is checked first, then
+	 * shared free stack. If other threads have cached objects, pool entries are scanned to pick them up.
+	 * Then new object is created (within limit). As last option all pool entries are scanned, to pick up
+	 * objects freed meanwhile.
+	 * @return Free object entry, if any
+	 */
+	private Entry<T> tryGetEntry()
+	{
+		ArrayDeque<Entry<T>> cache = threadCache.get();
+		Entry<T> entry = null;
+
+		while((entry = cache.pollLast()) != null)
+		{
+			if(acquire(entry))
+			{
+				return entry;
+			}
+		}
+
+		while((entry = freeStack.pollFirst()) != null)
+		{
+			if(acquire(entry))
+			{
+				return entry;
+			}
+		}
+
+		//current thread cache is empty at this point, so cached objects are held by other threads
+		if(cachedCount.get() > 0 && (entry = scanEntries()) != null)
+		{
+			return entry;
+		}
+
+		if((entry = newEntry()) != null)
+		{
+			return entry;
+		}
+
+		return scanEntries();
+	}
+
 	/**
 	 * Gets object from the pool. If no new object is available, new object is created (in specified pool limit)
-	 * 
+	 *
 	 * If pool size limit is reached, returns null
 	 * @return
 	 */
 	public T getObject()
 	{
-		try
-		{
-			return getObject(false);
-		}catch(InterruptedException ex)
-		{
-			//this is not suppose to happen
-			throw new IllegalStateException("Unexpected error occurred", ex);
-		}
+		Entry<T> entry = tryGetEntry();
+		return (entry != null) ? entry.object : null;
 	}
-	
+
 	/**
 	 * Gets object from the pool. If no new object is available, new object is created (in specified pool limit)
-	 * 
+	 *
 	 * If pool size limit is reached, waits till object is available
 	 * @return
 	 */
 	public T getObjectWithWait() throws InterruptedException
 	{
-		return getObject(true);
+		return getObject(-1);
 	}
-	
+
 	/**
-	 * @param wait
+	 * Gets object from the pool. If no new object is available, new object is created (in specified pool limit)
+	 *
+	 * If pool size limit is reached, waits till object is available or till specified timeout is elapsed
+	 * @param timeout Max time to wait
+	 * @param unit Unit of timeout
+	 * @return Free object or null, if timeout elapsed before object is available
+	 */
+	public T getObject(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		if(timeout < 0)
+		{
+			throw new IllegalArgumentException("Timeout can not be negative - " + timeout);
+		}
+
+		return getObject(unit.toNanos(timeout));
+	}
+
+	/**
+	 * @param timeoutNanos Max time to wait in nanos. Negative value indicates to wait till object is available
 	 * @return
 	 * @throws InterruptedException
 	 */
-	private T getObject(boolean wait) throws InterruptedException
+	private T getObject(long timeoutNanos) throws InterruptedException
 	{
-		poolLock.lock();
-		
+		Entry<T> entry = tryGetEntry();
+
+		if(entry != null)
+		{
+			return entry.object;
+		}
+
+		if(timeoutNanos == 0)
+		{
+			return null;
+		}
+
+		logger.debug("Wait for availability of free object");
+
+		//wait count should be incremented before checking again, so that freeing threads would notify
+		waitCount.incrementAndGet();
+
 		try
 		{
-			T inst = null;
-			
-			//if the object is not available
-			if(freeObjects.isEmpty())
+			poolLock.lockInterruptibly();
+
+			try
 			{
-				//if pool is within limits
-				if(poolSize < poolSizeLimit)
-				{
-					inst = newObject();
-				}
-				//if pool limit is already reached
-				else
+				long remaining = timeoutNanos;
+
+				while((entry = tryGetEntry()) == null)
 				{
-					//if wait is enabled
-					if(wait)
+					if(timeoutNanos < 0)
 					{
-						logger.debug("Wait for availability of free object");
-						
-						//wait till object is available
-						while(freeObjects.isEmpty())
-						{
-							OBJECT_AVAILALBE.await();
-						}
-						
-						inst = freeObjects.remove(0);
+						OBJECT_AVAILALBE.await();
+						continue;
 					}
-					//if wait is not enabled
-					else
+
+					if(remaining <= 0)
 					{
 						return null;
 					}
+
+					remaining = OBJECT_AVAILALBE.awaitNanos(remaining);
 				}
-			}
-			//if object is available
-			else
+
+				return entry.object;
+			}finally
 			{
-				inst = freeObjects.remove(0);
+				poolLock.unlock();
 			}
-			
-			//add the object to used objects
-			usedObjects.add(inst);
-			return inst;
+		}finally
+		{
+			waitCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Notifies waiting threads (if any) about availability of object
+	 */
+	private void signalWaiters()
+	{
+		poolLock.lock();
+
+		try
+		{
+			OBJECT_AVAILALBE.signal();
 		}finally
 		{
 			poolLock.unlock();
@@ -170,22 +459,72 @@ public class ObjectPool<T>
 	 */
 	public boolean freeObject(T object)
 	{
-		poolLock.lock();
-		
-		try
+		if(object == null)
 		{
-			//remove from used objects
-			if(usedObjects.remove(object))
+			return false;
+		}
+
+		IdentityKey key = lookupKey.get();
+		key.set(object);
+
+		Entry<T> entry = entries.get(key);
+		key.set(null);
+
+		if(entry == null)
+		{
+			return false;
+		}
+
+		ArrayDeque<Entry<T>> cache = threadCache.get();
+
+		//drop the cached entries picked up by other threads
+		for(Iterator<Entry<T>> it = cache.iterator(); it.hasNext();)
+		{
+			if(it.next().state.get() != STATE_CACHED)
 			{
-				//add to free list
-				freeObjects.add(object);
-				return true;
+				it.remove();
 			}
-			
-			return false;
-		}finally
+		}
+
+		//if max idle count is reached, discard the object. Objects cached by other threads are not counted, as
+		//they may never be freed by those threads
+		if(idleCount.get() + cache.size() >= maxIdle)
 		{
-			poolLock.unlock();
+			if(!entry.state.compareAndSet(STATE_USED, STATE_REMOVED))
+			{
+				return false;
+			}
+
+			entries.remove(entry.key);
+			poolSize.decrementAndGet();
 		}
+		//when threads are waiting, keep the object in shared stack so that waiting threads can pick it
+		else if(waitCount.get() == 0 && cache.size() < THREAD_CACHE_SIZE)
+		{
+			if(!entry.state.compareAndSet(STATE_USED, STATE_CACHED))
+			{
+				return false;
+			}
+
+			cachedCount.incrementAndGet();
+			cache.addLast(entry);
+		}
+		else
+		{
+			if(!entry.state.compareAndSet(STATE_USED, STATE_FREE))
+			{
+				return false;
+			}
+
+			idleCount.incrementAndGet();
+			freeStack.addFirst(entry);
+		}
+
+		if(waitCount.get() > 0)
+		{
+			signalWaiters();
+		}
+
+		return true;
 	}
 }
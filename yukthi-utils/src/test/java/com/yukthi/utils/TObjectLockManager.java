@@ -3,6 +3,11 @@
  */
 package com.yukthi.utils;
 
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -241,4 +246,201 @@ public class TObjectLockManager
 		
 		Assert.assertEquals(objectLockManager.getLockCount(), 0, "Some locks are not released.");
 	}
+	
+	/**
+	 * Tests same thread can lock same object multiple times
+	 */
+	@Test(groups = ITestGroups.UNIT_TESTS)
+	public void testReentrantLock() throws Exception
+	{
+		ObjectLockManager lockManager = new ObjectLockManager();
+		
+		lockManager.lockObject(forLock);
+		lockManager.lockObject(forLock);
+		
+		Assert.assertEquals(lockManager.getLockOwner(forLock), Thread.currentThread());
+		Assert.assertEquals(lockManager.getLockCount(), 1);
+		
+		//lock should be held till it is released same number of times
+		lockManager.releaseObject(forLock);
+		Assert.assertTrue(lockManager.isObjectLocked(forLock));
+		
+		lockManager.releaseObject(forLock);
+		Assert.assertFalse(lockManager.isObjectLocked(forLock));
+		Assert.assertNull(lockManager.getLockOwner(forLock));
+	}
+	
+	/**
+	 * Tests try lock fails after timeout when object is locked by other thread
+	 */
+	@Test(groups = ITestGroups.UNIT_TESTS)
+	public void testTryLock() throws Exception
+	{
+		final ObjectLockManager lockManager = new ObjectLockManager();
+		final boolean result[] = new boolean[2];
+		
+		Assert.assertTrue(lockManager.tryLockObject(forLock, 0, TimeUnit.MILLISECONDS));
+		
+		Thread thread = new Thread()
+		{
+			public void run()
+			{
+				try
+				{
+					result[0] = lockManager.tryLockObject(forLock, 100, TimeUnit.MILLISECONDS);
+					result[1] = lockManager.tryLockObject(forLock, 5, TimeUnit.SECONDS);
+					
+					if(result[1])
+					{
+						lockManager.releaseObject(forLock);
+					}
+				}catch(InterruptedException ex)
+				{}
+			}
+		};
+		
+		thread.start();
+		Thread.sleep(1000);
+		
+		//first attempt should time out, second should succeed once lock is released
+		Assert.assertFalse(result[0]);
+		lockManager.releaseObject(forLock);
+		
+		thread.join();
+		
+		Assert.assertTrue(result[1]);
+		Assert.assertEquals(lockManager.getContentionCount(), 2);
+		Assert.assertEquals(lockManager.getLockCount(), 0, "Some locks are not released.");
+	}
+	
+	/**
+	 * Tests threads waiting for each other's objects are reported as deadlocked
+	 */
+	@Test(groups = ITestGroups.UNIT_TESTS)
+	public void testDeadlockDetection() throws Exception
+	{
+		final ObjectLockManager lockManager = new ObjectLockManager();
+		final Object lock1 = new Object(), lock2 = new Object();
+		final CountDownLatch lockedLatch = new CountDownLatch(2);
+		
+		Thread thread1 = new Thread()
+		{
+			public void run()
+			{
+				lockPair(lockManager, lock1, lock2, lockedLatch);
+			}
+		};
+		
+		Thread thread2 = new Thread()
+		{
+			public void run()
+			{
+				lockPair(lockManager, lock2, lock1, lockedLatch);
+			}
+		};
+		
+		thread1.start();
+		thread2.start();
+		
+		Set<Thread> deadlockedThreads = null;
+		
+		for(int i = 0; i < 100; i++)
+		{
+			deadlockedThreads = lockManager.findDeadlockedThreads();
+			
+			if(deadlockedThreads.size() == 2)
+			{
+				break;
+			}
+			
+			Thread.sleep(10);
+		}
+		
+		Assert.assertTrue(deadlockedThreads.contains(thread1));
+		Assert.assertTrue(deadlockedThreads.contains(thread2));
+		
+		//threads should come out after try lock timeout
+		thread1.join();
+		thread2.join();
+		
+		Assert.assertTrue(lockManager.findDeadlockedThreads().isEmpty());
+		Assert.assertEquals(lockManager.getLockCount(), 0, "Some locks are not released.");
+	}
+	
+	private void lockPair(ObjectLockManager lockManager, Object first, Object second, CountDownLatch lockedLatch)
+	{
+		try
+		{
+			lockManager.lockObject(first);
+			
+			try
+			{
+				lockedLatch.countDown();
+				lockedLatch.await();
+				
+				if(lockManager.tryLockObject(second, 2, TimeUnit.SECONDS))
+				{
+					lockManager.releaseObject(second);
+				}
+			}finally
+			{
+				lockManager.releaseObject(first);
+			}
+		}catch(InterruptedException ex)
+		{}
+	}
+	
+	/**
+	 * Benchmarks threads locking random customer ids with single stripe (equivalent to global lock)
+	 * and default stripes.
+	 */
+	@Test(groups = ITestGroups.UNIT_TESTS)
+	public void benchmarkContention() throws Exception
+	{
+		long singleStripe = runBenchmark(new ObjectLockManager(1));
+		long striped = runBenchmark(new ObjectLockManager());
+		
+		System.out.println(String.format("Object lock manager (32 threads) - single stripe: %,d locks/sec, striped: %,d locks/sec", 
+				singleStripe, striped));
+	}
+	
+	private long runBenchmark(final ObjectLockManager lockManager) throws Exception
+	{
+		final int THREAD_COUNT = 32, ITERATIONS = 20000, CUSTOMER_COUNT = 10000;
+		final CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
+		
+		long startTime = System.nanoTime();
+		
+		for(int i = 0; i < THREAD_COUNT; i++)
+		{
+			new Thread()
+			{
+				public void run()
+				{
+					Random random = new Random();
+					
+					try
+					{
+						for(int j = 0; j < ITERATIONS; j++)
+						{
+							Integer customerId = random.nextInt(CUSTOMER_COUNT);
+							
+							lockManager.lockObject(customerId);
+							lockManager.releaseObject(customerId);
+						}
+					}catch(InterruptedException ex)
+					{}
+					
+					latch.countDown();
+				}
+			}.start();
+		}
+		
+		latch.await();
+		
+		long timeTaken = System.nanoTime() - startTime;
+		Assert.assertEquals(lockManager.getLockCount(), 0, "Some locks are not released.");
+		
+		return (THREAD_COUNT * ITERATIONS * 1000000000L) / timeTaken;
+	}
 }
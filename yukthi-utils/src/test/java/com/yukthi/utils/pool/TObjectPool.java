@@ -1,5 +1,11 @@
 package com.yukthi.utils.pool;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -7,23 +13,193 @@ import com.yukthi.utils.pool.ObjectPool;
 
 public class TObjectPool
 {
+	public static class PooledBean
+	{
+		private AtomicInteger users = new AtomicInteger();
+	}
+
 	@Test
 	public void testObjectPoolLimits()
 	{
 		ObjectPool<String> pool = new ObjectPool<String>(String.class, 3);
-		
+
 		String s = null;
-		
+
 		//make sure objects are available till limit
 		Assert.assertNotNull(s = pool.getObject());
 		Assert.assertNotNull(pool.getObject());
 		Assert.assertNotNull(pool.getObject());
-		
+
 		//once limit is crossed, object should not be available
 		Assert.assertNull(pool.getObject());
-		
+
 		//free the object and then try
 		pool.freeObject(s);
 		Assert.assertNotNull(pool.getObject());
 	}
+
+	@Test
+	public void testFree()
+	{
+		ObjectPool<PooledBean> pool = new ObjectPool<PooledBean>(PooledBean.class, 2);
+		PooledBean bean = pool.getObject();
+
+		//unknown objects and double free should be rejected
+		Assert.assertFalse(pool.freeObject(new PooledBean()));
+		Assert.assertTrue(pool.freeObject(bean));
+		Assert.assertFalse(pool.freeObject(bean));
+
+		//freed object should be reused
+		Assert.assertSame(pool.getObject(), bean);
+		Assert.assertEquals(pool.getPoolSize(), 1);
+	}
+
+	@Test
+	public void testMaxIdle()
+	{
+		ObjectPool<PooledBean> pool = new ObjectPool<PooledBean>(PooledBean.class);
+		pool.setMaxIdle(2);
+
+		Map<PooledBean, Boolean> beans = new IdentityHashMap<PooledBean, Boolean>();
+
+		for(int i = 0; i < 5; i++)
+		{
+			beans.put(pool.getObject(), Boolean.TRUE);
+		}
+
+		Assert.assertEquals(pool.getPoolSize(), 5);
+
+		for(PooledBean bean : beans.keySet())
+		{
+			Assert.assertTrue(pool.freeObject(bean));
+		}
+
+		//objects freed beyond max idle count should be discarded
+		Assert.assertEquals(pool.getIdleCount(), 2);
+		Assert.assertEquals(pool.getPoolSize(), 2);
+	}
+
+	@Test
+	public void testObjectsCachedByExitedThread() throws Exception
+	{
+		final ObjectPool<PooledBean> pool = new ObjectPool<PooledBean>(PooledBean.class);
+		pool.setMaxIdle(4);
+
+		//thread which exits leaving freed objects in its cache
+		Thread thread = new Thread()
+		{
+			public void run()
+			{
+				PooledBean beans[] = new PooledBean[4];
+
+				for(int i = 0; i < beans.length; i++)
+				{
+					beans[i] = pool.getObject();
+				}
+
+				for(PooledBean bean : beans)
+				{
+					pool.freeObject(bean);
+				}
+			}
+		};
+
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(pool.getIdleCount(), 4);
+		Assert.assertEquals(pool.getPoolSize(), 4);
+
+		//objects left by the thread should be reused and objects freed by current thread should be retained
+		for(int i = 0; i < 10; i++)
+		{
+			PooledBean bean = pool.getObject();
+			Assert.assertTrue(pool.freeObject(bean));
+			Assert.assertSame(pool.getObject(), bean);
+			Assert.assertTrue(pool.freeObject(bean));
+		}
+
+		Assert.assertEquals(pool.getPoolSize(), 4);
+		Assert.assertEquals(pool.getIdleCount(), 4);
+	}
+
+	@Test
+	public void testTimeout() throws Exception
+	{
+		final ObjectPool<PooledBean> pool = new ObjectPool<PooledBean>(PooledBean.class, 1);
+		final PooledBean bean = pool.getObject();
+
+		long startTime = System.currentTimeMillis();
+		Assert.assertNull(pool.getObject(100, TimeUnit.MILLISECONDS));
+		Assert.assertTrue(System.currentTimeMillis() - startTime >= 90);
+
+		//object freed by other thread should be handed over to waiting thread
+		Thread thread = new Thread()
+		{
+			public void run()
+			{
+				try
+				{
+					Thread.sleep(100);
+				}catch(InterruptedException ex)
+				{}
+
+				pool.freeObject(bean);
+			}
+		};
+
+		thread.start();
+		Assert.assertSame(pool.getObject(5, TimeUnit.SECONDS), bean);
+		thread.join();
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception
+	{
+		final int THREAD_COUNT = 8, ITERATIONS = 20000;
+		final ObjectPool<PooledBean> pool = new ObjectPool<PooledBean>(PooledBean.class, 3);
+		final AtomicInteger errors = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
+
+		for(int i = 0; i < THREAD_COUNT; i++)
+		{
+			new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						for(int j = 0; j < ITERATIONS; j++)
+						{
+							PooledBean bean = pool.getObjectWithWait();
+
+							//same object should not be given to two threads at same time
+							if(bean.users.incrementAndGet() != 1)
+							{
+								errors.incrementAndGet();
+							}
+
+							bean.users.decrementAndGet();
+
+							if(!pool.freeObject(bean))
+							{
+								errors.incrementAndGet();
+							}
+						}
+					}catch(Exception ex)
+					{
+						errors.incrementAndGet();
+					}finally
+					{
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+
+		Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+		Assert.assertEquals(errors.get(), 0);
+		Assert.assertTrue(pool.getPoolSize() <= 3);
+		Assert.assertEquals(pool.getIdleCount(), pool.getPoolSize());
+	}
 }